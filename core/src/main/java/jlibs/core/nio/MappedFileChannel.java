@@ -0,0 +1,180 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.core.nio;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.*;
+
+/**
+ * Reads a file through memory mapped windows, instead of read system calls.
+ * <p>
+ * The file is mapped one window at a time. When a window is exhausted, the next one
+ * is mapped. If a prefetcher is given, the next window is mapped and loaded into
+ * physical memory ({@link MappedByteBuffer#load()}) on the prefetcher, while the
+ * current window is being read. This is the closest java offers to
+ * {@code madvise(MADV_SEQUENTIAL|MADV_WILLNEED)}.
+ * <p>
+ * Windows are not unmapped explicitly; mapped memory is released when the
+ * window is garbage collected.
+ *
+ * @author Santhosh Kumar T
+ */
+public final class MappedFileChannel implements ReadableByteChannel{
+    public static final int DEFAULT_WINDOW_SIZE = 64*1024*1024;
+
+    private FileChannel file;
+    private final long size;
+    private final int windowSize;
+    private final Executor prefetcher;
+
+    private long windowEnd;
+    private MappedByteBuffer window;
+    private Future<MappedByteBuffer> nextWindow;
+
+    /**
+     * @param position      position in file from which reading starts
+     * @param windowSize    number of bytes mapped at a time
+     * @param prefetcher    executor used to map and load next window. null to disable prefetching
+     */
+    public MappedFileChannel(FileChannel file, long position, int windowSize, Executor prefetcher) throws IOException{
+        this(file, position, windowSize, prefetcher, false);
+    }
+
+    /**
+     * opens given file for reading. the file is closed if this constructor fails
+     *
+     * @see #MappedFileChannel(FileChannel, long, int, Executor)
+     */
+    public MappedFileChannel(File file, long position, int windowSize, Executor prefetcher) throws IOException{
+        this(FileChannel.open(file.toPath(), StandardOpenOption.READ), position, windowSize, prefetcher, true);
+    }
+
+    public MappedFileChannel(File file) throws IOException{
+        this(file, 0, DEFAULT_WINDOW_SIZE, null);
+    }
+
+    private MappedFileChannel(FileChannel file, long position, int windowSize, Executor prefetcher, boolean owned) throws IOException{
+        try{
+            if(windowSize<=0)
+                throw new IllegalArgumentException("windowSize: "+windowSize);
+            size = file.size();
+        }catch(Throwable thr){
+            if(owned){
+                try{
+                    file.close();
+                }catch(Throwable suppressed){
+                    thr.addSuppressed(suppressed);
+                }
+            }
+            throw thr;
+        }
+        this.file = file;
+        this.windowSize = windowSize;
+        this.prefetcher = prefetcher;
+        windowEnd = Math.min(position, size);
+    }
+
+    /**
+     * returns position in file, of the next byte to be read
+     */
+    public long position(){
+        return window==null ? windowEnd : windowEnd-window.remaining();
+    }
+
+    private MappedByteBuffer map(long position) throws IOException{
+        return file.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowSize, size-position));
+    }
+
+    private boolean nextWindow() throws IOException{
+        if(windowEnd==size)
+            return false;
+        if(nextWindow!=null){
+            try{
+                window = nextWindow.get();
+            }catch(InterruptedException ex){
+                throw new IOException(ex);
+            }catch(ExecutionException ex){
+                Throwable cause = ex.getCause();
+                throw cause instanceof IOException ? (IOException)cause : new IOException(cause);
+            }
+            nextWindow = null;
+        }else
+            window = map(windowEnd);
+        windowEnd += window.capacity();
+
+        if(prefetcher!=null && windowEnd<size){
+            final long position = windowEnd;
+            FutureTask<MappedByteBuffer> task = new FutureTask<MappedByteBuffer>(new Callable<MappedByteBuffer>(){
+                @Override
+                public MappedByteBuffer call() throws Exception{
+                    return map(position).load();
+                }
+            });
+            prefetcher.execute(task);
+            nextWindow = task;
+        }
+        return true;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException{
+        if(file==null)
+            throw new IOException("channel is closed");
+        if(window==null || !window.hasRemaining()){
+            window = null;
+            if(!nextWindow())
+                return -1;
+        }
+        int read = Math.min(dst.remaining(), window.remaining());
+        if(dst.hasArray()){
+            window.get(dst.array(), dst.arrayOffset()+dst.position(), read);
+            dst.position(dst.position()+read);
+        }else if(read==window.remaining())
+            dst.put(window);
+        else{
+            ByteBuffer slice = window.duplicate();
+            slice.limit(slice.position()+read);
+            dst.put(slice);
+            window.position(slice.position());
+        }
+        return read;
+    }
+
+    @Override
+    public boolean isOpen(){
+        return file!=null;
+    }
+
+    @Override
+    public void close() throws IOException{
+        if(nextWindow!=null){
+            nextWindow.cancel(false);
+            nextWindow = null;
+        }
+        window = null;
+        if(file!=null){
+            file.close();
+            file = null;
+        }
+    }
+}
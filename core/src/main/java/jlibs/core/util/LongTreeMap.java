@@ -32,6 +32,64 @@ import java.util.NoSuchElementException;
 public final class LongTreeMap<V>{
     private transient Entry<V> root;
     private transient int size;
+    private final EntryPool<V> entryPool;
+
+    public LongTreeMap(){
+        this(null);
+    }
+
+    /**
+     * @param entryPool pool from which entries are taken, and to which
+     *                  removed entries are returned. can be null
+     */
+    public LongTreeMap(EntryPool<V> entryPool){
+        this.entryPool = entryPool;
+    }
+
+    /**
+     * Free list of entries, which can be shared by maps to reuse the entries
+     * removed from each other, rather than creating new ones.
+     * <p>
+     * Note that entries are returned to pool, as soon as they are removed.
+     * So entries shouldn't be used after removal from a map using pool.
+     * This class is not thread safe.
+     */
+    public static final class EntryPool<V>{
+        private final int maxSize;
+        private Entry<V> free;
+        private int size;
+
+        /**
+         * @param maxSize maximum number of entries retained for reuse
+         */
+        public EntryPool(int maxSize){
+            this.maxSize = maxSize;
+        }
+
+        Entry<V> entry(long key, V value, Entry<V> parent){
+            Entry<V> entry = free;
+            if(entry==null)
+                return new Entry<V>(key, value, parent);
+            free = entry.right;
+            size--;
+            entry.key = key;
+            entry.value = value;
+            entry.parent = parent;
+            entry.right = null;
+            entry.color = RED;
+            return entry;
+        }
+
+        void recycle(Entry<V> entry){
+            if(size<maxSize){
+                entry.value = null;
+                entry.left = entry.parent = null;
+                entry.right = free;
+                free = entry;
+                size++;
+            }
+        }
+    }
 
     // Red-black mechanics
     private static final boolean RED   = false;
@@ -310,12 +368,16 @@ public final class LongTreeMap<V>{
         return size==0;
     }
 
+    private Entry<V> newEntry(long key, V value, Entry<V> parent){
+        return entryPool==null ? new Entry<V>(key, value, parent) : entryPool.entry(key, value, parent);
+    }
+
     public V put(long key, V value){
         assert value!=null;
 
         Entry<V> t = root;
         if(t==null){
-            root = new Entry<V>(key, value, null);
+            root = newEntry(key, value, null);
             root.color = BLACK;
             size = 1;
             return null;
@@ -339,7 +401,7 @@ public final class LongTreeMap<V>{
             }
         }while(t!=null);
 
-        Entry<V> e = new Entry<V>(key, value, parent);
+        Entry<V> e = newEntry(key, value, parent);
         if(cmp)
             parent.left = e;
         else
@@ -399,6 +461,8 @@ public final class LongTreeMap<V>{
                 p.parent = null;
             }
         }
+        if(entryPool!=null)
+            entryPool.recycle(p);
     }
 
     public V remove(long key){
@@ -412,6 +476,22 @@ public final class LongTreeMap<V>{
     }
 
     public void clear(){
+        if(entryPool!=null){
+            // flattens the tree by rotating left children up, returning each entry having no left child
+            Entry<V> p = root;
+            while(p!=null){
+                Entry<V> left = p.left;
+                if(left!=null){
+                    p.left = left.right;
+                    left.right = p;
+                    p = left;
+                }else{
+                    Entry<V> right = p.right;
+                    entryPool.recycle(p);
+                    p = right;
+                }
+            }
+        }
         size = 0;
         root = null;
     }
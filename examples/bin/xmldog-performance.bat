@@ -1,2 +0,0 @@
-@ECHO OFF
-CALL %~p0launcher\jlaunch.bat %~p0examples.conf jlibs.examples.xml.sax.dog.tests.XPathPerformanceTest
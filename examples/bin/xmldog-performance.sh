@@ -1,3 +0,0 @@
-#!/bin/sh
-
-`dirname $0`/launcher/jlaunch.sh `dirname $0`/examples.conf jlibs.examples.xml.sax.dog.tests.XPathPerformanceTest
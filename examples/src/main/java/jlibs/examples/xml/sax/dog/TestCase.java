@@ -52,6 +52,8 @@ public class TestCase{
     public static boolean useSTAX = false;
     public static boolean useXMLBuilder = false;
     public static boolean useInstantResults = false;
+    public static boolean compilePredicates = false;
+    public static boolean prefixSharing = false;
     public static XPathEngine domEngine =
 //            new JDKEngine(new com.sun.org.apache.xpath.internal.jaxp.XPathFactoryImpl());
 //            new JDKEngine(new org.apache.xpath.jaxp.XPathFactoryImpl());
@@ -75,6 +77,8 @@ public class TestCase{
     public List<Object> usingXMLDog() throws Exception{
         InputSource source = new InputSource(file);
         final XMLDog dog = new XMLDog(nsContext, variableResolver, functionResolver);
+        dog.setCompilePredicates(compilePredicates);
+        dog.setPrefixSharing(prefixSharing);
         Expression expressions[] = new Expression[xpaths.size()];
         for(int i=0; i<xpaths.size(); i++){
             XPathInfo xpathInfo = xpaths.get(i);
@@ -17,7 +17,6 @@
 package jlibs.examples.xml.sax.dog;
 
 import jlibs.examples.xml.sax.dog.tests.XPathConformanceTest;
-import jlibs.examples.xml.sax.dog.tests.XPathPerformanceTest;
 
 /**
  * @author Santhosh Kumar T
@@ -25,6 +24,5 @@ import jlibs.examples.xml.sax.dog.tests.XPathPerformanceTest;
 public class XPathTest{
     public static void main(String[] args) throws Exception{
         XPathConformanceTest.main(args);
-        XPathPerformanceTest.main(args);
     }
 }
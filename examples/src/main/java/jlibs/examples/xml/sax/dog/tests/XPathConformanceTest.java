@@ -27,15 +27,25 @@ public class XPathConformanceTest{
     private TestSuite testSuite;
 
     public XPathConformanceTest(String args[], boolean useSTAX, boolean useXMLBuilder, boolean useInstantResults) throws Exception{
+        this(args, useSTAX, useXMLBuilder, useInstantResults, false);
+    }
+
+    public XPathConformanceTest(String args[], boolean useSTAX, boolean useXMLBuilder, boolean useInstantResults, boolean compilePredicates) throws Exception{
+        this(args, useSTAX, useXMLBuilder, useInstantResults, compilePredicates, false);
+    }
+
+    public XPathConformanceTest(String args[], boolean useSTAX, boolean useXMLBuilder, boolean useInstantResults, boolean compilePredicates, boolean prefixSharing) throws Exception{
         testSuite = args.length==0 ? new TestSuite() : new TestSuite(args[0]);
         TestCase.useSTAX = useSTAX;
         TestCase.useXMLBuilder = useXMLBuilder;
         TestCase.useInstantResults = useInstantResults;
+        TestCase.compilePredicates = compilePredicates;
+        TestCase.prefixSharing = prefixSharing;
     }
 
     public void run() throws Exception{
         System.out.println("-----------------------------------------------------------------------");
-        System.out.println("useSTAX: "+TestCase.useSTAX+"\t useXMLBuilder: "+TestCase.useXMLBuilder+"\t useInstantResults: "+TestCase.useInstantResults);
+        System.out.println("useSTAX: "+TestCase.useSTAX+"\t useXMLBuilder: "+TestCase.useXMLBuilder+"\t useInstantResults: "+TestCase.useInstantResults+"\t compilePredicates: "+TestCase.compilePredicates+"\t prefixSharing: "+TestCase.prefixSharing);
 //        System.out.println("Press <ENTER> to run tests.....");
 //        System.in.read();
 
@@ -81,5 +91,13 @@ public class XPathConformanceTest{
 
         new XPathConformanceTest(args, true, true, false).run();
         new XPathConformanceTest(args, true, true, true).run();
+
+        new XPathConformanceTest(args, false, false, false, true).run();
+        new XPathConformanceTest(args, false, false, true, true).run();
+        new XPathConformanceTest(args, false, true, false, true).run();
+
+        new XPathConformanceTest(args, false, false, false, false, true).run();
+        new XPathConformanceTest(args, false, false, true, false, true).run();
+        new XPathConformanceTest(args, false, true, false, false, true).run();
     }
 }
\ No newline at end of file
@@ -0,0 +1,178 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.json.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import jlibs.json.parser.DefaultJSONHandler;
+import jlibs.json.parser.JSONParser;
+import jlibs.nbp.Feeder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses large in-memory json documents with JSONParser and with
+ * Jackson's blocking streaming parser.
+ * <p>
+ * {@code jsonParserChunked} feeds the document in small chunks, with a
+ * would-block read after each chunk, as it happens on a non-blocking socket.
+ *
+ * @author Santhosh Kumar T
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class JSONParserBenchmark{
+    /** records: array of small objects. text: long string values */
+    @Param({ "records", "text" })
+    public String document;
+
+    @Param({ "1460" })
+    public int chunkSize;
+
+    private byte doc[];
+    private JSONParser jsonParser;
+    private JsonFactory jsonFactory;
+    private Blackhole blackhole;
+
+    @Setup
+    public void setup(Blackhole blackhole) throws Exception{
+        this.blackhole = blackhole;
+        StringBuilder buff = new StringBuilder();
+        if("records".equals(document)){
+            buff.append("[\n");
+            for(int i=0; i<20000; i++){
+                if(i>0)
+                    buff.append(",\n");
+                buff.append("  {\"id\": ").append(i)
+                    .append(", \"name\": \"user").append(i).append('"')
+                    .append(", \"price\": ").append(i).append(".25e-1")
+                    .append(", \"active\": ").append(i%2==0)
+                    .append(", \"tags\": [\"a\", \"b\\tc\", null]")
+                    .append(", \"address\": {\"city\": \"Hyderabad\", \"zip\": \"500081\"}}");
+            }
+            buff.append("\n]");
+        }else{
+            buff.append("{\"paragraphs\": [");
+            for(int i=0; i<2000; i++){
+                if(i>0)
+                    buff.append(", ");
+                buff.append('"');
+                for(int j=0; j<8; j++)
+                    buff.append("Lorem ipsum dolor sit amet, consectetur adipiscing elit,\\nsed do eiusmod tempor incididunt ut labore et dolore magna aliqua. ");
+                buff.append('"');
+            }
+            buff.append("]}");
+        }
+        doc = buff.toString().getBytes("UTF-8");
+
+        jsonParser = new JSONParser();
+        jsonParser.setHandler(new DefaultJSONHandler(){
+            @Override
+            public void key(CharSequence name){
+                JSONParserBenchmark.this.blackhole.consume(name.length());
+            }
+
+            @Override
+            public void string(CharSequence value){
+                JSONParserBenchmark.this.blackhole.consume(value.length());
+            }
+
+            @Override
+            public void number(CharSequence value, boolean decimal){
+                JSONParserBenchmark.this.blackhole.consume(value.length());
+            }
+        });
+
+        jsonFactory = new JsonFactory();
+    }
+
+    @Benchmark
+    public void jsonParser() throws Exception{
+        jsonParser.parse(new ByteArrayInputStream(doc), "UTF-8");
+    }
+
+    @Benchmark
+    public void jsonParserChunked() throws Exception{
+        Feeder feeder = jsonParser.createFeeder(new ChunkedChannel(doc, chunkSize), "UTF-8");
+        while(feeder!=null)
+            feeder = feeder.feed();
+    }
+
+    @Benchmark
+    public void jackson() throws Exception{
+        try(JsonParser parser = jsonFactory.createParser(doc)){
+            JsonToken token;
+            while((token=parser.nextToken())!=null){
+                switch(token){
+                    case FIELD_NAME:
+                    case VALUE_STRING:
+                    case VALUE_NUMBER_INT:
+                    case VALUE_NUMBER_FLOAT:
+                        blackhole.consume(parser.getTextLength());
+                }
+            }
+        }
+    }
+
+    /**
+     * returns at most chunkSize bytes per read, and alternates
+     * each chunk with a read that returns zero bytes
+     */
+    private static class ChunkedChannel implements ReadableByteChannel{
+        private final byte bytes[];
+        private final int chunkSize;
+        private int position;
+        private boolean wouldBlock;
+
+        ChunkedChannel(byte bytes[], int chunkSize){
+            this.bytes = bytes;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException{
+            if(position==bytes.length)
+                return -1;
+            wouldBlock = !wouldBlock;
+            if(!wouldBlock)
+                return 0;
+            int len = Math.min(Math.min(chunkSize, dst.remaining()), bytes.length-position);
+            dst.put(bytes, position, len);
+            position += len;
+            return len;
+        }
+
+        @Override
+        public boolean isOpen(){
+            return true;
+        }
+
+        @Override
+        public void close(){}
+    }
+}
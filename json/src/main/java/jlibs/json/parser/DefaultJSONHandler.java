@@ -0,0 +1,58 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.json.parser;
+
+/**
+ * {@link JSONHandler} which ignores all notifications.
+ * Extend this to handle only notifications of interest.
+ *
+ * @author Santhosh Kumar T
+ */
+public class DefaultJSONHandler implements JSONHandler{
+    @Override
+    public void startDocument() throws JSONException{}
+
+    @Override
+    public void endDocument() throws JSONException{}
+
+    @Override
+    public void startObject() throws JSONException{}
+
+    @Override
+    public void key(CharSequence name) throws JSONException{}
+
+    @Override
+    public void endObject() throws JSONException{}
+
+    @Override
+    public void startArray() throws JSONException{}
+
+    @Override
+    public void endArray() throws JSONException{}
+
+    @Override
+    public void string(CharSequence value) throws JSONException{}
+
+    @Override
+    public void number(CharSequence value, boolean decimal) throws JSONException{}
+
+    @Override
+    public void booleanValue(boolean value) throws JSONException{}
+
+    @Override
+    public void nullValue() throws JSONException{}
+}
@@ -0,0 +1,56 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.json.parser;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the input is not well-formed json, or by {@link JSONHandler}
+ * to abort parsing.
+ *
+ * @author Santhosh Kumar T
+ */
+public class JSONException extends IOException{
+    private final int lineNumber;
+    private final int columnNumber;
+
+    public JSONException(String message){
+        this(message, -1, -1);
+    }
+
+    public JSONException(String message, int lineNumber, int columnNumber){
+        super(message);
+        this.lineNumber = lineNumber;
+        this.columnNumber = columnNumber;
+    }
+
+    public int getLineNumber(){
+        return lineNumber;
+    }
+
+    public int getColumnNumber(){
+        return columnNumber;
+    }
+
+    @Override
+    public String toString(){
+        String str = super.toString();
+        if(lineNumber==-1)
+            return str;
+        return str+" [line "+lineNumber+", column "+columnNumber+']';
+    }
+}
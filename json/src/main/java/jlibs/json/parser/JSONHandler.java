@@ -0,0 +1,47 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.json.parser;
+
+/**
+ * Receives notifications of json parsing, similar to SAX ContentHandler.
+ * <p>
+ * CharSequences passed to {@link #key(CharSequence)}, {@link #string(CharSequence)}
+ * and {@link #number(CharSequence, boolean)} are reused by the parser, and are
+ * valid only during that call. Use {@code toString()} to retain them.
+ *
+ * @author Santhosh Kumar T
+ */
+public interface JSONHandler{
+    public void startDocument() throws JSONException;
+    public void endDocument() throws JSONException;
+
+    public void startObject() throws JSONException;
+    public void key(CharSequence name) throws JSONException;
+    public void endObject() throws JSONException;
+
+    public void startArray() throws JSONException;
+    public void endArray() throws JSONException;
+
+    public void string(CharSequence value) throws JSONException;
+
+    /**
+     * @param decimal true if value has fraction or exponent
+     */
+    public void number(CharSequence value, boolean decimal) throws JSONException;
+    public void booleanValue(boolean value) throws JSONException;
+    public void nullValue() throws JSONException;
+}
@@ -0,0 +1,229 @@
+/*
+ * JLibs: Common Utilities for Java
+ * Copyright (C) 2009  Santhosh Kumar T <santhosh.tekuri@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ */
+
+
+package jlibs.json.parser;
+
+import jlibs.nbp.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Non-blocking json parser, which reports parsing events to {@link JSONHandler}.
+ * <p>
+ * For blocking input, use {@link #parse(InputStream, String)} or {@link #parse(Reader)}.
+ * <p>
+ * For non-blocking input, create {@link Feeder} using {@link #createFeeder(ReadableByteChannel, String)}
+ * and call {@link Feeder#feed()} whenever the channel is readable. {@code feed()} returns null
+ * once the whole document is parsed.
+ * <p>
+ * Encoding defaults to UTF-8, unless input starts with byte order mark.
+ *
+ * @author Santhosh Kumar T
+ */
+public class JSONParser implements NBHandler<JSONException>{
+    private JSONHandler handler = new DefaultJSONHandler();
+
+    public JSONHandler getHandler(){
+        return handler;
+    }
+
+    public void setHandler(JSONHandler handler){
+        this.handler = handler==null ? new DefaultJSONHandler() : handler;
+    }
+
+    /*-------------------------------------------------[ Parsing ]---------------------------------------------------*/
+
+    private final JSONScanner scanner = new JSONScanner(this, JSONScanner.RULE_JSON);
+    private NBChannel byteChannel;
+    private Feeder feeder;
+
+    private Feeder createFeeder(ReadableCharChannel channel) throws JSONException{
+        scanner.reset();
+        depth = 0;
+        expectKey = decimal = false;
+        string.setLength(0);
+        if(feeder==null)
+            feeder = new Feeder(scanner, channel);
+        else
+            feeder.setChannel(channel);
+        handler.startDocument();
+        return feeder;
+    }
+
+    /**
+     * @param encoding  encoding of the input. null means autodetect
+     */
+    public Feeder createFeeder(ReadableByteChannel channel, String encoding) throws JSONException{
+        if(byteChannel==null)
+            byteChannel = new NBChannel(channel);
+        else
+            byteChannel.setChannel(channel);
+        if(encoding==null)
+            byteChannel.setEncoding("UTF-8", true);
+        else
+            byteChannel.setEncoding(encoding, false);
+        return createFeeder(byteChannel);
+    }
+
+    public Feeder createFeeder(Reader reader) throws JSONException{
+        return createFeeder(new NBReaderChannel(reader));
+    }
+
+    public void parse(InputStream in, String encoding) throws IOException{
+        if(createFeeder(Channels.newChannel(in), encoding).feed()!=null)
+            throw new IOException("parse(...) shouldn't be used on non-blocking IO");
+    }
+
+    public void parse(Reader reader) throws IOException{
+        if(createFeeder(reader).feed()!=null)
+            throw new IOException("parse(...) shouldn't be used on non-blocking IO");
+    }
+
+    public int getLineNumber(){
+        return scanner.getLineNumber();
+    }
+
+    public int getColumnNumber(){
+        return scanner.getColumnNumber();
+    }
+
+    @Override
+    public void onSuccessful() throws JSONException{
+        handler.endDocument();
+    }
+
+    @Override
+    public JSONException fatalError(String message){
+        return new JSONException(message, scanner.getLineNumber(), scanner.getColumnNumber());
+    }
+
+    /*-------------------------------------------------[ Structure ]---------------------------------------------------*/
+
+    // objects[i] tells whether container at depth i is object or array
+    private boolean objects[] = new boolean[16];
+    private int depth;
+    private boolean expectKey;
+
+    private void push(boolean object){
+        if(depth==objects.length)
+            objects = Arrays.copyOf(objects, depth*2);
+        objects[depth++] = object;
+    }
+
+    void objectStart() throws JSONException{
+        push(true);
+        expectKey = true;
+        handler.startObject();
+    }
+
+    void objectEnd() throws JSONException{
+        depth--;
+        handler.endObject();
+    }
+
+    void arrayStart() throws JSONException{
+        push(false);
+        handler.startArray();
+    }
+
+    void arrayEnd() throws JSONException{
+        depth--;
+        handler.endArray();
+    }
+
+    void valueStart(){
+        expectKey = false;
+    }
+
+    void valueEnd(){
+        expectKey = depth>0 && objects[depth-1];
+    }
+
+    /*-------------------------------------------------[ Values ]---------------------------------------------------*/
+
+    void trueValue() throws JSONException{
+        handler.booleanValue(true);
+    }
+
+    void falseValue() throws JSONException{
+        handler.booleanValue(false);
+    }
+
+    void nullValue() throws JSONException{
+        handler.nullValue();
+    }
+
+    private boolean decimal;
+    void decimal(){
+        decimal = true;
+    }
+
+    void number(Chars data) throws JSONException{
+        handler.number(data, decimal);
+        decimal = false;
+    }
+
+    /*-------------------------------------------------[ Strings ]---------------------------------------------------*/
+
+    private final StringBuilder string = new StringBuilder();
+
+    void rawString(Chars data){
+        string.append(data.array(), data.offset(), data.length());
+    }
+
+    void escapeChar(Chars data){
+        char ch = data.charAt(0);
+        switch(ch){
+            case 'b':
+                ch = '\b';
+                break;
+            case 'f':
+                ch = '\f';
+                break;
+            case 'n':
+                ch = '\n';
+                break;
+            case 'r':
+                ch = '\r';
+                break;
+            case 't':
+                ch = '\t';
+                break;
+        }
+        string.append(ch);
+    }
+
+    void hexString(Chars data){
+        int ch = 0;
+        for(int i=0; i<4; i++)
+            ch = (ch<<4) | Character.digit(data.charAt(i), 16);
+        string.append((char)ch);
+    }
+
+    void stringEnd() throws JSONException{
+        if(expectKey){
+            expectKey = false;
+            handler.key(string);
+        }else
+            handler.string(string);
+        string.setLength(0);
+    }
+}
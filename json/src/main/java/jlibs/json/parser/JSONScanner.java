@@ -0,0 +1,583 @@
+package jlibs.json.parser;
+
+import java.io.IOException;
+import static java.lang.Character.*;
+
+/**
+ * DON'T EDIT THIS FILE. THIS IS GENERATED BY JLIBS
+ *
+ * @author Santhosh Kumar T
+ */
+public final class JSONScanner extends jlibs.nbp.NBParser{
+
+    private static final int STRING_IDS[][] = {
+        {}, // dummy one
+        {116, 114, 117, 101}, // true
+        {102, 97, 108, 115, 101}, // false
+        {110, 117, 108, 108}, // null
+    };
+
+    public static final int RULE_TRUERULE = -1;
+    public static final int RULE_FALSERULE = -2;
+    public static final int RULE_NULLRULE = -3;
+
+    /*-------------------------------------------------[ Matchers ]---------------------------------------------------*/
+
+    private static final int LATIN1_MATCHERS[] = {
+        0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x1, 0x1, 0x0, 0x0, 0x1, 0x0, 0x0,
+        0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0,
+        0x5, 0x4, 0x0, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4,
+        0x6, 0x6, 0x6, 0x6, 0x6, 0x6, 0x6, 0x6, 0x6, 0x6, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4,
+        0x4, 0x6, 0x6, 0x6, 0x6, 0x6, 0x6, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4,
+        0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x0, 0x4, 0x4, 0x4,
+        0x4, 0x6, 0x6, 0x6, 0x6, 0x6, 0x6, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4,
+        0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4,
+        0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4,
+        0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4,
+        0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4,
+        0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4,
+        0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4,
+        0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4,
+        0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4,
+        0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4, 0x4,
+    };
+
+    private static boolean WS(int ch){
+        if(ch>=0 && ch<256)
+            return (LATIN1_MATCHERS[ch] & 0x1)!=0;
+        return false;
+    }
+
+    private static boolean DIGIT(int ch){
+        return ch>='0' && ch<='9';
+    }
+
+    private static boolean HEX_DIGIT(int ch){
+        if(ch>=0 && ch<256)
+            return (LATIN1_MATCHERS[ch] & 0x2)!=0;
+        return false;
+    }
+
+    private static boolean UNESCAPED(int ch){
+        if(ch>=0 && ch<256)
+            return (LATIN1_MATCHERS[ch] & 0x4)!=0;
+        return ch>=0x100 && ch<=0x10ffff;
+    }
+
+    /*-------------------------------------------------[ Rules ]---------------------------------------------------*/
+
+    public static final int RULE_NUMBER = 0;
+    private boolean number(int state) throws Exception{
+        int ch;
+        loop: while(true){
+            switch(state){
+                case 0:
+                    if((ch=position==limit ? marker : input[position])==EOC)
+                        break loop;
+                    buffer.push();
+                    if(ch=='-'){
+                        buffer.append(input[position++]);
+                        state = 1;
+                    }else{
+                        state = 1;
+                    }
+                case 1:
+                    if((ch=position==limit ? marker : input[position])==EOC)
+                        break loop;
+                    if(ch=='0'){
+                        buffer.append(input[position++]);
+                        state = 3;
+                        continue;
+                    }else if(ch>='1' && ch<='9'){
+                        buffer.append(input[position++]);
+                        state = 2;
+                    }else throw expected(ch, "[0] OR <NON_ZERO>");
+                case 2:
+                    if(finishAll_DIGIT())
+                        break loop;
+                    state = 3;
+                case 3:
+                    if((ch=position==limit ? marker : input[position])==EOC)
+                        break loop;
+                    if(ch=='.'){
+                        buffer.append(input[position++]);
+                        state = 8;
+                        continue;
+                    }else{
+                        state = 4;
+                    }
+                case 4:
+                    if((ch=position==limit ? marker : input[position])==EOC)
+                        break loop;
+                    if(ch=='e' || ch=='E'){
+                        buffer.append(input[position++]);
+                        state = 5;
+                    }else{
+                        handler.number(buffer.pop(0, 0));
+                        return true;
+                    }
+                case 5:
+                    if((ch=position==limit ? marker : input[position])==EOC)
+                        break loop;
+                    handler.decimal();
+                    if(ch=='+' || ch=='-'){
+                        buffer.append(input[position++]);
+                        state = 6;
+                    }else{
+                        state = 6;
+                    }
+                case 6:
+                    if((ch=position==limit ? marker : input[position])==EOC)
+                        break loop;
+                    if(DIGIT(ch)){
+                        buffer.append(input[position++]);
+                        state = 7;
+                    }else throw expected(ch, "<DIGIT>");
+                case 7:
+                    if(finishAll_DIGIT())
+                        break loop;
+                    handler.number(buffer.pop(0, 0));
+                    return true;
+                case 8:
+                    if((ch=position==limit ? marker : input[position])==EOC)
+                        break loop;
+                    if(DIGIT(ch)){
+                        handler.decimal();
+                        buffer.append(input[position++]);
+                        state = 9;
+                    }else throw expected(ch, "<DIGIT>");
+                case 9:
+                    if(finishAll_DIGIT())
+                        break loop;
+                    state = 4;
+                    continue;
+                default:
+                    throw new Error("impossible state: "+state);
+            }
+        }
+        exiting(RULE_NUMBER, state);
+        return false;
+    }
+
+    public static final int RULE_STRING = 1;
+    private boolean string(int state) throws Exception{
+        int ch;
+        loop: while(true){
+            switch(state){
+                case 0:
+                    if((ch=position==limit ? marker : input[position])==EOC)
+                        break loop;
+                    if(ch=='"'){
+                        position++;
+                        state = 1;
+                    }else throw expected(ch, "[\"]");
+                case 1:
+                    buffer.push();
+                    state = 2;
+                case 2:
+                    if((ch=finishAll_UNESCAPED())==EOC)
+                        break loop;
+                    if(ch=='"'){
+                        handler.rawString(buffer.pop(0, 0));
+                        position++;
+                        handler.stringEnd();
+                        return true;
+                    }else{
+                        handler.rawString(buffer.pop(0, 0));
+                        state = 1;
+                        if(escaped(0))
+                            continue;
+                        else
+                            break loop;
+                    }
+                default:
+                    throw new Error("impossible state: "+state);
+            }
+        }
+        exiting(RULE_STRING, state);
+        return false;
+    }
+
+    public static final int RULE_ESCAPED = 2;
+    private boolean escaped(int state) throws Exception{
+        int ch;
+        switch(state){
+            case 0:
+                if((ch=position==limit ? marker : input[position])==EOC)
+                    break;
+                if(ch=='\\'){
+                    position++;
+                    state = 1;
+                }else throw expected(ch, "[\\\\]");
+            case 1:
+                if((ch=position==limit ? marker : input[position])==EOC)
+                    break;
+                if(ch=='u'){
+                    position++;
+                    state = 2;
+                }else if(ch=='"' || ch=='\\' || ch=='/' || ch=='b' || ch=='f' || ch=='n' || ch=='r' || ch=='t'){
+                    buffer.push();
+                    buffer.append(input[position++]);
+                    handler.escapeChar(buffer.pop(0, 0));
+                    return true;
+                }else throw expected(ch, "[u] OR [\"\\\\/bfnrt]");
+            case 2:
+                if((ch=position==limit ? marker : input[position])==EOC)
+                    break;
+                if(HEX_DIGIT(ch)){
+                    buffer.push();
+                    buffer.append(input[position++]);
+                    state = 3;
+                }else throw expected(ch, "<HEX_DIGIT>");
+            case 3:
+                if((ch=position==limit ? marker : input[position])==EOC)
+                    break;
+                if(HEX_DIGIT(ch)){
+                    buffer.append(input[position++]);
+                    state = 4;
+                }else throw expected(ch, "<HEX_DIGIT>");
+            case 4:
+                if((ch=position==limit ? marker : input[position])==EOC)
+                    break;
+                if(HEX_DIGIT(ch)){
+                    buffer.append(input[position++]);
+                    state = 5;
+                }else throw expected(ch, "<HEX_DIGIT>");
+            case 5:
+                if((ch=position==limit ? marker : input[position])==EOC)
+                    break;
+                if(HEX_DIGIT(ch)){
+                    buffer.append(input[position++]);
+                    handler.hexString(buffer.pop(0, 0));
+                    return true;
+                }else throw expected(ch, "<HEX_DIGIT>");
+            default:
+                throw new Error("impossible state: "+state);
+        }
+        exiting(RULE_ESCAPED, state);
+        return false;
+    }
+
+    public static final int RULE_VALUE = 3;
+    private boolean value(int state) throws Exception{
+        int ch;
+        loop: while(true){
+            switch(state){
+                case 0:
+                    if((ch=position==limit ? marker : input[position])==EOC)
+                        break loop;
+                    handler.valueStart();
+                    if(ch=='t'){
+                        state = 4;
+                        if(matchString(RULE_TRUERULE, 0, STRING_IDS[-RULE_TRUERULE]))
+                            continue;
+                        else
+                            break loop;
+                    }else if(ch=='f'){
+                        state = 3;
+                        if(matchString(RULE_FALSERULE, 0, STRING_IDS[-RULE_FALSERULE]))
+                            continue;
+                        else
+                            break loop;
+                    }else if(ch=='n'){
+                        state = 2;
+                        if(matchString(RULE_NULLRULE, 0, STRING_IDS[-RULE_NULLRULE]))
+                            continue;
+                        else
+                            break loop;
+                    }else if(ch=='"'){
+                        state = 1;
+                        if(!string(0))
+                            break loop;
+                    }else if(ch=='['){
+                        state = 1;
+                        if(!array(0))
+                            break loop;
+                    }else if(ch=='{'){
+                        state = 1;
+                        if(!object(0))
+                            break loop;
+                    }else{
+                        state = 1;
+                        if(!number(0))
+                            break loop;
+                    }
+                case 1:
+                    handler.valueEnd();
+                    return true;
+                case 2:
+                    handler.nullValue();
+                    state = 1;
+                    continue;
+                case 3:
+                    handler.falseValue();
+                    state = 1;
+                    continue;
+                case 4:
+                    handler.trueValue();
+                    state = 1;
+                    continue;
+                default:
+                    throw new Error("impossible state: "+state);
+            }
+        }
+        exiting(RULE_VALUE, state);
+        return false;
+    }
+
+    public static final int RULE_ARRAY = 4;
+    private boolean array(int state) throws Exception{
+        int ch;
+        loop: while(true){
+            switch(state){
+                case 0:
+                    if((ch=position==limit ? marker : input[position])==EOC)
+                        break loop;
+                    if(ch=='['){
+                        position++;
+                        handler.arrayStart();
+                        state = 1;
+                    }else throw expected(ch, "[\\[]");
+                case 1:
+                    if((ch=finishAll_WS())==EOC)
+                        break loop;
+                    if(ch==']'){
+                        position++;
+                        handler.arrayEnd();
+                        return true;
+                    }else{
+                        state = 2;
+                        if(!value(0))
+                            break loop;
+                    }
+                case 2:
+                    if((ch=finishAll_WS())==EOC)
+                        break loop;
+                    if(ch==','){
+                        position++;
+                        state = 3;
+                    }else if(ch==']'){
+                        position++;
+                        handler.arrayEnd();
+                        return true;
+                    }else throw expected(ch, "<WS> OR [,] OR [\\]]");
+                case 3:
+                    if(finishAll_WS()==EOC)
+                        break loop;
+                    state = 2;
+                    if(value(0))
+                        continue;
+                    else
+                        break loop;
+                default:
+                    throw new Error("impossible state: "+state);
+            }
+        }
+        exiting(RULE_ARRAY, state);
+        return false;
+    }
+
+    public static final int RULE_OBJECT = 5;
+    private boolean object(int state) throws Exception{
+        int ch;
+        loop: while(true){
+            switch(state){
+                case 0:
+                    if((ch=position==limit ? marker : input[position])==EOC)
+                        break loop;
+                    if(ch=='{'){
+                        position++;
+                        handler.objectStart();
+                        state = 1;
+                    }else throw expected(ch, "[{]");
+                case 1:
+                    if((ch=finishAll_WS())==EOC)
+                        break loop;
+                    if(ch=='}'){
+                        position++;
+                        handler.objectEnd();
+                        return true;
+                    }else{
+                        state = 2;
+                        if(!string(0))
+                            break loop;
+                    }
+                case 2:
+                    if((ch=finishAll_WS())==EOC)
+                        break loop;
+                    if(ch==':'){
+                        position++;
+                        state = 3;
+                    }else throw expected(ch, "<WS> OR [:]");
+                case 3:
+                    if(finishAll_WS()==EOC)
+                        break loop;
+                    state = 4;
+                    if(!value(0))
+                        break loop;
+                case 4:
+                    if((ch=finishAll_WS())==EOC)
+                        break loop;
+                    if(ch==','){
+                        position++;
+                        state = 5;
+                    }else if(ch=='}'){
+                        position++;
+                        handler.objectEnd();
+                        return true;
+                    }else throw expected(ch, "<WS> OR [,] OR [}]");
+                case 5:
+                    if(finishAll_WS()==EOC)
+                        break loop;
+                    state = 2;
+                    if(string(0))
+                        continue;
+                    else
+                        break loop;
+                default:
+                    throw new Error("impossible state: "+state);
+            }
+        }
+        exiting(RULE_OBJECT, state);
+        return false;
+    }
+
+    public static final int RULE_JSON = 6;
+    private boolean json(int state) throws Exception{
+        int ch;
+        switch(state){
+            case 0:
+                if(finishAll_WS()==EOC)
+                    break;
+                state = 1;
+                if(!value(0))
+                    break;
+            case 1:
+                if(finishAll_WS()==EOC)
+                    break;
+                return true;
+            default:
+                throw new Error("impossible state: "+state);
+        }
+        exiting(RULE_JSON, state);
+        return false;
+    }
+
+    private boolean finishAll_DIGIT() throws IOException{
+        int _position = position;
+        while(position<limit){
+            char ch = input[position];
+            if(DIGIT(ch))
+                ++position;
+            else
+                break;
+        }
+        int len = position-_position;
+        if(len>0)
+            buffer.append(input, _position, len);
+        return position==limit && marker==EOC;
+    }
+
+    private int finishAll_UNESCAPED() throws IOException{
+        int ch;
+        while(true){
+            int run = position;
+            while(position<limit){
+                ch = input[position];
+                if(UNESCAPED(ch))
+                    position++;
+                else
+                    break;
+            }
+            if(position>run)
+                buffer.append(input, run, position-run);
+            if(position==limit)
+                return marker;
+            ch = input[position];
+            if(ch<MIN_HIGH_SURROGATE || ch>MAX_HIGH_SURROGATE){
+                increment = 1;
+                return ch;
+            }
+            ch = codePoint();
+            if(UNESCAPED(ch))
+                consume(ch);
+            else
+                return ch;
+        }
+    }
+
+    private int finishAll_WS() throws IOException{
+        int ch;
+        while(position<limit){
+            ch = input[position];
+            if(ch=='\r'){
+                line++;
+                linePosition = ++position;
+            }
+            else if(ch=='\n'){
+                char lastChar = position==start ? this.lastChar : input[position-1];
+                linePosition = ++position;
+                if(lastChar!='\r')
+                    line++;
+            }
+            else if(WS(ch))
+                position++;
+            else
+                break;
+        }
+        if(position==limit)
+            return marker;
+        ch = input[position];
+        if(ch<MIN_HIGH_SURROGATE || ch>MAX_HIGH_SURROGATE){
+            increment = 1;
+            return ch;
+        }
+        return codePoint();
+    }
+
+    @Override
+    protected final boolean callRule(int rule, int state) throws Exception{
+        if(SHOW_STATS)
+            callRuleCount++;
+        if(rule<0){
+            if(rule==RULE_DYNAMIC_STRING_MATCH)
+                return matchString(state, dynamicStringToBeMatched);
+            else
+                return matchString(rule, state, STRING_IDS[-rule]);
+        }
+        switch(rule){
+            case 0:
+                return number(state);
+            case 1:
+                return string(state);
+            case 2:
+                return escaped(state);
+            case 3:
+                return value(state);
+            case 4:
+                return array(state);
+            case 5:
+                return object(state);
+            case 6:
+                return json(state);
+            default:
+                throw new Error("impossible rule: "+stack[free-2]);
+        }
+    }
+
+    @Override
+    public void onSuccessful() throws Exception{
+        handler.onSuccessful();
+    }
+
+    @Override
+    public Exception fatalError(String message){
+        return handler.fatalError(message);
+    }
+
+    protected final jlibs.json.parser.JSONParser handler;
+    public JSONScanner(jlibs.json.parser.JSONParser handler, int startingRule){
+        super(1, startingRule);
+        this.handler = handler;
+    }
+}
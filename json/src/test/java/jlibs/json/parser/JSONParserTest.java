@@ -0,0 +1,323 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.json.parser;
+
+import jlibs.nbp.Feeder;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author Santhosh Kumar T
+ */
+public class JSONParserTest{
+    private static class Recorder implements JSONHandler{
+        StringBuilder buff = new StringBuilder();
+
+        @Override
+        public void startDocument(){
+            buff.setLength(0);
+        }
+
+        @Override
+        public void endDocument(){
+            buff.append("\nEOF");
+        }
+
+        @Override
+        public void startObject(){
+            buff.append("\n{");
+        }
+
+        @Override
+        public void key(CharSequence name){
+            buff.append("\nkey:").append(name);
+        }
+
+        @Override
+        public void endObject(){
+            buff.append("\n}");
+        }
+
+        @Override
+        public void startArray(){
+            buff.append("\n[");
+        }
+
+        @Override
+        public void endArray(){
+            buff.append("\n]");
+        }
+
+        @Override
+        public void string(CharSequence value){
+            buff.append("\nstring:").append(value);
+        }
+
+        @Override
+        public void number(CharSequence value, boolean decimal){
+            buff.append(decimal ? "\ndecimal:" : "\ninteger:").append(value);
+        }
+
+        @Override
+        public void booleanValue(boolean value){
+            buff.append("\nboolean:").append(value);
+        }
+
+        @Override
+        public void nullValue(){
+            buff.append("\nnull");
+        }
+    }
+
+    private static String parse(String json) throws IOException{
+        JSONParser parser = new JSONParser();
+        Recorder recorder = new Recorder();
+        parser.setHandler(recorder);
+        parser.parse(new StringReader(json));
+        return recorder.buff.toString();
+    }
+
+    private static String events(String... events){
+        StringBuilder buff = new StringBuilder();
+        for(String event: events)
+            buff.append('\n').append(event);
+        return buff.append("\nEOF").toString();
+    }
+
+    private static JSONException parseError(String json) throws IOException{
+        try{
+            parse(json);
+        }catch(JSONException ex){
+            return ex;
+        }
+        throw new AssertionError("expected JSONException for: "+json);
+    }
+
+    @Test
+    public void escapes() throws IOException{
+        String json = "[\"q\\\"b\\\\s\\/\", \"\\b\\f\\n\\r\\t\", \"\\u0041\\u00e9\\u20AC\", \"\\uD83D\\uDE00\", \"a\\u0000b\"]";
+        Assert.assertEquals(parse(json), events(
+            "[",
+            "string:q\"b\\s/",
+            "string:\b\f\n\r\t",
+            "string:A\u00e9\u20ac",
+            "string:\ud83d\ude00",
+            "string:a\u0000b",
+            "]"
+        ));
+    }
+
+    @Test
+    public void escapedKeys() throws IOException{
+        Assert.assertEquals(parse("{\"a\\tb\":\"\\u0031\", \"\\\"\":{}}"), events(
+            "{",
+            "key:a\tb",
+            "string:1",
+            "key:\"",
+            "{",
+            "}",
+            "}"
+        ));
+    }
+
+    @Test
+    public void numbers() throws IOException{
+        Assert.assertEquals(parse("[0, -0, 12, -340, 3.5, -0.25, 1e10, 2E+3, -4e-2, 1.5E3, 7]"), events(
+            "[",
+            "integer:0",
+            "integer:-0",
+            "integer:12",
+            "integer:-340",
+            "decimal:3.5",
+            "decimal:-0.25",
+            "decimal:1e10",
+            "decimal:2E+3",
+            "decimal:-4e-2",
+            "decimal:1.5E3",
+            "integer:7",
+            "]"
+        ));
+    }
+
+    @Test
+    public void literals() throws IOException{
+        Assert.assertEquals(parse(" {\"t\" : true, \"f\":false ,\"n\":null}\n"), events(
+            "{",
+            "key:t",
+            "boolean:true",
+            "key:f",
+            "boolean:false",
+            "key:n",
+            "null",
+            "}"
+        ));
+    }
+
+    @Test
+    public void deepNesting() throws IOException{
+        int depth = 40;
+        StringBuilder json = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for(int i=0; i<depth; i++){
+            if(i%2==0){
+                json.append("{\"k").append(i).append("\":");
+                expected.append("\n{\nkey:k").append(i);
+            }else{
+                json.append('[');
+                expected.append("\n[");
+            }
+        }
+        json.append("1");
+        expected.append("\ninteger:1");
+        for(int i=depth-1; i>=0; i--){
+            if(i%2==0){
+                // key after deeply nested value must still be reported as key
+                json.append(",\"after").append(i).append("\":").append(i).append('}');
+                expected.append("\nkey:after").append(i).append("\ninteger:").append(i).append("\n}");
+            }else{
+                json.append(",\"s").append(i).append("\"]");
+                expected.append("\nstring:s").append(i).append("\n]");
+            }
+        }
+        expected.append("\nEOF");
+        Assert.assertEquals(parse(json.toString()), expected.toString());
+    }
+
+    @Test
+    public void reuse() throws IOException{
+        JSONParser parser = new JSONParser();
+        Recorder recorder = new Recorder();
+        parser.setHandler(recorder);
+        try{
+            parser.parse(new StringReader("{\"a\":[[[[[[[[[[[[[[[[[[[[1"));
+            Assert.fail("expected JSONException");
+        }catch(JSONException ex){
+            // expected
+        }
+        parser.parse(new StringReader("{\"b\":\"x\\n\"}"));
+        Assert.assertEquals(recorder.buff.toString(), events("{", "key:b", "string:x\n", "}"));
+    }
+
+    // column is the number of chars consumed in that line, i.e. offending char is at column+1
+    @Test
+    public void malformed() throws IOException{
+        JSONException ex = parseError("{\n  \"a\": tru\n}");
+        Assert.assertEquals(ex.getLineNumber(), 2);
+        Assert.assertEquals(ex.getColumnNumber(), 10);
+        Assert.assertTrue(ex.toString().endsWith("[line 2, column 10]"), ex.toString());
+
+        ex = parseError("[1,\n2,\n]");
+        Assert.assertEquals(ex.getLineNumber(), 3);
+        Assert.assertEquals(ex.getColumnNumber(), 0);
+
+        ex = parseError("{\"a\" 1}");
+        Assert.assertEquals(ex.getLineNumber(), 1);
+        Assert.assertEquals(ex.getColumnNumber(), 5);
+
+        ex = parseError("[\"\\x\"]");
+        Assert.assertEquals(ex.getLineNumber(), 1);
+        Assert.assertEquals(ex.getColumnNumber(), 3);
+
+        ex = parseError("[\"\\u12G4\"]");
+        Assert.assertEquals(ex.getLineNumber(), 1);
+        Assert.assertEquals(ex.getColumnNumber(), 6);
+
+        ex = parseError("[01]");
+        Assert.assertEquals(ex.getLineNumber(), 1);
+        Assert.assertEquals(ex.getColumnNumber(), 2);
+
+        parseError("[1, 2");
+        parseError("{\"a\":1} x");
+        parseError("");
+    }
+
+    /** returns at most chunk bytes per read, and nothing on every other read */
+    private static class ChunkedChannel implements ReadableByteChannel{
+        private final ByteBuffer data;
+        private final int chunk;
+        private boolean starve;
+
+        ChunkedChannel(byte data[], int chunk){
+            this.data = ByteBuffer.wrap(data);
+            this.chunk = chunk;
+        }
+
+        @Override
+        public int read(ByteBuffer dst){
+            if(!data.hasRemaining())
+                return -1;
+            starve = !starve;
+            if(starve)
+                return 0;
+            int len = Math.min(chunk, Math.min(dst.remaining(), data.remaining()));
+            for(int i=0; i<len; i++)
+                dst.put(data.get());
+            return len;
+        }
+
+        @Override
+        public boolean isOpen(){
+            return true;
+        }
+
+        @Override
+        public void close(){}
+    }
+
+    @Test
+    public void chunks() throws IOException{
+        String json = "{\"name\":\"caf\u00e9 \u20ac \ud83d\ude00\", \"esc\":\"\\u0041\\n\", \"nums\":[12345, -6.78e+9, 0],"
+                +"\"deep\":[[[[[[[[[[[[[[[[[[true]]]]]]]]]]]]]]]]]], \"none\":null}";
+        String expected = parse(json);
+        byte bytes[] = json.getBytes(StandardCharsets.UTF_8);
+
+        JSONParser parser = new JSONParser();
+        Recorder recorder = new Recorder();
+        parser.setHandler(recorder);
+        for(int chunk=1; chunk<=7; chunk++){
+            Feeder feeder = parser.createFeeder(new ChunkedChannel(bytes, chunk), null);
+            int feeds = 0;
+            while(feeder!=null){
+                feeder = feeder.feed();
+                feeds++;
+            }
+            Assert.assertTrue(feeds>1, "document should need more than one feed");
+            Assert.assertEquals(recorder.buff.toString(), expected, "chunk size "+chunk);
+        }
+    }
+
+    @Test
+    public void chunkedError() throws IOException{
+        byte bytes[] = "[1,\n  {\"a\":nul}]".getBytes(StandardCharsets.UTF_8);
+        JSONParser parser = new JSONParser();
+        Feeder feeder = parser.createFeeder(new ChunkedChannel(bytes, 2), null);
+        try{
+            while(feeder!=null)
+                feeder = feeder.feed();
+            Assert.fail("expected JSONException");
+        }catch(JSONException ex){
+            Assert.assertEquals(ex.getLineNumber(), 2);
+            Assert.assertEquals(ex.getColumnNumber(), 10);
+        }
+    }
+}
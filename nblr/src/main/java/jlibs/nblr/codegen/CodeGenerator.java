@@ -43,6 +43,12 @@ public abstract class CodeGenerator{
     }
 
     protected boolean debuggable;
+
+    /** should non-trivial matchers be generated as lookup tables */
+    protected boolean matcherTables(){
+        return false;
+    }
+
     private void inlineRules() throws Exception{
         syntax = syntax.copy();
 
@@ -151,6 +157,7 @@ public abstract class CodeGenerator{
         printer.emptyLine(true);
 
         SyntaxClass.DEBUGGABLE = debuggable;
+        SyntaxClass.MATCHER_TABLES = matcherTables();
         SyntaxClass syntaxClass = new SyntaxClass(syntax);
         syntaxClass.generate(printer);
         syntax = syntaxClass.syntax;
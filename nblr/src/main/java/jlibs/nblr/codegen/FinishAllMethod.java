@@ -75,6 +75,18 @@ public class FinishAllMethod{
         );
     }
 
+    private void appendRun(Printer printer, String end){
+        if(buffering!=Answer.NO){
+            String isBuffering = buffering==Answer.MAY_BE ? " && buffer.isBuffering()" : "";
+            printer.printlns(
+                "if("+end+">run"+isBuffering+")",
+                    PLUS,
+                    "buffer.append(input, run, "+end+"-run);",
+                    MINUS
+            );
+        }
+    }
+
     public void generate(Printer printer){
         String condition = matcher._javaCode("ch");
         String _condition = condition;
@@ -133,37 +145,26 @@ public class FinishAllMethod{
                  "}"
             );
         }else{
+            // consumes runs of matching chars in input, appending each run
+            // to buffer with single arraycopy. runs are broken only by
+            // new lines that need to be rewritten (coalesceNewLines)
+            // and by surrogate pairs
+            boolean supplemental = matcher.clashesWith(Range.SUPPLIMENTAL);
             printer.printlns(
                 "private int finishAll_"+methodName+"() throws IOException{",
                     PLUS,
                     "int ch;"
             );
-
-            if(matcher.clashesWith(Range.SUPPLIMENTAL)){
+            if(supplemental){
                 printer.printlns(
                     "while(true){",
                         PLUS
                 );
             }
+            if(buffering!=Answer.NO)
+                printer.println("int run = position;");
             printer.printlns(
-                "asciiLoop: while(true){",
-                    PLUS
-            );
-
-            String max = "limit";
-            if(buffering!=Answer.NO){
-                max = "max";
-                printer.printlns(
-                    "char chars[] = buffer.array();",
-                    "int max = position + chars.length-buffer.count;",
-                    "if(limit<max)",
-                        PLUS,
-                        "max = limit;",
-                        MINUS
-                );
-            }
-            printer.printlns(
-                "while(position<"+max+"){",
+                "while(position<limit){",
                     PLUS,
                     "ch = input[position];"
             );
@@ -173,26 +174,31 @@ public class FinishAllMethod{
                 printer.printlns(
                     "if(ch=='\\r'){",
                         PLUS,
-                        "line++;",
-                        "linePosition = ++position;"
+                        "line++;"
                 );
-
                 if(buffering!=Answer.NO){
+                    printer.printlns(
+                        "if(coalesceNewLines){",
+                            PLUS
+                    );
+                    appendRun(printer, "position");
                     if(buffering==Answer.MAY_BE){
                         printer.printlns(
                             "if(buffer.isBuffering())",
                                 PLUS
                         );
                     }
-                    printer.printlns("chars[buffer.count++] = coalesceNewLines ? '\\n' : '\\r';");
-                    if(buffering==Answer.MAY_BE){
-                        printer.printlns(
-                                MINUS
-                        );
-                    }
+                    printer.println("buffer.append('\\n');");
+                    if(buffering==Answer.MAY_BE)
+                        printer.printlns(MINUS);
+                    printer.printlns(
+                            "run = position+1;",
+                            MINUS,
+                        "}"
+                    );
                 }
-
                 printer.printlns(
+                        "linePosition = ++position;",
                         MINUS,
                     "}"
                 );
@@ -204,36 +210,25 @@ public class FinishAllMethod{
                 printer.printlns(
                     "if(ch=='\\n'){",
                         PLUS,
+                        "char lastChar = position==start ? this.lastChar : input[position-1];",
                         "linePosition = ++position;",
-                        "char lastChar = position==start+1 ? this.lastChar : input[position-2];",
                         "if(lastChar!='\\r')",
                             PLUS,
                             "line++;",
                             MINUS
                 );
-
                 if(buffering!=Answer.NO){
                     printer.printlns(
-                        "else if(coalesceNewLines)",
-                            PLUS,
-                            "continue;",
-                            MINUS
+                        "else if(coalesceNewLines){",
+                            PLUS
+                    );
+                    appendRun(printer, "position-1");
+                    printer.printlns(
+                            "run = position;",
+                            MINUS,
+                        "}"
                     );
-
-                    if(buffering==Answer.MAY_BE){
-                        printer.printlns(
-                            "if(buffer.isBuffering())",
-                                PLUS
-                        );
-                    }
-                    printer.printlns("chars[buffer.count++] = '\\n';");
-                    if(buffering==Answer.MAY_BE){
-                        printer.printlns(
-                                MINUS
-                        );
-                    }
                 }
-
                 printer.printlns(
                         MINUS,
                     "}"
@@ -244,52 +239,32 @@ public class FinishAllMethod{
             if(addElse)
                 printer.print("else ");
             printer.printlns(
-                "if("+_condition+"){",
-                    PLUS
-            );
-            if(buffering!=Answer.NO){
-                if(buffering==Answer.MAY_BE){
-                    printer.printlns(
-                        "if(buffer.isBuffering())",
-                            PLUS
-                    );
-                }
-                printer.printlns("chars[buffer.count++] = (char)ch;");
-                if(buffering==Answer.MAY_BE){
-                    printer.printlns(
-                            MINUS
-                    );
-                }
-            }
-            printer.printlns(
+                "if("+_condition+")",
+                    PLUS,
                     "position++;",
                     MINUS,
-                "}else if(ch>=MIN_HIGH_SURROGATE && ch<=MAX_HIGH_SURROGATE)",
+                "else",
                     PLUS,
-                    "break asciiLoop;",
+                    "break;",
                     MINUS,
-                "else{",
-                    PLUS,
-                    "increment = 1;",
-                    "return ch;",
                     MINUS,
                 "}"
             );
-
-            // end inner while
+            appendRun(printer, "position");
             printer.printlns(
-                        MINUS,
-                    "}",
-                    "if(position==limit)",
-                        PLUS,
-                        "return marker;",
-                        MINUS,
-                    "buffer.expandCapacity(1);",
+                "if(position==limit)",
+                    PLUS,
+                    "return marker;",
+                    MINUS,
+                "ch = input[position];",
+                "if(ch<MIN_HIGH_SURROGATE || ch>MAX_HIGH_SURROGATE){",
+                    PLUS,
+                    "increment = 1;",
+                    "return ch;",
                     MINUS,
                 "}"
             );
-
-            if(matcher.clashesWith(Range.SUPPLIMENTAL)){
+            if(supplemental){
                 printer.printlns(
                     "ch = codePoint();",
                     "if("+condition+")",
@@ -299,12 +274,16 @@ public class FinishAllMethod{
                     "else",
                         PLUS,
                         "return ch;",
-                        MINUS,
-                        MINUS,
-                    "}"
+                        MINUS
                 );
             }else
                 printer.println("return codePoint();");
+            if(supplemental){
+                printer.printlns(
+                        MINUS,
+                    "}"
+                );
+            }
 
             // end method
             printer.printlns(
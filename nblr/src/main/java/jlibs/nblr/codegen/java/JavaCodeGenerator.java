@@ -776,6 +776,7 @@ public class JavaCodeGenerator extends CodeGenerator{
     public static final String HANDLER_CLASS_NAME = "HANDLER_CLASS_NAME";
     public static final String HANDLER_IS_CLASS = "HANDLER_IS_CLASS";
     public static final String SOURCE_DIR = "SOURCE_DIR";
+    public static final String MATCHER_TABLES = "MATCHER_TABLES";
 
     public static final Properties DEFAULTS = new Properties();
     static{
@@ -787,6 +788,7 @@ public class JavaCodeGenerator extends CodeGenerator{
         DEFAULTS.put(HANDLER_IS_CLASS, "false");
 
         DEFAULTS.put(SOURCE_DIR, "src");
+        DEFAULTS.put(MATCHER_TABLES, "false");
     }
     public final Properties properties = new Properties(DEFAULTS);
     private final Properties debugProperties = new Properties(properties);
@@ -803,6 +805,11 @@ public class JavaCodeGenerator extends CodeGenerator{
         return "true".equals(stringProperty(name));
     }
 
+    @Override
+    protected boolean matcherTables(){
+        return booleanProperty(MATCHER_TABLES);
+    }
+
     public File fileProperty(String name){
         String className = stringProperty(name);
         return new File(stringProperty(SOURCE_DIR), className.replace('.', '/')+".java");
@@ -0,0 +1,156 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.nblr.codegen.java;
+
+import jlibs.core.annotation.processing.Printer;
+import jlibs.core.util.Range;
+import jlibs.nblr.matchers.Matcher;
+
+import java.util.*;
+
+import static jlibs.core.annotation.processing.Printer.MINUS;
+import static jlibs.core.annotation.processing.Printer.PLUS;
+
+/**
+ * Generates matcher methods which use precomputed lookup tables rather
+ * than chain of comparisons.
+ * <p>
+ * All table matchers share single {@code int[256]} table indexed by latin-1
+ * character, where each matcher owns one bit. Code points above latin-1 are
+ * matched using sorted range table searched by NBParser.inRanges(...), or by
+ * the inline code of the matcher if it uses custom javaCode of some operand.
+ * Note that such custom javaCode is trusted only above latin-1; within latin-1
+ * the table is computed from ranges of the matcher.
+ *
+ * @author Santhosh Kumar T
+ */
+public class MatcherTables{
+    public static final int LATIN1 = 256;
+    public static final int MAX_MATCHERS = 32;
+    public static final String TABLE_NAME = "LATIN1_MATCHERS";
+
+    /**
+     * tells whether generating lookup table for the given matcher is
+     * worthwhile, i.e. the matcher is used, and its inline code is a chain
+     * of more than two checks. matchers with custom javaCode are not tabled,
+     * because custom javaCode is typically a lookup already
+     */
+    public static boolean suits(Matcher matcher){
+        if(matcher.name==null || matcher.usageCount==0 || matcher.javaCode!=null)
+            return false;
+        return matcher.hasCustomJavaCode() || merge(matcher.ranges()).size()>2;
+    }
+
+    /** sorts the given ranges and coalesces overlapping and adjacent ranges */
+    static List<Range> merge(List<Range> ranges){
+        ranges = new ArrayList<Range>(ranges);
+        Collections.sort(ranges, new Comparator<Range>(){
+            @Override
+            public int compare(Range r1, Range r2){
+                return r1.min-r2.min;
+            }
+        });
+        List<Range> merged = new ArrayList<Range>();
+        for(Range range: ranges){
+            Range last = merged.isEmpty() ? null : merged.get(merged.size()-1);
+            if(last!=null && range.min<=last.max+1){
+                if(range.max>last.max)
+                    merged.set(merged.size()-1, new Range(last.min, range.max));
+            }else
+                merged.add(range);
+        }
+        return merged;
+    }
+
+    private final List<Matcher> matchers = new ArrayList<Matcher>();
+    private final int table[] = new int[LATIN1];
+
+    public void add(Matcher matcher){
+        int mask = 1<<matchers.size();
+        matchers.add(matcher);
+        for(Range range: merge(matcher.ranges())){
+            for(int ch=Math.max(range.min, 0); ch<=range.max && ch<LATIN1; ch++)
+                table[ch] |= mask;
+        }
+    }
+
+    public boolean isEmpty(){
+        return matchers.isEmpty();
+    }
+
+    public boolean isFull(){
+        return matchers.size()==MAX_MATCHERS;
+    }
+
+    public void generateTable(Printer printer){
+        printer.printlns(
+            "private static final int "+TABLE_NAME+"[] = {",
+                PLUS
+        );
+        for(int i=0; i<LATIN1; i+=16){
+            StringBuilder buff = new StringBuilder();
+            for(int j=i; j<i+16; j++)
+                buff.append("0x").append(Integer.toHexString(table[j])).append(", ");
+            printer.println(buff.toString().trim());
+        }
+        printer.printlns(
+                MINUS,
+            "};"
+        );
+    }
+
+    public void generateMethod(Printer printer, Matcher matcher){
+        int mask = 1<<matchers.indexOf(matcher);
+
+        List<Range> others = new ArrayList<Range>();
+        for(Range range: merge(matcher.ranges())){
+            if(range.max>=LATIN1)
+                others.add(new Range(Math.max(range.min, LATIN1), range.max));
+        }
+
+        String other;
+        if(matcher.hasCustomJavaCode())
+            other = matcher.javaCode("ch");
+        else if(others.isEmpty())
+            other = "false";
+        else if(others.size()==1){
+            Range range = others.get(0);
+            other = "ch>="+Matcher.toJava(range.min)+" && ch<="+Matcher.toJava(range.max);
+        }else{
+            StringBuilder buff = new StringBuilder();
+            for(Range range: others){
+                if(buff.length()>0)
+                    buff.append(", ");
+                buff.append(Matcher.toJava(range.min)).append(", ").append(Matcher.toJava(range.max));
+            }
+            printer.println("private static final int "+matcher.name+"_RANGES[] = { "+buff+" };");
+            other = "inRanges("+matcher.name+"_RANGES, ch)";
+        }
+
+        printer.printlns(
+            "private static boolean "+matcher.name+"(int ch){",
+                PLUS,
+                "if(ch>=0 && ch<"+LATIN1+")",
+                    PLUS,
+                    "return ("+TABLE_NAME+"[ch] & 0x"+Integer.toHexString(mask)+")!=0;",
+                    MINUS,
+                "return "+other+';',
+                MINUS,
+            "}"
+        );
+    }
+}
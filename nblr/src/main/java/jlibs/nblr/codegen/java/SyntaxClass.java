@@ -38,8 +38,10 @@ import static jlibs.core.annotation.processing.Printer.PLUS;
  */
 public class SyntaxClass{
     public static boolean DEBUGGABLE = false;
+    public static boolean MATCHER_TABLES = false;
 
     public Syntax syntax;
+    private MatcherTables matcherTables = new MatcherTables();
     public List<RuleMethod> ruleMethods = new ArrayList<RuleMethod>();
 
     public SyntaxClass(Syntax syntax){
@@ -47,6 +49,14 @@ public class SyntaxClass{
         if(!DEBUGGABLE){
             detectStringRules();
             syntax = this.syntax;
+            if(MATCHER_TABLES){
+                for(Matcher matcher: syntax.matchers.values()){
+                    if(!matcherTables.isFull() && MatcherTables.suits(matcher)){
+                        matcher.table = true;
+                        matcherTables.add(matcher);
+                    }
+                }
+            }
         }
 
         boolean recompute;
@@ -232,8 +242,15 @@ public class SyntaxClass{
     private void generateMatcherMethods(Printer printer){
         if(syntax.matchers.size()>0){
             printer.titleComment("Matchers");
+            if(!matcherTables.isEmpty()){
+                matcherTables.generateTable(printer);
+                printer.emptyLine(true);
+            }
             for(Matcher matcher: syntax.matchers.values()){
-                if(!matcher.canInline()){
+                if(matcher.table){
+                    matcherTables.generateMethod(printer, matcher);
+                    printer.emptyLine(true);
+                }else if(!matcher.canInline()){
                     printer.printlns(
                         "private static boolean "+matcher.name+"(int ch){",
                             PLUS,
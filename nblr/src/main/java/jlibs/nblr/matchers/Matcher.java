@@ -28,6 +28,9 @@ public abstract class Matcher{
     public String javaCode;
     public int usageCount;
 
+    /** when true, generated as lookup tables rather than inlined comparisons */
+    public boolean table;
+
     public abstract String toString();
     protected final String _toString(){
         if(name==null)
@@ -70,7 +73,7 @@ public abstract class Matcher{
     }
     
     public boolean canInline(){
-        return javaCode!=null || usageCount<=1;
+        return !table && (javaCode!=null || usageCount<=1);
     }
 
     protected abstract String __javaCode(String variable);
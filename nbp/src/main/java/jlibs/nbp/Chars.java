@@ -16,6 +16,9 @@
 
 package jlibs.nbp;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.nio.CharBuffer;
 import java.util.Arrays;
 
@@ -31,6 +34,9 @@ public final class Chars implements CharSequence{
     private int stack[] = new int[50];
     int free = 0;
 
+    // the buffer is never grown beyond this many chars
+    int maxLength = Integer.MAX_VALUE;
+
     public boolean isBuffering(){
         return free>0;
     }
@@ -42,6 +48,8 @@ public final class Chars implements CharSequence{
     }
 
     public void expandCapacity(int increment){
+        if(count+increment>maxLength)
+            throw new LimitExceededException("token is longer than "+maxLength+" chars");
         int newCapacity = (buff.length+increment)<<1;
         if(newCapacity<0)
             newCapacity = Integer.MAX_VALUE;
@@ -55,7 +63,7 @@ public final class Chars implements CharSequence{
     }
 
     public void append(char chars[], int offset, int len){
-        if(count+len==chars.length)
+        if(count+len>buff.length)
             expandCapacity(len);
         System.arraycopy(chars, offset, buff, count, len);
         count += len;
@@ -86,6 +94,28 @@ public final class Chars implements CharSequence{
     public void clear(){
         free = count = 0;
     }
+
+    void writeTo(DataOutput out) throws IOException{
+        out.writeInt(count);
+        for(int i=0; i<count; i++)
+            out.writeChar(buff[i]);
+        out.writeInt(free);
+        for(int i=0; i<free; i++)
+            out.writeInt(stack[i]);
+    }
+
+    void readFrom(DataInput in) throws IOException{
+        count = in.readInt();
+        if(count>buff.length)
+            buff = new char[count];
+        for(int i=0; i<count; i++)
+            buff[i] = in.readChar();
+        free = in.readInt();
+        if(free>stack.length)
+            stack = new int[free];
+        for(int i=0; i<free; i++)
+            stack[i] = in.readInt();
+    }
     
     /*-------------------------------------------------[ CharSequence ]---------------------------------------------------*/
     
@@ -20,9 +20,11 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
 
 /**
  * @author Santhosh Kumar T
@@ -47,11 +49,12 @@ public class NBChannel implements ReadableCharChannel{
 
     public void setChannel(ReadableByteChannel channel){
         this.channel = channel;
+        bytesRead = 0;
         byteBuffer.clear();
         eofSeen = decode = false;
         fallbackEncoding = Charset.defaultCharset().name();
         encoding = null;
-        decoder = null;
+        decoder(null);
     }
 
     public String fallbackEncoding;
@@ -71,6 +74,13 @@ public class NBChannel implements ReadableCharChannel{
 
     public void decoder(CharsetDecoder decoder){
         this.decoder = decoder;
+        Charset charset = decoder==null ? null : decoder.charset();
+        if(StandardCharsets.UTF_8.equals(charset))
+            fastPath = UTF_8;
+        else if(StandardCharsets.US_ASCII.equals(charset))
+            fastPath = US_ASCII;
+        else
+            fastPath = NONE;
     }
 
     protected CharsetDecoder createDecoder(ByteBuffer byteBuffer, boolean eof){
@@ -110,6 +120,8 @@ public class NBChannel implements ReadableCharChannel{
                         break;
                     else if(read<0)
                         eofSeen = true;
+                    else
+                        bytesRead += read;
                     decode = true;
                     byteBuffer.flip();
                 }
@@ -131,7 +143,11 @@ public class NBChannel implements ReadableCharChannel{
                 }
             }
 
-            CoderResult cr = decoder.decode(byteBuffer, charBuffer, eofSeen);
+            CoderResult cr;
+            if(fastPath!=NONE && charBuffer.hasArray())
+                cr = fastPath==UTF_8 ? decodeUTF8(byteBuffer, charBuffer, eofSeen) : decodeASCII(byteBuffer, charBuffer);
+            else
+                cr = decoder.decode(byteBuffer, charBuffer, eofSeen);
             if(cr.isOverflow()) // insufficient space in charBuffer
                 break;
             else if(cr.isUnderflow()){ // required more bytes
@@ -157,6 +173,174 @@ public class NBChannel implements ReadableCharChannel{
         return charBuffer.position()-pos;
     }
 
+    /*-------------------------------------------------[ Byte Position ]---------------------------------------------------*/
+
+    private long bytesRead;
+
+    /**
+     * returns number of bytes decoded so far, i.e. offset of next byte to be decoded
+     * relative to the position of channel when it is set
+     */
+    public long getBytesDecoded(){
+        return bytesRead - (decode ? byteBuffer.remaining() : byteBuffer.position());
+    }
+
+    /**
+     * returns number of bytes, given chars take in current encoding
+     */
+    public int encodedLength(char chars[], int offset, int length) throws CharacterCodingException{
+        if(length==0)
+            return 0;
+        if(fastPath==US_ASCII)
+            return length;
+        if(fastPath==UTF_8){
+            int bytes = 0;
+            int end = offset+length;
+            for(int i=offset; i<end; i++){
+                char ch = chars[i];
+                if(ch<0x80)
+                    bytes++;
+                else if(ch<0x800)
+                    bytes += 2;
+                else if(Character.isHighSurrogate(ch) && i+1<end && Character.isLowSurrogate(chars[i+1])){
+                    bytes += 4;
+                    i++;
+                }else
+                    bytes += 3;
+            }
+            return bytes;
+        }
+        return decoder.charset().newEncoder().encode(CharBuffer.wrap(chars, offset, length)).remaining();
+    }
+
+    /*-------------------------------------------------[ Fast Path ]---------------------------------------------------*/
+
+    // UTF-8 and US-ASCII are decoded inline, without going through CharsetDecoder.
+    // ascii runs are copied in a tight loop; multi-byte sequences are decoded
+    // only when a non-ascii lead byte is seen. errors are reported the same
+    // way as CharsetDecoder with CodingErrorAction.REPORT
+    private static final int NONE = 0;
+    private static final int UTF_8 = 1;
+    private static final int US_ASCII = 2;
+    private int fastPath;
+
+    private static CoderResult decodeASCII(ByteBuffer in, CharBuffer out){
+        byte src[] = in.array();
+        int sp = in.arrayOffset()+in.position();
+        int sl = in.arrayOffset()+in.limit();
+        char dst[] = out.array();
+        int dp = out.arrayOffset()+out.position();
+        int dl = out.arrayOffset()+out.limit();
+
+        CoderResult result = CoderResult.UNDERFLOW;
+        int end = sp+Math.min(sl-sp, dl-dp);
+        while(sp<end){
+            byte b = src[sp];
+            if(b<0){
+                result = CoderResult.malformedForLength(1);
+                break;
+            }
+            dst[dp++] = (char)b;
+            sp++;
+        }
+        if(result==CoderResult.UNDERFLOW && sp<sl)
+            result = CoderResult.OVERFLOW;
+        in.position(sp-in.arrayOffset());
+        out.position(dp-out.arrayOffset());
+        return result;
+    }
+
+    private static boolean isContinuation(int b){
+        return (b&0xC0)==0x80;
+    }
+
+    private static CoderResult decodeUTF8(ByteBuffer in, CharBuffer out, boolean endOfInput){
+        byte src[] = in.array();
+        int sp = in.arrayOffset()+in.position();
+        int sl = in.arrayOffset()+in.limit();
+        char dst[] = out.array();
+        int dp = out.arrayOffset()+out.position();
+        int dl = out.arrayOffset()+out.limit();
+
+        CoderResult result = CoderResult.UNDERFLOW;
+        while(sp<sl){
+            int b1 = src[sp];
+            if(b1>=0){
+                if(dp==dl){
+                    result = CoderResult.OVERFLOW;
+                    break;
+                }
+                int end = sp+Math.min(sl-sp, dl-dp);
+                do{
+                    dst[dp++] = (char)b1;
+                    if(++sp==end)
+                        break;
+                    b1 = src[sp];
+                }while(b1>=0);
+                continue;
+            }
+
+            b1 &= 0xFF;
+            int len;
+            if(b1>=0xC2 && b1<=0xDF)
+                len = 2;
+            else if((b1&0xF0)==0xE0)
+                len = 3;
+            else if(b1>=0xF0 && b1<=0xF4)
+                len = 4;
+            else{
+                result = CoderResult.malformedForLength(1);
+                break;
+            }
+
+            // validate the bytes available so far, so that malformed input is
+            // reported with same length as JDK decoder even when truncated
+            int avail = Math.min(sl-sp, len);
+            int malformed = 0;
+            if(avail>1){
+                int b2 = src[sp+1]&0xFF;
+                if(!isContinuation(b2)
+                        || (b1==0xE0 && b2<0xA0) // overlong
+                        || (b1==0xF0 && b2<0x90) // overlong
+                        || (b1==0xF4 && b2>0x8F)) // above U+10FFFF
+                    malformed = 1;
+                else if(avail>2 && !isContinuation(src[sp+2]))
+                    malformed = 2;
+                else if(avail>3 && !isContinuation(src[sp+3]))
+                    malformed = 3;
+                else if(avail==3 && b1==0xED && b2>=0xA0) // encoded surrogate
+                    malformed = 3;
+            }
+            if(malformed>0){
+                result = CoderResult.malformedForLength(malformed);
+                break;
+            }
+            if(avail<len){
+                if(endOfInput)
+                    result = CoderResult.malformedForLength(avail);
+                break;
+            }
+            if(dl-dp<(len==4 ? 2 : 1)){
+                result = CoderResult.OVERFLOW;
+                break;
+            }
+
+            if(len==2)
+                dst[dp++] = (char)(((b1&0x1F)<<6) | (src[sp+1]&0x3F));
+            else if(len==3)
+                dst[dp++] = (char)(((b1&0x0F)<<12) | ((src[sp+1]&0x3F)<<6) | (src[sp+2]&0x3F));
+            else{
+                int cp = ((b1&0x07)<<18) | ((src[sp+1]&0x3F)<<12) | ((src[sp+2]&0x3F)<<6) | (src[sp+3]&0x3F);
+                dst[dp++] = Character.highSurrogate(cp);
+                dst[dp++] = Character.lowSurrogate(cp);
+            }
+            sp += len;
+        }
+        in.position(sp-in.arrayOffset());
+        out.position(dp-out.arrayOffset());
+        return result;
+    }
+
     @Override
     public boolean isOpen(){
         return channel!=null;
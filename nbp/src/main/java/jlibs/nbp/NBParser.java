@@ -16,6 +16,8 @@
 
 package jlibs.nbp;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.util.Arrays;
 
@@ -37,6 +39,20 @@ public abstract class NBParser{
 
     protected final Chars buffer = new Chars();
 
+    /**
+     * Limits the number of chars buffered for a single token.
+     * Exceeding it fails the parse with a fatal error, instead
+     * of growing the buffer. The check is done only when the
+     * buffer has to grow, so it doesn't cost anything otherwise.
+     */
+    public final void setMaxBufferLength(int maxLength){
+        buffer.maxLength = maxLength<0 ? Integer.MAX_VALUE : maxLength;
+    }
+
+    public final int getMaxBufferLength(){
+        return buffer.maxLength;
+    }
+
     private int startingRule;
     public NBParser(int maxLookAhead, int startingRule){
         la = new int[maxLookAhead];
@@ -54,6 +70,7 @@ public abstract class NBParser{
         buffer.clear();
 
         free = 2;
+        exitFree = 0;
         stack[0] = startingRule = rule;
         stack[1] = 0;
     }
@@ -207,6 +224,8 @@ public abstract class NBParser{
             return position;
         }catch(IOException ex){
             throw ex;
+        }catch(LimitExceededException ex){
+            throw ioError(ex.getMessage());
         }catch(Exception ex){
             if(ex.getCause() instanceof IOException)
                 throw (IOException)ex.getCause();
@@ -260,6 +279,63 @@ public abstract class NBParser{
         exitStack[exitFree-1] = state;
     }
 
+    /*-------------------------------------------------[ Checkpoint ]---------------------------------------------------*/
+
+    /**
+     * writes parsing state to given output, so that parsing can be
+     * resumed later using {@link #readState(DataInput)}.
+     * <p>
+     * must be called between {@link #consume(char[], int, int, boolean) consume} calls.
+     * Chars not consumed by last {@code consume} call are not part of the state,
+     * and must be fed again after resuming.
+     */
+    public final void writeState(DataOutput out) throws IOException{
+        if(laLen>0 || exitFree>0)
+            throw new IllegalStateException("writeState() called while consuming");
+        out.writeInt(startingRule);
+        out.writeInt(free);
+        for(int i=0; i<free; i++)
+            out.writeInt(stack[i]);
+        buffer.writeTo(out);
+        out.writeInt(offset);
+        out.writeInt(line);
+        out.writeInt(linePosition);
+        out.writeChar(lastChar);
+        if(dynamicStringToBeMatched==null)
+            out.writeInt(-1);
+        else{
+            out.writeInt(dynamicStringToBeMatched.length);
+            for(char ch: dynamicStringToBeMatched)
+                out.writeChar(ch);
+        }
+    }
+
+    /**
+     * restores parsing state written by {@link #writeState(DataOutput)}.
+     * the parser must be of same class as the one whose state is written
+     */
+    public final void readState(DataInput in) throws IOException{
+        reset(in.readInt());
+        free = in.readInt();
+        if(free>stack.length)
+            stack = new int[free];
+        for(int i=0; i<free; i++)
+            stack[i] = in.readInt();
+        buffer.readFrom(in);
+        offset = in.readInt();
+        line = in.readInt();
+        linePosition = in.readInt();
+        lastChar = in.readChar();
+        int len = in.readInt();
+        if(len==-1)
+            dynamicStringToBeMatched = null;
+        else{
+            dynamicStringToBeMatched = new char[len];
+            for(int i=0; i<len; i++)
+                dynamicStringToBeMatched[i] = in.readChar();
+        }
+    }
+
     /*-------------------------------------------------[ Helpers ]---------------------------------------------------*/
 
     public static final int RULE_DYNAMIC_STRING_MATCH = Integer.MIN_VALUE;
@@ -317,4 +393,23 @@ public abstract class NBParser{
         }
         return ch;
     }
-}
\ No newline at end of file
+
+    /**
+     * used by matchers generated as lookup tables.
+     * ranges is sorted array of inclusive min, max pairs
+     */
+    protected static boolean inRanges(int ranges[], int ch){
+        int low = 0;
+        int high = (ranges.length>>1)-1;
+        while(low<=high){
+            int mid = (low+high)>>>1;
+            if(ch<ranges[mid<<1])
+                high = mid-1;
+            else if(ch>ranges[(mid<<1)+1])
+                low = mid+1;
+            else
+                return true;
+        }
+        return false;
+    }
+}
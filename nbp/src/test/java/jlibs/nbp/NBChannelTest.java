@@ -0,0 +1,253 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.nbp;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.*;
+
+/**
+ * Checks that inline UTF-8 and US-ASCII decoding of {@link NBChannel}
+ * behaves same as JDK's CharsetDecoder with {@link CodingErrorAction#REPORT}.
+ *
+ * @author Santhosh Kumar T
+ */
+public class NBChannelTest{
+    private static byte[] bytes(int... values){
+        byte bytes[] = new byte[values.length];
+        for(int i=0; i<values.length; i++)
+            bytes[i] = (byte)values[i];
+        return bytes;
+    }
+
+    private static final byte UTF8_CASES[][] = {
+        // valid
+        bytes(0x41),
+        bytes(0xC3, 0xA9),                  // é
+        bytes(0xDF, 0xBF),                  // U+07FF
+        bytes(0xE2, 0x82, 0xAC),            // €
+        bytes(0xEF, 0xBF, 0xBF),            // U+FFFF
+        bytes(0xF0, 0x9F, 0x98, 0x80),      // U+1F600
+        bytes(0xF4, 0x8F, 0xBF, 0xBF),      // U+10FFFF
+
+        // overlong
+        bytes(0xC0, 0x80),
+        bytes(0xC1, 0xBF),
+        bytes(0xE0, 0x80, 0x80),
+        bytes(0xE0, 0x9F, 0xBF),
+        bytes(0xF0, 0x80, 0x80, 0x80),
+        bytes(0xF0, 0x8F, 0xBF, 0xBF),
+
+        // encoded surrogates
+        bytes(0xED, 0xA0, 0x80),
+        bytes(0xED, 0xBF, 0xBF),
+        bytes(0xED, 0xA0, 0xBD, 0xED, 0xB8, 0x80),
+
+        // above U+10FFFF
+        bytes(0xF4, 0x90, 0x80, 0x80),
+        bytes(0xF5, 0x80, 0x80, 0x80),
+        bytes(0xF7, 0xBF, 0xBF, 0xBF),
+        bytes(0xF8, 0x88, 0x80, 0x80, 0x80),
+        bytes(0xFF),
+
+        // bad continuation
+        bytes(0x80),
+        bytes(0xBF, 0x41),
+        bytes(0xC3, 0x41),
+        bytes(0xE2, 0x41, 0xAC),
+        bytes(0xE2, 0x82, 0x41),
+        bytes(0xF0, 0x41, 0x98, 0x80),
+        bytes(0xF0, 0x9F, 0x41, 0x80),
+        bytes(0xF0, 0x9F, 0x98, 0x41),
+    };
+
+    // sequences truncated at end of input
+    private static final byte TRUNCATED_CASES[][] = {
+        bytes(0xC3),
+        bytes(0xE2),
+        bytes(0xE2, 0x82),
+        bytes(0xF0),
+        bytes(0xF0, 0x9F),
+        bytes(0xF0, 0x9F, 0x98),
+    };
+
+    /** chars decoded before error, followed by error if any */
+    private static String expected(Charset charset, byte input[]){
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        CharBuffer out = CharBuffer.allocate(input.length*2+2);
+        CoderResult cr = decoder.decode(ByteBuffer.wrap(input), out, true);
+        if(cr.isUnderflow())
+            cr = decoder.flush(out);
+        out.flip();
+        String str = out.toString();
+        if(cr.isError())
+            str += "|"+(cr.isMalformed() ? "malformed" : "unmappable")+cr.length();
+        return str;
+    }
+
+    /** returns at most chunk bytes per read, and nothing on every other read */
+    private static class ChunkedChannel implements ReadableByteChannel{
+        private final ByteBuffer data;
+        private final int chunk;
+        private boolean starve;
+
+        ChunkedChannel(byte data[], int chunk){
+            this.data = ByteBuffer.wrap(data);
+            this.chunk = chunk;
+        }
+
+        @Override
+        public int read(ByteBuffer dst){
+            if(!data.hasRemaining())
+                return -1;
+            starve = !starve;
+            if(starve)
+                return 0;
+            int len = Math.min(chunk, Math.min(dst.remaining(), data.remaining()));
+            for(int i=0; i<len; i++)
+                dst.put(data.get());
+            return len;
+        }
+
+        @Override
+        public boolean isOpen(){
+            return true;
+        }
+
+        @Override
+        public void close(){}
+    }
+
+    /**
+     * reads given input through NBChannel, fed chunk bytes at a time, into a
+     * CharBuffer which has room for 1, 2, 3... chars in successive reads
+     */
+    private static String actual(String encoding, byte input[], int chunk) throws IOException{
+        NBChannel channel = new NBChannel(new ChunkedChannel(input, chunk));
+        channel.setEncoding(encoding, false);
+        StringBuilder buff = new StringBuilder();
+        CharBuffer charBuffer = CharBuffer.allocate(8);
+        int room = 0;
+        for(int i=0; i<10000; i++){
+            room = room%4+1;
+            charBuffer.clear();
+            charBuffer.position(charBuffer.capacity()-room);
+            int start = charBuffer.position();
+            try{
+                if(channel.read(charBuffer)==-1)
+                    return buff.toString();
+            }catch(CharacterCodingException ex){
+                buff.append(charBuffer.array(), start, charBuffer.position()-start);
+                if(ex instanceof MalformedInputException)
+                    return buff.append("|malformed").append(((MalformedInputException)ex).getInputLength()).toString();
+                if(ex instanceof UnmappableCharacterException)
+                    return buff.append("|unmappable").append(((UnmappableCharacterException)ex).getInputLength()).toString();
+                throw ex;
+            }
+            buff.append(charBuffer.array(), start, charBuffer.position()-start);
+        }
+        throw new AssertionError("read doesn't make progress");
+    }
+
+    private static byte[] concat(byte[]... parts){
+        int length = 0;
+        for(byte part[]: parts)
+            length += part.length;
+        byte result[] = new byte[length];
+        int offset = 0;
+        for(byte part[]: parts){
+            System.arraycopy(part, 0, result, offset, part.length);
+            offset += part.length;
+        }
+        return result;
+    }
+
+    private static String hex(byte bytes[]){
+        StringBuilder buff = new StringBuilder();
+        for(byte b: bytes)
+            buff.append(String.format("%02X ", b&0xFF));
+        return buff.toString();
+    }
+
+    private static void check(Charset charset, byte input[]) throws IOException{
+        String expected = expected(charset, input);
+        for(int chunk=1; chunk<=6; chunk++)
+            Assert.assertEquals(actual(charset.name(), input, chunk), expected, hex(input)+"chunk="+chunk);
+    }
+
+    private static final byte PREFIX[] = "ab".getBytes(StandardCharsets.US_ASCII);
+    private static final byte SUFFIX[] = "cd".getBytes(StandardCharsets.US_ASCII);
+
+    @Test
+    public void utf8() throws IOException{
+        for(byte seq[]: UTF8_CASES){
+            check(StandardCharsets.UTF_8, concat(PREFIX, seq, SUFFIX));
+            // multi-byte sequence right after one char, so that it lands at
+            // every offset relative to chunk and char buffer boundaries
+            check(StandardCharsets.UTF_8, concat(PREFIX, bytes(0x41), seq, seq, SUFFIX));
+        }
+    }
+
+    @Test
+    public void utf8Truncated() throws IOException{
+        for(byte seq[]: TRUNCATED_CASES){
+            check(StandardCharsets.UTF_8, concat(PREFIX, seq));
+            check(StandardCharsets.UTF_8, concat(PREFIX, seq, SUFFIX));
+        }
+    }
+
+    @Test
+    public void utf8OneCharRoom() throws IOException{
+        byte input[] = concat(PREFIX, bytes(0xF0, 0x9F, 0x98, 0x80), SUFFIX);
+        NBChannel channel = new NBChannel(new ChunkedChannel(input, input.length));
+        channel.setEncoding("UTF-8", false);
+
+        // after "ab" is read, there is room for only one char before surrogate pair
+        CharBuffer charBuffer = CharBuffer.allocate(3);
+        for(int i=0; i<10 && charBuffer.position()<2; i++)
+            Assert.assertTrue(channel.read(charBuffer)>=0);
+        Assert.assertEquals(charBuffer.position(), 2);
+        Assert.assertEquals(channel.read(charBuffer), 0);
+        Assert.assertEquals(charBuffer.position(), 2);
+
+        charBuffer.flip();
+        StringBuilder buff = new StringBuilder(charBuffer);
+        charBuffer.clear();
+        int read;
+        while((read=channel.read(charBuffer))!=-1){
+            if(read>0){
+                charBuffer.flip();
+                buff.append(charBuffer);
+                charBuffer.clear();
+            }
+        }
+        Assert.assertEquals(buff.toString(), "ab😀cd");
+    }
+
+    @Test
+    public void ascii() throws IOException{
+        for(int b=0; b<256; b++)
+            check(StandardCharsets.US_ASCII, concat(PREFIX, bytes(b), SUFFIX));
+    }
+}
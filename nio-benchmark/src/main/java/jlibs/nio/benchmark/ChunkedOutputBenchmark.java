@@ -0,0 +1,110 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.nio.benchmark;
+
+import jlibs.nio.Reactor;
+import jlibs.nio.Reactors;
+import jlibs.nio.WritePipe;
+import jlibs.nio.filters.ChunkedOutput;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ChunkedOutput must be used in reactor thread, so each invocation
+ * writes {@value #BATCH} chunks through {@link Reactor#invokeAndWait(Runnable)}
+ * into a pipe, which is drained by a separate thread.
+ *
+ * @author Santhosh Kumar Tekuri
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class ChunkedOutputBenchmark{
+    private static final int BATCH = 256;
+
+    @Param({"128", "4096"})
+    public int chunkSize;
+
+    private Reactor reactor;
+    private Pipe pipe;
+    private ChunkedOutput out;
+    private ByteBuffer chunk;
+    private Runnable writeBatch;
+    private volatile boolean drain;
+
+    @Setup
+    public void setup() throws Exception{
+        Reactors.start(1);
+        reactor = Reactors.get().get(0);
+        pipe = Pipe.open();
+        drain = true;
+        Thread drainer = new Thread(() -> {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(64*1024);
+            try{
+                while(drain){
+                    buffer.clear();
+                    pipe.source().read(buffer);
+                }
+            }catch(IOException ignore){
+                // pipe closed
+            }
+        }, "drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+
+        chunk = ByteBuffer.allocateDirect(chunkSize);
+        reactor.invokeAndWait(() -> {
+            try{
+                out = new ChunkedOutput(new WritePipe(pipe.sink()).out());
+            }catch(IOException ex){
+                throw new RuntimeException(ex);
+            }
+        });
+        writeBatch = () -> {
+            try{
+                for(int i=0; i<BATCH; i++){
+                    chunk.clear();
+                    while(chunk.hasRemaining())
+                        out.write(chunk);
+                }
+            }catch(IOException ex){
+                throw new RuntimeException(ex);
+            }
+        };
+    }
+
+    @TearDown
+    public void tearDown() throws IOException{
+        drain = false;
+        pipe.sink().close();
+        pipe.source().close();
+        Reactors.shutdown(true);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void write() throws InterruptedException{
+        reactor.invokeAndWait(writeBatch);
+    }
+}
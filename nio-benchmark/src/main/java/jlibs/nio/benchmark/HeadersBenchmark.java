@@ -0,0 +1,85 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.nio.benchmark;
+
+import jlibs.nio.http.msg.AsciiString;
+import jlibs.nio.http.msg.Headers;
+import jlibs.nio.http.msg.Message;
+import jlibs.nio.http.msg.Request;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Santhosh Kumar Tekuri
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class HeadersBenchmark{
+    private static final AsciiString X_CUSTOM = new AsciiString("X-Custom");
+    private Headers headers;
+
+    @Setup
+    public void setup(){
+        headers = new Request().headers;
+        populate(headers);
+    }
+
+    private static void populate(Headers headers){
+        headers.add(Request.HOST, "localhost:8080");
+        headers.add(Request.ACCEPT, "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8");
+        headers.add(Request.ACCEPT_ENCODING, "gzip, deflate");
+        headers.add(Message.CONNECTION, "keep-alive");
+        headers.add(Message.CONTENT_TYPE, "application/xml; charset=UTF-8");
+        headers.add(Message.CONTENT_LENGTH, "1024");
+        headers.add(Request.X_FORWARDED_FOR, "10.0.0.1, 10.0.0.2");
+        headers.add(X_CUSTOM, "value");
+    }
+
+    @Benchmark
+    public String getByAsciiString(){
+        return headers.value(Message.CONTENT_TYPE);
+    }
+
+    @Benchmark
+    public String getByString(){
+        return headers.value("content-type");
+    }
+
+    @Benchmark
+    public String getMissing(){
+        return headers.value(Message.TRANSFER_ENCODING);
+    }
+
+    @Benchmark
+    public Headers populateAndClear(){
+        Headers headers = this.headers;
+        headers.clear();
+        populate(headers);
+        return headers;
+    }
+
+    @Benchmark
+    public Headers set(){
+        headers.set(X_CUSTOM, "other");
+        return headers;
+    }
+}
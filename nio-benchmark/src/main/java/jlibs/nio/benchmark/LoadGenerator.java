@@ -0,0 +1,169 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.nio.benchmark;
+
+import jlibs.core.io.NullOutputStream;
+import jlibs.nio.Reactor;
+import jlibs.nio.Reactors;
+import jlibs.nio.TCPConnection;
+import jlibs.nio.http.*;
+import jlibs.nio.listeners.IOListener;
+import jlibs.nio.listeners.WriteToOutputStream;
+import jlibs.nio.util.Histogram;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop HTTP load generator.
+ * <p>
+ * Requests are started at a fixed rate irrespective of how many are outstanding.
+ * Latency is measured from the time a request was supposed to be sent,
+ * rather than when it was actually sent, so that stalls of the system under test
+ * are not hidden (coordinated omission).
+ *
+ * @author Santhosh Kumar Tekuri
+ */
+public class LoadGenerator implements ResponseListener{
+    private final Scenario scenario;
+    private final HTTPClient client;
+    private final List<Reactor> reactors;
+    private final Histogram histograms[];
+    private final long errors[];
+    private final long completed[];
+
+    public LoadGenerator(Scenario scenario){
+        this.scenario = scenario;
+        client = scenario.newClient();
+        reactors = Reactors.get();
+        histograms = new Histogram[reactors.size()];
+        for(int i=0; i<histograms.length; i++)
+            histograms[i] = new Histogram();
+        errors = new long[reactors.size()];
+        completed = new long[reactors.size()];
+    }
+
+    private long sent;
+
+    /** sends requests at given rate for given duration and waits for outstanding requests */
+    public void run(int ratePerSecond, long duration, TimeUnit unit) throws InterruptedException{
+        long interval = TimeUnit.SECONDS.toNanos(1)/ratePerSecond;
+        long start = System.nanoTime();
+        long end = start+unit.toNanos(duration);
+        for(long intended=start; intended<end; intended+=interval){
+            long wait = intended-System.nanoTime();
+            if(wait>0)
+                LockSupport.parkNanos(wait);
+            Reactor reactor = reactors.get((int)(sent++%reactors.size()));
+            long intendedStart = intended;
+            reactor.invokeLater(() -> send(reactor, intendedStart));
+        }
+
+        long deadline = System.nanoTime()+TimeUnit.SECONDS.toNanos(30);
+        while(getFinished()<sent && System.nanoTime()<deadline)
+            Thread.sleep(100);
+    }
+
+    private void send(Reactor reactor, long intendedStart){
+        try{
+            ClientExchange exchange = scenario.newExchange(client);
+            exchange.setCallback((ex, thr) -> {
+                long latency = System.nanoTime()-intendedStart;
+                if(thr==null){
+                    histograms[reactor.id].record(latency);
+                    ++completed[reactor.id];
+                }else
+                    ++errors[reactor.id];
+            });
+            exchange.execute(this);
+        }catch(Throwable thr){
+            ++errors[reactor.id];
+            reactor.handleException(thr);
+        }
+    }
+
+    @Override
+    public void process(ClientExchange exchange, Throwable thr) throws Exception{
+        if(thr==null && exchange.getResponse().getPayload() instanceof SocketPayload){
+            SocketPayload payload = (SocketPayload)exchange.getResponse().getPayload();
+            new IOListener().start(new WriteToOutputStream(NullOutputStream.INSTANCE, null), payload.socket(), null);
+        }
+    }
+
+    private long getFinished() throws InterruptedException{
+        long finished[] = { 0 };
+        for(Reactor reactor: reactors)
+            reactor.invokeAndWait(() -> finished[0] += completed[reactor.id]+errors[reactor.id]);
+        return finished[0];
+    }
+
+    /** returns latencies in nanoseconds merged across reactors */
+    public Histogram getLatencies() throws InterruptedException{
+        Histogram merged = new Histogram();
+        for(Reactor reactor: reactors)
+            reactor.invokeAndWait(() -> merged.add(histograms[reactor.id]));
+        return merged;
+    }
+
+    public long getErrors() throws InterruptedException{
+        long count[] = { 0 };
+        for(Reactor reactor: reactors)
+            reactor.invokeAndWait(() -> count[0] += errors[reactor.id]);
+        return count[0];
+    }
+
+    public long getSent(){
+        return sent;
+    }
+
+    /**
+     * arguments: scenario ratePerSecond durationSeconds [reactors]
+     */
+    public static void main(String[] args) throws Exception{
+        if(args.length<3){
+            System.err.println("usage: LoadGenerator <scenario> <rate> <seconds> [reactors]");
+            System.err.println("scenarios: "+Arrays.toString(Scenario.values()));
+            System.exit(1);
+        }
+        Scenario scenario = Scenario.valueOf(args[0].toUpperCase());
+        int rate = Integer.parseInt(args[1]);
+        int seconds = Integer.parseInt(args[2]);
+        TCPConnection.TCP_NODELAY = true;
+        if(args.length>3)
+            Reactors.start(Integer.parseInt(args[3]));
+        else
+            Reactors.start();
+        scenario.start();
+
+        // warmup
+        new LoadGenerator(scenario).run(rate, Math.max(1, seconds/5), TimeUnit.SECONDS);
+
+        LoadGenerator generator = new LoadGenerator(scenario);
+        long begin = System.nanoTime();
+        generator.run(rate, seconds, TimeUnit.SECONDS);
+        long took = System.nanoTime()-begin;
+        Histogram latencies = generator.getLatencies();
+        System.out.println("scenario:   "+scenario);
+        System.out.println("sent:       "+generator.getSent());
+        System.out.println("errors:     "+generator.getErrors());
+        System.out.println("throughput: "+latencies.getCount()*TimeUnit.SECONDS.toNanos(1)/took+" req/s");
+        System.out.println("latency(us) "+latencies.toString(1000));
+        Reactors.shutdown(true);
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.nio.benchmark;
+
+import jlibs.nio.util.BufferAllocator;
+import jlibs.nio.util.PooledBufferAllocator;
+import jlibs.nio.util.UnpooledBufferAllocator;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * compares allocate/free cycles of pooled and unpooled allocators
+ *
+ * @author Santhosh Kumar Tekuri
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class PooledBufferAllocatorBenchmark{
+    @Param({"true", "false"})
+    public boolean direct;
+
+    @Param({"16384"})
+    public int size;
+
+    private BufferAllocator pooled;
+    private BufferAllocator unpooled;
+    private ByteBuffer buffers[] = new ByteBuffer[8];
+
+    @Setup
+    public void setup(){
+        pooled = new PooledBufferAllocator(direct);
+        unpooled = direct ? UnpooledBufferAllocator.DIRECT : UnpooledBufferAllocator.HEAP;
+    }
+
+    @Benchmark
+    public ByteBuffer pooledSingle(){
+        ByteBuffer buffer = pooled.allocate(size);
+        pooled.free(buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public ByteBuffer pooledBurst(){
+        for(int i=0; i<buffers.length; i++)
+            buffers[i] = pooled.allocate(size);
+        for(ByteBuffer buffer: buffers)
+            pooled.free(buffer);
+        return buffers[0];
+    }
+
+    @Benchmark
+    public ByteBuffer unpooledSingle(){
+        ByteBuffer buffer = unpooled.allocate(size);
+        unpooled.free(buffer);
+        return buffer;
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.nio.benchmark;
+
+import jlibs.nio.http.msg.Request;
+import jlibs.nio.http.msg.parser.RequestParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Santhosh Kumar Tekuri
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class RequestParserBenchmark{
+    private static final String SMALL = "GET / HTTP/1.1\r\n"+
+            "Host: localhost\r\n"+
+            "\r\n";
+
+    private static final String TYPICAL = "POST /services/OrderService?wsdl=true HTTP/1.1\r\n"+
+            "Host: www.example.com:8080\r\n"+
+            "User-Agent: Mozilla/5.0 (X11; Linux x86_64; rv:45.0) Gecko/20100101 Firefox/45.0\r\n"+
+            "Accept: text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8\r\n"+
+            "Accept-Language: en-US,en;q=0.5\r\n"+
+            "Accept-Encoding: gzip, deflate\r\n"+
+            "Content-Type: text/xml; charset=UTF-8\r\n"+
+            "Content-Length: 1024\r\n"+
+            "SOAPAction: \"urn:placeOrder\"\r\n"+
+            "Cookie: JSESSIONID=1A530637289A03B07199A44E8D531427; theme=dark\r\n"+
+            "Connection: keep-alive\r\n"+
+            "\r\n";
+
+    @Param({"SMALL", "TYPICAL"})
+    public String request;
+
+    private ByteBuffer buffer;
+    private RequestParser parser;
+
+    @Setup
+    public void setup() throws Exception{
+        String text = (String)getClass().getDeclaredField(request).get(null);
+        buffer = ByteBuffer.allocateDirect(text.length());
+        buffer.put(text.getBytes(StandardCharsets.US_ASCII));
+        buffer.flip();
+        parser = new RequestParser(0);
+    }
+
+    @Benchmark
+    public Request parse(){
+        Request request = new Request();
+        parser.reset(request);
+        buffer.rewind();
+        if(!parser.parse(buffer, false))
+            throw new IllegalStateException("incomplete request");
+        return request;
+    }
+}
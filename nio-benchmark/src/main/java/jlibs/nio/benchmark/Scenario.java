@@ -0,0 +1,107 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.nio.benchmark;
+
+import jlibs.core.net.SSLUtil;
+import jlibs.nio.TCPEndpoint;
+import jlibs.nio.http.*;
+import jlibs.nio.http.filters.ReadSocketPayload;
+import jlibs.nio.http.msg.Method;
+import jlibs.nio.http.msg.Request;
+import jlibs.nio.http.msg.Response;
+import jlibs.nio.http.msg.StreamPayload;
+import jlibs.nio.http.msg.StringPayload;
+import jlibs.nio.util.ByteWindow;
+
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * Loopback scenarios used by {@link LoadGenerator}.
+ * <p>
+ * TLS scenarios use {@link SSLUtil#defaultContext()}, so run with
+ * <code>-Djavax.net.ssl.keyStore=keystore.ks -Djavax.net.ssl.keyStorePassword=dontknow</code>
+ *
+ * @author Santhosh Kumar Tekuri
+ */
+public enum Scenario{
+    KEEP_ALIVE_GET,
+    CHUNKED_POST,
+    TLS,
+    PROXY,
+    CONNECT_TUNNEL;
+
+    public static String RESPONSE = "Hello World";
+    public static int POST_SIZE = 8*1024;
+    public static int ORIGIN_PORT = 9080;
+    public static int TLS_PORT = 9443;
+    public static int PROXY_PORT = 9081;
+
+    private TCPEndpoint origin;
+    private TCPEndpoint proxy;
+
+    /** starts the servers required by this scenario */
+    public void start() throws Exception{
+        TCPEndpoint endpoint = new TCPEndpoint("127.0.0.1", this==TLS ? TLS_PORT : ORIGIN_PORT);
+        if(this==TLS)
+            endpoint.sslContext = SSLUtil.defaultContext();
+        HTTPServer server = new HTTPServer(endpoint);
+        server.requestFilters = Collections.singletonList(new ReadSocketPayload());
+        server.listener = exchange -> {
+            Response response = new Response();
+            response.setPayload(new StringPayload(RESPONSE, "text/plain"));
+            exchange.setResponse(response);
+            return true;
+        };
+        server.start();
+        origin = endpoint;
+
+        if(this==PROXY || this==CONNECT_TUNNEL){
+            HTTPProxyServer proxyServer = new HTTPProxyServer(new TCPEndpoint("127.0.0.1", PROXY_PORT));
+            proxyServer.client.proxy = null;
+            proxyServer.start();
+            proxy = proxyServer.server.endpoint;
+        }
+    }
+
+    public HTTPClient newClient(){
+        HTTPClient client = new HTTPClient();
+        client.proxy = this==CONNECT_TUNNEL ? new HTTPProxy(proxy) : null;
+        return client;
+    }
+
+    /** must be called in reactor thread */
+    public ClientExchange newExchange(HTTPClient client) throws IOException{
+        Request request = new Request();
+        ClientExchange exchange;
+        if(this==PROXY){
+            exchange = client.newExchange(proxy);
+            request.uri = "http://"+origin+"/";
+        }else
+            exchange = client.newExchange(origin);
+
+        if(this==CHUNKED_POST){
+            request.method = Method.POST;
+            ByteWindow window = new ByteWindow(POST_SIZE);
+            window.outputStream().write(new byte[POST_SIZE]);
+            window.close();
+            request.setPayload(new StreamPayload("application/octet-stream", window));
+        }
+        exchange.setRequest(request);
+        return exchange;
+    }
+}
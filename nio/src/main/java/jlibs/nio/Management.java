@@ -36,6 +36,22 @@ public class Management{
         public int getConnected();
         public int getPooled();
         public Map<String, Integer> getPool();
+        public long getSpinMicros();
+        public void setSpinMicros(long micros);
+        public int getMaxKeysPerIteration();
+        public void setMaxKeysPerIteration(int max);
+        public String getIterationTime();
+        public String getKeysPerSelect();
+        public void resetStats();
+    }
+
+    @MXBean
+    public static interface LatenciesMXBean{
+        public Map<String, String> getLatencies();
+        public long getSlowExchanges();
+        public long getSlowThreshold();
+        public void setSlowThreshold(long millis);
+        public void reset();
     }
 
     @MXBean
@@ -46,7 +62,7 @@ public class Management{
         public void close() throws IOException;
     }
 
-    static ObjectName register(Object mbean, String name){
+    public static ObjectName register(Object mbean, String name){
         try{
             ObjectName objName = new ObjectName(name);
             if(!MBEAN_SERVER.isRegistered(objName))
@@ -57,7 +73,7 @@ public class Management{
         }
     }
 
-    static void unregister(ObjectName name){
+    public static void unregister(ObjectName name){
         try{
             if(name!=null && !MBEAN_SERVER.isRegistered(name))
                 MBEAN_SERVER.unregisterMBean(name);
@@ -44,6 +44,7 @@ public abstract class NBChannel<T extends SelectableChannel> implements Channel{
     protected abstract void process(boolean timeout);
 
     int heapIndex = -1;
+    boolean keyQueued; // in Reactor's pendingKeys
     long timeoutAt = Long.MAX_VALUE;
     public long getTimeout(){
         return 0;
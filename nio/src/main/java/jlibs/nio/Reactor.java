@@ -18,6 +18,7 @@ package jlibs.nio;
 import jlibs.core.lang.Waiter;
 import jlibs.core.util.Heap;
 import jlibs.nio.util.BufferAllocator;
+import jlibs.nio.util.Histogram;
 import jlibs.nio.util.PooledBufferAllocator;
 import jlibs.nio.util.UnpooledBufferAllocator;
 
@@ -96,6 +97,45 @@ public class Reactor{
                 }
                 return map[0];
             }
+
+            @Override
+            public long getSpinMicros(){
+                return spinNanos/1000;
+            }
+
+            @Override
+            public void setSpinMicros(long micros){
+                spinNanos = Math.max(0, micros)*1000;
+            }
+
+            @Override
+            public int getMaxKeysPerIteration(){
+                return maxKeysPerIteration;
+            }
+
+            @Override
+            public void setMaxKeysPerIteration(int max){
+                maxKeysPerIteration = max;
+            }
+
+            @Override
+            public String getIterationTime(){
+                Histogram histogram = new Histogram();
+                collectStats(histogram, null);
+                return histogram.toString(1000);
+            }
+
+            @Override
+            public String getKeysPerSelect(){
+                Histogram histogram = new Histogram();
+                collectStats(null, histogram);
+                return histogram.toString();
+            }
+
+            @Override
+            public void resetStats(){
+                Reactor.this.resetStats();
+            }
         }, "jlibs.nio:type=Reactor,id="+id);
     }
 
@@ -104,6 +144,57 @@ public class Reactor{
         return toString;
     }
 
+    /*-------------------------------------------------[ Tuning ]---------------------------------------------------*/
+
+    public static class Defaults{
+        public static long SPIN_MICROS = 0;
+        public static int MAX_KEYS_PER_ITERATION = 0;
+    }
+
+    /**
+     * when positive, reactor spins on {@code selectNow()} for this many
+     * nanoseconds before blocking in {@code select()}. trades cpu for
+     * wakeup latency; zero disables spinning
+     */
+    public volatile long spinNanos = Defaults.SPIN_MICROS*1000;
+
+    /**
+     * maximum number of selected keys processed in one iteration, zero for
+     * no limit. remaining keys are queued in FIFO order, and processed before
+     * newly selected keys in the next iteration, after pending tasks, wakeups
+     * and timeouts got their turn. so no key waits more than
+     * {@code ceil(readyKeys/max)} iterations
+     */
+    public volatile int maxKeysPerIteration = Defaults.MAX_KEYS_PER_ITERATION;
+
+    // selected keys left over by maxKeysPerIteration, in FIFO order
+    private final ArrayDeque<SelectionKey> pendingKeys = new ArrayDeque<SelectionKey>();
+
+    /** busy time of each loop iteration in nanoseconds, excluding time blocked in select */
+    private final Histogram iterationTime = new Histogram();
+    private final Histogram keysPerSelect = new Histogram();
+
+    /** merges this reactor's stats into given histograms, either of which can be null */
+    void collectStats(Histogram iterationTime, Histogram keysPerSelect){
+        try{
+            invokeAndWait(() -> {
+                if(iterationTime!=null)
+                    iterationTime.add(this.iterationTime);
+                if(keysPerSelect!=null)
+                    keysPerSelect.add(this.keysPerSelect);
+            });
+        }catch(InterruptedException ex){
+            throw new RuntimeException(ex);
+        }
+    }
+
+    void resetStats(){
+        invokeLater(() -> {
+            iterationTime.reset();
+            keysPerSelect.reset();
+        });
+    }
+
     /*-------------------------------------------------[ ExceptionHandler ]---------------------------------------------------*/
 
     private Consumer<Throwable> exceptionHandler;
@@ -228,6 +319,7 @@ public class Reactor{
             Deque<Runnable> tempTasks = new ArrayDeque<>();
             NBChannel nbChannel;
             NBStream nbStream;
+            long busyFrom = System.nanoTime();
 
             while(true){
                 while(wakeupHead!=null){
@@ -250,7 +342,7 @@ public class Reactor{
 
                 // run tasks
                 while(!tasks.isEmpty()){
-                    synchronized(this){
+                    synchronized(reactor){
                         Deque<Runnable> temp = tasks;
                         tasks = tempTasks;
                         tempTasks = temp;
@@ -282,32 +374,59 @@ public class Reactor{
                 boolean tracking = timeoutTracker.isTracking();
                 long selectTimeout = tracking ? timeoutTracker.waitTime() : 0L;
 
-                int selected = 0;
+                Set<SelectionKey> selectedKeys = selector.selectedKeys();
+                iterationTime.record(System.nanoTime()-busyFrom);
                 try{
                     if(IO)
                         enter("select("+selectTimeout+")");
-                    selected = selector.select(selectTimeout);
+                    if(!pendingKeys.isEmpty())
+                        selector.selectNow();
+                    else{
+                        long spin = spinNanos;
+                        if(spin>0){
+                            long spinUntil = System.nanoTime()+spin;
+                            while(selector.selectNow()==0 && wakeupHead==null && tasks.isEmpty()){
+                                if(System.nanoTime()>=spinUntil){
+                                    selector.select(selectTimeout);
+                                    break;
+                                }
+                            }
+                        }else
+                            selector.select(selectTimeout);
+                    }
                 }catch(IOException ex){
                     handleException(ex);
                 }
+                busyFrom = System.nanoTime();
                 if(tracking)
                     timeoutTracker.time = System.currentTimeMillis();
-                if(selected>0){
-                    Set<SelectionKey> selectedKeys = selector.selectedKeys();
+                int selected = selectedKeys.size();
+                keysPerSelect.record(selected);
+                int max = maxKeysPerIteration;
+                if(pendingKeys.isEmpty() && (max<=0 || selected<=max)){
+                    if(selected>0){
+                        for(SelectionKey key: selectedKeys)
+                            process(key);
+                        selectedKeys.clear();
+                    }
+                }else{
+                    // leftover keys are served first, so that keys selected
+                    // again can't overtake them
                     for(SelectionKey key: selectedKeys){
-                        if(key.isValid()){
-                            nbChannel = (NBChannel)key.attachment();
-                            if(nbChannel.heapIndex!=-1)
-                                timeoutTracker.stopTimer(nbChannel);
-                            activeChannel = nbChannel;
-                            try{
-                                nbChannel.process(false);
-                            }catch(Throwable thr){
-                                handleException(thr);
-                            }
+                        nbChannel = (NBChannel)key.attachment();
+                        if(!nbChannel.keyQueued){
+                            nbChannel.keyQueued = true;
+                            pendingKeys.addLast(key);
                         }
                     }
                     selectedKeys.clear();
+                    if(max<=0)
+                        max = Integer.MAX_VALUE;
+                    SelectionKey key;
+                    while(max-->0 && (key=pendingKeys.pollFirst())!=null){
+                        ((NBChannel)key.attachment()).keyQueued = false;
+                        process(key);
+                    }
                 }
                 if(IO)
                     exit();
@@ -331,6 +450,20 @@ public class Reactor{
             }
         }
 
+        private void process(SelectionKey key){
+            if(key.isValid()){
+                NBChannel nbChannel = (NBChannel)key.attachment();
+                if(nbChannel.heapIndex!=-1)
+                    timeoutTracker.stopTimer(nbChannel);
+                activeChannel = nbChannel;
+                try{
+                    nbChannel.process(false);
+                }catch(Throwable thr){
+                    handleException(thr);
+                }
+            }
+        }
+
         @Override
         public void uncaughtException(Thread thread, Throwable throwable){
             handleException(throwable);
@@ -15,6 +15,8 @@
 
 package jlibs.nio;
 
+import jlibs.nio.util.Histogram;
+
 import java.io.IOException;
 import java.util.*;
 import java.util.function.Supplier;
@@ -85,6 +87,50 @@ public class Reactors{
                     throw new RuntimeException(ex);
                 }
             }
+
+            @Override
+            public long getSpinMicros(){
+                return reactors[0].spinNanos/1000;
+            }
+
+            @Override
+            public void setSpinMicros(long micros){
+                for(Reactor reactor: reactors)
+                    reactor.spinNanos = Math.max(0, micros)*1000;
+            }
+
+            @Override
+            public int getMaxKeysPerIteration(){
+                return reactors[0].maxKeysPerIteration;
+            }
+
+            @Override
+            public void setMaxKeysPerIteration(int max){
+                for(Reactor reactor: reactors)
+                    reactor.maxKeysPerIteration = max;
+            }
+
+            @Override
+            public String getIterationTime(){
+                Histogram histogram = new Histogram();
+                for(Reactor reactor: reactors)
+                    reactor.collectStats(histogram, null);
+                return histogram.toString(1000);
+            }
+
+            @Override
+            public String getKeysPerSelect(){
+                Histogram histogram = new Histogram();
+                for(Reactor reactor: reactors)
+                    reactor.collectStats(null, histogram);
+                return histogram.toString();
+            }
+
+            @Override
+            public void resetStats(){
+                for(Reactor reactor: reactors)
+                    reactor.resetStats();
+            }
         }, "jlibs.nio:type=Reactors");
     }
 
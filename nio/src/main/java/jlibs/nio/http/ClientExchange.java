@@ -51,7 +51,7 @@ public class ClientExchange extends Exchange{
     private AccessLog.Record accessLogRecord;
 
     protected ClientExchange(HTTPClient client, TCPEndpoint endpoint){
-        super(client.maxResponseHeadSize, new ResponseParser(), OP_WRITE);
+        super(client.maxResponseHeadSize, new ResponseParser(), OP_WRITE, client.latencies);
         this.client = client;
         this.endpoint = endpoint;
         requestFilters=  client.requestFilters;
@@ -92,10 +92,14 @@ public class ClientExchange extends Exchange{
                             println("state = "+state);
                     case FILTER_REQUEST:
                         while(filters.hasNext()){
-                            if(!filters.next().filter(this, FilterType.REQUEST))
+                            if(!filter(FilterType.REQUEST))
                                 return false;
                         }
+                        if(tracker!=null)
+                            tracker.endFilter();
                         if(in==null){
+                            if(tracker!=null)
+                                tracker.begin(Latencies.Phase.CONNECT);
                             endpoint.getConnection(this::connectCompleted, client.proxy);
                             return false;
                         }
@@ -121,6 +125,8 @@ public class ClientExchange extends Exchange{
                         writeMessage.reset(request, null, !continue100Expected);
                         if(accessLog!=null)
                             accessLogRecord.process(this, request);
+                        if(tracker!=null)
+                            tracker.begin(Latencies.Phase.WRITE);
                         setChild(writeMessage);
                         return true;
                     case READ_RESPONSE:
@@ -136,7 +142,7 @@ public class ClientExchange extends Exchange{
                             println("state = "+state);
                     case FILTER_RESPONSE:
                         while(filters.hasNext()){
-                            if(!filters.next().filter(this, FilterType.RESPONSE))
+                            if(!filter(FilterType.RESPONSE))
                                 return false;
                             if(retry!=null)
                                 break;
@@ -145,8 +151,15 @@ public class ClientExchange extends Exchange{
                         if(HTTP)
                             println("state = "+state);
                     case DELIVER_RESPONSE:
-                        if(retry==null)
+                        if(retry==null){
+                            if(tracker!=null){
+                                tracker.endFilter();
+                                tracker.begin(Latencies.Phase.LISTENER);
+                            }
                             user.process(this, error);
+                            if(tracker!=null)
+                                tracker.end(Latencies.Phase.LISTENER);
+                        }
                         state = COMPLETE;
                         if(in!=null){
                             if(responseHasPayload){
@@ -201,6 +214,8 @@ public class ClientExchange extends Exchange{
                     case CLOSED:
                         return true;
                     case SEND_REQUEST_PAYLOAD:
+                        if(tracker!=null)
+                            tracker.begin(Latencies.Phase.WRITE);
                         setChild(writeMessage);
                         return true;
                 }
@@ -220,12 +235,23 @@ public class ClientExchange extends Exchange{
             println(this+".execute{");
         user = listener;
         assert state==PREPARE_REQUEST_FILTERS;
+        if(tracker!=null)
+            tracker.begin(Latencies.Phase.TOTAL);
         process(OP_WRITE);
         if(HTTP)
             println("}");
     }
 
+    private boolean filter(FilterType type) throws Exception{
+        ClientFilter filter = filters.next();
+        if(tracker!=null)
+            tracker.beginFilter(filter);
+        return filter.filter(this, type);
+    }
+
     private void connectCompleted(Result<Connection> result){
+        if(tracker!=null)
+            tracker.end(Latencies.Phase.CONNECT);
         try{
             Connection con = result.get();
             connectionStatus = ConnectionStatus.OPEN;
@@ -241,6 +267,11 @@ public class ClientExchange extends Exchange{
 
     @Override
     protected void writeMessageFinished(Throwable thr){
+        if(tracker!=null){
+            tracker.end(Latencies.Phase.WRITE);
+            if(thr==null)
+                tracker.begin(Latencies.Phase.FIRST_BYTE);
+        }
         if(thr==null){
             state = READ_RESPONSE;
             if(HTTP)
@@ -251,6 +282,8 @@ public class ClientExchange extends Exchange{
 
     @Override
     protected void readMessageFinished(Throwable thr){
+        if(tracker!=null)
+            tracker.end(Latencies.Phase.READ_HEAD);
         if(accessLog!=null){
             try{
                 accessLogRecord.process(this, response);
@@ -329,6 +362,8 @@ public class ClientExchange extends Exchange{
         }catch(Throwable thr){
             Reactor.current().handleException(thr);
         }
+        if(tracker!=null)
+            tracker.finished(this);
         if(callback!=null){
             try{
                 callback.completed(this, error);
@@ -37,11 +37,14 @@ import static jlibs.nio.Debugger.HTTP;
 public abstract class Exchange extends Task implements Bean, Closeable{
     protected final ReadMessage readMessage;
     protected final WriteMessage writeMessage;
+    protected final Latencies.Tracker tracker;
 
-    protected Exchange(long maxHeadSize, MessageParser parser, int firstOp){
+    protected Exchange(long maxHeadSize, MessageParser parser, int firstOp, Latencies latencies){
         super(firstOp);
         readMessage = new ReadMessage(maxHeadSize, parser);
         writeMessage = new WriteMessage();
+        tracker = latencies==null ? null : latencies.new Tracker();
+        readMessage.tracker = tracker;
     }
 
     protected void reset(){
@@ -51,6 +51,7 @@ public class HTTPClient{
     public long keepAliveTimeout = Defaults.KEEP_ALIVE_TIMEOUT;
 
     public AccessLog accessLog;
+    public Latencies latencies;
     public LogHandler logHandler = ConsoleLogHandler.INSTANCE;
 
     public HTTPClient(){
@@ -62,6 +62,7 @@ public class HTTPServer implements TCPServer.Listener{
     public boolean supportsProxyConnectionHeader = Defaults.SUPPORTS_PROXY_CONNECTION_HEADER;
 
     public AccessLog accessLog;
+    public Latencies latencies;
     public LogHandler logHandler = ConsoleLogHandler.INSTANCE;
 
     public static class Defaults{
@@ -0,0 +1,274 @@
+/*
+ * JLibs: Common Utilities for Java
+ * Copyright (C) 2009  Santhosh Kumar T <santhosh.tekuri@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ */
+
+package jlibs.nio.http;
+
+import jlibs.core.io.FileUtil;
+import jlibs.nio.Management;
+import jlibs.nio.Reactor;
+import jlibs.nio.Reactors;
+import jlibs.nio.http.msg.Request;
+import jlibs.nio.log.ConsoleLogHandler;
+import jlibs.nio.log.LogHandler;
+import jlibs.nio.log.LogRecord;
+import jlibs.nio.util.Histogram;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-phase latency histograms of ServerExchange/ClientExchange.
+ * <p>
+ * Histograms are recorded per reactor without any synchronization or allocation,
+ * and are merged on read. Exchanges taking more than {@link #slowThreshold}
+ * nanoseconds are published to {@link #logHandler} with per-phase breakdown.
+ * <p>
+ * To enable, set {@link HTTPServer#latencies} or {@link HTTPClient#latencies}.
+ * Must be created after {@link Reactors} are started.
+ *
+ * @author Santhosh Kumar Tekuri
+ */
+public class Latencies{
+    public enum Phase{
+        /** accept to first byte of first request */
+        ACCEPT,
+        /** connecting to server, including proxy handshake */
+        CONNECT,
+        /** request sent to first byte of response */
+        FIRST_BYTE,
+        /** first byte to message head parsed */
+        READ_HEAD,
+        /** listener processing */
+        LISTENER,
+        /** writing message */
+        WRITE,
+        /** whole exchange */
+        TOTAL
+    }
+    private static final Phase PHASES[] = Phase.values();
+
+    public final String name;
+    public volatile long slowThreshold;
+    public LogHandler logHandler = ConsoleLogHandler.INSTANCE;
+
+    private final Stats stats[];
+
+    public Latencies(String name){
+        this.name = name;
+        stats = new Stats[Reactors.get().size()];
+        for(int i=0; i<stats.length; i++)
+            stats[i] = new Stats();
+        Management.register(new Management.LatenciesMXBean(){
+            @Override
+            public Map<String, String> getLatencies(){
+                try{
+                    Map<String, String> map = new LinkedHashMap<>();
+                    for(Map.Entry<String, Histogram> entry: snapshot().entrySet())
+                        map.put(entry.getKey(), entry.getValue().toString(1000));
+                    return map;
+                }catch(InterruptedException ex){
+                    throw new RuntimeException(ex);
+                }
+            }
+
+            @Override
+            public long getSlowExchanges(){
+                return Arrays.stream(stats).mapToLong(stats -> stats.slowExchanges).sum();
+            }
+
+            @Override
+            public long getSlowThreshold(){
+                return TimeUnit.NANOSECONDS.toMillis(slowThreshold);
+            }
+
+            @Override
+            public void setSlowThreshold(long millis){
+                slowThreshold = TimeUnit.MILLISECONDS.toNanos(millis);
+            }
+
+            @Override
+            public void reset(){
+                Latencies.this.reset();
+            }
+        }, "jlibs.nio:type=Latencies,name="+name);
+    }
+
+    private static class Stats{
+        private final Histogram phases[] = new Histogram[PHASES.length];
+        private final Map<Object, Histogram> filters = new IdentityHashMap<>();
+        private long slowExchanges;
+
+        private Stats(){
+            for(int i=0; i<phases.length; i++)
+                phases[i] = new Histogram();
+        }
+
+        private Histogram filter(Object filter){
+            Histogram histogram = filters.get(filter);
+            if(histogram==null)
+                filters.put(filter, histogram=new Histogram());
+            return histogram;
+        }
+    }
+
+    private static String filterName(Object filter){
+        String name = filter.getClass().getSimpleName();
+        return "filter:"+(name.isEmpty() ? filter.getClass().getName() : name);
+    }
+
+    /** returns histograms in nanoseconds merged across all reactors */
+    public Map<String, Histogram> snapshot() throws InterruptedException{
+        Map<String, Histogram> map = new LinkedHashMap<>();
+        for(Reactor reactor: Reactors.get()){
+            Stats stats = this.stats[reactor.id];
+            reactor.invokeAndWait(() -> {
+                for(Phase phase: PHASES){
+                    Histogram histogram = stats.phases[phase.ordinal()];
+                    if(histogram.getCount()>0)
+                        map.computeIfAbsent(phase.name(), name -> new Histogram()).add(histogram);
+                }
+                for(Map.Entry<Object, Histogram> entry: stats.filters.entrySet())
+                    map.computeIfAbsent(filterName(entry.getKey()), name -> new Histogram()).add(entry.getValue());
+            });
+        }
+        return map;
+    }
+
+    public void reset(){
+        for(Reactor reactor: Reactors.get()){
+            Stats stats = this.stats[reactor.id];
+            reactor.invokeLater(() -> {
+                for(Histogram histogram: stats.phases)
+                    histogram.reset();
+                stats.filters.values().forEach(Histogram::reset);
+                stats.slowExchanges = 0;
+            });
+        }
+    }
+
+    /*-------------------------------------------------[ Tracker ]---------------------------------------------------*/
+
+    /** tracks phases of one exchange at a time. must be used from reactor thread */
+    public final class Tracker implements LogRecord{
+        private final Stats stats = Latencies.this.stats[Reactor.current().id];
+        private final long starts[] = new long[PHASES.length];
+        private final long durations[] = new long[PHASES.length];
+
+        private Object filter;
+        private long filterStart;
+        private Object filters[] = new Object[4];
+        private long filterDurations[] = new long[4];
+        private int filterCount;
+
+        public void begin(Phase phase){
+            starts[phase.ordinal()] = System.nanoTime();
+        }
+
+        public void end(Phase phase){
+            int i = phase.ordinal();
+            if(starts[i]!=0){
+                long duration = System.nanoTime()-starts[i];
+                starts[i] = 0;
+                durations[i] += duration;
+                stats.phases[i].record(duration);
+            }
+        }
+
+        void firstByte(){
+            end(Phase.ACCEPT);
+            end(Phase.FIRST_BYTE);
+            begin(Phase.READ_HEAD);
+            if(starts[Phase.TOTAL.ordinal()]==0)
+                begin(Phase.TOTAL);
+        }
+
+        public void beginFilter(Object filter){
+            long now = System.nanoTime();
+            if(this.filter!=null)
+                endFilter(now);
+            this.filter = filter;
+            filterStart = now;
+        }
+
+        public void endFilter(){
+            if(filter!=null)
+                endFilter(System.nanoTime());
+        }
+
+        private void endFilter(long now){
+            long duration = now-filterStart;
+            stats.filter(filter).record(duration);
+            if(filterCount==filters.length){
+                filters = Arrays.copyOf(filters, filterCount*2);
+                filterDurations = Arrays.copyOf(filterDurations, filterCount*2);
+            }
+            filters[filterCount] = filter;
+            filterDurations[filterCount] = duration;
+            ++filterCount;
+            filter = null;
+        }
+
+        private Exchange exchange;
+        public void finished(Exchange exchange){
+            endFilter();
+            end(Phase.TOTAL);
+            if(slowThreshold>0 && durations[Phase.TOTAL.ordinal()]>=slowThreshold){
+                ++stats.slowExchanges;
+                this.exchange = exchange;
+                try{
+                    logHandler.publish(this);
+                }finally{
+                    this.exchange = null;
+                }
+            }
+            reset();
+        }
+
+        public void reset(){
+            Arrays.fill(starts, 0);
+            Arrays.fill(durations, 0);
+            Arrays.fill(filters, 0, filterCount, null);
+            filterCount = 0;
+            filter = null;
+        }
+
+        @Override
+        public void publishTo(Appendable writer) throws IOException{
+            writer.append("SLOW ").append(name).append(' ');
+            writer.append(exchange.getClass().getSimpleName()).append(' ');
+            Request request = exchange.getRequest();
+            if(request!=null)
+                writer.append(String.valueOf(request.method)).append(' ').append(request.uri).append(' ');
+            appendMillis(writer, Phase.TOTAL.name(), durations[Phase.TOTAL.ordinal()]);
+            for(Phase phase: PHASES){
+                if(phase!=Phase.TOTAL && durations[phase.ordinal()]>0)
+                    appendMillis(writer, phase.name(), durations[phase.ordinal()]);
+            }
+            for(int i=0; i<filterCount; i++)
+                appendMillis(writer, filterName(filters[i]), filterDurations[i]);
+            writer.append(FileUtil.LINE_SEPARATOR);
+        }
+
+        private void appendMillis(Appendable writer, String name, long nanos) throws IOException{
+            writer.append(' ').append(name).append('=');
+            writer.append(Long.toString(nanos/1000000)).append('.');
+            String fraction = Long.toString(nanos/1000%1000);
+            for(int i=fraction.length(); i<3; i++)
+                writer.append('0');
+            writer.append(fraction).append("ms");
+        }
+    }
+}
@@ -68,6 +68,8 @@ public class ReadMessage extends Task{
                     throw IGNORABLE_EOF_EXCEPTION;
                 throw message.badMessage("Unexpected EOF");
             }
+            if(tracker!=null && consumed==0 && buffer.position()==read)
+                tracker.firstByte();
             buffer.flip();
             int pos = buffer.position();
             parser.consumed = consumed;
@@ -158,6 +160,7 @@ public class ReadMessage extends Task{
         return true;
     }
 
+    Latencies.Tracker tracker;
     private Message message;
     private ByteBuffer buffer;
     private long consumed = 0;
@@ -67,7 +67,7 @@ public final class ServerExchange extends Exchange{
     AccessLog.Record accessLogRecord;
 
     protected ServerExchange(HTTPServer server){
-        super(server.maxRequestHeadSize, new RequestParser(server.maxURISize), OP_READ);
+        super(server.maxRequestHeadSize, new RequestParser(server.maxURISize), OP_READ, server.latencies);
         this.server = server;
         user = server.listener;
         requestFilters = server.requestFilters;
@@ -80,6 +80,8 @@ public final class ServerExchange extends Exchange{
             accessLogRecord.setLogHandler(server.logHandler);
         }
         connectionStatus = ConnectionStatus.OPEN;
+        if(tracker!=null)
+            tracker.begin(Latencies.Phase.ACCEPT);
     }
 
     enum State{
@@ -121,22 +123,32 @@ public final class ServerExchange extends Exchange{
                         return true;
                     case FILTER_REQUEST:
                         while(response==null && filters.hasNext()){
-                            if(!filters.next().filter(this, FilterType.REQUEST))
+                            if(!filter(FilterType.REQUEST))
                                 return false;
                         }
                         state = RESPONSE_READY;
                         if(HTTP)
                             println("state = "+state);
-                        if(response==null && !user.process(this))
-                            return false;
+                        if(response==null){
+                            if(tracker!=null){
+                                tracker.endFilter();
+                                tracker.begin(Latencies.Phase.LISTENER);
+                            }
+                            if(!user.process(this))
+                                return false;
+                        }
                     case RESPONSE_READY:
+                        if(tracker!=null){
+                            tracker.endFilter();
+                            tracker.end(Latencies.Phase.LISTENER);
+                        }
                         filters = responseFilters.iterator();
                         state = FILTER_RESPONSE;
                         if(HTTP)
                             println("state = "+state);
                     case FILTER_RESPONSE:
                         while(filters.hasNext()){
-                            if(!filters.next().filter(this, FilterType.RESPONSE))
+                            if(!filter(FilterType.RESPONSE))
                                 return false;
                         }
                         state = DELIVER_RESPONSE;
@@ -144,13 +156,17 @@ public final class ServerExchange extends Exchange{
                             println("state = "+state);
                     case FILTER_ERROR:
                         while(filters.hasNext()){
-                            if(!filters.next().filter(this, FilterType.ERROR))
+                            if(!filter(FilterType.ERROR))
                                 return false;
                         }
                         state = DELIVER_RESPONSE;
                         if(HTTP)
                             println("state = "+state);
                     case DELIVER_RESPONSE:
+                        if(tracker!=null){
+                            tracker.endFilter();
+                            tracker.end(Latencies.Phase.LISTENER);
+                        }
                         in = ((jlibs.nio.Readable)in.channel()).in();
                         in.setInputListener(listener);
                         out.setOutputListener(listener);
@@ -202,6 +218,8 @@ public final class ServerExchange extends Exchange{
                         if(accessLog!=null)
                             accessLogRecord.process(this, response);
                         continue100Buffer = null;
+                        if(tracker!=null)
+                            tracker.begin(Latencies.Phase.WRITE);
                         setChild(writeMessage);
                         return true;
                     case CLOSED:
@@ -213,6 +231,13 @@ public final class ServerExchange extends Exchange{
         }
     }
 
+    private boolean filter(FilterType type) throws Exception{
+        ServerFilter filter = filters.next();
+        if(tracker!=null)
+            tracker.beginFilter(filter);
+        return filter.filter(this, type);
+    }
+
     @Override
     protected void reset(){
         super.reset();
@@ -234,6 +259,8 @@ public final class ServerExchange extends Exchange{
 
     @Override
     protected void readMessageFinished(Throwable thr){
+        if(tracker!=null)
+            tracker.end(Latencies.Phase.READ_HEAD);
         if(accessLog!=null){
             try{
                 accessLogRecord.process(this, request);
@@ -317,6 +344,8 @@ public final class ServerExchange extends Exchange{
 
     @Override
     protected void writeMessageFinished(Throwable thr){
+        if(tracker!=null)
+            tracker.end(Latencies.Phase.WRITE);
         error = thr;
         if(error!=null || !keepAlive)
             close();
@@ -336,7 +365,8 @@ public final class ServerExchange extends Exchange{
                         Reactor.current().handleException(ignore);
                     }
                 }
-            }
+            }else if(response.getPayload() instanceof StreamPayload)
+                ((StreamPayload)response.getPayload()).window.fail(error);
             response = null;
         }
     }
@@ -391,6 +421,8 @@ public final class ServerExchange extends Exchange{
         }catch(Throwable thr){
             Reactor.current().handleException(thr);
         }
+        if(tracker!=null && request!=null)
+            tracker.finished(this);
         if(callback!=null){
             try{
                 callback.completed(this, error);
@@ -270,6 +270,16 @@ public final class WriteMessage extends Task{
                 writePayload.chunked = true;
                 message.setChunked();
             }
+        }else if(payload instanceof StreamPayload){
+            StreamPayload streamPayload = (StreamPayload)payload;
+            writePayload = new WriteStreamPayload(streamPayload);
+            writePayload.encodings = message.getContentEncodings();
+            if(writePayload.encodings.isEmpty() && streamPayload.getContentLength()!=-1)
+                message.setContentLength(streamPayload.getContentLength());
+            else{
+                writePayload.chunked = true;
+                message.setChunked();
+            }
         }else
             throw new NotImplementedException("write"+payload.getClass().getSimpleName());
 
@@ -0,0 +1,79 @@
+/*
+ * JLibs: Common Utilities for Java
+ * Copyright (C) 2009  Santhosh Kumar T <santhosh.tekuri@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ */
+
+package jlibs.nio.http;
+
+import jlibs.nio.Reactor;
+import jlibs.nio.http.msg.StreamPayload;
+import jlibs.nio.util.ByteWindow;
+
+import java.io.IOException;
+
+import static jlibs.nio.http.WriteStreamPayload.State.*;
+
+/**
+ * @author Santhosh Kumar Tekuri
+ */
+public class WriteStreamPayload extends WritePayload{
+    private final ByteWindow window;
+    private Runnable resume;
+
+    public WriteStreamPayload(StreamPayload payload){
+        window = payload.window;
+    }
+
+    enum State{ SETUP, WRITE_WINDOW }
+    private State state = SETUP;
+
+    @Override
+    protected boolean process(int readyOp) throws IOException{
+        while(true){
+            switch(state){
+                case SETUP:
+                    setup();
+                    Reactor reactor = Reactor.current();
+                    resume = () -> reactor.invokeLater(out::wakeupWriter);
+                    state = WRITE_WINDOW;
+                case WRITE_WINDOW:
+                    while(true){
+                        int wrote = window.write(out);
+                        if(wrote==-1)
+                            return true;
+                        if(wrote==0){
+                            if(window.getQueued()>0){
+                                out.addWriteInterest();
+                                return false;
+                            }
+                            if(!flush())
+                                return false;
+                            if(window.pauseConsumer(resume))
+                                return false;
+                        }
+                    }
+            }
+        }
+    }
+
+    @Override
+    protected void cleanup(Throwable thr){
+        if(thr!=null)
+            window.fail(thr);
+    }
+
+    @Override
+    public String toString(){
+        return "WriteStreamPayload";
+    }
+}
@@ -15,6 +15,7 @@
 
 package jlibs.nio.http.filters;
 
+import jlibs.nio.http.Key;
 import jlibs.nio.http.ServerExchange;
 import jlibs.nio.http.ServerFilter;
 import jlibs.nio.http.msg.Response;
@@ -28,6 +29,9 @@ import jlibs.nio.http.util.Credentials;
  * Server Request Filter
  */
 public abstract class CheckAuthentication implements ServerFilter{
+    /** name of the authenticated user, attached to exchange once authorized */
+    public static final Key<String> USER = new Key<>("AuthenticatedUser");
+
     protected final Authenticator authenticator;
     protected final boolean proxy;
     protected CheckAuthentication(Authenticator authenticator, boolean proxy){
@@ -46,6 +50,7 @@ public abstract class CheckAuthentication implements ServerFilter{
     protected void authorized(ServerExchange exchange, String user){
         if(proxy)
             exchange.getRequest().setCredentials(null);
+        exchange.attach(USER, user);
         authenticator.authorized(exchange, user);
     }
 
@@ -0,0 +1,130 @@
+/*
+ * JLibs: Common Utilities for Java
+ * Copyright (C) 2009  Santhosh Kumar T <santhosh.tekuri@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ */
+
+package jlibs.nio.http.filters;
+
+import jlibs.nio.Reactor;
+import jlibs.nio.Reactors;
+import jlibs.nio.http.FilterType;
+import jlibs.nio.http.Key;
+import jlibs.nio.http.ServerExchange;
+import jlibs.nio.http.ServerFilter;
+import jlibs.nio.http.msg.Status;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Santhosh Kumar Tekuri
+ *
+ * Server Request, Response and Error Filter
+ *
+ * Limits the number of exchanges being processed concurrently. The limit
+ * adapts using AIMD: it grows by one per limit-many exchanges finishing
+ * under {@link #latencyThreshold}, and is multiplied by {@link #backoffRatio}
+ * when latency exceeds it (at most once per threshold period). Exchanges over
+ * the limit are failed with {@link #rejectStatus} before reaching the listener.
+ * <p>
+ * Limits are kept per reactor, so no locking is involved; the constructor
+ * arguments apply to each reactor. Register the same instance as request,
+ * response and error filter; as error filter it should come before others.
+ */
+public class ConcurrencyLimiter implements ServerFilter{
+    private static final Key<Long> STARTED = new Key<>("ConcurrencyLimiterStarted");
+
+    public final int minLimit;
+    public final int maxLimit;
+    public volatile long latencyThreshold;
+    public volatile double backoffRatio = 0.9;
+    public Status rejectStatus = Status.SERVICE_UNAVAILABLE;
+
+    private final Shard shards[];
+
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long latencyThreshold, TimeUnit unit){
+        if(minLimit<1 || minLimit>maxLimit || initialLimit<minLimit || initialLimit>maxLimit)
+            throw new IllegalArgumentException("expected 1<=minLimit<=initialLimit<=maxLimit");
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThreshold = unit.toNanos(latencyThreshold);
+        shards = new Shard[Reactors.get().size()];
+        for(int i=0; i<shards.length; i++)
+            shards[i] = new Shard(initialLimit);
+    }
+
+    public ConcurrencyLimiter rejectStatus(Status status){
+        rejectStatus = status;
+        return this;
+    }
+
+    @Override
+    public boolean filter(ServerExchange exchange, FilterType type) throws Exception{
+        Shard shard = shards[Reactor.current().id];
+        if(type==FilterType.REQUEST){
+            if(shard.inFlight>=(int)shard.limit){
+                ++shard.rejected;
+                throw rejectStatus;
+            }
+            ++shard.inFlight;
+            exchange.attach(STARTED, System.nanoTime());
+        }else{
+            Long started = exchange.detach(STARTED);
+            if(started!=null){
+                --shard.inFlight;
+                long now = System.nanoTime();
+                long threshold = latencyThreshold;
+                if(now-started>threshold){
+                    if(now-shard.lastDecrease>threshold){
+                        shard.limit = Math.max(minLimit, shard.limit*backoffRatio);
+                        shard.lastDecrease = now;
+                    }
+                }else
+                    shard.limit = Math.min(maxLimit, shard.limit+1/shard.limit);
+            }
+        }
+        return true;
+    }
+
+    public int getLimit(){
+        int limit = 0;
+        for(Shard shard: shards)
+            limit += (int)shard.limit;
+        return limit;
+    }
+
+    public int getInFlight(){
+        int inFlight = 0;
+        for(Shard shard: shards)
+            inFlight += shard.inFlight;
+        return inFlight;
+    }
+
+    public long getRejected(){
+        long rejected = 0;
+        for(Shard shard: shards)
+            rejected += shard.rejected;
+        return rejected;
+    }
+
+    private static final class Shard{
+        double limit;
+        int inFlight;
+        long lastDecrease;
+        long rejected;
+
+        Shard(int limit){
+            this.limit = limit;
+            lastDecrease = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * JLibs: Common Utilities for Java
+ * Copyright (C) 2009  Santhosh Kumar T <santhosh.tekuri@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ */
+
+
+package jlibs.nio.http.filters;
+
+import jlibs.json.parser.JSONParser;
+import jlibs.nbp.Feeder;
+import jlibs.nio.Input;
+import jlibs.nio.http.Exchange;
+import jlibs.nio.http.SocketPayload;
+import jlibs.nio.http.msg.Message;
+import jlibs.nio.http.util.MediaType;
+import jlibs.nio.listeners.IOListener;
+import jlibs.nio.listeners.Task;
+import jlibs.nio.util.Buffers;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+import static java.nio.channels.SelectionKey.OP_READ;
+
+/**
+ * Parses json payload incrementally as bytes arrive, without buffering
+ * the whole payload. Subclasses register {@link jlibs.json.parser.JSONHandler}
+ * in {@link #addHandlers(JSONParser)}.
+ *
+ * @author Santhosh Kumar Tekuri
+ */
+public class ParseJSON extends ParseSocketPayload{
+    @Override
+    protected boolean isCompatible(MediaType mt){
+        return mt.isCompatible(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean parse(Exchange exchange, Message msg, SocketPayload payload, MediaType mt) throws Exception{
+        String charset = mt.getCharset(null);
+
+        ReadableByteChannel channel;
+        Input socket = payload.socket();
+        if(socket!=null && socket.isOpen()){
+            channel = socket;
+            boolean retain = retain(payload);
+            if(retain){
+                if(payload.buffers==null)
+                    payload.buffers = new Buffers();
+            }
+            if(payload.buffers!=null)
+                channel = new Reader(payload.buffers, retain, channel);
+        }else
+            channel = Channels.newChannel(payload.buffers.new Input());
+
+        new IOListener().start(new JSONFeedTask(exchange, msg, channel, charset), socket, null);
+        return false;
+    }
+
+    protected boolean retain(SocketPayload payload){
+        return payload.retain;
+    }
+
+    protected void addHandlers(JSONParser jsonParser) throws Exception{}
+
+    protected void parsingCompleted(Exchange exchange, Message msg, JSONParser jsonParser){
+        exchange.resume();
+    }
+
+    private class JSONFeedTask extends Task{
+        private Exchange exchange;
+        private Message msg;
+        private JSONParser jsonParser;
+        private Feeder feeder;
+        private JSONFeedTask(Exchange exchange, Message msg, ReadableByteChannel channel, String charset) throws Exception{
+            super(OP_READ);
+            this.exchange = exchange;
+            this.msg = msg;
+            jsonParser = new JSONParser();
+            addHandlers(jsonParser);
+            feeder = jsonParser.createFeeder(channel, charset);
+        }
+
+        @Override
+        protected boolean process(int readyOp) throws IOException{
+            feeder = feeder.feed();
+            if(feeder==null)
+                return true;
+            else{
+                in.addReadInterest();
+                return false;
+            }
+        }
+
+        @Override
+        protected void cleanup(Throwable thr){
+            if(thr==null)
+                parsingCompleted(exchange, msg, jsonParser);
+            else
+                exchange.resume(thr);
+        }
+    }
+}
@@ -15,9 +15,17 @@
 
 package jlibs.nio.http.filters;
 
+import jlibs.nio.Reactor;
 import jlibs.nio.http.*;
 import jlibs.nio.http.msg.Message;
 import jlibs.nio.http.util.MediaType;
+import jlibs.nio.util.BufferAllocator;
+import jlibs.nio.util.Buffers;
+import jlibs.nio.util.UnpooledBufferAllocator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 
 /**
  * @author Santhosh Kumar Tekuri
@@ -55,5 +63,62 @@ public abstract class ParseSocketPayload implements ServerFilter, ClientFilter{
 
     protected abstract boolean isCompatible(MediaType mt);
     protected abstract boolean parse(Exchange exchange, Message msg, SocketPayload payload, MediaType mt) throws Exception;
-}
 
+    /**
+     * reads payload from socket, after draining the bytes already buffered in payload.
+     * if retain is true, bytes read are also appended to payload buffers
+     */
+    protected static class Reader implements ReadableByteChannel{
+        private Buffers buffers;
+        private BufferAllocator allocator;
+        private ReadableByteChannel channel;
+        private Buffers backup;
+        protected Reader(Buffers buffers, boolean retain, ReadableByteChannel channel){
+            this.channel = channel;
+
+            if(buffers.hasRemaining()){
+                if(retain){
+                    this.buffers = buffers.copy();
+                    allocator = UnpooledBufferAllocator.HEAP;
+                }else{
+                    this.buffers = buffers;
+                    allocator = Reactor.current().allocator;
+                }
+            }
+
+            if(retain)
+                backup = buffers;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException{
+            if(buffers!=null){
+                int read = buffers.read(dst, allocator);
+                if(buffers.length==0)
+                    buffers = null;
+                return read;
+            }
+
+            int dstPos = dst.position();
+            int read = channel.read(dst);
+            if(read>0 && backup!=null){
+                int dstLimit = dst.limit();
+                dst.position(dstPos);
+                dst.limit(dstPos+read);
+                backup.write(dst);
+                dst.limit(dstLimit);
+            }
+            return read;
+        }
+
+        @Override
+        public boolean isOpen(){
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException{
+            channel.close();
+        }
+    }
+}
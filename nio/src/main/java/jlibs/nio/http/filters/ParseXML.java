@@ -17,22 +17,18 @@ package jlibs.nio.http.filters;
 
 import jlibs.nbp.Feeder;
 import jlibs.nio.Input;
-import jlibs.nio.Reactor;
 import jlibs.nio.http.Exchange;
 import jlibs.nio.http.SocketPayload;
 import jlibs.nio.http.msg.Message;
 import jlibs.nio.http.util.MediaType;
 import jlibs.nio.listeners.IOListener;
 import jlibs.nio.listeners.Task;
-import jlibs.nio.util.BufferAllocator;
 import jlibs.nio.util.Buffers;
-import jlibs.nio.util.UnpooledBufferAllocator;
 import jlibs.xml.sax.async.AsyncXMLReader;
 import jlibs.xml.sax.async.ChannelInputSource;
 import org.xml.sax.InputSource;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
 
 import static java.nio.channels.SelectionKey.OP_READ;
@@ -113,59 +109,4 @@ public class ParseXML extends ParseSocketPayload{
                 exchange.resume(thr);
         }
     }
-
-    private static class Reader implements ReadableByteChannel{
-        private Buffers buffers;
-        private BufferAllocator allocator;
-        private ReadableByteChannel channel;
-        private Buffers backup;
-        private Reader(Buffers buffers, boolean retain, ReadableByteChannel channel){
-            this.channel = channel;
-
-            if(buffers.hasRemaining()){
-                if(retain){
-                    this.buffers = buffers.copy();
-                    allocator = UnpooledBufferAllocator.HEAP;
-                }else{
-                    this.buffers = buffers;
-                    allocator = Reactor.current().allocator;
-                }
-            }
-
-            if(retain)
-                backup = buffers;
-        }
-
-        @Override
-        public int read(ByteBuffer dst) throws IOException{
-            if(buffers!=null){
-                int read = buffers.read(dst, allocator);
-                if(buffers.length==0)
-                    buffers = null;
-                return read;
-            }
-
-            int dstPos = dst.position();
-            int read = channel.read(dst);
-            if(read>0 && backup!=null){
-                int dstLimit = dst.limit();
-                dst.position(dstPos);
-                dst.limit(dstPos+read);
-                backup.write(dst);
-                dst.limit(dstLimit);
-            }
-            return read;
-        }
-
-        @Override
-        public boolean isOpen(){
-            return channel.isOpen();
-        }
-
-        @Override
-        public void close() throws IOException{
-            channel.close();
-        }
-    }
 }
-
@@ -0,0 +1,86 @@
+/*
+ * JLibs: Common Utilities for Java
+ * Copyright (C) 2009  Santhosh Kumar T <santhosh.tekuri@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ */
+
+package jlibs.nio.http.filters;
+
+import jlibs.nio.http.FilterType;
+import jlibs.nio.http.ServerExchange;
+import jlibs.nio.http.ServerFilter;
+import jlibs.nio.http.msg.AsciiString;
+import jlibs.nio.http.msg.Response;
+import jlibs.nio.http.msg.Status;
+import jlibs.nio.util.TokenBucketTable;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * @author Santhosh Kumar Tekuri
+ *
+ * Server Request Filter
+ *
+ * Limits request rate per key using token buckets. Requests exceeding
+ * the rate are answered with {@link #rejectStatus} and a Retry-After header,
+ * without reaching the listener. Requests whose key is null are not limited.
+ */
+public class RateLimiter implements ServerFilter{
+    public static final Function<ServerExchange, String> CLIENT_ADDRESS = exchange -> exchange.getClientAddress().getHostAddress();
+    public static final Function<ServerExchange, String> USER = exchange -> exchange.attachment(CheckAuthentication.USER);
+    public static Function<ServerExchange, String> header(AsciiString name){
+        return exchange -> exchange.getRequest().headers.value(name);
+    }
+
+    public final Function<ServerExchange, String> key;
+    public final TokenBucketTable buckets;
+    public Status rejectStatus = Status.TOO_MANY_REQUESTS;
+    private final AtomicLong rejected = new AtomicLong();
+
+    public RateLimiter(Function<ServerExchange, String> key, double ratePerSecond, int burst, int capacity){
+        this.key = key;
+        buckets = new TokenBucketTable(ratePerSecond, burst, capacity);
+    }
+
+    public RateLimiter(Function<ServerExchange, String> key, double ratePerSecond, int burst){
+        this(key, ratePerSecond, burst, 1<<20);
+    }
+
+    public RateLimiter rejectStatus(Status status){
+        rejectStatus = status;
+        return this;
+    }
+
+    public long getRejected(){
+        return rejected.get();
+    }
+
+    @Override
+    public boolean filter(ServerExchange exchange, FilterType type) throws Exception{
+        assert type==FilterType.REQUEST;
+        String key = this.key.apply(exchange);
+        if(key==null)
+            return true;
+        long wait = buckets.acquire(key);
+        if(wait>0){
+            rejected.incrementAndGet();
+            Response response = new Response();
+            response.status = rejectStatus;
+            long nanosPerSecond = TimeUnit.SECONDS.toNanos(1);
+            response.setRetryAfter((wait+nanosPerSecond-1)/nanosPerSecond);
+            exchange.setResponse(response);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * JLibs: Common Utilities for Java
+ * Copyright (C) 2009  Santhosh Kumar T <santhosh.tekuri@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ */
+
+package jlibs.nio.http.filters;
+
+import jlibs.nbp.Feeder;
+import jlibs.nio.Input;
+import jlibs.nio.http.Exchange;
+import jlibs.nio.http.Key;
+import jlibs.nio.http.SocketPayload;
+import jlibs.nio.http.msg.Message;
+import jlibs.nio.http.util.MediaType;
+import jlibs.nio.listeners.IOListener;
+import jlibs.nio.listeners.Task;
+import jlibs.nio.util.Buffers;
+import jlibs.xml.sax.async.AsyncXMLReader;
+import jlibs.xml.sax.async.ChannelInputSource;
+import jlibs.xml.sax.dog.XMLDog;
+import jlibs.xml.sax.dog.XPathResults;
+import jlibs.xml.sax.dog.sniff.Event;
+import org.xml.sax.InputSource;
+
+import java.io.IOException;
+
+import static java.nio.channels.SelectionKey.OP_READ;
+
+/**
+ * Evaluates xpaths of given XMLDog on xml payload, feeding the payload
+ * to AsyncXMLReader as it arrives on socket.
+ * <p>
+ * Results are attached to exchange with key {@link #RESULTS}.
+ * Reading stops as soon as all xpaths are evaluated. The bytes read till
+ * then are retained in payload, so that payload can be forwarded as is,
+ * with rest of it streamed from socket untouched.
+ * <p>
+ * Override {@link #sniffed(Exchange, Message, XPathResults)} to route
+ * or reject the exchange based on results.
+ * <p>
+ * The XMLDog is frozen, so that it can be shared by all reactors.
+ *
+ * @author Santhosh Kumar Tekuri
+ */
+public class SniffXPaths extends ParseSocketPayload{
+    /** results of xpaths, attached to exchange once sniffed */
+    public static final Key<XPathResults> RESULTS = new Key<>("XPathResults");
+
+    protected final XMLDog dog;
+    public SniffXPaths(XMLDog dog){
+        this.dog = dog;
+        dog.freeze();
+    }
+
+    @Override
+    protected boolean isCompatible(MediaType mt){
+        return mt.isXML();
+    }
+
+    @Override
+    protected boolean parse(Exchange exchange, Message msg, SocketPayload payload, MediaType mt) throws Exception{
+        InputSource is;
+        Input socket = payload.socket();
+        if(socket!=null && socket.isOpen()){
+            if(payload.buffers==null)
+                payload.buffers = new Buffers();
+            is = new ChannelInputSource(new Reader(payload.buffers, true, socket));
+        }else
+            is = new InputSource(payload.buffers.new Input());
+
+        is.setEncoding(mt.getCharset(null));
+        new IOListener().start(new SniffTask(exchange, msg, is), socket, null);
+        return false;
+    }
+
+    /**
+     * called once xpaths are evaluated. The results are already attached
+     * to exchange.
+     * <p>
+     * The default implementation resumes the exchange.
+     */
+    protected void sniffed(Exchange exchange, Message msg, XPathResults results){
+        exchange.resume();
+    }
+
+    private class SniffTask extends Task{
+        private Exchange exchange;
+        private Message msg;
+        private XPathResults results;
+        private Feeder feeder;
+        private SniffTask(Exchange exchange, Message msg, InputSource is) throws Exception{
+            super(OP_READ);
+            this.exchange = exchange;
+            this.msg = msg;
+
+            Event event = dog.createEvent();
+            results = new XPathResults(event);
+            event.setListener(results);
+            AsyncXMLReader xmlReader = new AsyncXMLReader();
+            dog.prepare(event, xmlReader);
+            try{
+                feeder = xmlReader.createFeeder(is);
+            }catch(Exception ex){
+                if(!XMLDog.isStopParsing(ex))
+                    throw ex;
+            }
+        }
+
+        @Override
+        protected boolean process(int readyOp) throws IOException{
+            if(feeder!=null){
+                try{
+                    feeder = feeder.feed();
+                }catch(IOException | RuntimeException ex){
+                    if(!XMLDog.isStopParsing(ex))
+                        throw ex;
+                    feeder = null;
+                }
+            }
+            if(feeder==null)
+                return true;
+            else{
+                in.addReadInterest();
+                return false;
+            }
+        }
+
+        @Override
+        protected void cleanup(Throwable thr){
+            if(thr==null){
+                exchange.attach(RESULTS, results);
+                sniffed(exchange, msg, results);
+            }else
+                exchange.resume(thr);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * JLibs: Common Utilities for Java
+ * Copyright (C) 2009  Santhosh Kumar T <santhosh.tekuri@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ */
+
+package jlibs.nio.http.filters;
+
+import jlibs.nio.Input;
+import jlibs.nio.Reactor;
+import jlibs.nio.http.*;
+import jlibs.nio.http.msg.Message;
+import jlibs.nio.listeners.IOListener;
+import jlibs.nio.listeners.ReadToWindow;
+import jlibs.nio.util.ByteWindow;
+
+import java.io.InputStream;
+import java.util.concurrent.Executor;
+
+/**
+ * Streams SocketPayload to a worker thread through a bounded {@link ByteWindow}.
+ * <p>
+ * {@link #process(Exchange, Message, InputStream)} is run using given executor,
+ * and can do blocking work. The socket is read only as fast as worker consumes.
+ * Exchange is resumed once both payload is read and worker returns.
+ * <p>
+ * Worker must not touch exchange, other than setting response or attachments.
+ * The window is available as exchange attachment with key {@link #WINDOW}
+ *
+ * @author Santhosh Kumar Tekuri
+ */
+public abstract class StreamSocketPayload implements ServerFilter, ClientFilter{
+    public static final Key<ByteWindow> WINDOW = new Key<>("payloadWindow");
+
+    private final Executor executor;
+    private final int windowSize;
+
+    protected StreamSocketPayload(Executor executor, int windowSize){
+        this.executor = executor;
+        this.windowSize = windowSize;
+    }
+
+    @Override
+    public boolean filter(ServerExchange exchange, FilterType type) throws Exception{
+        return doFilter(exchange, type);
+    }
+
+    @Override
+    public boolean filter(ClientExchange exchange, FilterType type) throws Exception{
+        return doFilter(exchange, type);
+    }
+
+    private boolean doFilter(Exchange exchange, FilterType type) throws Exception{
+        Message msg;
+        if(type==FilterType.REQUEST)
+            msg = exchange.getRequest();
+        else if(type==FilterType.RESPONSE)
+            msg = exchange.getResponse();
+        else
+            return true;
+
+        if(msg==null || !(msg.getPayload() instanceof SocketPayload))
+            return true;
+        SocketPayload payload = (SocketPayload)msg.getPayload();
+        Input in = payload.socket();
+        if(!in.isOpen())
+            return true;
+
+        ByteWindow window = new ByteWindow(windowSize);
+        exchange.attach(WINDOW, window);
+        Job job = new Job(exchange, msg, window);
+        new IOListener()
+            .setCallback(Job::readCompleted, job)
+            .start(new ReadToWindow(window), in, null);
+        executor.execute(job);
+        return false;
+    }
+
+    /** called from worker thread. <code>in</code> is closed after this method returns */
+    protected abstract void process(Exchange exchange, Message msg, InputStream in) throws Exception;
+
+    private class Job implements Runnable{
+        private final Reactor reactor = Reactor.current();
+        private final Exchange exchange;
+        private final Message msg;
+        private final ByteWindow window;
+        private int pending = 2;
+        private Throwable error;
+
+        private Job(Exchange exchange, Message msg, ByteWindow window){
+            this.exchange = exchange;
+            this.msg = msg;
+            this.window = window;
+        }
+
+        @Override
+        public void run(){
+            Throwable thr = null;
+            InputStream in = window.inputStream();
+            try{
+                process(exchange, msg, in);
+            }catch(Throwable ex){
+                thr = ex;
+            }
+            try{
+                in.close();
+            }catch(Throwable ex){
+                if(thr==null)
+                    thr = ex;
+            }
+            Throwable workerError = thr;
+            reactor.invokeLater(() -> completed(workerError));
+        }
+
+        private void readCompleted(Throwable thr){
+            if(thr!=null)
+                window.fail(thr);
+            completed(thr);
+        }
+
+        private void completed(Throwable thr){
+            if(error==null)
+                error = thr;
+            if(--pending==0)
+                exchange.resume(error);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * JLibs: Common Utilities for Java
+ * Copyright (C) 2009  Santhosh Kumar T <santhosh.tekuri@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ */
+
+package jlibs.nio.http.msg;
+
+import jlibs.nio.util.ByteWindow;
+
+/**
+ * Payload produced by some other thread through {@link ByteWindow#outputStream()}.
+ * Reactor writes it out as and when data is available in the window, so that
+ * producer is throttled by the peer's reading speed
+ *
+ * @author Santhosh Kumar Tekuri
+ */
+public class StreamPayload extends Payload{
+    public final ByteWindow window;
+    private final long contentLength;
+
+    public StreamPayload(String contentType, ByteWindow window){
+        this(contentType, window, -1);
+    }
+
+    public StreamPayload(String contentType, ByteWindow window, long contentLength){
+        super(contentType);
+        this.window = window;
+        this.contentLength = contentLength;
+    }
+
+    @Override
+    public long getContentLength(){
+        return contentLength;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * JLibs: Common Utilities for Java
+ * Copyright (C) 2009  Santhosh Kumar T <santhosh.tekuri@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ */
+
+package jlibs.nio.listeners;
+
+import jlibs.nio.Reactor;
+import jlibs.nio.util.ByteWindow;
+
+import java.io.IOException;
+
+import static java.nio.channels.SelectionKey.OP_READ;
+
+/**
+ * Reads input into a {@link ByteWindow}, which is consumed by some other thread.
+ * Reading is paused when window is full, and resumed once consumer drains it
+ *
+ * @author Santhosh Kumar Tekuri
+ */
+public class ReadToWindow extends Task{
+    private final ByteWindow window;
+    private Runnable resume;
+    public ReadToWindow(ByteWindow window){
+        super(OP_READ);
+        this.window = window;
+    }
+
+    @Override
+    protected boolean process(int readyOp) throws IOException{
+        if(resume==null){
+            Reactor reactor = Reactor.current();
+            resume = () -> reactor.invokeLater(in::addReadInterest);
+        }
+        while(true){
+            if(window.isFull()){
+                if(window.pauseProducer(resume))
+                    return false;
+                continue;
+            }
+            int read = window.read(in);
+            if(read==0){
+                in.addReadInterest();
+                return false;
+            }else if(read==-1){
+                window.close();
+                in.close();
+                return true;
+            }
+        }
+    }
+
+    @Override
+    protected void cleanup(Throwable thr){
+        if(thr!=null)
+            window.fail(thr);
+    }
+}
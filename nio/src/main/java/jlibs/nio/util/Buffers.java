@@ -270,7 +270,7 @@ public final class Buffers extends OutputStream{
                     if(i==Buffers.this.length)
                         buffer = null;
                     else
-                        buffer = array[offset+i].duplicate();
+                        buffer = array[Buffers.this.offset+i].duplicate();
                 }
             }
             return length==_length && buffer==null ? -1 : _length-length;
@@ -0,0 +1,336 @@
+/*
+ * JLibs: Common Utilities for Java
+ * Copyright (C) 2009  Santhosh Kumar T <santhosh.tekuri@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ */
+
+package jlibs.nio.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Bounded byte stream between a reactor and a worker thread.
+ *
+ * Exactly one side is the reactor, which never blocks: it fills the window
+ * using {@link #read(ReadableByteChannel)} or drains it using {@link #write(WritableByteChannel)},
+ * and when it can't make progress, it parks itself using {@link #pauseProducer(Runnable)}
+ * or {@link #pauseConsumer(Runnable)}. The given Runnable is called from the worker
+ * thread once the window has room (at least half empty) or data respectively.
+ *
+ * The other side is a worker thread which uses the blocking
+ * {@link #inputStream()} or {@link #outputStream()}.
+ *
+ * @author Santhosh Kumar Tekuri
+ */
+public final class ByteWindow{
+    private final byte array[];
+    private int head;     // next byte to be consumed
+    private int size;     // bytes available to consumer
+    private boolean eof;
+    private boolean discard;
+    private Throwable error;
+
+    private Runnable producerResume;
+    private Runnable consumerResume;
+
+    public ByteWindow(int capacity){
+        if(capacity<=0)
+            throw new IllegalArgumentException("capacity: "+capacity);
+        array = new byte[capacity];
+    }
+
+    /*-------------------------------------------------[ Metrics ]---------------------------------------------------*/
+
+    private long transferred;
+    private int peak;
+    private int producerPauses;
+    private int consumerPauses;
+
+    public int getCapacity(){ return array.length; }
+    public synchronized int getQueued(){ return size; }
+    public synchronized int getPeakQueued(){ return peak; }
+    public synchronized long getTransferred(){ return transferred; }
+    public synchronized int getProducerPauses(){ return producerPauses; }
+    public synchronized int getConsumerPauses(){ return consumerPauses; }
+
+    /*-------------------------------------------------[ State ]---------------------------------------------------*/
+
+    public synchronized boolean isFull(){
+        return size==array.length;
+    }
+
+    public synchronized boolean isEOF(){
+        return eof && size==0;
+    }
+
+    /** signals end of stream to consumer */
+    public void close(){
+        Runnable resume;
+        synchronized(this){
+            eof = true;
+            notifyAll();
+            resume = consumerResume;
+            consumerResume = null;
+        }
+        if(resume!=null)
+            resume.run();
+    }
+
+    /** aborts the stream. pending and future operations on either side fail with given error */
+    public void fail(Throwable thr){
+        Runnable producer, consumer;
+        synchronized(this){
+            if(error==null)
+                error = thr;
+            eof = true;
+            notifyAll();
+            producer = producerResume;
+            consumer = consumerResume;
+            producerResume = consumerResume = null;
+        }
+        if(producer!=null)
+            producer.run();
+        if(consumer!=null)
+            consumer.run();
+    }
+
+    private void ensureNoError() throws IOException{
+        if(error!=null){
+            if(error instanceof IOException)
+                throw (IOException)error;
+            throw new IOException(error);
+        }
+    }
+
+    /*-------------------------------------------------[ Reactor Side ]---------------------------------------------------*/
+
+    /**
+     * reads from given channel into free space of this window.
+     * returns 0 if either channel has no data or window is full.
+     * Once consumer closed its stream, read data is discarded.
+     */
+    public int read(ReadableByteChannel channel) throws IOException{
+        int tail, free;
+        synchronized(this){
+            ensureNoError();
+            if(discard)
+                size = 0;
+            free = array.length-size;
+            if(free==0)
+                return 0;
+            tail = (head+size)%array.length;
+        }
+        int read = channel.read(ByteBuffer.wrap(array, tail, Math.min(free, array.length-tail)));
+        if(read>0)
+            produced(read);
+        return read;
+    }
+
+    /**
+     * writes available bytes of this window into given channel.
+     * returns -1 if window is empty and closed, 0 if either window is empty or channel is not ready
+     */
+    public int write(WritableByteChannel channel) throws IOException{
+        int from, len;
+        synchronized(this){
+            ensureNoError();
+            if(size==0)
+                return eof ? -1 : 0;
+            from = head;
+            len = Math.min(size, array.length-head);
+        }
+        int wrote = channel.write(ByteBuffer.wrap(array, from, len));
+        if(wrote>0)
+            consumed(wrote);
+        return wrote;
+    }
+
+    /**
+     * returns false if window is no longer full. otherwise <code>resume</code>
+     * will be run when the window becomes half empty
+     */
+    public synchronized boolean pauseProducer(Runnable resume){
+        if(error==null && size>array.length/2){
+            ++producerPauses;
+            producerResume = resume;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * returns false if window has data or is closed. otherwise <code>resume</code>
+     * will be run when producer adds some data or closes the window
+     */
+    public synchronized boolean pauseConsumer(Runnable resume){
+        if(size==0 && !eof){
+            ++consumerPauses;
+            consumerResume = resume;
+            return true;
+        }
+        return false;
+    }
+
+    /*-------------------------------------------------[ Bookkeeping ]---------------------------------------------------*/
+
+    private void produced(int count){
+        Runnable resume;
+        synchronized(this){
+            transferred += count;
+            if(discard)
+                return;
+            size += count;
+            if(size>peak)
+                peak = size;
+            notifyAll();
+            resume = consumerResume;
+            consumerResume = null;
+        }
+        if(resume!=null)
+            resume.run();
+    }
+
+    private void consumed(int count){
+        Runnable resume = null;
+        synchronized(this){
+            head = (head+count)%array.length;
+            size -= count;
+            notifyAll();
+            if(producerResume!=null && size<=array.length/2){
+                resume = producerResume;
+                producerResume = null;
+            }
+        }
+        if(resume!=null)
+            resume.run();
+    }
+
+    /*-------------------------------------------------[ Worker Side ]---------------------------------------------------*/
+
+    private final InputStream inputStream = new InputStream(){
+        @Override
+        public int read() throws IOException{
+            byte b[] = new byte[1];
+            int len = read(b, 0, 1);
+            return len==1 ? (b[0]&0xff) : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException{
+            if(length==0)
+                return 0;
+            int from, len;
+            synchronized(ByteWindow.this){
+                while(true){
+                    ensureNoError();
+                    if(discard)
+                        throw new IOException("stream closed");
+                    if(size>0)
+                        break;
+                    if(eof)
+                        return -1;
+                    await();
+                }
+                from = head;
+                len = Math.min(length, Math.min(size, array.length-head));
+            }
+            System.arraycopy(array, from, bytes, offset, len);
+            consumed(len);
+            return len;
+        }
+
+        @Override
+        public int available() throws IOException{
+            return getQueued();
+        }
+
+        @Override
+        public void close() throws IOException{
+            Runnable resume;
+            synchronized(ByteWindow.this){
+                discard = true;
+                size = 0;
+                resume = producerResume;
+                producerResume = null;
+            }
+            if(resume!=null)
+                resume.run();
+        }
+    };
+
+    /** blocking stream to be used by the worker thread, when reactor is producer */
+    public InputStream inputStream(){
+        return inputStream;
+    }
+
+    private final OutputStream outputStream = new OutputStream(){
+        @Override
+        public void write(int b) throws IOException{
+            write(new byte[]{ (byte)b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException{
+            while(length>0){
+                int tail, len;
+                synchronized(ByteWindow.this){
+                    while(true){
+                        ensureNoError();
+                        if(eof)
+                            throw new IOException("stream closed");
+                        if(size<array.length)
+                            break;
+                        await();
+                    }
+                    tail = (head+size)%array.length;
+                    len = Math.min(length, Math.min(array.length-size, array.length-tail));
+                }
+                System.arraycopy(bytes, offset, array, tail, len);
+                produced(len);
+                offset += len;
+                length -= len;
+            }
+        }
+
+        @Override
+        public void close() throws IOException{
+            ByteWindow.this.close();
+        }
+    };
+
+    /** blocking stream to be used by the worker thread, when reactor is consumer */
+    public OutputStream outputStream(){
+        return outputStream;
+    }
+
+    private void await() throws IOException{
+        try{
+            wait();
+        }catch(InterruptedException ex){
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    @Override
+    public synchronized String toString(){
+        return "ByteWindow[capacity="+array.length+", queued="+size+", peak="+peak+
+                ", transferred="+transferred+", producerPauses="+producerPauses+
+                ", consumerPauses="+consumerPauses+"]";
+    }
+}
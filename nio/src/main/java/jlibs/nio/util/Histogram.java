@@ -0,0 +1,125 @@
+/*
+ * JLibs: Common Utilities for Java
+ * Copyright (C) 2009  Santhosh Kumar T <santhosh.tekuri@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ */
+
+package jlibs.nio.util;
+
+import java.util.Arrays;
+
+/**
+ * Log-linear histogram of non-negative long values, in the spirit of HdrHistogram.
+ * <p>
+ * Values below {@value #SUB_BUCKETS} are recorded exactly; larger values are
+ * recorded with a relative error of at most 1/{@value #HALF_BUCKETS}.
+ * {@link #record(long)} never allocates. Not thread-safe: record from one thread,
+ * and {@link #add(Histogram) merge} copies for reading.
+ *
+ * @author Santhosh Kumar Tekuri
+ */
+public final class Histogram{
+    private static final int SUB_BITS = 6;
+    public static final int SUB_BUCKETS = 1<<SUB_BITS;
+    public static final int HALF_BUCKETS = SUB_BUCKETS>>1;
+    private static final int MAX_SHIFT = 62-(SUB_BITS-1);
+
+    private final long counts[] = new long[SUB_BUCKETS+MAX_SHIFT*HALF_BUCKETS];
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    static int index(long value){
+        if(value<SUB_BUCKETS)
+            return (int)value;
+        int shift = 63-Long.numberOfLeadingZeros(value)-(SUB_BITS-1);
+        int top = (int)(value>>>shift);
+        return SUB_BUCKETS + (shift-1)*HALF_BUCKETS + (top-HALF_BUCKETS);
+    }
+
+    /** returns the highest value that is recorded at given index */
+    static long highestValue(int index){
+        if(index<SUB_BUCKETS)
+            return index;
+        index -= SUB_BUCKETS;
+        int shift = index/HALF_BUCKETS + 1;
+        long top = index%HALF_BUCKETS + HALF_BUCKETS;
+        return ((top+1)<<shift)-1;
+    }
+
+    public void record(long value){
+        if(value<0)
+            value = 0;
+        ++counts[index(value)];
+        ++count;
+        sum += value;
+        if(value<min)
+            min = value;
+        if(value>max)
+            max = value;
+    }
+
+    public void add(Histogram other){
+        for(int i=0; i<counts.length; i++)
+            counts[i] += other.counts[i];
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public void reset(){
+        Arrays.fill(counts, 0);
+        count = sum = max = 0;
+        min = Long.MAX_VALUE;
+    }
+
+    public long getCount(){ return count; }
+    public long getMin(){ return count==0 ? 0 : min; }
+    public long getMax(){ return max; }
+
+    public long getMean(){
+        return count==0 ? 0 : sum/count;
+    }
+
+    /** @param percentile value between 0 and 100 */
+    public long getValueAtPercentile(double percentile){
+        if(count==0)
+            return 0;
+        long target = Math.max(1, (long)Math.ceil(percentile*count/100));
+        long total = 0;
+        for(int i=0; i<counts.length; i++){
+            total += counts[i];
+            if(total>=target)
+                return Math.min(highestValue(i), max);
+        }
+        return max;
+    }
+
+    /** returns summary with values divided by given unit */
+    public String toString(long unit){
+        return "count="+count+
+                " min="+getMin()/unit+
+                " mean="+getMean()/unit+
+                " p50="+getValueAtPercentile(50)/unit+
+                " p90="+getValueAtPercentile(90)/unit+
+                " p99="+getValueAtPercentile(99)/unit+
+                " p99.9="+getValueAtPercentile(99.9)/unit+
+                " max="+max/unit;
+    }
+
+    @Override
+    public String toString(){
+        return toString(1);
+    }
+}
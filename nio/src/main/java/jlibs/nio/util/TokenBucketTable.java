@@ -0,0 +1,138 @@
+/*
+ * JLibs: Common Utilities for Java
+ * Copyright (C) 2009  Santhosh Kumar T <santhosh.tekuri@gmail.com>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ */
+
+package jlibs.nio.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size table of token buckets, keyed by string, safe for use
+ * from multiple reactors without locks.
+ * <p>
+ * Each bucket is kept as a single "theoretical arrival time" (GCRA),
+ * so an entry costs 16 bytes: 64-bit key hash plus that time.
+ * A bucket that has refilled completely is indistinguishable from a new
+ * one, so its slot is reused by other keys; there is no separate expiry sweep.
+ * When no slot is found within a short probe distance the request is
+ * allowed and counted in {@link #getOverflows()}.
+ *
+ * @author Santhosh Kumar Tekuri
+ */
+public final class TokenBucketTable{
+    private static final int MAX_PROBES = 8;
+
+    private final long interval;
+    private final long burstWindow;
+    private final int mask;
+    private final AtomicLongArray hashes;
+    private final AtomicLongArray arrivals;
+    private final long epoch = System.nanoTime()-1;
+    private final AtomicLong overflows = new AtomicLong();
+
+    /**
+     * @param ratePerSecond tokens added per second
+     * @param burst         maximum tokens a bucket can hold
+     * @param capacity      number of keys tracked concurrently, rounded up to power of two
+     */
+    public TokenBucketTable(double ratePerSecond, int burst, int capacity){
+        if(ratePerSecond<=0)
+            throw new IllegalArgumentException("ratePerSecond: "+ratePerSecond);
+        if(burst<1)
+            throw new IllegalArgumentException("burst: "+burst);
+        interval = Math.max(1, (long)(1000000000L/ratePerSecond));
+        burstWindow = interval*burst;
+        int size = Integer.highestOneBit(Math.max(capacity, MAX_PROBES)-1)<<1;
+        mask = size-1;
+        hashes = new AtomicLongArray(size);
+        arrivals = new AtomicLongArray(size);
+    }
+
+    /**
+     * takes one token from the bucket of given key.
+     *
+     * @return zero if token is taken, otherwise nanoseconds after which a token will be available
+     */
+    public long acquire(CharSequence key){
+        long now = System.nanoTime()-epoch;
+        int slot = slot(hash(key), now);
+        if(slot<0){
+            overflows.incrementAndGet();
+            return 0;
+        }
+        while(true){
+            long arrival = arrivals.get(slot);
+            long newArrival = Math.max(arrival, now)+interval;
+            long wait = newArrival-now-burstWindow;
+            if(wait>0)
+                return wait;
+            if(arrivals.compareAndSet(slot, arrival, newArrival))
+                return 0;
+        }
+    }
+
+    private int slot(long hash, long now){
+        int free = -1;
+        for(int i=0; i<MAX_PROBES; i++){
+            int slot = ((int)hash+i)&mask;
+            long h = hashes.get(slot);
+            if(h==hash)
+                return slot;
+            if(free<0 && (h==0 || arrivals.get(slot)<=now))
+                free = slot;
+            if(h==0)
+                break;
+        }
+        if(free>=0){
+            long h = hashes.get(free);
+            if(h==hash || hashes.compareAndSet(free, h, hash) || hashes.get(free)==hash)
+                return free;
+        }
+        return -1;
+    }
+
+    static long hash(CharSequence key){
+        long h = 0xcbf29ce484222325L;
+        for(int i=0, len=key.length(); i<len; i++){
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h>>>33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h>>>33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h>>>33;
+        return h==0 ? 1 : h;
+    }
+
+    public int getCapacity(){
+        return mask+1;
+    }
+
+    /** returns number of keys whose bucket is not full; scans whole table */
+    public int getActive(){
+        long now = System.nanoTime()-epoch;
+        int active = 0;
+        for(int i=0; i<=mask; i++){
+            if(arrivals.get(i)>now)
+                active++;
+        }
+        return active;
+    }
+
+    public long getOverflows(){
+        return overflows.get();
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.xml.sax.async.benchmark;
+
+import org.apache.xerces.util.XMLChar;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the two forms nblr generates for composite XMLScanner matchers,
+ * scanning runs of matching chars the way finishAll_XXX methods do:
+ * <ul>
+ * <li>inline: chain of comparisons followed by xerces XMLChar lookup</li>
+ * <li>table: single lookup in latin-1 table shared by all matchers,
+ *     falling back to XMLChar above latin-1</li>
+ * </ul>
+ *
+ * @author Santhosh Kumar T
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class MatcherBenchmark{
+    private static final int ELEM_CONTENT_CHAR_MASK = 0x1;
+    private static final int ATTR_DQ_CONTENT_MASK = 0x2;
+    private static final int LATIN1_MATCHERS[] = new int[256];
+    static{
+        for(int ch=0; ch<256; ch++){
+            if(ch!='<' && ch!='&' && XMLChar.isValid(ch))
+                LATIN1_MATCHERS[ch] |= ELEM_CONTENT_CHAR_MASK;
+            if(ch!='<' && ch!='&' && ch!='"' && XMLChar.isValid(ch))
+                LATIN1_MATCHERS[ch] |= ATTR_DQ_CONTENT_MASK;
+        }
+    }
+
+    private static boolean ELEM_CONTENT_CHAR(int ch){
+        if(ch>=0 && ch<256)
+            return (LATIN1_MATCHERS[ch] & ELEM_CONTENT_CHAR_MASK)!=0;
+        return (ch!='<' && ch!='&') && (XMLChar.isValid(ch));
+    }
+
+    private static boolean ATTR_DQ_CONTENT(int ch){
+        if(ch>=0 && ch<256)
+            return (LATIN1_MATCHERS[ch] & ATTR_DQ_CONTENT_MASK)!=0;
+        return (ch!='<' && ch!='&' && ch!='"') && (XMLChar.isValid(ch));
+    }
+
+    private char text[];
+    private char attrs[];
+
+    @Setup
+    public void setup(){
+        StringBuilder buff = new StringBuilder();
+        for(int i=0; i<100; i++)
+            buff.append("Lorem ipsum dolor sit amet, consectetur adipiscing elit,\nsed do eiusmod tempor incididunt ut labore. <");
+        text = buff.toString().toCharArray();
+
+        buff.setLength(0);
+        for(int i=0; i<500; i++)
+            buff.append("http://www.example.com/ns/item?id=1234 \"");
+        attrs = buff.toString().toCharArray();
+    }
+
+    @Benchmark
+    public int elemContentInline(){
+        char input[] = text;
+        int count = 0;
+        for(int position=0; position<input.length; position++){
+            char ch = input[position];
+            if(ch!='<' && ch!='&' && XMLChar.isValid(ch))
+                count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int elemContentTable(){
+        char input[] = text;
+        int count = 0;
+        for(int position=0; position<input.length; position++){
+            if(ELEM_CONTENT_CHAR(input[position]))
+                count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int attrValueInline(){
+        char input[] = attrs;
+        int count = 0;
+        for(int position=0; position<input.length; position++){
+            char ch = input[position];
+            if(ch!='<' && ch!='&' && ch!='"' && XMLChar.isValid(ch))
+                count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int attrValueTable(){
+        char input[] = attrs;
+        int count = 0;
+        for(int position=0; position<input.length; position++){
+            if(ATTR_DQ_CONTENT(input[position]))
+                count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.xml.sax.async.benchmark;
+
+import jlibs.xml.sax.async.AsyncXMLReader;
+import org.openjdk.jmh.annotations.*;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.SAXParserFactory;
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses in-memory documents with AsyncXMLReader and with the JDK parser.
+ * <p>
+ * To compare table driven matchers in XMLScanner against inline comparisons,
+ * regenerate XMLScanner with MATCHER_TABLES=false in xml-nbp/xml.properties
+ * and run this benchmark against both builds.
+ *
+ * @author Santhosh Kumar T
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class XMLScannerBenchmark{
+    /** text: long character data. markup: many short elements and attributes */
+    @Param({ "text", "markup" })
+    public String document;
+
+    private byte doc[];
+    private DefaultHandler handler = new DefaultHandler();
+    private AsyncXMLReader asyncReader;
+    private XMLReader jdkReader;
+
+    @Setup
+    public void setup() throws Exception{
+        StringBuilder buff = new StringBuilder();
+        if("text".equals(document)){
+            buff.append("<root>");
+            for(int i=0; i<2000; i++){
+                buff.append("<p>");
+                for(int j=0; j<8; j++)
+                    buff.append("Lorem ipsum dolor sit amet, consectetur adipiscing elit,\nsed do eiusmod tempor incididunt ut labore et dolore magna aliqua. ");
+                buff.append("</p>\n");
+            }
+            buff.append("</root>");
+        }else{
+            buff.append("<catalog xmlns='urn:catalog'>");
+            for(int i=0; i<10000; i++){
+                buff.append("<item-entry id='i").append(i).append("' category_name=\"books\" price-value='12.50'>")
+                    .append("<title_text>T").append(i).append("</title_text>")
+                    .append("<author.name>Some Author</author.name><empty-element/>")
+                    .append("</item-entry>\n");
+            }
+            buff.append("</catalog>");
+        }
+        doc = buff.toString().getBytes("UTF-8");
+
+        asyncReader = new AsyncXMLReader();
+        asyncReader.setContentHandler(handler);
+
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        jdkReader = factory.newSAXParser().getXMLReader();
+        jdkReader.setContentHandler(handler);
+    }
+
+    @Benchmark
+    public void asyncXMLReader() throws Exception{
+        asyncReader.parse(new InputSource(new ByteArrayInputStream(doc)));
+    }
+
+    @Benchmark
+    public void jdk() throws Exception{
+        jdkReader.parse(new InputSource(new ByteArrayInputStream(doc)));
+    }
+}
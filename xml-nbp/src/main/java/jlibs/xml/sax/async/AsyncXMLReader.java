@@ -21,15 +21,15 @@ import jlibs.nbp.NBChannel;
 import jlibs.nbp.NBHandler;
 import jlibs.nbp.ReadableCharChannel;
 import jlibs.xml.ClarkName;
+import jlibs.xml.sax.SubtreeSkipper;
 import org.apache.xerces.util.XMLChar;
 import org.xml.sax.*;
 import org.xml.sax.ext.DeclHandler;
 import org.xml.sax.ext.LexicalHandler;
 import org.xml.sax.ext.Locator2;
-import org.xml.sax.helpers.AttributesImpl;
 
-import java.io.CharArrayReader;
-import java.io.IOException;
+import java.io.*;
+import java.nio.channels.ReadableByteChannel;
 import java.util.*;
 
 import static javax.xml.XMLConstants.*;
@@ -40,7 +40,7 @@ import static jlibs.xml.sax.SAXProperties.*;
  * @author Santhosh Kumar T
  */
 @SuppressWarnings({"ThrowableInstanceNeverThrown"})
-public final class AsyncXMLReader implements XMLReader, NBHandler<SAXException>, Locator2{
+public final class AsyncXMLReader implements XMLReader, NBHandler<SAXException>, Locator2, SubtreeSkipper{
     private static Map<String, char[]> defaultEntities = new HashMap<String, char[]>();
     static{
         defaultEntities.put("amp",  new char[]{ '&' });
@@ -71,6 +71,165 @@ public final class AsyncXMLReader implements XMLReader, NBHandler<SAXException>,
         this.strict = strict;
     }
 
+    /*-------------------------------------------------[ Limits ]---------------------------------------------------*/
+
+    // all limits are disabled by default. negative value disables a limit
+    private int maxDepth = Integer.MAX_VALUE;
+    private int maxAttributes = Integer.MAX_VALUE;
+    private int maxNameLength = Integer.MAX_VALUE;
+    private int maxTextLength = Integer.MAX_VALUE;
+    private int maxEntityExpansion = Integer.MAX_VALUE;
+
+    private static int limit(int value){
+        return value<0 ? Integer.MAX_VALUE : value;
+    }
+
+    public int getMaxDepth(){
+        return maxDepth;
+    }
+
+    /** maximum nesting depth of elements */
+    public void setMaxDepth(int maxDepth){
+        this.maxDepth = limit(maxDepth);
+    }
+
+    public int getMaxAttributes(){
+        return maxAttributes;
+    }
+
+    /** maximum number of attributes per element, including namespace declarations */
+    public void setMaxAttributes(int maxAttributes){
+        this.maxAttributes = limit(maxAttributes);
+    }
+
+    public int getMaxNameLength(){
+        return maxNameLength;
+    }
+
+    /**
+     * maximum length of element and attribute names.
+     * <p>
+     * If text length is not limited, the scanner has to buffer text
+     * of any length, so this limit doesn't bound memory usage by itself.
+     */
+    public void setMaxNameLength(int maxNameLength){
+        this.maxNameLength = limit(maxNameLength);
+        updateBufferLimit();
+    }
+
+    public int getMaxTextLength(){
+        return maxTextLength;
+    }
+
+    /**
+     * maximum length of text, cdata section, comment, processing instruction data
+     * and attribute value.
+     * <p>
+     * Text is counted from one markup to the next, so text split by character
+     * and entity references, or delivered in several chunks, is limited as a whole.
+     * <p>
+     * This limit also bounds the scanner buffer. If name length is not limited,
+     * names longer than this limit are rejected too.
+     */
+    public void setMaxTextLength(int maxTextLength){
+        this.maxTextLength = limit(maxTextLength);
+        updateBufferLimit();
+    }
+
+    public int getMaxEntityExpansion(){
+        return maxEntityExpansion;
+    }
+
+    /**
+     * maximum number of chars, that can be expanded from internal entities
+     * in a document. This guards against "billion laughs" attack.
+     */
+    public void setMaxEntityExpansion(int maxEntityExpansion){
+        this.maxEntityExpansion = limit(maxEntityExpansion);
+    }
+
+    /*
+     * scanner buffers can't tell names from text. so they are bounded
+     * whenever text length is limited, using name limit only if it is
+     * larger. exact limits are checked in handler methods, buffer limit
+     * ensures that memory usage is bounded before the token is complete
+     */
+    private int bufferLimit(){
+        if(maxTextLength==Integer.MAX_VALUE)
+            return Integer.MAX_VALUE;
+        if(maxNameLength==Integer.MAX_VALUE)
+            return maxTextLength;
+        return Math.max(maxNameLength, maxTextLength);
+    }
+
+    private void updateBufferLimit(){
+        xmlScanner.setMaxBufferLength(bufferLimit());
+        declScanner.setMaxBufferLength(bufferLimit());
+    }
+
+    private XMLScanner newScanner(int rule){
+        XMLScanner scanner = new XMLScanner(this, rule);
+        scanner.setMaxBufferLength(bufferLimit());
+        return scanner;
+    }
+
+    private int entityExpansion;
+    private void entityExpanded(char content[]) throws SAXException{
+        entityExpansion += content.length;
+        if(entityExpansion>maxEntityExpansion || entityExpansion<0)
+            throw fatalError("entity expansion exceeds "+maxEntityExpansion+" chars");
+    }
+
+    private void checkTextLength(int length) throws SAXException{
+        if(length>maxTextLength)
+            throw fatalError("text is longer than "+maxTextLength+" chars");
+    }
+
+    // length of text seen since last markup
+    private int textLength;
+    private void textAdded(int length) throws SAXException{
+        textLength += length;
+        checkTextLength(textLength);
+    }
+
+    /*-------------------------------------------------[ Subtree Skipping ]---------------------------------------------------*/
+
+    // depth of element whose content is being skipped. zero if not skipping
+    private int skipDepth;
+
+    /**
+     * Skips the remaining content of the current element.
+     * <p>
+     * The skipped content is still scanned to find the matching end tag and
+     * to check that it is well-formed markup. But attributes, namespace declarations
+     * and text are not processed, no namespace constraints are checked, and
+     * no events are reported to handlers.
+     */
+    @Override
+    public void skipSubtree(){
+        if(elemDepth==0)
+            throw new IllegalStateException("no element to skip");
+        if(skipDepth==0)
+            skipDepth = elemDepth;
+    }
+
+    public boolean isSkipping(){
+        return skipDepth!=0;
+    }
+
+    private DTDCache dtdCache;
+
+    public DTDCache getDTDCache(){
+        return dtdCache;
+    }
+
+    /**
+     * @param dtdCache cache to share parsed external DTDs with other readers. null to disable
+     */
+    public void setDTDCache(DTDCache dtdCache){
+        this.dtdCache = dtdCache;
+    }
+
     private ContentHandler contentHandler;
     @Override
     public void setContentHandler(ContentHandler contentHandler){
@@ -198,6 +357,162 @@ public final class AsyncXMLReader implements XMLReader, NBHandler<SAXException>,
         parse(new InputSource(systemID));
     }
 
+    /*-------------------------------------------------[ Checkpoint ]---------------------------------------------------*/
+
+    /**
+     * Takes snapshot of parsing state, from which parsing can be resumed
+     * using {@link #resume(Checkpoint, ReadableByteChannel)}.
+     * <p>
+     * It can be called only when feeder is paused, i.e, {@link XMLFeeder#feed()}
+     * returned non-null because the channel has no bytes available. To take
+     * checkpoints periodically while parsing a file, wrap the file channel such that
+     * it returns zero bytes once in a while.
+     * <p>
+     * Checkpoints are not supported for documents with DTD, for input from
+     * {@link java.io.Reader}, and while parsing content of external entity.
+     *
+     * @throws IllegalStateException if checkpoint cannot be taken in current state
+     */
+    public Checkpoint checkpoint() throws IOException{
+        if(feeder!=xmlFeeder)
+            throw new IllegalStateException("checkpoint is not supported while parsing external entity");
+        if(dtd!=null)
+            throw new IllegalStateException("checkpoint is not supported for documents with DTD");
+        long byteOffset = xmlFeeder.checkpointOffset();
+
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bout);
+        xmlScanner.writeState(out);
+        writeState(out);
+        out.close();
+        return new Checkpoint(byteOffset, xmlFeeder.checkpointEncoding(), xmlFeeder.publicID, xmlFeeder.systemID, bout.toByteArray());
+    }
+
+    /**
+     * Resumes parsing from given checkpoint.
+     * <p>
+     * Handlers receive events from where the checkpoint was taken. No
+     * {@code startDocument} or events for ancestor elements are reported again.
+     *
+     * @param channel   channel positioned at {@link Checkpoint#getByteOffset()}
+     * @return feeder to be used to continue parsing
+     */
+    public XMLFeeder resume(Checkpoint checkpoint, ReadableByteChannel channel) throws IOException{
+        ChannelInputSource is = new ChannelInputSource(channel);
+        is.setPublicId(checkpoint.getPublicID());
+        is.setSystemId(checkpoint.getSystemID());
+        is.setEncoding(checkpoint.getEncoding());
+        if(xmlFeeder==null)
+            xmlFeeder = new XMLFeeder(this, xmlScanner, is, null);
+        else
+            xmlFeeder.init(is, null);
+        xmlFeeder.resume(checkpoint);
+        feeder = xmlFeeder;
+
+        resetState();
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(checkpoint.state));
+        xmlScanner.readState(in);
+        readState(in);
+        if(contentHandler!=null)
+            contentHandler.setDocumentLocator(this);
+        return feeder;
+    }
+
+    private void writeState(DataOutput out) throws IOException{
+        out.writeByte(standalone==null ? -1 : (standalone ? 1 : 0));
+
+        out.writeInt(nsFree);
+        for(int i=4; i<nsFree; i++)
+            Checkpoint.writeString(out, namespaces[i]);
+
+        out.writeInt(elemDepth);
+        out.writeInt(skipDepth);
+        for(int i=1; i<=elemDepth; i++){
+            Element elem = elements[i];
+            writeQName(out, elem.qname);
+            Checkpoint.writeString(out, elem.uri);
+            out.writeInt(elem.nsStart);
+            Checkpoint.writeString(out, elem.defaultNamespace);
+        }
+
+        // state of markup being parsed
+        writeQName(out, curQName);
+        out.writeInt(prefixLength);
+        Checkpoint.writeString(out, value.toString());
+        out.writeBoolean(valueStarted);
+        out.writeBoolean(entityValue);
+        out.writeInt(radix);
+        Checkpoint.writeString(out, piTarget);
+        out.writeBoolean(resolveAttributePrefixes);
+        int attrCount = attrs.getLength();
+        out.writeInt(attrCount);
+        for(int i=0; i<attrCount; i++){
+            Checkpoint.writeString(out, attrs.getURI(i));
+            Checkpoint.writeString(out, attrs.getLocalName(i));
+            Checkpoint.writeString(out, attrs.getQName(i));
+            Checkpoint.writeString(out, attrs.getType(i));
+            Checkpoint.writeString(out, attrs.getValue(i));
+        }
+    }
+
+    private void readState(DataInput in) throws IOException{
+        byte b = in.readByte();
+        standalone = b==-1 ? null : b==1;
+
+        nsFree = in.readInt();
+        if(nsFree>namespaces.length)
+            namespaces = Arrays.copyOf(namespaces, nsFree);
+        for(int i=4; i<nsFree; i++)
+            namespaces[i] = Checkpoint.readString(in);
+
+        elemDepth = in.readInt();
+        skipDepth = in.readInt();
+        if(elemDepth>=elements.length)
+            elements = Arrays.copyOf(elements, elemDepth+1);
+        for(int i=1; i<=elemDepth; i++){
+            Element elem = elements[i];
+            if(elem==null)
+                elements[i] = elem = new Element();
+            elem.init(readQName(in), 0, null);
+            elem.uri = Checkpoint.readString(in);
+            elem.nsStart = in.readInt();
+            elem.defaultNamespace = Checkpoint.readString(in);
+        }
+        elem = elements[elemDepth];
+
+        curQName = readQName(in);
+        prefixLength = in.readInt();
+        value.append(Checkpoint.readString(in));
+        valueStarted = in.readBoolean();
+        entityValue = in.readBoolean();
+        radix = in.readInt();
+        piTarget = Checkpoint.readString(in);
+        resolveAttributePrefixes = in.readBoolean();
+        attrs.clear();
+        int attrCount = in.readInt();
+        for(int i=0; i<attrCount; i++){
+            attrs.addAttribute(Checkpoint.readString(in), Checkpoint.readString(in), Checkpoint.readString(in),
+                               Checkpoint.readString(in), Checkpoint.readString(in));
+        }
+    }
+
+    private void writeQName(DataOutput out, QName qname) throws IOException{
+        if(qname==null)
+            out.writeInt(-1);
+        else{
+            out.writeInt(qname.prefix.length());
+            Checkpoint.writeString(out, qname.name);
+        }
+    }
+
+    private QName readQName(DataInput in) throws IOException{
+        int prefixLength = in.readInt();
+        if(prefixLength==-1)
+            return null;
+        char chars[] = Checkpoint.readString(in).toCharArray();
+        return qnamePool.add(prefixLength, chars, 0, chars.length);
+    }
+
     /*-------------------------------------------------[ Locator ]---------------------------------------------------*/
 
     @Override
@@ -243,6 +558,14 @@ public final class AsyncXMLReader implements XMLReader, NBHandler<SAXException>,
     /*-------------------------------------------------[ Document ]---------------------------------------------------*/
 
     void documentStart() throws SAXException{
+        resetState();
+        if(contentHandler!=null){
+            contentHandler.setDocumentLocator(this);
+            contentHandler.startDocument();
+        }
+    }
+
+    private void resetState(){
         encoding = null;
         standalone = null;
         prefixLength = 0;
@@ -252,6 +575,9 @@ public final class AsyncXMLReader implements XMLReader, NBHandler<SAXException>,
 
         elem = elements[0];
         elemLock = elemDepth = 0;
+        skipDepth = 0;
+        entityExpansion = 0;
+        textLength = 0;
         nsFree = 4;
 
         systemID = null;
@@ -269,11 +595,7 @@ public final class AsyncXMLReader implements XMLReader, NBHandler<SAXException>,
         dtdElement = null;
         attributeList = null;
         dtdAttribute = null;
-
-        if(contentHandler!=null){
-            contentHandler.setDocumentLocator(this);
-            contentHandler.startDocument();
-        }
+        dtdMisc = null;
     }
 
     /*-------------------------------------------------[ XML Decleration ]---------------------------------------------------*/
@@ -309,6 +631,8 @@ public final class AsyncXMLReader implements XMLReader, NBHandler<SAXException>,
     }
 
     void qname(Chars data) throws SAXException{
+        if(data.length()>maxNameLength)
+            throw fatalError("name is longer than "+maxNameLength+" chars");
         curQName = qnamePool.add(prefixLength, data.array(), data.offset(), data.length());
         prefixLength = 0;
     }
@@ -329,21 +653,25 @@ public final class AsyncXMLReader implements XMLReader, NBHandler<SAXException>,
         entityValue = true;
     }
 
-    void rawValue(Chars data){
+    void rawValue(Chars data) throws SAXException{
+        if(skipDepth!=0)
+            return;
         char[] chars = data.array();
         int offset = data.offset();
         int length = data.length();
         if(!entityValue){
-            for(int i=offset; i<length; i++){
+            for(int i=offset, end=offset+length; i<end; i++){
                 char ch = chars[i];
                 if(ch=='\n' || ch=='\r' || ch=='\t')
                     chars[i] = ' ';
             }
         }
         value.append(chars, offset, length);
+        checkTextLength(value.length());
     }
 
     private int radix;
+    private final char charReference[] = new char[2];
     void hexCode() throws SAXException{
         radix = 16;
     }
@@ -357,9 +685,11 @@ public final class AsyncXMLReader implements XMLReader, NBHandler<SAXException>,
         if(XMLChar.isValid(cp)){
             if(valueStarted)
                 value.appendCodePoint(cp);
-            else if(contentHandler!=null){
-                char chars[] = Character.toChars(cp);
-                contentHandler.characters(chars, 0, chars.length);
+            else{
+                int len = Character.toChars(cp, charReference, 0);
+                textAdded(len);
+                if(contentHandler!=null && skipDepth==0)
+                    contentHandler.characters(charReference, 0, len);
             }
         }else
             throw fatalError("invalid xml character");
@@ -379,8 +709,11 @@ public final class AsyncXMLReader implements XMLReader, NBHandler<SAXException>,
         if(entityContent!=null){
             if(valueStarted)
                 value.append(entityContent);
-            else if(contentHandler!=null)
-                contentHandler.characters(entityContent, 0, entityContent.length);
+            else{
+                textAdded(entityContent.length);
+                if(contentHandler!=null && skipDepth==0)
+                    contentHandler.characters(entityContent, 0, entityContent.length);
+            }
         }else{
             EntityValue entityValue = entities.get(entity);
             if(entityValue==null)
@@ -396,6 +729,8 @@ public final class AsyncXMLReader implements XMLReader, NBHandler<SAXException>,
                 throw fatalError("The reference to entity \""+entity+"\" declared in an external parsed entity is not permitted in a standalone document");
 
             checkRecursion(entityStack, entity, "entity");
+            if(entityValue.content!=null)
+                entityExpanded(entityValue.content);
 
             int rule;
             if(valueStarted){
@@ -452,9 +787,11 @@ public final class AsyncXMLReader implements XMLReader, NBHandler<SAXException>,
             if(feeder.parser==xmlScanner && feeder.getParent()==null)
                 throw fatalError("The parameter entity reference \"%"+data+";\" cannot occur within markup in the internal subset of the DTD.");
 
-            if(entityValue.content!=null)
+            if(entityValue.content!=null){
+                entityExpanded(entityValue.content);
                 value.append(entityValue.content);
-            else{
+                checkTextLength(value.length());
+            }else{
                 entityValue.parse(XMLScanner.RULE_EXTERNAL_ENTITY_VALUE).postAction =  new Runnable(){
                     @Override
                     public void run(){
@@ -465,6 +802,8 @@ public final class AsyncXMLReader implements XMLReader, NBHandler<SAXException>,
         }else{
             if(peReferenceOutsideMarkup){
                 peReferenceOutsideMarkup = false;
+                if(entityValue.content!=null)
+                    entityExpanded(entityValue.content);
                 paramEntityStack.push(param);
                 try{
                     entityValue.parse(XMLScanner.RULE_EXT_SUBSET_DECL).postAction =  new Runnable(){
@@ -504,7 +843,7 @@ public final class AsyncXMLReader implements XMLReader, NBHandler<SAXException>,
     
     private final DTD _dtd = new DTD(this);
     private DTD dtd ;
-    private final AttributesImpl attrs = new AttributesImpl();
+    private final LazyAttributes attrs = new LazyAttributes();
     private Element elem = new Element();
     private Element elements[] = new Element[10];
     private int elemDepth = 0;
@@ -518,6 +857,8 @@ public final class AsyncXMLReader implements XMLReader, NBHandler<SAXException>,
         if(attrs.getLength()>0)
             attrs.clear();
         resolveAttributePrefixes = false;
+        if(elemDepth>=maxDepth)
+            throw fatalError("element depth exceeds "+maxDepth);
         if(elemDepth==elements.length-1)
             elements = Arrays.copyOf(elements, elemDepth<<1);
 
@@ -529,11 +870,15 @@ public final class AsyncXMLReader implements XMLReader, NBHandler<SAXException>,
     }
 
     void attributeEnd() throws SAXException{
+        if(attrs.getLength()+((nsFree-elem.nsStart)>>1)>=maxAttributes)
+            throw fatalError("element \""+elem.qname.name+"\" has more than "+maxAttributes+" attributes");
+        if(skipDepth!=0)
+            return;
         String attrName = curQName.name;
         String type, attrValue;
         if(dtd==null){
             type = "CDATA";
-            attrValue = value.toString();
+            attrValue = null;
         }else{
             AttributeType attrType = dtd.attributeType(elem.qname.name, attrName);
             type = attrType.name();
@@ -542,6 +887,8 @@ public final class AsyncXMLReader implements XMLReader, NBHandler<SAXException>,
 
         String attrLocalName = curQName.localName;
         if(attrName.startsWith("xmlns", 0)){
+            if(attrValue==null)
+                attrValue = value.toString();
             String nsPrefix = null;
             if(attrName.length()==5){
                 nsPrefix = "";
@@ -578,10 +925,16 @@ public final class AsyncXMLReader implements XMLReader, NBHandler<SAXException>,
         String prefix = curQName.prefix;
         if(prefix.length()>0)
             resolveAttributePrefixes = true;
-        attrs.addAttribute(prefix, attrLocalName, attrName, type, attrValue);
+        if(attrValue==null)
+            attrs.addAttribute(prefix, attrLocalName, attrName, type, value);
+        else
+            attrs.addAttribute(prefix, attrLocalName, attrName, type, attrValue);
     }
 
     void attributesEnd() throws SAXException{
+        textLength = 0;
+        if(skipDepth!=0)
+            return;
         int attrCount = attrs.getLength();
         if(resolveAttributePrefixes){
             for(int i=0; i<attrCount; i++){
@@ -623,9 +976,18 @@ public final class AsyncXMLReader implements XMLReader, NBHandler<SAXException>,
     }
 
     void elementEnd() throws SAXException{
+        textLength = 0;
         if(elemDepth==elemLock)
             throw fatalError("The element \""+elem.qname.name+"\" must start and end within the same entity");
 
+        if(skipDepth!=0){
+            if(elemDepth>skipDepth){
+                elem = elements[--elemDepth];
+                return;
+            }
+            skipDepth = 0;
+        }
+
         if(contentHandler!=null){
             contentHandler.endElement(elem.uri, elem.qname.localName, elem.qname.name);
             for(int i=elem.nsStart; i<nsFree; i+=2)
@@ -654,12 +1016,19 @@ public final class AsyncXMLReader implements XMLReader, NBHandler<SAXException>,
     }
 
     void piData(Chars piData) throws SAXException{
-        if(contentHandler!=null)
+        textLength = 0;
+        checkTextLength(piData.length());
+        if(dtdMisc!=null)
+            dtdMisc.add(new String[]{ piTarget, piData.toString() });
+        if(contentHandler!=null && skipDepth==0)
             contentHandler.processingInstruction(piTarget, piData.length()>0 ? piData.toString() : "");
     }
 
     void piData() throws SAXException{
-        if(contentHandler!=null)
+        textLength = 0;
+        if(dtdMisc!=null)
+            dtdMisc.add(new String[]{ piTarget, "" });
+        if(contentHandler!=null && skipDepth==0)
             contentHandler.processingInstruction(piTarget, "");
     }
 
@@ -676,7 +1045,8 @@ public final class AsyncXMLReader implements XMLReader, NBHandler<SAXException>,
     }
     
     void characters(Chars data) throws SAXException{
-        if(contentHandler!=null){
+        textAdded(data.length());
+        if(contentHandler!=null && skipDepth==0){
             int len = data.length();
             if(len>0){
                 if(dtd!=null && dtd.nonMixedElements.contains(elem.qname.name) && isWhitespace(data))
@@ -688,6 +1058,9 @@ public final class AsyncXMLReader implements XMLReader, NBHandler<SAXException>,
     }
 
     void cdata(Chars data) throws SAXException{
+        textAdded(data.length());
+        if(skipDepth!=0)
+            return;
         if(lexicalHandler!=null)
             lexicalHandler.startCDATA();
         if(contentHandler!=null)
@@ -697,7 +1070,11 @@ public final class AsyncXMLReader implements XMLReader, NBHandler<SAXException>,
     }
 
     void comment(Chars data) throws SAXException{
-        if(lexicalHandler!=null)
+        textLength = 0;
+        checkTextLength(data.length());
+        if(dtdMisc!=null)
+            dtdMisc.add(new String[]{ null, data.toString() });
+        if(lexicalHandler!=null && skipDepth==0)
             lexicalHandler.comment(data.array(), data.offset(), data.length());
     }
 
@@ -782,23 +1159,87 @@ public final class AsyncXMLReader implements XMLReader, NBHandler<SAXException>,
     }
 
     public void dtdEnd() throws SAXException, IOException{
+        DTDCache.Entry cached = null;
         if(dtd.externalDTD!=null){
             InputSource inputSource = dtd.externalDTD;
             dtd.externalDTD = null;
 
-            InputSource is = null;
-            if(entityResolver!=null)
-                is = entityResolver.resolveEntity(inputSource.getPublicId(), inputSource.getSystemId());
+            String cacheKey = null;
+            if(dtdCache!=null && declHandler==null && dtdHandler==null
+                    && entities.isEmpty() && paramEntities.isEmpty()
+                    && dtd.attributes.isEmpty() && dtd.nonMixedElements.isEmpty()){
+                cacheKey = DTDCache.key(inputSource.getPublicId(), inputSource.getSystemId());
+                cached = dtdCache.get(cacheKey);
+            }
 
-            XMLScanner dtdScanner = new XMLScanner(this, XMLScanner.RULE_EXT_SUBSET_DECL);
-            dtdScanner.coalesceNewLines = true;
-            encoding = null;
-            declScanner.reset(XMLScanner.RULE_TEXT_DECL);
-            feeder.setChild(new XMLFeeder(this, dtdScanner, is==null?inputSource:is, declScanner));
+            if(cached!=null)
+                loadDTD(cached);
+            else{
+                InputSource is = null;
+                if(entityResolver!=null)
+                    is = entityResolver.resolveEntity(inputSource.getPublicId(), inputSource.getSystemId());
 
+                XMLScanner dtdScanner = newScanner(XMLScanner.RULE_EXT_SUBSET_DECL);
+                dtdScanner.coalesceNewLines = true;
+                encoding = null;
+                declScanner.reset(XMLScanner.RULE_TEXT_DECL);
+                XMLFeeder childFeeder = new XMLFeeder(this, dtdScanner, is==null?inputSource:is, declScanner);
+                feeder.setChild(childFeeder);
+                if(cacheKey!=null){
+                    dtdMisc = new ArrayList<String[]>();
+                    final String key = cacheKey;
+                    childFeeder.postAction = new Runnable(){
+                        @Override
+                        public void run(){
+                            dtdCache.put(key, storeDTD());
+                            dtdMisc = null;
+                        }
+                    };
+                }
+            }
         }
         if(lexicalHandler!=null)
             lexicalHandler.endDTD();
+        if(cached!=null){
+            for(String misc[]: cached.misc){
+                if(misc[0]==null){
+                    if(lexicalHandler!=null)
+                        lexicalHandler.comment(misc[1].toCharArray(), 0, misc[1].length());
+                }else if(contentHandler!=null)
+                    contentHandler.processingInstruction(misc[0], misc[1]);
+            }
+        }
+    }
+
+    /*-------------------------------------------------[ DTD Cache ]---------------------------------------------------*/
+
+    private List<String[]> dtdMisc;
+
+    private DTDCache.Entry storeDTD(){
+        return new DTDCache.Entry(dtd.attributes, dtd.nonMixedElements, toCache(entities), toCache(paramEntities), dtdMisc);
+    }
+
+    private DTDCache.Entity[] toCache(Map<String, EntityValue> entities){
+        DTDCache.Entity array[] = new DTDCache.Entity[entities.size()];
+        int i = 0;
+        for(EntityValue entity: entities.values()){
+            String publicID = null, systemID = null;
+            if(entity.inputSource!=null){
+                publicID = entity.inputSource.getPublicId();
+                systemID = entity.inputSource.getSystemId();
+            }
+            array[i++] = new DTDCache.Entity(entity.entityName, entity.content, entity.unparsed, entity.externalValue, publicID, systemID);
+        }
+        return array;
+    }
+
+    private void loadDTD(DTDCache.Entry cached){
+        dtd.attributes.putAll(cached.attributes);
+        dtd.nonMixedElements.addAll(cached.nonMixedElements);
+        for(DTDCache.Entity entity: cached.entities)
+            entities.put(entity.name, new EntityValue(entity));
+        for(DTDCache.Entity entity: cached.paramEntities)
+            paramEntities.put(entity.name, new EntityValue(entity));
     }
 
     /*-------------------------------------------------[ Entity Definition ]---------------------------------------------------*/
@@ -851,6 +1292,18 @@ public final class AsyncXMLReader implements XMLReader, NBHandler<SAXException>,
             }
         }
 
+        EntityValue(DTDCache.Entity entity){
+            entityName = entity.name;
+            externalDefinition = true;
+            unparsed = entity.unparsed;
+            externalValue = entity.externalValue;
+            content = entity.content;
+            if(externalValue){
+                inputSource = new InputSource(entity.systemID);
+                inputSource.setPublicId(entity.publicID);
+            }
+        }
+
         public InputSource inputSource(boolean wrapWithSpace) throws IOException, SAXException{
             if(inputSource==null){
                 InputSource is = new InputSource(getSystemId());
@@ -876,7 +1329,7 @@ public final class AsyncXMLReader implements XMLReader, NBHandler<SAXException>,
         }
 
         public XMLFeeder parse(int rule) throws IOException, SAXException{
-            XMLScanner scanner = new XMLScanner(AsyncXMLReader.this, rule);
+            XMLScanner scanner = newScanner(rule);
             XMLScanner prologParser = prologParser();
             scanner.coalesceNewLines = externalValue;
 
@@ -16,11 +16,15 @@
 
 package jlibs.xml.sax.async;
 
+import jlibs.core.nio.MappedFileChannel;
 import org.xml.sax.InputSource;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.Executor;
 
 /**
  * @author Santhosh Kumar T
@@ -53,4 +57,23 @@ public class ChannelInputSource extends InputSource{
     public void setChannel(ReadableByteChannel channel){
         this.channel = channel;
     }
+
+    /**
+     * creates input source which reads given file through memory mapped windows.
+     *
+     * @param position      byte offset in file, from which to read. for example {@link Checkpoint#getByteOffset()}
+     * @param windowSize    number of bytes mapped at a time
+     * @param prefetcher    executor on which next window is mapped and loaded in advance. can be null
+     *
+     * @see MappedFileChannel
+     */
+    public static ChannelInputSource map(File file, long position, int windowSize, Executor prefetcher) throws IOException{
+        ChannelInputSource is = new ChannelInputSource(new MappedFileChannel(file, position, windowSize, prefetcher));
+        is.setSystemId(file.toURI().toString());
+        return is;
+    }
+
+    public static ChannelInputSource map(File file) throws IOException{
+        return map(file, 0, MappedFileChannel.DEFAULT_WINDOW_SIZE, null);
+    }
 }
@@ -0,0 +1,120 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.xml.sax.async;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Snapshot of {@link AsyncXMLReader} taken while parsing a document,
+ * from which parsing can be resumed later, possibly in another process.
+ * <p>
+ * Parsing is resumed by feeding bytes of the document starting
+ * from {@link #getByteOffset()}:
+ * <pre class="prettyprint">
+ * FileChannel channel = FileChannel.open(path);
+ * channel.position(checkpoint.getByteOffset());
+ * XMLFeeder feeder = reader.resume(checkpoint, channel);
+ * </pre>
+ *
+ * @see AsyncXMLReader#checkpoint()
+ * @see AsyncXMLReader#resume(Checkpoint, java.nio.channels.ReadableByteChannel)
+ *
+ * @author Santhosh Kumar T
+ */
+public final class Checkpoint{
+    private static final int VERSION = 1;
+
+    private final long byteOffset;
+    private final String encoding;
+    private final String publicID;
+    private final String systemID;
+    final byte state[];
+
+    Checkpoint(long byteOffset, String encoding, String publicID, String systemID, byte state[]){
+        this.byteOffset = byteOffset;
+        this.encoding = encoding;
+        this.publicID = publicID;
+        this.systemID = systemID;
+        this.state = state;
+    }
+
+    /**
+     * offset of the byte in document, from which parsing should be resumed
+     */
+    public long getByteOffset(){
+        return byteOffset;
+    }
+
+    public String getEncoding(){
+        return encoding;
+    }
+
+    public String getPublicID(){
+        return publicID;
+    }
+
+    public String getSystemID(){
+        return systemID;
+    }
+
+    public void writeTo(DataOutput out) throws IOException{
+        out.writeInt(VERSION);
+        out.writeLong(byteOffset);
+        out.writeUTF(encoding);
+        writeString(out, publicID);
+        writeString(out, systemID);
+        out.writeInt(state.length);
+        out.write(state);
+    }
+
+    public static Checkpoint readFrom(DataInput in) throws IOException{
+        int version = in.readInt();
+        if(version!=VERSION)
+            throw new IOException("unsupported checkpoint version: "+version);
+        long byteOffset = in.readLong();
+        String encoding = in.readUTF();
+        String publicID = readString(in);
+        String systemID = readString(in);
+        byte state[] = new byte[in.readInt()];
+        in.readFully(state);
+        return new Checkpoint(byteOffset, encoding, publicID, systemID, state);
+    }
+
+    /*-------------------------------------------------[ Helpers ]---------------------------------------------------*/
+
+    // unlike writeUTF, supports nulls and strings longer than 64K
+    static void writeString(DataOutput out, String str) throws IOException{
+        if(str==null)
+            out.writeInt(-1);
+        else{
+            out.writeInt(str.length());
+            out.writeChars(str);
+        }
+    }
+
+    static String readString(DataInput in) throws IOException{
+        int len = in.readInt();
+        if(len==-1)
+            return null;
+        char chars[] = new char[len];
+        for(int i=0; i<len; i++)
+            chars[i] = in.readChar();
+        return new String(chars);
+    }
+}
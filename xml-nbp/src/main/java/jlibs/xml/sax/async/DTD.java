@@ -17,7 +17,6 @@
 package jlibs.xml.sax.async;
 
 import org.xml.sax.InputSource;
-import org.xml.sax.helpers.AttributesImpl;
 
 import java.util.HashMap;
 import java.util.HashSet;
@@ -56,7 +55,7 @@ public class DTD{
         return type;
     }
 
-    public void addMissingAttributes(String elemName, AttributesImpl attributes){
+    public void addMissingAttributes(String elemName, LazyAttributes attributes){
         Map<String, DTDAttribute> attList = this.attributes.get(elemName);
         if(attList==null)
             return;
@@ -0,0 +1,113 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.xml.sax.async;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread-safe cache of parsed external DTD subsets, keyed by public and system ID.
+ * <p>
+ * An instance can be shared by any number of {@link AsyncXMLReader}s,
+ * see {@link AsyncXMLReader#setDTDCache(DTDCache)}. When a document refers
+ * to an external DTD that is already in cache, the reader takes element,
+ * attribute and entity declarations from cache instead of resolving, reading
+ * and parsing the DTD again.
+ * <p>
+ * The cache is consulted only when the result doesn't depend on the document:
+ * <ul>
+ *     <li>the internal subset, if any, declares nothing</li>
+ *     <li>no {@link org.xml.sax.ext.DeclHandler} and {@link org.xml.sax.DTDHandler} are set,
+ *         because declarations are not reported from cache</li>
+ * </ul>
+ * Comments and processing instructions in external DTD are replayed from cache.
+ * <p>
+ * Note that {@link org.xml.sax.EntityResolver} is not consulted for cached DTDs.
+ * So readers sharing a cache should resolve ids the same way.
+ *
+ * @author Santhosh Kumar T
+ */
+public final class DTDCache{
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    static String key(String publicID, String systemID){
+        return publicID==null ? systemID : publicID+' '+systemID;
+    }
+
+    Entry get(String key){
+        return entries.get(key);
+    }
+
+    void put(String key, Entry entry){
+        entries.putIfAbsent(key, entry);
+    }
+
+    /**
+     * @return number of DTDs cached
+     */
+    public int size(){
+        return entries.size();
+    }
+
+    public void clear(){
+        entries.clear();
+    }
+
+    /**
+     * state contributed by an external DTD subset.
+     * immutable once created, so that it can be shared across threads
+     */
+    static final class Entry{
+        final Map<String, Map<String, DTDAttribute>> attributes;
+        final Set<String> nonMixedElements;
+        final Entity entities[];
+        final Entity paramEntities[];
+
+        // {target, data} for processing instruction, {null, text} for comment
+        final String misc[][];
+
+        Entry(Map<String, Map<String, DTDAttribute>> attributes, Set<String> nonMixedElements,
+              Entity entities[], Entity paramEntities[], List<String[]> misc){
+            Map<String, Map<String, DTDAttribute>> map = new HashMap<String, Map<String, DTDAttribute>>();
+            for(Map.Entry<String, Map<String, DTDAttribute>> entry: attributes.entrySet())
+                map.put(entry.getKey(), Collections.unmodifiableMap(new HashMap<String, DTDAttribute>(entry.getValue())));
+            this.attributes = Collections.unmodifiableMap(map);
+            this.nonMixedElements = Collections.unmodifiableSet(new HashSet<String>(nonMixedElements));
+            this.entities = entities;
+            this.paramEntities = paramEntities;
+            this.misc = misc.toArray(new String[misc.size()][]);
+        }
+    }
+
+    static final class Entity{
+        final String name;
+        final char content[];
+        final boolean unparsed;
+        final boolean externalValue;
+        final String publicID;
+        final String systemID;
+
+        Entity(String name, char content[], boolean unparsed, boolean externalValue, String publicID, String systemID){
+            this.name = name;
+            this.content = content;
+            this.unparsed = unparsed;
+            this.externalValue = externalValue;
+            this.publicID = publicID;
+            this.systemID = systemID;
+        }
+    }
+}
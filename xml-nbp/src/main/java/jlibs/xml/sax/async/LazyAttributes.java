@@ -0,0 +1,200 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.xml.sax.async;
+
+import org.xml.sax.Attributes;
+
+import java.util.Arrays;
+
+/**
+ * Attributes whose values are kept as ranges of a single char array,
+ * which is reused across elements. String for a value is created only
+ * when {@link #getValue(int)} is called, and is cached until {@link #clear()}.
+ * <p>
+ * names are expected to be interned by {@link QNamePool}, so this class
+ * allocates nothing per attribute, once its arrays have grown enough.
+ *
+ * @author Santhosh Kumar T
+ */
+public final class LazyAttributes implements Attributes{
+    private int length;
+    private String uris[] = new String[10];
+    private String localNames[] = new String[10];
+    private String qNames[] = new String[10];
+    private String types[] = new String[10];
+    private String values[] = new String[10];
+    private int offsets[] = new int[10];
+    private int lengths[] = new int[10];
+
+    private char chars[] = new char[256];
+    private int charsFree;
+
+    public void clear(){
+        if(length>0){
+            Arrays.fill(values, 0, length, null);
+            length = 0;
+        }
+        charsFree = 0;
+    }
+
+    private int add(String uri, String localName, String qName, String type){
+        if(length==uris.length){
+            int capacity = length<<1;
+            uris = Arrays.copyOf(uris, capacity);
+            localNames = Arrays.copyOf(localNames, capacity);
+            qNames = Arrays.copyOf(qNames, capacity);
+            types = Arrays.copyOf(types, capacity);
+            values = Arrays.copyOf(values, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+        uris[length] = uri;
+        localNames[length] = localName;
+        qNames[length] = qName;
+        types[length] = type;
+        return length++;
+    }
+
+    private int reserve(int index, int len){
+        if(charsFree+len>chars.length)
+            chars = Arrays.copyOf(chars, Math.max(chars.length<<1, charsFree+len));
+        offsets[index] = charsFree;
+        lengths[index] = len;
+        int offset = charsFree;
+        charsFree += len;
+        return offset;
+    }
+
+    /**
+     * copies chars of given value. No String is created
+     */
+    public void addAttribute(String uri, String localName, String qName, String type, StringBuilder value){
+        int index = add(uri, localName, qName, type);
+        int len = value.length();
+        int offset = reserve(index, len);
+        value.getChars(0, len, chars, offset);
+    }
+
+    public void addAttribute(String uri, String localName, String qName, String type, String value){
+        int index = add(uri, localName, qName, type);
+        int len = value.length();
+        int offset = reserve(index, len);
+        value.getChars(0, len, chars, offset);
+        values[index] = value;
+    }
+
+    public void setURI(int index, String uri){
+        uris[index] = uri;
+    }
+
+    /*-------------------------------------------------[ Lazy Values ]---------------------------------------------------*/
+
+    /**
+     * returns the char array containing attribute values.
+     * value of attribute at given index starts at {@link #getValueOffset(int)} and spans
+     * {@link #getValueLength(int)} chars.
+     * <p>
+     * the returned array is valid only during {@code startElement} notification,
+     * and must not be modified.
+     */
+    public char[] getValueChars(){
+        return chars;
+    }
+
+    public int getValueOffset(int index){
+        return offsets[index];
+    }
+
+    public int getValueLength(int index){
+        return lengths[index];
+    }
+
+    /*-------------------------------------------------[ Attributes ]---------------------------------------------------*/
+
+    @Override
+    public int getLength(){
+        return length;
+    }
+
+    @Override
+    public String getURI(int index){
+        return index>=0 && index<length ? uris[index] : null;
+    }
+
+    @Override
+    public String getLocalName(int index){
+        return index>=0 && index<length ? localNames[index] : null;
+    }
+
+    @Override
+    public String getQName(int index){
+        return index>=0 && index<length ? qNames[index] : null;
+    }
+
+    @Override
+    public String getType(int index){
+        return index>=0 && index<length ? types[index] : null;
+    }
+
+    @Override
+    public String getValue(int index){
+        if(index<0 || index>=length)
+            return null;
+        String value = values[index];
+        if(value==null)
+            values[index] = value = new String(chars, offsets[index], lengths[index]);
+        return value;
+    }
+
+    @Override
+    public int getIndex(String uri, String localName){
+        for(int i=0; i<length; i++){
+            if(localNames[i].equals(localName) && uris[i].equals(uri))
+                return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public int getIndex(String qName){
+        for(int i=0; i<length; i++){
+            if(qNames[i].equals(qName))
+                return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public String getType(String uri, String localName){
+        return getType(getIndex(uri, localName));
+    }
+
+    @Override
+    public String getType(String qName){
+        return getType(getIndex(qName));
+    }
+
+    @Override
+    public String getValue(String uri, String localName){
+        return getValue(getIndex(uri, localName));
+    }
+
+    @Override
+    public String getValue(String qName){
+        return getValue(getIndex(qName));
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.xml.sax.async;
+
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parses a batch of documents in parallel on a {@link ForkJoinPool}.
+ * <p>
+ * Each worker thread reuses its own {@link AsyncXMLReader}, and all readers
+ * share single {@link DTDCache}, so that a DTD common to many documents is
+ * parsed only once.
+ * <pre class="prettyprint">
+ * ParseService service = new ParseService();
+ * List&lt;Integer&gt; counts = service.parse(sources, new ParseService.Parse&lt;Integer&gt;(){
+ *     public Integer parse(AsyncXMLReader reader, InputSource source) throws IOException, SAXException{
+ *         ElementCounter counter = new ElementCounter();
+ *         reader.setContentHandler(counter);
+ *         reader.parse(source);
+ *         return counter.count;
+ *     }
+ * });
+ * </pre>
+ *
+ * @author Santhosh Kumar T
+ */
+public class ParseService{
+    /**
+     * Parses one document. It is called concurrently from worker threads,
+     * each with its own reader. Handlers set on the reader are retained
+     * across calls on same thread, so set all required handlers for each document.
+     */
+    public interface Parse<T>{
+        public T parse(AsyncXMLReader reader, InputSource source) throws IOException, SAXException;
+    }
+
+    private final ForkJoinPool pool;
+    private final DTDCache dtdCache;
+    private final ThreadLocal<AsyncXMLReader> readers = new ThreadLocal<AsyncXMLReader>(){
+        @Override
+        protected AsyncXMLReader initialValue(){
+            return createReader();
+        }
+    };
+
+    public ParseService(ForkJoinPool pool, DTDCache dtdCache){
+        this.pool = pool;
+        this.dtdCache = dtdCache;
+    }
+
+    /**
+     * uses common fork-join pool with a new DTDCache
+     */
+    public ParseService(){
+        this(ForkJoinPool.commonPool(), new DTDCache());
+    }
+
+    public ForkJoinPool getPool(){
+        return pool;
+    }
+
+    public DTDCache getDTDCache(){
+        return dtdCache;
+    }
+
+    /**
+     * creates reader for a worker thread. Subclasses can override
+     * to configure readers
+     */
+    protected AsyncXMLReader createReader(){
+        AsyncXMLReader reader = new AsyncXMLReader();
+        reader.setDTDCache(dtdCache);
+        return reader;
+    }
+
+    /**
+     * parses given documents in parallel, and waits for all of them to complete.
+     * If any document fails, remaining documents are not parsed and its exception is thrown.
+     *
+     * @return results of {@code parse} in the order of {@code sources}
+     */
+    public <T> List<T> parse(List<InputSource> sources, Parse<T> parse) throws IOException, SAXException{
+        Object results[] = new Object[sources.size()];
+        if(results.length>0){
+            try{
+                pool.invoke(new ParseTask<T>(sources, parse, results, 0, results.length));
+            }catch(Failure failure){
+                Throwable cause = failure.getCause();
+                if(cause instanceof IOException)
+                    throw (IOException)cause;
+                throw (SAXException)cause;
+            }
+        }
+        List<T> list = new ArrayList<T>(results.length);
+        for(Object result: results){
+            @SuppressWarnings("unchecked")
+            T t = (T)result;
+            list.add(t);
+        }
+        return list;
+    }
+
+    private static class Failure extends RuntimeException{
+        Failure(Exception cause){
+            super(cause);
+        }
+    }
+
+    private class ParseTask<T> extends RecursiveAction{
+        private final List<InputSource> sources;
+        private final Parse<T> parse;
+        private final Object results[];
+        private final int from, to;
+
+        ParseTask(List<InputSource> sources, Parse<T> parse, Object results[], int from, int to){
+            this.sources = sources;
+            this.parse = parse;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute(){
+            if(to-from==1){
+                try{
+                    results[from] = parse.parse(readers.get(), sources.get(from));
+                }catch(IOException | SAXException ex){
+                    throw new Failure(ex);
+                }
+            }else{
+                int mid = (from+to)>>>1;
+                invokeAll(new ParseTask<T>(sources, parse, results, from, mid),
+                          new ParseTask<T>(sources, parse, results, mid, to));
+            }
+        }
+    }
+}
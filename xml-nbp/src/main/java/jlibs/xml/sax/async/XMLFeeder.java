@@ -65,6 +65,7 @@ public class XMLFeeder extends Feeder{
 
     final void init(InputSource is, XMLScanner prologParser) throws IOException{
         postAction = null;
+        byteOffset = 0;
         iProlog = 0;
         this.prologParser = prologParser;
         elemDepth = 0;
@@ -185,6 +186,7 @@ public class XMLFeeder extends Feeder{
         if(prologParser !=null){
             while(iProlog<6){
                 sixChars.clear();
+                sixChars.limit(6-iProlog); // chars following "<?xml " are not lost
                 int read = channel.read(sixChars);
                 if(read==0)
                     return this;
@@ -272,6 +274,38 @@ public class XMLFeeder extends Feeder{
         }
     }
 
+    /*-------------------------------------------------[ Checkpoint ]---------------------------------------------------*/
+
+    // offset of the first byte fed by channel
+    private long byteOffset;
+
+    /**
+     * returns offset of the byte following the chars consumed by parser
+     */
+    long checkpointOffset() throws IOException{
+        if(child!=null || getParent()!=null)
+            throw new IllegalStateException("checkpoint is not supported while parsing external entity");
+        if(iProlog!=7)
+            throw new IllegalStateException("checkpoint is not supported before xml declaration is parsed");
+        if(channel==null)
+            throw new IllegalStateException("document is completely read");
+        if(channel!=nbChannel)
+            throw new IllegalStateException("checkpoint is supported only for byte input");
+        int pending = charBuffer.position(); // chars read, but not consumed by parser
+        return byteOffset + nbChannel.getBytesDecoded() - nbChannel.encodedLength(charBuffer.array(), 0, pending);
+    }
+
+    String checkpointEncoding(){
+        return nbChannel.decoder().charset().name();
+    }
+
+    void resume(Checkpoint checkpoint){
+        iProlog = 7;
+        prologParser = null;
+        byteOffset = checkpoint.getByteOffset();
+        nbChannel.decoder(Charset.forName(checkpoint.getEncoding()).newDecoder());
+    }
+
     void setDeclaredEncoding(String encoding){
         iProlog = 7;
         parser.setLocation(prologParser);
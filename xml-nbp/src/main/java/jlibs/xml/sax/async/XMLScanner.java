@@ -73,22 +73,81 @@ public final class XMLScanner extends jlibs.nbp.NBParser{
 
     /*-------------------------------------------------[ Matchers ]---------------------------------------------------*/
 
+    private static final int LATIN1_MATCHERS[] = {
+        0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0xfc, 0xfc, 0x0, 0x0, 0xfc, 0x0, 0x0,
+        0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0,
+        0xfc, 0xfc, 0x5c, 0xfc, 0xfc, 0x3c, 0x0, 0xac, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfe, 0xfe, 0xfc,
+        0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xfc, 0xfc, 0xc0, 0xfc, 0xfc, 0xfc,
+        0xfc, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xfe, 0xfe, 0xfe, 0xfe, 0xfe, 0xfe, 0xfe, 0xfe, 0xfe,
+        0xfe, 0xfe, 0xfe, 0xfe, 0xfe, 0xfe, 0xfe, 0xfe, 0xfe, 0xfe, 0xfe, 0xfc, 0xfc, 0xf4, 0xfc, 0xfe,
+        0xfc, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xfe, 0xfe, 0xfe, 0xfe, 0xfe, 0xfe, 0xfe, 0xfe, 0xfe,
+        0xfe, 0xfe, 0xfe, 0xfe, 0xfe, 0xfe, 0xfe, 0xfe, 0xfe, 0xfe, 0xfe, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc,
+        0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc,
+        0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc,
+        0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc,
+        0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc,
+        0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc,
+        0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc,
+        0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc,
+        0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc, 0xfc,
+    };
+
     private static boolean DIGIT(int ch){
         return ch>='0' && ch<='9';
     }
 
     private static boolean HEX_DIGIT(int ch){
-        return (DIGIT(ch)) || (ch>='a' && ch<='f') || (ch>='A' && ch<='F');
+        if(ch>=0 && ch<256)
+            return (LATIN1_MATCHERS[ch] & 0x1)!=0;
+        return false;
     }
 
     private static boolean ENCODING_START(int ch){
         return (ch>='A' && ch<='Z') || (ch>='a' && ch<='z');
     }
 
+    private static boolean ENCODING_PART(int ch){
+        if(ch>=0 && ch<256)
+            return (LATIN1_MATCHERS[ch] & 0x2)!=0;
+        return false;
+    }
+
     private static boolean ELEM_CONTENT_CHAR(int ch){
+        if(ch>=0 && ch<256)
+            return (LATIN1_MATCHERS[ch] & 0x4)!=0;
         return (ch!='<' && ch!='&') && (org.apache.xerces.util.XMLChar.isValid(ch));
     }
 
+    private static boolean ELEM_CONTENT_CHAR_NBRACE(int ch){
+        if(ch>=0 && ch<256)
+            return (LATIN1_MATCHERS[ch] & 0x8)!=0;
+        return (ch!='<' && ch!='&' && ch!=']') && (org.apache.xerces.util.XMLChar.isValid(ch));
+    }
+
+    private static boolean ATTR_Q_CONTENT(int ch){
+        if(ch>=0 && ch<256)
+            return (LATIN1_MATCHERS[ch] & 0x10)!=0;
+        return (ch!='<' && ch!='&' && ch!='\'') && (org.apache.xerces.util.XMLChar.isValid(ch));
+    }
+
+    private static boolean ATTR_DQ_CONTENT(int ch){
+        if(ch>=0 && ch<256)
+            return (LATIN1_MATCHERS[ch] & 0x20)!=0;
+        return (ch!='<' && ch!='&' && ch!='"') && (org.apache.xerces.util.XMLChar.isValid(ch));
+    }
+
+    private static boolean ENTITY_Q_CONTENT(int ch){
+        if(ch>=0 && ch<256)
+            return (LATIN1_MATCHERS[ch] & 0x40)!=0;
+        return (ch!='%' && ch!='&' && ch!='\'') && (org.apache.xerces.util.XMLChar.isValid(ch));
+    }
+
+    private static boolean ENTITY_DQ_CONTENT(int ch){
+        if(ch>=0 && ch<256)
+            return (LATIN1_MATCHERS[ch] & 0x80)!=0;
+        return (ch!='%' && ch!='&' && ch!='"') && (org.apache.xerces.util.XMLChar.isValid(ch));
+    }
+
     /*-------------------------------------------------[ Rules ]---------------------------------------------------*/
 
     public static final int RULE_EQ = 0;
@@ -3697,31 +3756,29 @@ public final class XMLScanner extends jlibs.nbp.NBParser{
 
     private int finishAll_WS() throws IOException{
         int ch;
-        asciiLoop: while(true){
-            while(position<limit){
-                ch = input[position];
-                if(ch=='\r'){
+        while(position<limit){
+            ch = input[position];
+            if(ch=='\r'){
+                line++;
+                linePosition = ++position;
+            }
+            else if(ch=='\n'){
+                char lastChar = position==start ? this.lastChar : input[position-1];
+                linePosition = ++position;
+                if(lastChar!='\r')
                     line++;
-                    linePosition = ++position;
-                }
-                else if(ch=='\n'){
-                    linePosition = ++position;
-                    char lastChar = position==start+1 ? this.lastChar : input[position-2];
-                    if(lastChar!='\r')
-                        line++;
-                }
-                else if(org.apache.xerces.util.XMLChar.isSpace(ch)){
-                    position++;
-                }else if(ch>=MIN_HIGH_SURROGATE && ch<=MAX_HIGH_SURROGATE)
-                    break asciiLoop;
-                else{
-                    increment = 1;
-                    return ch;
-                }
             }
-            if(position==limit)
-                return marker;
-            buffer.expandCapacity(1);
+            else if(org.apache.xerces.util.XMLChar.isSpace(ch))
+                position++;
+            else
+                break;
+        }
+        if(position==limit)
+            return marker;
+        ch = input[position];
+        if(ch<MIN_HIGH_SURROGATE || ch>MAX_HIGH_SURROGATE){
+            increment = 1;
+            return ch;
         }
         return codePoint();
     }
@@ -3730,7 +3787,7 @@ public final class XMLScanner extends jlibs.nbp.NBParser{
         int _position = position;
         while(position<limit){
             char ch = input[position];
-            if((ENCODING_START(ch)) || (DIGIT(ch)) || (ch=='.' || ch=='_' || ch=='-'))
+            if(ENCODING_PART(ch))
                 ++position;
             else
                 break;
@@ -3804,43 +3861,46 @@ public final class XMLScanner extends jlibs.nbp.NBParser{
     private int finishAll_ATTR_DQ_CONTENT() throws IOException{
         int ch;
         while(true){
-            asciiLoop: while(true){
-                char chars[] = buffer.array();
-                int max = position + chars.length-buffer.count;
-                if(limit<max)
-                    max = limit;
-                while(position<max){
-                    ch = input[position];
-                    if(ch=='\r'){
-                        line++;
-                        linePosition = ++position;
-                        chars[buffer.count++] = coalesceNewLines ? '\n' : '\r';
-                    }
-                    else if(ch=='\n'){
-                        linePosition = ++position;
-                        char lastChar = position==start+1 ? this.lastChar : input[position-2];
-                        if(lastChar!='\r')
-                            line++;
-                        else if(coalesceNewLines)
-                            continue;
-                        chars[buffer.count++] = '\n';
+            int run = position;
+            while(position<limit){
+                ch = input[position];
+                if(ch=='\r'){
+                    line++;
+                    if(coalesceNewLines){
+                        if(position>run)
+                            buffer.append(input, run, position-run);
+                        buffer.append('\n');
+                        run = position+1;
                     }
-                    else if((ch!='<' && ch!='&' && ch!='"') && (org.apache.xerces.util.XMLChar.isValid(ch))){
-                        chars[buffer.count++] = (char)ch;
-                        position++;
-                    }else if(ch>=MIN_HIGH_SURROGATE && ch<=MAX_HIGH_SURROGATE)
-                        break asciiLoop;
-                    else{
-                        increment = 1;
-                        return ch;
+                    linePosition = ++position;
+                }
+                else if(ch=='\n'){
+                    char lastChar = position==start ? this.lastChar : input[position-1];
+                    linePosition = ++position;
+                    if(lastChar!='\r')
+                        line++;
+                    else if(coalesceNewLines){
+                        if(position-1>run)
+                            buffer.append(input, run, position-1-run);
+                        run = position;
                     }
                 }
-                if(position==limit)
-                    return marker;
-                buffer.expandCapacity(1);
+                else if(ATTR_DQ_CONTENT(ch))
+                    position++;
+                else
+                    break;
+            }
+            if(position>run)
+                buffer.append(input, run, position-run);
+            if(position==limit)
+                return marker;
+            ch = input[position];
+            if(ch<MIN_HIGH_SURROGATE || ch>MAX_HIGH_SURROGATE){
+                increment = 1;
+                return ch;
             }
             ch = codePoint();
-            if(ch>=0 && (ch!='<' && ch!='&' && ch!='"') && (org.apache.xerces.util.XMLChar.isValid(ch)))
+            if(ch>=0 && ATTR_DQ_CONTENT(ch))
                 consume(ch);
             else
                 return ch;
@@ -3850,43 +3910,46 @@ public final class XMLScanner extends jlibs.nbp.NBParser{
     private int finishAll_ATTR_Q_CONTENT() throws IOException{
         int ch;
         while(true){
-            asciiLoop: while(true){
-                char chars[] = buffer.array();
-                int max = position + chars.length-buffer.count;
-                if(limit<max)
-                    max = limit;
-                while(position<max){
-                    ch = input[position];
-                    if(ch=='\r'){
-                        line++;
-                        linePosition = ++position;
-                        chars[buffer.count++] = coalesceNewLines ? '\n' : '\r';
-                    }
-                    else if(ch=='\n'){
-                        linePosition = ++position;
-                        char lastChar = position==start+1 ? this.lastChar : input[position-2];
-                        if(lastChar!='\r')
-                            line++;
-                        else if(coalesceNewLines)
-                            continue;
-                        chars[buffer.count++] = '\n';
+            int run = position;
+            while(position<limit){
+                ch = input[position];
+                if(ch=='\r'){
+                    line++;
+                    if(coalesceNewLines){
+                        if(position>run)
+                            buffer.append(input, run, position-run);
+                        buffer.append('\n');
+                        run = position+1;
                     }
-                    else if((ch!='<' && ch!='&' && ch!='\'') && (org.apache.xerces.util.XMLChar.isValid(ch))){
-                        chars[buffer.count++] = (char)ch;
-                        position++;
-                    }else if(ch>=MIN_HIGH_SURROGATE && ch<=MAX_HIGH_SURROGATE)
-                        break asciiLoop;
-                    else{
-                        increment = 1;
-                        return ch;
+                    linePosition = ++position;
+                }
+                else if(ch=='\n'){
+                    char lastChar = position==start ? this.lastChar : input[position-1];
+                    linePosition = ++position;
+                    if(lastChar!='\r')
+                        line++;
+                    else if(coalesceNewLines){
+                        if(position-1>run)
+                            buffer.append(input, run, position-1-run);
+                        run = position;
                     }
                 }
-                if(position==limit)
-                    return marker;
-                buffer.expandCapacity(1);
+                else if(ATTR_Q_CONTENT(ch))
+                    position++;
+                else
+                    break;
+            }
+            if(position>run)
+                buffer.append(input, run, position-run);
+            if(position==limit)
+                return marker;
+            ch = input[position];
+            if(ch<MIN_HIGH_SURROGATE || ch>MAX_HIGH_SURROGATE){
+                increment = 1;
+                return ch;
             }
             ch = codePoint();
-            if(ch>=0 && (ch!='<' && ch!='&' && ch!='\'') && (org.apache.xerces.util.XMLChar.isValid(ch)))
+            if(ch>=0 && ATTR_Q_CONTENT(ch))
                 consume(ch);
             else
                 return ch;
@@ -3896,43 +3959,46 @@ public final class XMLScanner extends jlibs.nbp.NBParser{
     private int finishAll_ENTITY_DQ_CONTENT() throws IOException{
         int ch;
         while(true){
-            asciiLoop: while(true){
-                char chars[] = buffer.array();
-                int max = position + chars.length-buffer.count;
-                if(limit<max)
-                    max = limit;
-                while(position<max){
-                    ch = input[position];
-                    if(ch=='\r'){
-                        line++;
-                        linePosition = ++position;
-                        chars[buffer.count++] = coalesceNewLines ? '\n' : '\r';
-                    }
-                    else if(ch=='\n'){
-                        linePosition = ++position;
-                        char lastChar = position==start+1 ? this.lastChar : input[position-2];
-                        if(lastChar!='\r')
-                            line++;
-                        else if(coalesceNewLines)
-                            continue;
-                        chars[buffer.count++] = '\n';
+            int run = position;
+            while(position<limit){
+                ch = input[position];
+                if(ch=='\r'){
+                    line++;
+                    if(coalesceNewLines){
+                        if(position>run)
+                            buffer.append(input, run, position-run);
+                        buffer.append('\n');
+                        run = position+1;
                     }
-                    else if((ch!='%' && ch!='&' && ch!='"') && (org.apache.xerces.util.XMLChar.isValid(ch))){
-                        chars[buffer.count++] = (char)ch;
-                        position++;
-                    }else if(ch>=MIN_HIGH_SURROGATE && ch<=MAX_HIGH_SURROGATE)
-                        break asciiLoop;
-                    else{
-                        increment = 1;
-                        return ch;
+                    linePosition = ++position;
+                }
+                else if(ch=='\n'){
+                    char lastChar = position==start ? this.lastChar : input[position-1];
+                    linePosition = ++position;
+                    if(lastChar!='\r')
+                        line++;
+                    else if(coalesceNewLines){
+                        if(position-1>run)
+                            buffer.append(input, run, position-1-run);
+                        run = position;
                     }
                 }
-                if(position==limit)
-                    return marker;
-                buffer.expandCapacity(1);
+                else if(ENTITY_DQ_CONTENT(ch))
+                    position++;
+                else
+                    break;
+            }
+            if(position>run)
+                buffer.append(input, run, position-run);
+            if(position==limit)
+                return marker;
+            ch = input[position];
+            if(ch<MIN_HIGH_SURROGATE || ch>MAX_HIGH_SURROGATE){
+                increment = 1;
+                return ch;
             }
             ch = codePoint();
-            if(ch>=0 && (ch!='%' && ch!='&' && ch!='"') && (org.apache.xerces.util.XMLChar.isValid(ch)))
+            if(ch>=0 && ENTITY_DQ_CONTENT(ch))
                 consume(ch);
             else
                 return ch;
@@ -3942,43 +4008,46 @@ public final class XMLScanner extends jlibs.nbp.NBParser{
     private int finishAll_ENTITY_Q_CONTENT() throws IOException{
         int ch;
         while(true){
-            asciiLoop: while(true){
-                char chars[] = buffer.array();
-                int max = position + chars.length-buffer.count;
-                if(limit<max)
-                    max = limit;
-                while(position<max){
-                    ch = input[position];
-                    if(ch=='\r'){
-                        line++;
-                        linePosition = ++position;
-                        chars[buffer.count++] = coalesceNewLines ? '\n' : '\r';
-                    }
-                    else if(ch=='\n'){
-                        linePosition = ++position;
-                        char lastChar = position==start+1 ? this.lastChar : input[position-2];
-                        if(lastChar!='\r')
-                            line++;
-                        else if(coalesceNewLines)
-                            continue;
-                        chars[buffer.count++] = '\n';
+            int run = position;
+            while(position<limit){
+                ch = input[position];
+                if(ch=='\r'){
+                    line++;
+                    if(coalesceNewLines){
+                        if(position>run)
+                            buffer.append(input, run, position-run);
+                        buffer.append('\n');
+                        run = position+1;
                     }
-                    else if((ch!='%' && ch!='&' && ch!='\'') && (org.apache.xerces.util.XMLChar.isValid(ch))){
-                        chars[buffer.count++] = (char)ch;
-                        position++;
-                    }else if(ch>=MIN_HIGH_SURROGATE && ch<=MAX_HIGH_SURROGATE)
-                        break asciiLoop;
-                    else{
-                        increment = 1;
-                        return ch;
+                    linePosition = ++position;
+                }
+                else if(ch=='\n'){
+                    char lastChar = position==start ? this.lastChar : input[position-1];
+                    linePosition = ++position;
+                    if(lastChar!='\r')
+                        line++;
+                    else if(coalesceNewLines){
+                        if(position-1>run)
+                            buffer.append(input, run, position-1-run);
+                        run = position;
                     }
                 }
-                if(position==limit)
-                    return marker;
-                buffer.expandCapacity(1);
+                else if(ENTITY_Q_CONTENT(ch))
+                    position++;
+                else
+                    break;
+            }
+            if(position>run)
+                buffer.append(input, run, position-run);
+            if(position==limit)
+                return marker;
+            ch = input[position];
+            if(ch<MIN_HIGH_SURROGATE || ch>MAX_HIGH_SURROGATE){
+                increment = 1;
+                return ch;
             }
             ch = codePoint();
-            if(ch>=0 && (ch!='%' && ch!='&' && ch!='\'') && (org.apache.xerces.util.XMLChar.isValid(ch)))
+            if(ch>=0 && ENTITY_Q_CONTENT(ch))
                 consume(ch);
             else
                 return ch;
@@ -3988,43 +4057,46 @@ public final class XMLScanner extends jlibs.nbp.NBParser{
     private int finishAll_ELEM_CONTENT_CHAR_NBRACE() throws IOException{
         int ch;
         while(true){
-            asciiLoop: while(true){
-                char chars[] = buffer.array();
-                int max = position + chars.length-buffer.count;
-                if(limit<max)
-                    max = limit;
-                while(position<max){
-                    ch = input[position];
-                    if(ch=='\r'){
-                        line++;
-                        linePosition = ++position;
-                        chars[buffer.count++] = coalesceNewLines ? '\n' : '\r';
-                    }
-                    else if(ch=='\n'){
-                        linePosition = ++position;
-                        char lastChar = position==start+1 ? this.lastChar : input[position-2];
-                        if(lastChar!='\r')
-                            line++;
-                        else if(coalesceNewLines)
-                            continue;
-                        chars[buffer.count++] = '\n';
+            int run = position;
+            while(position<limit){
+                ch = input[position];
+                if(ch=='\r'){
+                    line++;
+                    if(coalesceNewLines){
+                        if(position>run)
+                            buffer.append(input, run, position-run);
+                        buffer.append('\n');
+                        run = position+1;
                     }
-                    else if((ch!='<' && ch!='&' && ch!=']') && (org.apache.xerces.util.XMLChar.isValid(ch))){
-                        chars[buffer.count++] = (char)ch;
-                        position++;
-                    }else if(ch>=MIN_HIGH_SURROGATE && ch<=MAX_HIGH_SURROGATE)
-                        break asciiLoop;
-                    else{
-                        increment = 1;
-                        return ch;
+                    linePosition = ++position;
+                }
+                else if(ch=='\n'){
+                    char lastChar = position==start ? this.lastChar : input[position-1];
+                    linePosition = ++position;
+                    if(lastChar!='\r')
+                        line++;
+                    else if(coalesceNewLines){
+                        if(position-1>run)
+                            buffer.append(input, run, position-1-run);
+                        run = position;
                     }
                 }
-                if(position==limit)
-                    return marker;
-                buffer.expandCapacity(1);
+                else if(ELEM_CONTENT_CHAR_NBRACE(ch))
+                    position++;
+                else
+                    break;
+            }
+            if(position>run)
+                buffer.append(input, run, position-run);
+            if(position==limit)
+                return marker;
+            ch = input[position];
+            if(ch<MIN_HIGH_SURROGATE || ch>MAX_HIGH_SURROGATE){
+                increment = 1;
+                return ch;
             }
             ch = codePoint();
-            if(ch>=0 && (ch!='<' && ch!='&' && ch!=']') && (org.apache.xerces.util.XMLChar.isValid(ch)))
+            if(ch>=0 && ELEM_CONTENT_CHAR_NBRACE(ch))
                 consume(ch);
             else
                 return ch;
@@ -4034,40 +4106,43 @@ public final class XMLScanner extends jlibs.nbp.NBParser{
     private int finishAll_CHAR() throws IOException{
         int ch;
         while(true){
-            asciiLoop: while(true){
-                char chars[] = buffer.array();
-                int max = position + chars.length-buffer.count;
-                if(limit<max)
-                    max = limit;
-                while(position<max){
-                    ch = input[position];
-                    if(ch=='\r'){
-                        line++;
-                        linePosition = ++position;
-                        chars[buffer.count++] = coalesceNewLines ? '\n' : '\r';
-                    }
-                    else if(ch=='\n'){
-                        linePosition = ++position;
-                        char lastChar = position==start+1 ? this.lastChar : input[position-2];
-                        if(lastChar!='\r')
-                            line++;
-                        else if(coalesceNewLines)
-                            continue;
-                        chars[buffer.count++] = '\n';
+            int run = position;
+            while(position<limit){
+                ch = input[position];
+                if(ch=='\r'){
+                    line++;
+                    if(coalesceNewLines){
+                        if(position>run)
+                            buffer.append(input, run, position-run);
+                        buffer.append('\n');
+                        run = position+1;
                     }
-                    else if(org.apache.xerces.util.XMLChar.isValid(ch)){
-                        chars[buffer.count++] = (char)ch;
-                        position++;
-                    }else if(ch>=MIN_HIGH_SURROGATE && ch<=MAX_HIGH_SURROGATE)
-                        break asciiLoop;
-                    else{
-                        increment = 1;
-                        return ch;
+                    linePosition = ++position;
+                }
+                else if(ch=='\n'){
+                    char lastChar = position==start ? this.lastChar : input[position-1];
+                    linePosition = ++position;
+                    if(lastChar!='\r')
+                        line++;
+                    else if(coalesceNewLines){
+                        if(position-1>run)
+                            buffer.append(input, run, position-1-run);
+                        run = position;
                     }
                 }
-                if(position==limit)
-                    return marker;
-                buffer.expandCapacity(1);
+                else if(org.apache.xerces.util.XMLChar.isValid(ch))
+                    position++;
+                else
+                    break;
+            }
+            if(position>run)
+                buffer.append(input, run, position-run);
+            if(position==limit)
+                return marker;
+            ch = input[position];
+            if(ch<MIN_HIGH_SURROGATE || ch>MAX_HIGH_SURROGATE){
+                increment = 1;
+                return ch;
             }
             ch = codePoint();
             if(ch>=0 && org.apache.xerces.util.XMLChar.isValid(ch))
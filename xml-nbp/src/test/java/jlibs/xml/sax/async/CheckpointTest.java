@@ -0,0 +1,279 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.xml.sax.async;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parses a document pausing at given byte offsets. At each pause a checkpoint
+ * is taken, serialized, and parsing is resumed on a fresh reader from the
+ * checkpoint's file offset. The SAX events reported by all readers together
+ * must be same as those of an uninterrupted parse.
+ *
+ * @author Santhosh Kumar T
+ */
+public class CheckpointTest{
+    private static final String XML =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"+
+        "<root xmlns=\"urn:a\" xmlns:p=\"urn:p\">\n"+
+        "  <p:item id=\"1\" name=\"café €😀\">text &amp; more é€😀&#x20AC;</p:item>\n"+
+        "  <skip a=\"1\"><deep b=\"café\"><x>ignored €</x></deep>tail</skip>\n"+
+        "  <?pi some data?>\n"+
+        "  <!-- comment é -->\n"+
+        "  <item attr='value with spaces'>last<![CDATA[ <cdata> é ]]></item>\n"+
+        "</root>\n";
+
+    private static final byte DOC[] = XML.getBytes(StandardCharsets.UTF_8);
+    private static File file;
+
+    @BeforeClass
+    public void createFile() throws IOException{
+        file = File.createTempFile("checkpoint", ".xml");
+        Files.write(file.toPath(), DOC);
+    }
+
+    @AfterClass
+    public void deleteFile(){
+        if(file!=null)
+            file.delete();
+    }
+
+    private static int offset(String str, int delta){
+        byte bytes[] = str.getBytes(StandardCharsets.UTF_8);
+        outer:
+        for(int i=0; i<=DOC.length-bytes.length; i++){
+            for(int j=0; j<bytes.length; j++){
+                if(DOC[i+j]!=bytes[j])
+                    continue outer;
+            }
+            return i+delta;
+        }
+        throw new IllegalArgumentException(str);
+    }
+
+    /*-------------------------------------------------[ Events ]---------------------------------------------------*/
+
+    // records events in a string. adjacent characters(...) are merged,
+    // so that where text is split doesn't matter
+    private static class Recorder extends DefaultHandler{
+        private final StringBuilder events;
+        private final AsyncXMLReader reader;
+
+        Recorder(StringBuilder events, AsyncXMLReader reader){
+            this.events = events;
+            this.reader = reader;
+        }
+
+        @Override
+        public void startDocument(){
+            events.append("[startDocument]");
+        }
+
+        @Override
+        public void endDocument(){
+            events.append("[endDocument]");
+        }
+
+        @Override
+        public void startPrefixMapping(String prefix, String uri){
+            events.append("[xmlns:").append(prefix).append('=').append(uri).append(']');
+        }
+
+        @Override
+        public void endPrefixMapping(String prefix){
+            events.append("[/xmlns:").append(prefix).append(']');
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attrs){
+            events.append("[<{").append(uri).append('}').append(localName).append(' ').append(qName);
+            for(int i=0; i<attrs.getLength(); i++){
+                events.append(" {").append(attrs.getURI(i)).append('}').append(attrs.getLocalName(i))
+                      .append(' ').append(attrs.getQName(i)).append('=').append(attrs.getValue(i));
+            }
+            events.append(']');
+            if(localName.equals("skip"))
+                reader.skipSubtree();
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName){
+            events.append("[</{").append(uri).append('}').append(localName).append(' ').append(qName).append(']');
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length){
+            events.append(ch, start, length);
+        }
+
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length){
+            events.append(ch, start, length);
+        }
+
+        @Override
+        public void processingInstruction(String target, String data){
+            events.append("[<?").append(target).append(' ').append(data).append(']');
+        }
+    }
+
+    /*-------------------------------------------------[ Channel ]---------------------------------------------------*/
+
+    // returns zero bytes at the first pending pause, until it is removed
+    private static class PausingChannel implements ReadableByteChannel{
+        private final FileChannel delegate;
+        private final List<Integer> pauses;
+        private long position;
+
+        PausingChannel(long position, List<Integer> pauses) throws IOException{
+            delegate = FileChannel.open(file.toPath());
+            delegate.position(position);
+            this.position = position;
+            this.pauses = pauses;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException{
+            while(!pauses.isEmpty() && pauses.get(0)<position)
+                pauses.remove(0);
+            if(!pauses.isEmpty() && pauses.get(0)==position)
+                return 0;
+            int limit = dst.limit();
+            if(!pauses.isEmpty())
+                dst.limit((int)Math.min(limit, dst.position()+pauses.get(0)-position));
+            try{
+                int read = delegate.read(dst);
+                if(read>0)
+                    position += read;
+                return read;
+            }finally{
+                dst.limit(limit);
+            }
+        }
+
+        @Override
+        public boolean isOpen(){
+            return delegate.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException{
+            delegate.close();
+        }
+    }
+
+    /*-------------------------------------------------[ Parsing ]---------------------------------------------------*/
+
+    private static String parse(int... pauses) throws Exception{
+        List<Integer> pending = new ArrayList<Integer>();
+        for(int pause: pauses)
+            pending.add(pause);
+        Assert.assertTrue(Arrays.equals(pauses, sorted(pauses)), "pauses must be sorted");
+
+        StringBuilder events = new StringBuilder();
+        AsyncXMLReader reader = new AsyncXMLReader();
+        reader.setContentHandler(new Recorder(events, reader));
+        XMLFeeder feeder = reader.createFeeder(new ChannelInputSource(new PausingChannel(0, pending)));
+        int checkpoints = 0;
+        while(feeder.feed()!=null){
+            ByteArrayOutputStream bout = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bout);
+            reader.checkpoint().writeTo(out);
+            out.close();
+            checkpoints++;
+            pending.remove(0);
+
+            Checkpoint checkpoint = Checkpoint.readFrom(new DataInputStream(new ByteArrayInputStream(bout.toByteArray())));
+            reader = new AsyncXMLReader();
+            reader.setContentHandler(new Recorder(events, reader));
+            feeder = reader.resume(checkpoint, new PausingChannel(checkpoint.getByteOffset(), pending));
+        }
+        Assert.assertEquals(checkpoints, pauses.length);
+        return events.toString();
+    }
+
+    private static int[] sorted(int array[]){
+        array = array.clone();
+        Arrays.sort(array);
+        return array;
+    }
+
+    private static void check(int... pauses) throws Exception{
+        Assert.assertEquals(parse(pauses), parse(), "pauses: "+Arrays.toString(pauses));
+    }
+
+    @Test
+    public void uninterrupted() throws Exception{
+        String events = parse();
+        Assert.assertTrue(events.startsWith("[startDocument]"));
+        Assert.assertTrue(events.endsWith("[endDocument]"));
+        Assert.assertFalse(events.contains("ignored"));
+        Assert.assertFalse(events.contains("tail"));
+    }
+
+    @Test
+    public void midTag() throws Exception{
+        check(offset("<root", 3), offset("<p:item", 2), offset("<p:item", 5), offset("</p:item>", 4), offset("<?pi", 2));
+    }
+
+    @Test
+    public void midAttributeValue() throws Exception{
+        check(offset("xmlns:p=", 9), offset("id=\"1\"", 4), offset("name=\"caf", 8), offset("value with", 5));
+    }
+
+    @Test
+    public void multiByte() throws Exception{
+        check(offset("café ", 4), // middle of é
+              offset("€😀\"", 3), // after €
+              offset("😀\">", 2), // middle of 4-byte sequence
+              offset("😀\">", 4), // after 4-byte sequence
+              offset("more é", 6), // middle of é in text
+              offset("😀&#x20AC;", 3),
+              offset("&#x20AC;", 4), // middle of char reference
+              offset("<cdata> é", 9));
+    }
+
+    @Test
+    public void skipSubtree() throws Exception{
+        check(offset("<skip", 3), offset("<deep", 2), offset("café\"><x>", 4),
+              offset("ignored", 3), offset("tail", 2), offset("</skip>", 3));
+    }
+
+    @Test
+    public void everyOffset() throws Exception{
+        String expected = parse();
+        int start = offset("?>", 2); // checkpoint is not supported before xml declaration is parsed
+        for(int pause=start; pause<DOC.length; pause++)
+            Assert.assertEquals(parse(pause), expected, "pause: "+pause);
+    }
+}
@@ -89,6 +89,19 @@ public class DefaultNamespaceContext implements NamespaceContext{
         declarePrefix(XMLConstants.XMLNS_ATTRIBUTE, XMLConstants.XMLNS_ATTRIBUTE_NS_URI);
     }
 
+    /**
+     * Creates copy of the specified namespaceContext. Prefixes declared
+     * later in either of them are not reflected in other.
+     *
+     * @param that the namespaceContext to be copied
+     */
+    public DefaultNamespaceContext(DefaultNamespaceContext that){
+        suggested = that.suggested;
+        prefix2uriMap.putAll(that.prefix2uriMap);
+        uri2prefixMap.putAll(that.uri2prefixMap);
+        defaultURI = that.defaultURI;
+    }
+
     @Override
     public String getNamespaceURI(String prefix){
         if(prefix==null)
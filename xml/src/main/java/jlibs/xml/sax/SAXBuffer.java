@@ -0,0 +1,521 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.xml.sax;
+
+import jlibs.core.lang.Util;
+import org.xml.sax.*;
+import org.xml.sax.ext.LexicalHandler;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Records SAX events in compact binary form, so that a document parsed
+ * once can be replayed any number of times to different handlers.
+ * <p>
+ * Events are encoded as ints. Names, uris and attribute types are stored
+ * once in a string table and referred by their index. Text, comments and
+ * attribute values are copied into a single shared char array, and referred
+ * by offset and length. null strings and values are encoded as -1, so that
+ * they are replayed as null. Replay doesn't create any objects other than the
+ * strings for text values requested through {@link Attributes#getValue(int)}.
+ * <p>
+ * The recording can be saved using {@link #writeTo(DataOutput)} and loaded
+ * back using {@link #readFrom(DataInput)}, which is much faster than parsing
+ * the xml document again.
+ * <pre class="prettyprint">
+ * SAXBuffer buffer = new SAXBuffer();
+ * XMLReader reader = ...;
+ * reader.setContentHandler(buffer);
+ * reader.setProperty(SAXProperties.LEXICAL_HANDLER, buffer);
+ * reader.parse(source);
+ *
+ * buffer.replay(contentHandler, lexicalHandler);
+ * xmlDog.sniff(event, source, buffer.newXMLReader());
+ * </pre>
+ *
+ * @author Santhosh Kumar T
+ */
+public class SAXBuffer implements ContentHandler, LexicalHandler{
+    private static final int VERSION = 1;
+
+    private static final int START_DOCUMENT         = 0;
+    private static final int END_DOCUMENT           = 1;
+    private static final int START_PREFIX_MAPPING   = 2;
+    private static final int END_PREFIX_MAPPING     = 3;
+    private static final int START_ELEMENT          = 4;
+    private static final int END_ELEMENT            = 5;
+    private static final int CHARACTERS             = 6;
+    private static final int IGNORABLE_WHITESPACE   = 7;
+    private static final int PROCESSING_INSTRUCTION = 8;
+    private static final int SKIPPED_ENTITY         = 9;
+    private static final int START_DTD              = 10;
+    private static final int END_DTD                = 11;
+    private static final int START_ENTITY           = 12;
+    private static final int END_ENTITY             = 13;
+    private static final int START_CDATA            = 14;
+    private static final int END_CDATA              = 15;
+    private static final int COMMENT                = 16;
+
+    // uri, localName, qName, type, valueOffset, valueLength
+    private static final int ATTRIBUTE_SIZE = 6;
+
+    private int codes[];
+    private int codeCount;
+
+    private char chars[];
+    private int charCount;
+
+    private String strings[];
+    private int stringCount;
+    private final Map<String, Integer> stringIDs = new HashMap<String, Integer>();
+
+    public SAXBuffer(){
+        codes = new int[256];
+        chars = new char[1024];
+        strings = new String[64];
+    }
+
+    private SAXBuffer(int codes[], char chars[], String strings[]){
+        this.codes = codes;
+        codeCount = codes.length;
+        this.chars = chars;
+        charCount = chars.length;
+        this.strings = strings;
+        stringCount = strings.length;
+        for(int i=0; i<stringCount; i++)
+            stringIDs.put(strings[i], i);
+    }
+
+    public void clear(){
+        codeCount = charCount = stringCount = 0;
+        stringIDs.clear();
+    }
+
+    public boolean isEmpty(){
+        return codeCount==0;
+    }
+
+    /*-------------------------------------------------[ Encoding ]---------------------------------------------------*/
+
+    private void code(int code){
+        if(codeCount==codes.length)
+            codes = Arrays.copyOf(codes, (codeCount+1)<<1);
+        codes[codeCount++] = code;
+    }
+
+    private void code(int code1, int code2){
+        if(codeCount+2>codes.length)
+            codes = Arrays.copyOf(codes, (codeCount+2)<<1);
+        codes[codeCount++] = code1;
+        codes[codeCount++] = code2;
+    }
+
+    private int string(String str){
+        if(str==null)
+            return -1;
+        Integer id = stringIDs.get(str);
+        if(id==null){
+            if(stringCount==strings.length)
+                strings = Arrays.copyOf(strings, (stringCount+1)<<1);
+            strings[stringCount] = str;
+            stringIDs.put(str, id=stringCount++);
+        }
+        return id;
+    }
+
+    private int reserveChars(int length){
+        if(charCount+length>chars.length)
+            chars = Arrays.copyOf(chars, Math.max(charCount+length, chars.length<<1));
+        int offset = charCount;
+        charCount += length;
+        return offset;
+    }
+
+    private void chars(int event, char ch[], int start, int length){
+        int offset = reserveChars(length);
+        System.arraycopy(ch, start, chars, offset, length);
+        code(event);
+        code(offset, length);
+    }
+
+    private void chars(String str){
+        if(str==null){
+            code(0, -1);
+            return;
+        }
+        int length = str.length();
+        int offset = reserveChars(length);
+        str.getChars(0, length, chars, offset);
+        code(offset, length);
+    }
+
+    /*-------------------------------------------------[ ContentHandler ]---------------------------------------------------*/
+
+    @Override
+    public void setDocumentLocator(Locator locator){}
+
+    @Override
+    public void startDocument() throws SAXException{
+        code(START_DOCUMENT);
+    }
+
+    @Override
+    public void endDocument() throws SAXException{
+        code(END_DOCUMENT);
+    }
+
+    @Override
+    public void startPrefixMapping(String prefix, String uri) throws SAXException{
+        code(START_PREFIX_MAPPING);
+        code(string(prefix), string(uri));
+    }
+
+    @Override
+    public void endPrefixMapping(String prefix) throws SAXException{
+        code(END_PREFIX_MAPPING, string(prefix));
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException{
+        int attrCount = atts.getLength();
+        code(START_ELEMENT);
+        code(string(uri), string(localName));
+        code(string(qName), attrCount);
+        for(int i=0; i<attrCount; i++){
+            code(string(atts.getURI(i)), string(atts.getLocalName(i)));
+            code(string(atts.getQName(i)), string(atts.getType(i)));
+            chars(atts.getValue(i));
+        }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException{
+        code(END_ELEMENT);
+        code(string(uri), string(localName));
+        code(string(qName));
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) throws SAXException{
+        chars(CHARACTERS, ch, start, length);
+    }
+
+    @Override
+    public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException{
+        chars(IGNORABLE_WHITESPACE, ch, start, length);
+    }
+
+    @Override
+    public void processingInstruction(String target, String data) throws SAXException{
+        code(PROCESSING_INSTRUCTION, string(target));
+        chars(data);
+    }
+
+    @Override
+    public void skippedEntity(String name) throws SAXException{
+        code(SKIPPED_ENTITY, string(name));
+    }
+
+    /*-------------------------------------------------[ LexicalHandler ]---------------------------------------------------*/
+
+    @Override
+    public void startDTD(String name, String publicId, String systemId) throws SAXException{
+        code(START_DTD, string(name));
+        code(string(publicId), string(systemId));
+    }
+
+    @Override
+    public void endDTD() throws SAXException{
+        code(END_DTD);
+    }
+
+    @Override
+    public void startEntity(String name) throws SAXException{
+        code(START_ENTITY, string(name));
+    }
+
+    @Override
+    public void endEntity(String name) throws SAXException{
+        code(END_ENTITY, string(name));
+    }
+
+    @Override
+    public void startCDATA() throws SAXException{
+        code(START_CDATA);
+    }
+
+    @Override
+    public void endCDATA() throws SAXException{
+        code(END_CDATA);
+    }
+
+    @Override
+    public void comment(char[] ch, int start, int length) throws SAXException{
+        chars(COMMENT, ch, start, length);
+    }
+
+    /*-------------------------------------------------[ Replay ]---------------------------------------------------*/
+
+    /**
+     * Replays recorded events to given handlers. Any of the
+     * handlers can be null.
+     */
+    public void replay(ContentHandler contentHandler, LexicalHandler lexicalHandler) throws SAXException{
+        final int codes[] = this.codes;
+        final char chars[] = this.chars;
+        RecordedAttributes attrs = new RecordedAttributes();
+
+        int i = 0;
+        while(i<codeCount){
+            switch(codes[i++]){
+                case START_DOCUMENT:
+                    if(contentHandler!=null)
+                        contentHandler.startDocument();
+                    break;
+                case END_DOCUMENT:
+                    if(contentHandler!=null)
+                        contentHandler.endDocument();
+                    break;
+                case START_PREFIX_MAPPING:
+                    if(contentHandler!=null)
+                        contentHandler.startPrefixMapping(string(codes[i]), string(codes[i+1]));
+                    i += 2;
+                    break;
+                case END_PREFIX_MAPPING:
+                    if(contentHandler!=null)
+                        contentHandler.endPrefixMapping(string(codes[i]));
+                    i++;
+                    break;
+                case START_ELEMENT:
+                    attrs.begin = i+4;
+                    attrs.length = codes[i+3];
+                    if(contentHandler!=null)
+                        contentHandler.startElement(string(codes[i]), string(codes[i+1]), string(codes[i+2]), attrs);
+                    i += 4+attrs.length*ATTRIBUTE_SIZE;
+                    break;
+                case END_ELEMENT:
+                    if(contentHandler!=null)
+                        contentHandler.endElement(string(codes[i]), string(codes[i+1]), string(codes[i+2]));
+                    i += 3;
+                    break;
+                case CHARACTERS:
+                    if(contentHandler!=null)
+                        contentHandler.characters(chars, codes[i], codes[i+1]);
+                    i += 2;
+                    break;
+                case IGNORABLE_WHITESPACE:
+                    if(contentHandler!=null)
+                        contentHandler.ignorableWhitespace(chars, codes[i], codes[i+1]);
+                    i += 2;
+                    break;
+                case PROCESSING_INSTRUCTION:
+                    if(contentHandler!=null)
+                        contentHandler.processingInstruction(string(codes[i]), value(codes[i+1], codes[i+2]));
+                    i += 3;
+                    break;
+                case SKIPPED_ENTITY:
+                    if(contentHandler!=null)
+                        contentHandler.skippedEntity(string(codes[i]));
+                    i++;
+                    break;
+                case START_DTD:
+                    if(lexicalHandler!=null)
+                        lexicalHandler.startDTD(string(codes[i]), string(codes[i+1]), string(codes[i+2]));
+                    i += 3;
+                    break;
+                case END_DTD:
+                    if(lexicalHandler!=null)
+                        lexicalHandler.endDTD();
+                    break;
+                case START_ENTITY:
+                    if(lexicalHandler!=null)
+                        lexicalHandler.startEntity(string(codes[i]));
+                    i++;
+                    break;
+                case END_ENTITY:
+                    if(lexicalHandler!=null)
+                        lexicalHandler.endEntity(string(codes[i]));
+                    i++;
+                    break;
+                case START_CDATA:
+                    if(lexicalHandler!=null)
+                        lexicalHandler.startCDATA();
+                    break;
+                case END_CDATA:
+                    if(lexicalHandler!=null)
+                        lexicalHandler.endCDATA();
+                    break;
+                case COMMENT:
+                    if(lexicalHandler!=null)
+                        lexicalHandler.comment(chars, codes[i], codes[i+1]);
+                    i += 2;
+                    break;
+                default:
+                    throw new SAXException("corrupted event buffer at "+(i-1));
+            }
+        }
+    }
+
+    private String string(int id){
+        return id==-1 ? null : strings[id];
+    }
+
+    private String value(int offset, int length){
+        return length==-1 ? null : new String(chars, offset, length);
+    }
+
+    /**
+     * Returns XMLReader, which replays this buffer
+     * ignoring the input source given to parse
+     */
+    public XMLReader newXMLReader(){
+        return new AbstractXMLReader(){
+            @Override
+            public void parse(InputSource input) throws IOException, SAXException{
+                replay(handler, handler);
+            }
+
+            @Override
+            public void parse(String systemId) throws IOException, SAXException{
+                replay(handler, handler);
+            }
+        };
+    }
+
+    private class RecordedAttributes implements Attributes{
+        int begin;
+        int length;
+
+        @Override
+        public int getLength(){
+            return length;
+        }
+
+        private int code(int index, int field){
+            if(index<0 || index>=length)
+                return -1;
+            return codes[begin+index*ATTRIBUTE_SIZE+field];
+        }
+
+        private String string(int index, int field){
+            int id = code(index, field);
+            return id==-1 ? null : strings[id];
+        }
+
+        @Override
+        public String getURI(int index){
+            return string(index, 0);
+        }
+
+        @Override
+        public String getLocalName(int index){
+            return string(index, 1);
+        }
+
+        @Override
+        public String getQName(int index){
+            return string(index, 2);
+        }
+
+        @Override
+        public String getType(int index){
+            return string(index, 3);
+        }
+
+        @Override
+        public String getValue(int index){
+            if(index<0 || index>=length)
+                return null;
+            int i = begin+index*ATTRIBUTE_SIZE+4;
+            return value(codes[i], codes[i+1]);
+        }
+
+        @Override
+        public int getIndex(String uri, String localName){
+            for(int i=0; i<length; i++){
+                if(Util.equals(getURI(i), uri) && Util.equals(getLocalName(i), localName))
+                    return i;
+            }
+            return -1;
+        }
+
+        @Override
+        public int getIndex(String qName){
+            for(int i=0; i<length; i++){
+                if(Util.equals(getQName(i), qName))
+                    return i;
+            }
+            return -1;
+        }
+
+        @Override
+        public String getType(String uri, String localName){
+            return getType(getIndex(uri, localName));
+        }
+
+        @Override
+        public String getType(String qName){
+            return getType(getIndex(qName));
+        }
+
+        @Override
+        public String getValue(String uri, String localName){
+            return getValue(getIndex(uri, localName));
+        }
+
+        @Override
+        public String getValue(String qName){
+            return getValue(getIndex(qName));
+        }
+    }
+
+    /*-------------------------------------------------[ Serialization ]---------------------------------------------------*/
+
+    public void writeTo(DataOutput out) throws IOException{
+        out.writeInt(VERSION);
+        out.writeInt(stringCount);
+        for(int i=0; i<stringCount; i++)
+            out.writeUTF(strings[i]);
+        out.writeInt(codeCount);
+        for(int i=0; i<codeCount; i++)
+            out.writeInt(codes[i]);
+        out.writeInt(charCount);
+        for(int i=0; i<charCount; i++)
+            out.writeChar(chars[i]);
+    }
+
+    public static SAXBuffer readFrom(DataInput in) throws IOException{
+        int version = in.readInt();
+        if(version!=VERSION)
+            throw new IOException("unsupported SAXBuffer version: "+version);
+        String strings[] = new String[in.readInt()];
+        for(int i=0; i<strings.length; i++)
+            strings[i] = in.readUTF();
+        int codes[] = new int[in.readInt()];
+        for(int i=0; i<codes.length; i++)
+            codes[i] = in.readInt();
+        char chars[] = new char[in.readInt()];
+        for(int i=0; i<chars.length; i++)
+            chars[i] = in.readChar();
+        return new SAXBuffer(codes, chars, strings);
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.xml.sax;
+
+/**
+ * Implemented by {@link org.xml.sax.XMLReader XMLReaders} which can fast-forward
+ * over content of an element, which is of no interest to the handler.
+ *
+ * @author Santhosh Kumar T
+ */
+public interface SubtreeSkipper{
+    /**
+     * Skips the remaining content of the current element.
+     * <p>
+     * Typically called from {@link org.xml.sax.ContentHandler#startElement startElement}.
+     * No events are reported for the skipped content. The next event
+     * reported is {@link org.xml.sax.ContentHandler#endElement endElement}
+     * of the current element.
+     *
+     * @throws IllegalStateException if there is no current element
+     */
+    public void skipSubtree();
+}
@@ -180,8 +180,46 @@ public class MyNamespaceSupport extends NamespaceSupport{
 
     private boolean needNewContext;
 
+    // number of contexts pushed over the base context
+    private int depth;
+
+    // true if prefixes are declared in the base context
+    private boolean baseDeclared;
+
+    @Override
+    public void reset(){
+        super.reset();
+        depth = 0;
+        baseDeclared = false;
+    }
+
+    @Override
+    public void pushContext(){
+        super.pushContext();
+        depth++;
+    }
+
+    @Override
+    public void popContext(){
+        super.popContext();
+        depth--;
+    }
+
+    @Override
+    public boolean declarePrefix(String prefix, String uri){
+        if(depth==0)
+            baseDeclared = true;
+        return super.declarePrefix(prefix, uri);
+    }
+
     public void startDocument(){
-        reset();
+        // popping contexts retains them for reuse, unlike reset()
+        if(baseDeclared)
+            reset();
+        else{
+            while(depth>0)
+                popContext();
+        }
         needNewContext = true;
     }
 
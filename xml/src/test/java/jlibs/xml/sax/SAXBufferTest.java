@@ -0,0 +1,160 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.xml.sax;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+import org.xml.sax.ext.DefaultHandler2;
+import org.xml.sax.helpers.AttributesImpl;
+
+import java.io.*;
+
+/**
+ * @author Santhosh Kumar T
+ */
+public class SAXBufferTest{
+    private static class Recorder extends DefaultHandler2{
+        StringBuilder buff = new StringBuilder();
+
+        @Override
+        public void startPrefixMapping(String prefix, String uri){
+            buff.append("\nxmlns:").append(prefix).append('=').append(uri);
+        }
+
+        @Override
+        public void endPrefixMapping(String prefix){
+            buff.append("\n/xmlns:").append(prefix);
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attrs){
+            buff.append("\n<{").append(uri).append('}').append(localName).append(' ').append(qName);
+            for(int i=0; i<attrs.getLength(); i++){
+                buff.append(' ').append(attrs.getQName(i)).append('=').append(attrs.getValue(i));
+                Assert.assertEquals(attrs.getIndex(attrs.getURI(i), attrs.getLocalName(i)), i);
+            }
+            buff.append('>');
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName){
+            buff.append("\n</").append(qName).append('>');
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length){
+            buff.append(ch, start, length);
+        }
+
+        @Override
+        public void processingInstruction(String target, String data){
+            buff.append("<?").append(target).append(' ').append(data).append("?>");
+        }
+
+        @Override
+        public void comment(char[] ch, int start, int length){
+            buff.append("<!--").append(ch, start, length).append("-->");
+        }
+
+        @Override
+        public void startCDATA(){
+            buff.append("<![CDATA[");
+        }
+
+        @Override
+        public void endCDATA(){
+            buff.append("]]>");
+        }
+    }
+
+    private static final String XML = "<?pi data?><!--comment--><root xmlns='urn:a' xmlns:b='urn:b' b:x='1' y='2'>"
+            +"text<b:child>&amp;<![CDATA[cdata]]></b:child><child y='3'/></root>";
+
+    private String parse(Recorder recorder, XMLReader reader) throws Exception{
+        reader.setContentHandler(recorder);
+        reader.setProperty(SAXProperties.LEXICAL_HANDLER, recorder);
+        reader.parse(new InputSource(new StringReader(XML)));
+        return recorder.buff.toString();
+    }
+
+    @Test
+    public void replay() throws Exception{
+        String expected = parse(new Recorder(), SAXUtil.newSAXParser(true, false, false).getXMLReader());
+
+        SAXBuffer buffer = new SAXBuffer();
+        XMLReader reader = SAXUtil.newSAXParser(true, false, false).getXMLReader();
+        reader.setContentHandler(buffer);
+        reader.setProperty(SAXProperties.LEXICAL_HANDLER, buffer);
+        reader.parse(new InputSource(new StringReader(XML)));
+
+        Recorder recorder = new Recorder();
+        buffer.replay(recorder, recorder);
+        Assert.assertEquals(recorder.buff.toString(), expected);
+        Assert.assertEquals(parse(new Recorder(), buffer.newXMLReader()), expected);
+
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        buffer.writeTo(new DataOutputStream(bout));
+        SAXBuffer loaded = SAXBuffer.readFrom(new DataInputStream(new ByteArrayInputStream(bout.toByteArray())));
+        recorder = new Recorder();
+        loaded.replay(recorder, recorder);
+        Assert.assertEquals(recorder.buff.toString(), expected);
+    }
+
+    @Test
+    public void nulls() throws Exception{
+        AttributesImpl attrs = new AttributesImpl();
+        attrs.addAttribute(null, "x", null, "CDATA", "1");
+        attrs.addAttribute("urn:a", "x", "a:x", null, null);
+
+        SAXBuffer buffer = new SAXBuffer();
+        buffer.startDocument();
+        buffer.startElement(null, "root", null, attrs);
+        buffer.processingInstruction("pi", null);
+        buffer.endElement(null, "root", null);
+        buffer.endDocument();
+
+        Recorder recorder = new Recorder(){
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attrs){
+                super.startElement(uri, localName, qName, attrs);
+                Assert.assertEquals(attrs.getIndex(null, "x"), 0);
+                Assert.assertEquals(attrs.getIndex("urn:a", "x"), 1);
+                Assert.assertEquals(attrs.getIndex(null), 0);
+                Assert.assertEquals(attrs.getValue(null, "x"), "1");
+                Assert.assertEquals(attrs.getType((String)null), "CDATA");
+                Assert.assertNull(attrs.getType(1));
+                Assert.assertNull(attrs.getValue(1));
+            }
+
+            @Override
+            public void processingInstruction(String target, String data){
+                Assert.assertNull(data);
+            }
+
+            @Override
+            public void endElement(String uri, String localName, String qName){
+                Assert.assertNull(uri);
+                Assert.assertNull(qName);
+            }
+        };
+        buffer.replay(recorder, null);
+        Assert.assertEquals(recorder.buff.toString(), "\n<{null}root null null=1 a:x=null>");
+    }
+}
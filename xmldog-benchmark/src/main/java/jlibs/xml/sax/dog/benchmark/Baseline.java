@@ -0,0 +1,194 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.xml.sax.dog.benchmark;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Runs xmldog benchmark suite with gc profiler, and compares results
+ * against a baseline to catch regressions.
+ * <pre>
+ * java -cp xmldog-benchmarks.jar jlibs.xml.sax.dog.benchmark.Baseline [-baseline file] [-save file] [-threshold percent] [include-regex ...]
+ * </pre>
+ * <ul>
+ * <li>{@code -baseline}: results to compare against. Fails if score or allocation
+ *     per operation of any benchmark is worse by more than threshold percent
+ * <li>{@code -save}: file to save results into, to be used as baseline later
+ * <li>{@code -threshold}: defaults to {@value #DEFAULT_THRESHOLD}
+ * <li>{@code include-regex}: benchmarks to run. defaults to Compile, Sniff, Scaling
+ *     and Engine benchmarks
+ * </ul>
+ * Results are in tab separated format: benchmark with params, mode, score, unit
+ * and bytes allocated per operation. {@code baseline.txt} in this module has
+ * results of a reference run.
+ *
+ * @author Santhosh Kumar T
+ */
+public class Baseline{
+    public static final double DEFAULT_THRESHOLD = 10;
+
+    private static final String ALLOC_RATE_NORM = "·gc.alloc.rate.norm";
+    private static final String BYTES = "bytes";
+
+    private static class Entry{
+        String mode;
+        double score;
+        String unit;
+        double allocation;
+
+        double change(Entry baseline){
+            double change = (score-baseline.score)/baseline.score;
+            return "thrpt".equals(mode) ? -change : change;
+        }
+
+        double allocationChange(Entry baseline){
+            return baseline.allocation==0 ? 0 : (allocation-baseline.allocation)/baseline.allocation;
+        }
+    }
+
+    private static String key(BenchmarkParams params){
+        String benchmark = params.getBenchmark();
+        benchmark = benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.')-1)+1);
+        StringBuilder buff = new StringBuilder(benchmark);
+        char separator = ':';
+        for(String key: new TreeSet<String>(params.getParamsKeys())){
+            buff.append(separator).append(key).append('=').append(params.getParam(key));
+            separator = ',';
+        }
+        return buff.toString();
+    }
+
+    private static Map<String, Entry> load(File file) throws IOException{
+        Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try{
+            String line;
+            while((line=reader.readLine())!=null){
+                if(line.length()==0 || line.startsWith("#"))
+                    continue;
+                String tokens[] = line.split("\t");
+                Entry entry = new Entry();
+                entry.mode = tokens[1];
+                entry.score = Double.parseDouble(tokens[2]);
+                entry.unit = tokens[3];
+                entry.allocation = Double.parseDouble(tokens[4]);
+                entries.put(tokens[0], entry);
+            }
+        }finally{
+            reader.close();
+        }
+        return entries;
+    }
+
+    private static void save(Map<String, Entry> entries, File file) throws IOException{
+        PrintWriter writer = new PrintWriter(new FileWriter(file));
+        try{
+            writer.println("# benchmark\tmode\tscore\tunit\tallocation(B/op)");
+            for(Map.Entry<String, Entry> mapEntry: entries.entrySet()){
+                Entry entry = mapEntry.getValue();
+                writer.printf(Locale.ENGLISH, "%s\t%s\t%.3f\t%s\t%.0f%n", mapEntry.getKey(), entry.mode, entry.score, entry.unit, entry.allocation);
+            }
+        }finally{
+            writer.close();
+        }
+    }
+
+    public static void main(String[] args) throws Exception{
+        File baselineFile = null;
+        File saveFile = null;
+        double threshold = DEFAULT_THRESHOLD;
+        List<String> includes = new ArrayList<String>();
+        for(int i=0; i<args.length; i++){
+            if("-baseline".equals(args[i]))
+                baselineFile = new File(args[++i]);
+            else if("-save".equals(args[i]))
+                saveFile = new File(args[++i]);
+            else if("-threshold".equals(args[i]))
+                threshold = Double.parseDouble(args[++i]);
+            else
+                includes.add(args[i]);
+        }
+        if(includes.isEmpty()){
+            for(Class clazz: new Class[]{ CompileBenchmark.class, SniffBenchmark.class, ScalingBenchmark.class, EngineBenchmark.class })
+                includes.add(clazz.getName());
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder().addProfiler(GCProfiler.class);
+        for(String include: includes)
+            options.include(include);
+        Collection<RunResult> runResults = new Runner(options.build()).run();
+
+        Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+        Map<String, Double> megaBytes = new HashMap<String, Double>();
+        for(RunResult runResult: runResults){
+            BenchmarkParams params = runResult.getParams();
+            Result primary = runResult.getPrimaryResult();
+            Entry entry = new Entry();
+            entry.mode = params.getMode().shortLabel();
+            entry.score = primary.getScore();
+            entry.unit = primary.getScoreUnit();
+            Map<String, Result> secondaryResults = runResult.getSecondaryResults();
+            Result allocation = secondaryResults.get(ALLOC_RATE_NORM);
+            if(allocation!=null)
+                entry.allocation = allocation.getScore();
+            String key = key(params);
+            entries.put(key, entry);
+
+            Result bytes = secondaryResults.get(BYTES);
+            if(bytes!=null)
+                megaBytes.put(key, bytes.getScore()/(1024*1024));
+        }
+
+        Map<String, Entry> baseline = baselineFile==null ? Collections.<String, Entry>emptyMap() : load(baselineFile);
+        List<String> regressions = new ArrayList<String>();
+        System.out.println();
+        System.out.printf("%-70s %14s %-6s %9s %14s %9s %9s%n", "Benchmark", "Score", "Unit", "MB/s", "Alloc(B/op)", "Score%", "Alloc%");
+        for(Map.Entry<String, Entry> mapEntry: entries.entrySet()){
+            String key = mapEntry.getKey();
+            Entry entry = mapEntry.getValue();
+            Double mb = megaBytes.get(key);
+            String scoreChange = "";
+            String allocationChange = "";
+            Entry base = baseline.get(key);
+            if(base!=null){
+                double change = entry.change(base)*100;
+                double allocChange = entry.allocationChange(base)*100;
+                scoreChange = String.format(Locale.ENGLISH, "%+.1f", change);
+                allocationChange = String.format(Locale.ENGLISH, "%+.1f", allocChange);
+                if(change>threshold || allocChange>threshold)
+                    regressions.add(key);
+            }
+            System.out.printf(Locale.ENGLISH, "%-70s %14.3f %-6s %9s %14.0f %9s %9s%n", key, entry.score, entry.unit,
+                    mb==null ? "" : String.format(Locale.ENGLISH, "%.1f", mb), entry.allocation, scoreChange, allocationChange);
+        }
+        System.out.println("Score% and Alloc% are changes from baseline; positive is worse");
+
+        if(saveFile!=null)
+            save(entries, saveFile);
+        if(!regressions.isEmpty())
+            throw new AssertionError("regressions beyond "+threshold+"%: "+regressions);
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.xml.sax.dog.benchmark;
+
+import jlibs.xml.sax.dog.XMLDog;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures time taken to compile N xpaths into XMLDog, including
+ * building path trie when prefix sharing is enabled.
+ *
+ * @author Santhosh Kumar T
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class CompileBenchmark{
+    @Param({ "10", "100", "1000" })
+    public int xpaths;
+
+    @Param({ "false", "true" })
+    public boolean prefixSharing;
+
+    private List<String> list;
+
+    @Setup
+    public void setup(){
+        list = Documents.xpaths(xpaths, 1);
+    }
+
+    @Benchmark
+    public XMLDog compile() throws Exception{
+        XMLDog dog = new XMLDog(Documents.nsContext());
+        dog.setPrefixSharing(prefixSharing);
+        for(String xpath: list)
+            dog.addXPath(xpath);
+        dog.freeze();
+        return dog;
+    }
+}
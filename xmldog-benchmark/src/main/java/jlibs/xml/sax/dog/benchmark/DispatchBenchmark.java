@@ -0,0 +1,103 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.xml.sax.dog.benchmark;
+
+import jlibs.xml.DefaultNamespaceContext;
+import jlibs.xml.sax.dog.XMLDog;
+import jlibs.xml.sax.dog.XPathResults;
+import org.openjdk.jmh.annotations.*;
+import org.xml.sax.InputSource;
+
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sniffs a document with an XMLDog having large number of xpaths,
+ * most of which never match the elements in the document.
+ * <p>
+ * Measures how event dispatch scales with number of registered xpaths.
+ * Some of the xpaths have predicate on last step, which prefix sharing
+ * supports, and some on a middle step, which it doesn't.
+ *
+ * @author Santhosh Kumar T
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class DispatchBenchmark{
+    @Param({ "100", "1000", "10000", "100000" })
+    public int xpaths;
+
+    @Param({ "false", "true" })
+    public boolean prefixSharing;
+
+    private byte doc[];
+    private XMLDog dog;
+
+    @Setup
+    public void setup() throws Exception{
+        DefaultNamespaceContext nsContext = new DefaultNamespaceContext();
+        nsContext.declarePrefix("r", "urn:routing");
+        dog = new XMLDog(nsContext);
+        dog.setPrefixSharing(prefixSharing);
+        for(int i=0; i<xpaths; i++){
+            switch(i%5){
+                case 0:
+                    dog.addXPath("/r:routes/r:route/r:field"+i);
+                    break;
+                case 1:
+                    dog.addXPath("/r:routes/r:route/r:field"+i+"/@value");
+                    break;
+                case 2:
+                    dog.addXPath("/r:routes/r:route[@id='"+i+"']/r:field"+i);
+                    break;
+                case 3:
+                    dog.addXPath("/r:routes/r:route/r:field"+i+"[@value='"+(i%20)+"']");
+                    break;
+                default:
+                    dog.addXPath("/r:routes/r:route/r:header/r:field"+i);
+            }
+        }
+
+        Random random = new Random(0);
+        StringBuilder buff = new StringBuilder("<routes xmlns='urn:routing'>");
+        for(int i=0; i<500; i++){
+            buff.append("<route id='").append(i).append("'><header>");
+            for(int j=0; j<5; j++){
+                String name = "field"+random.nextInt(xpaths);
+                buff.append('<').append(name).append(">h</").append(name).append('>');
+            }
+            buff.append("</header>");
+            for(int j=0; j<20; j++){
+                String name = "field"+random.nextInt(xpaths);
+                buff.append('<').append(name).append(" value='").append(j).append("'>text</").append(name).append('>');
+            }
+            buff.append("</route>\n");
+        }
+        buff.append("</routes>");
+        doc = buff.toString().getBytes("UTF-8");
+    }
+
+    @Benchmark
+    public XPathResults sniff() throws Exception{
+        return dog.sniff(new InputSource(new ByteArrayInputStream(doc)));
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.xml.sax.dog.benchmark;
+
+import jlibs.xml.DefaultNamespaceContext;
+import jlibs.xml.sax.async.AsyncXMLReader;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.SAXParserFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates documents and xpaths used by the benchmarks in this package.
+ * <p>
+ * Document has orders, each wrapped in {@code depth} group elements,
+ * so that xpaths and document structure scale independent of each other.
+ *
+ * @author Santhosh Kumar T
+ */
+class Documents{
+    static final String URI_ORDERS = "urn:orders";
+
+    /** document sizes, in number of orders */
+    static final int SMALL = 10;
+    static final int MEDIUM = 1000;
+    static final int HUGE = 50000;
+
+    static int orders(String document){
+        if("small".equals(document))
+            return SMALL;
+        else if("medium".equals(document))
+            return MEDIUM;
+        else if("huge".equals(document))
+            return HUGE;
+        else
+            throw new IllegalArgumentException("unknown document: "+document);
+    }
+
+    static byte[] generate(int orders, int depth) throws Exception{
+        StringBuilder buff = new StringBuilder("<orders xmlns='"+URI_ORDERS+"'>\n");
+        for(int i=0; i<orders; i++){
+            for(int d=0; d<depth; d++)
+                buff.append("<group level='").append(d).append("'>");
+            buff.append("<order id='").append(i).append("' type='t").append(i%10).append("' status='").append(i%3==0 ? "closed" : "open").append("'>")
+                .append("<customer id='c").append(i%100).append("'><name>Customer ").append(i%100).append("</name><country>IN</country></customer>")
+                .append("<items>");
+            for(int j=0; j<3; j++)
+                buff.append("<item sku='s").append((i+j)%50).append("' qty='").append(1+(i+j)%5).append("' price='").append(10+j).append(".50'/>");
+            buff.append("</items>")
+                .append("<total>").append(i%1000).append("</total>")
+                .append("<note>deliver between 9 &amp; 5</note>")
+                .append("</order>");
+            for(int d=0; d<depth; d++)
+                buff.append("</group>");
+            buff.append('\n');
+        }
+        buff.append("</orders>");
+        return buff.toString().getBytes("UTF-8");
+    }
+
+    static DefaultNamespaceContext nsContext(){
+        DefaultNamespaceContext nsContext = new DefaultNamespaceContext();
+        nsContext.declarePrefix("o", URI_ORDERS);
+        return nsContext;
+    }
+
+    private static final String TEMPLATES[] = {
+        "{p}/o:order[@type='t{i}']/o:total",
+        "{p}/o:order[o:customer/@id='c{i}']/@id",
+        "//o:order[@id='{i}']/o:customer/o:name",
+        "{p}/o:order/o:items/o:item[@sku='s{i}']/@qty",
+        "{p}/o:order[@status='open' and o:total > {i}]/@id",
+        "//o:item[@sku='s{i}' and @qty > 2]",
+        "{p}/o:order[starts-with(o:customer/o:name, 'Customer {i}')]/o:note",
+        "{p}/o:order[o:customer/o:country='IN'][position()={i}+1]/o:customer",
+    };
+
+    /**
+     * returns {@code count} distinct node-set xpaths, for document with
+     * given depth. The xpaths hit fewer nodes, as count increases
+     */
+    static List<String> xpaths(int count, int depth){
+        StringBuilder prefix = new StringBuilder("/o:orders");
+        for(int d=0; d<depth; d++)
+            prefix.append("/o:group");
+
+        List<String> xpaths = new ArrayList<String>(count);
+        for(int i=0; i<count; i++){
+            String template = TEMPLATES[i%TEMPLATES.length];
+            String value = String.valueOf(i/TEMPLATES.length);
+            xpaths.add(template.replace("{p}", prefix).replace("{i}", value));
+        }
+        return xpaths;
+    }
+
+    /**
+     * returns namespace aware XMLReader for given parser.
+     * <p>
+     * {@code jdk} is the SAX parser bundled in JDK, rather than
+     * whichever parser JAXP lookup finds in classpath
+     */
+    static XMLReader newReader(String parser) throws Exception{
+        if("jdk".equals(parser)){
+            SAXParserFactory factory = SAXParserFactory.newInstance("com.sun.org.apache.xerces.internal.jaxp.SAXParserFactoryImpl", null);
+            factory.setNamespaceAware(true);
+            return factory.newSAXParser().getXMLReader();
+        }else if("async".equals(parser))
+            return new AsyncXMLReader();
+        else
+            throw new IllegalArgumentException("unknown parser: "+parser);
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.xml.sax.dog.benchmark;
+
+import jlibs.xml.DefaultNamespaceContext;
+import jlibs.xml.sax.dog.XMLDog;
+import net.sf.saxon.om.NodeInfo;
+import net.sf.saxon.xpath.XPathEvaluator;
+import net.sf.saxon.xpath.XPathFactoryImpl;
+import org.jaxen.SimpleNamespaceContext;
+import org.jaxen.dom.DOMXPath;
+import org.openjdk.jmh.annotations.*;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.sax.SAXSource;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathFactory;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluates same xpaths on medium document using XMLDog and DOM based
+ * engines. For DOM based engines, time includes building the tree,
+ * and xpaths are compiled once in setup for all engines.
+ * <p>
+ * {@code jdk} is the xpath implementation bundled in JDK.
+ *
+ * @author Santhosh Kumar T
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class EngineBenchmark{
+    @Param({ "xmldog", "jdk", "jaxen", "saxon" })
+    public String engine;
+
+    private byte doc[];
+    private Engine impl;
+
+    @Setup
+    public void setup() throws Exception{
+        doc = Documents.generate(Documents.MEDIUM, 1);
+        List<String> xpaths = Documents.xpaths(SniffBenchmark.XPATHS, 1);
+        if("xmldog".equals(engine))
+            impl = xmlDog(xpaths);
+        else if("jdk".equals(engine))
+            impl = jdk(xpaths);
+        else if("jaxen".equals(engine))
+            impl = jaxen(xpaths);
+        else if("saxon".equals(engine))
+            impl = saxon(xpaths);
+        else
+            throw new IllegalArgumentException("unknown engine: "+engine);
+    }
+
+    @Benchmark
+    public Object evaluate() throws Exception{
+        return impl.evaluate(new InputSource(new ByteArrayInputStream(doc)));
+    }
+
+    private interface Engine{
+        public Object evaluate(InputSource source) throws Exception;
+    }
+
+    private static DocumentBuilder newDocumentBuilder() throws Exception{
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance("com.sun.org.apache.xerces.internal.jaxp.DocumentBuilderFactoryImpl", null);
+        factory.setNamespaceAware(true);
+        return factory.newDocumentBuilder();
+    }
+
+    private static Engine xmlDog(List<String> xpaths) throws Exception{
+        final XMLDog dog = new XMLDog(Documents.nsContext());
+        for(String xpath: xpaths)
+            dog.addXPath(xpath);
+        final XMLReader reader = Documents.newReader("jdk");
+        return new Engine(){
+            @Override
+            public Object evaluate(InputSource source) throws Exception{
+                return dog.sniff(source, reader);
+            }
+        };
+    }
+
+    private static Engine jdk(List<String> xpaths) throws Exception{
+        XPath xpath = XPathFactory.newInstance(XPathFactory.DEFAULT_OBJECT_MODEL_URI, "com.sun.org.apache.xpath.internal.jaxp.XPathFactoryImpl", null).newXPath();
+        xpath.setNamespaceContext(Documents.nsContext());
+        final List<XPathExpression> exprs = new ArrayList<XPathExpression>(xpaths.size());
+        for(String str: xpaths)
+            exprs.add(xpath.compile(str));
+        final DocumentBuilder builder = newDocumentBuilder();
+        return new Engine(){
+            @Override
+            public Object evaluate(InputSource source) throws Exception{
+                Document doc = builder.parse(source);
+                List<Object> results = new ArrayList<Object>(exprs.size());
+                for(XPathExpression expr: exprs)
+                    results.add(expr.evaluate(doc, XPathConstants.NODESET));
+                return results;
+            }
+        };
+    }
+
+    private static Engine jaxen(List<String> xpaths) throws Exception{
+        DefaultNamespaceContext nsContext = Documents.nsContext();
+        Map<String, String> map = new HashMap<String, String>();
+        map.put("o", nsContext.getNamespaceURI("o"));
+        SimpleNamespaceContext jaxenNSContext = new SimpleNamespaceContext(map);
+        final List<DOMXPath> exprs = new ArrayList<DOMXPath>(xpaths.size());
+        for(String str: xpaths){
+            DOMXPath expr = new DOMXPath(str);
+            expr.setNamespaceContext(jaxenNSContext);
+            exprs.add(expr);
+        }
+        final DocumentBuilder builder = newDocumentBuilder();
+        return new Engine(){
+            @Override
+            public Object evaluate(InputSource source) throws Exception{
+                Document doc = builder.parse(source);
+                List<Object> results = new ArrayList<Object>(exprs.size());
+                for(DOMXPath expr: exprs)
+                    results.add(expr.selectNodes(doc));
+                return results;
+            }
+        };
+    }
+
+    private static Engine saxon(List<String> xpaths) throws Exception{
+        final XPathEvaluator xpe = (XPathEvaluator)new XPathFactoryImpl().newXPath();
+        xpe.getStaticContext().setBackwardsCompatibilityMode(true);
+        xpe.setNamespaceContext(Documents.nsContext());
+        final List<XPathExpression> exprs = new ArrayList<XPathExpression>(xpaths.size());
+        for(String str: xpaths)
+            exprs.add(xpe.compile(str));
+        return new Engine(){
+            @Override
+            public Object evaluate(InputSource source) throws Exception{
+                NodeInfo doc = xpe.getConfiguration().buildDocument(new SAXSource(source));
+                List<Object> results = new ArrayList<Object>(exprs.size());
+                for(XPathExpression expr: exprs)
+                    results.add(expr.evaluate(doc, XPathConstants.NODESET));
+                return results;
+            }
+        };
+    }
+}
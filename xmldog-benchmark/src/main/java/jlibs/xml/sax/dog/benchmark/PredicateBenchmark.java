@@ -0,0 +1,109 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.xml.sax.dog.benchmark;
+
+import jlibs.xml.DefaultNamespaceContext;
+import jlibs.xml.sax.SAXBuffer;
+import jlibs.xml.sax.SAXUtil;
+import jlibs.xml.sax.dog.XMLDog;
+import jlibs.xml.sax.dog.XPathResults;
+import jlibs.xml.sax.dog.sniff.Event;
+import jlibs.xml.sax.dog.sniff.SAXHandler;
+import org.openjdk.jmh.annotations.*;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.StringReader;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sniffs a document with predicate heavy routing rules, with and
+ * without compiling predicates.
+ * <p>
+ * The document is replayed from {@link SAXBuffer}, so that time
+ * measured is only spent in XMLDog.
+ *
+ * @author Santhosh Kumar T
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class PredicateBenchmark{
+    @Param({ "10", "100" })
+    public int rules;
+
+    @Param({ "false", "true" })
+    public boolean compilePredicates;
+
+    private SAXBuffer doc;
+    private XMLDog dog;
+
+    @Setup
+    public void setup() throws Exception{
+        DefaultNamespaceContext nsContext = new DefaultNamespaceContext();
+        nsContext.declarePrefix("o", "urn:orders");
+        dog = new XMLDog(nsContext);
+        dog.setCompilePredicates(compilePredicates);
+        for(int i=0; i<rules; i++){
+            switch(i%3){
+                case 0:
+                    dog.addXPath("/o:orders/o:order[@type='t"+i+"' and number(@qty) > "+i+"]/o:id");
+                    break;
+                case 1:
+                    dog.addXPath("/o:orders/o:order[@type='t"+i+"' or (@qty * @price) >= "+(i*10)+"]/o:id");
+                    break;
+                default:
+                    dog.addXPath("/o:orders/o:order[starts-with(@region, 'r"+i+"') and not(@qty < 5)]/o:id");
+            }
+        }
+
+        Random random = new Random(0);
+        StringBuilder buff = new StringBuilder("<orders xmlns='urn:orders'>");
+        for(int i=0; i<2000; i++){
+            buff.append("<order type='t").append(random.nextInt(rules))
+                .append("' qty='").append(random.nextInt(100))
+                .append("' price='").append(random.nextInt(50))
+                .append("' region='r").append(random.nextInt(rules))
+                .append("'><id>").append(i).append("</id></order>\n");
+        }
+        buff.append("</orders>");
+
+        doc = new SAXBuffer();
+        XMLReader reader = SAXUtil.newSAXParser(true, false, false).getXMLReader();
+        reader.setContentHandler(doc);
+        reader.parse(new InputSource(new StringReader(buff.toString())));
+    }
+
+    @Benchmark
+    public XPathResults sniff() throws Exception{
+        Event event = dog.createEvent();
+        XPathResults results = new XPathResults(event);
+        event.setListener(results);
+        SAXHandler handler = event.getSAXHandler();
+        try{
+            doc.replay(handler, handler);
+        }catch(RuntimeException ex){
+            if(ex!=Event.STOP_PARSING)
+                throw ex;
+        }
+        return results;
+    }
+}
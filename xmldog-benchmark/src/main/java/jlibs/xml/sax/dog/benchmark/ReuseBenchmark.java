@@ -0,0 +1,176 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.xml.sax.dog.benchmark;
+
+import jlibs.xml.DefaultNamespaceContext;
+import jlibs.xml.sax.SAXBuffer;
+import jlibs.xml.sax.SAXUtil;
+import jlibs.xml.sax.dog.XMLDog;
+import jlibs.xml.sax.dog.XPathResults;
+import jlibs.xml.sax.dog.sniff.Event;
+import jlibs.xml.sax.dog.sniff.SAXHandler;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.StringReader;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sniffs a document repeatedly, using new Event for each
+ * document vs reusing the same Event.
+ * <p>
+ * The document is replayed from {@link SAXBuffer}, which creates attribute
+ * values as a parser would. {@link #replay()} measures just that, so that
+ * allocations from XMLDog can be told apart. Run {@link #main(String[])} to
+ * check allocation per document with reused Event.
+ *
+ * @author Santhosh Kumar T
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class ReuseBenchmark{
+    @Param({ "20", "200" })
+    public int items;
+
+    private SAXBuffer doc;
+    private XMLDog dog;
+    private Event event;
+
+    @Setup
+    public void setup() throws Exception{
+        DefaultNamespaceContext nsContext = new DefaultNamespaceContext();
+        nsContext.declarePrefix("o", "urn:orders");
+        dog = new XMLDog(nsContext);
+        dog.addXPath("/o:order/o:id");
+        dog.addXPath("/o:order/o:customer/@name");
+        dog.addXPath("count(/o:order/o:items/o:item)");
+        dog.addXPath("/o:order/o:items/o:item[@sku='s7']/o:qty");
+        dog.addXPath("boolean(/o:order/o:note)");
+
+        StringBuilder buff = new StringBuilder("<order xmlns='urn:orders'><id>1234</id><customer name='c1'><address>a1</address></customer><items>");
+        for(int i=0; i<items; i++)
+            buff.append("<item sku='s").append(i).append("'><qty>").append(i).append("</qty><price>9.99</price></item>");
+        buff.append("</items></order>");
+
+        doc = new SAXBuffer();
+        XMLReader reader = SAXUtil.newSAXParser(true, false, false).getXMLReader();
+        reader.setContentHandler(doc);
+        reader.parse(new InputSource(new StringReader(buff.toString())));
+        event = dog.createEvent();
+    }
+
+    private XPathResults sniff(Event event) throws Exception{
+        XPathResults results = new XPathResults(event);
+        event.setListener(results);
+        SAXHandler handler = event.getSAXHandler();
+        try{
+            doc.replay(handler, handler);
+        }catch(RuntimeException ex){
+            if(ex!=Event.STOP_PARSING)
+                throw ex;
+        }
+        return results;
+    }
+
+    @Benchmark
+    public XPathResults newEvent() throws Exception{
+        return sniff(dog.createEvent());
+    }
+
+    @Benchmark
+    public XPathResults reuseEvent() throws Exception{
+        event.reset();
+        return sniff(event);
+    }
+
+    /** reads attribute values, as Event does */
+    private static final class AttributeReader extends DefaultHandler{
+        private String value;
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes){
+            for(int i=0, len=attributes.getLength(); i<len; i++)
+                value = attributes.getValue(i);
+        }
+    }
+
+    @Benchmark
+    public String replay() throws Exception{
+        AttributeReader reader = new AttributeReader();
+        doc.replay(reader, null);
+        return reader.value;
+    }
+
+    private static final String ALLOC_RATE_NORM = "·gc.alloc.rate.norm";
+
+    /*
+     * what reused Event still allocates for a document, roughly:
+     *   - XPathResults and the results handed to it
+     *   - NamespaceSupport, which copies its prefix tables for the root
+     *     element declaring namespaces
+     *   - string value of nodes, which are asked by xpaths
+     * evaluations created per node hit, and their result maps, are pooled
+     * by Event. so this budget is same for any number of items
+     */
+    private static final int MAX_BYTES_PER_DOCUMENT = 3*1024;
+
+    /**
+     * Runs this benchmark with gc profiler, and fails if reused Event
+     * allocates more than {@link #MAX_BYTES_PER_DOCUMENT} per document,
+     * over what {@link #replay()} allocates, for any number of items.
+     */
+    public static void main(String[] args) throws Exception{
+        Options options = new OptionsBuilder()
+                .include(ReuseBenchmark.class.getName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        Collection<RunResult> runResults = new Runner(options).run();
+
+        Map<String, Double> allocations = new HashMap<String, Double>();
+        for(RunResult runResult: runResults){
+            BenchmarkParams params = runResult.getParams();
+            String benchmark = params.getBenchmark();
+            Result result = runResult.getSecondaryResults().get(ALLOC_RATE_NORM);
+            allocations.put(benchmark.substring(benchmark.lastIndexOf('.')+1)+'-'+params.getParam("items"), result.getScore());
+        }
+        for(String items: new String[]{ "20", "200" }){
+            double newEvent = allocations.get("newEvent-"+items);
+            double reuseEvent = allocations.get("reuseEvent-"+items);
+            double replay = allocations.get("replay-"+items);
+            System.out.printf("bytes allocated per document with %s items: newEvent=%.0f reuseEvent=%.0f replay=%.0f%n", items, newEvent, reuseEvent, replay);
+            if(reuseEvent-replay>MAX_BYTES_PER_DOCUMENT)
+                throw new AssertionError("reused Event allocates more than "+MAX_BYTES_PER_DOCUMENT+" bytes per document with "+items+" items");
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.xml.sax.dog.benchmark;
+
+import jlibs.xml.sax.dog.XMLDog;
+import jlibs.xml.sax.dog.XPathResults;
+import org.openjdk.jmh.annotations.*;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how sniff time of medium document scales with number of
+ * xpaths and with depth at which orders are nested in document.
+ *
+ * @author Santhosh Kumar T
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class ScalingBenchmark{
+    @Param({ "1", "10", "100", "1000" })
+    public int xpaths;
+
+    @Param({ "1", "8", "32" })
+    public int depth;
+
+    @Param({ "jdk", "async" })
+    public String parser;
+
+    private byte doc[];
+    private XMLDog dog;
+    private XMLReader reader;
+
+    @Setup
+    public void setup() throws Exception{
+        doc = Documents.generate(Documents.MEDIUM, depth);
+        dog = new XMLDog(Documents.nsContext());
+        for(String xpath: Documents.xpaths(xpaths, depth))
+            dog.addXPath(xpath);
+        reader = Documents.newReader(parser);
+    }
+
+    @Benchmark
+    public XPathResults sniff() throws Exception{
+        return dog.sniff(new InputSource(new ByteArrayInputStream(doc)), reader);
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package jlibs.xml.sax.dog.benchmark;
+
+import jlibs.xml.sax.dog.SegmentSniffer;
+import jlibs.xml.sax.dog.XMLDog;
+import jlibs.xml.sax.dog.XPathResults;
+import org.openjdk.jmh.annotations.*;
+import org.xml.sax.InputSource;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares sniffing huge flat document sequentially against
+ * {@link SegmentSniffer} with increasing number of threads.
+ * <p>
+ * threads=0 is sequential sniff of whole file.
+ *
+ * @author Santhosh Kumar T
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations=3, time=2)
+@Measurement(iterations=5, time=2)
+@Fork(1)
+public class SegmentBenchmark{
+    static final String XPATHS[] = {
+        "/o:orders/o:order[@type='t3']/o:total",
+        "/o:orders/o:order[o:customer/@id='c7']/@id",
+        "/o:orders/o:order/o:items/o:item[@sku='s5']/@qty",
+        "/o:orders/o:order[@status='open' and o:total > 990]/@id",
+        "/o:orders/o:order[starts-with(o:customer/o:name, 'Customer 9')]/o:note",
+    };
+
+    @Param({ "0", "1", "2", "4", "8" })
+    public int threads;
+
+    private File file;
+    private XMLDog dog;
+    private ForkJoinPool pool;
+    private SegmentSniffer sniffer;
+
+    @Setup
+    public void setup() throws Exception{
+        file = File.createTempFile("orders", ".xml");
+        FileOutputStream out = new FileOutputStream(file);
+        try{
+            out.write(Documents.generate(4*Documents.HUGE, 0));
+        }finally{
+            out.close();
+        }
+        dog = new XMLDog(Documents.nsContext());
+        for(String xpath: XPATHS)
+            dog.addXPath(xpath);
+        if(threads>0){
+            pool = new ForkJoinPool(threads);
+            sniffer = new SegmentSniffer(dog, "order", pool, null);
+            sniffer.setSegmentSize(file.length()/(4*threads));
+        }
+    }
+
+    @TearDown
+    public void tearDown(){
+        if(pool!=null)
+            pool.shutdown();
+        file.delete();
+    }
+
+    @Benchmark
+    public XPathResults sniff() throws Exception{
+        if(sniffer==null)
+            return dog.sniff(new InputSource(file.toURI().toString()));
+        else
+            return sniffer.sniff(file);
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.xml.sax.dog.benchmark;
+
+import jlibs.xml.sax.dog.XMLDog;
+import jlibs.xml.sax.dog.XPathResults;
+import org.openjdk.jmh.annotations.*;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures sniff throughput on small, medium and huge documents, with
+ * JDK SAX parser and AsyncXMLReader underneath.
+ * <p>
+ * Score is documents per second, and the {@code bytes} counter gives
+ * document bytes per second. Run with {@code -prof gc} to get allocation
+ * per document as {@code gc.alloc.rate.norm}.
+ *
+ * @author Santhosh Kumar T
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class SniffBenchmark{
+    static final int XPATHS = 20;
+
+    @Param({ "small", "medium", "huge" })
+    public String document;
+
+    @Param({ "jdk", "async" })
+    public String parser;
+
+    private byte doc[];
+    private XMLDog dog;
+    private XMLReader reader;
+
+    @Setup
+    public void setup() throws Exception{
+        doc = Documents.generate(Documents.orders(document), 1);
+        dog = new XMLDog(Documents.nsContext());
+        for(String xpath: Documents.xpaths(XPATHS, 1))
+            dog.addXPath(xpath);
+        reader = Documents.newReader(parser);
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters{
+        /** document bytes sniffed */
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset(){
+            bytes = 0;
+        }
+    }
+
+    @Benchmark
+    public XPathResults sniff(Counters counters) throws Exception{
+        XPathResults results = dog.sniff(new InputSource(new ByteArrayInputStream(doc)), reader);
+        counters.bytes += doc.length;
+        return results;
+    }
+}
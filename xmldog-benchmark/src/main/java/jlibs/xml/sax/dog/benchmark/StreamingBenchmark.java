@@ -0,0 +1,196 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.xml.sax.dog.benchmark;
+
+import jlibs.xml.DefaultNamespaceContext;
+import jlibs.xml.sax.SAXBuffer;
+import jlibs.xml.sax.SAXUtil;
+import jlibs.xml.sax.dog.NodeItem;
+import jlibs.xml.sax.dog.XMLDog;
+import jlibs.xml.sax.dog.XPathResults;
+import jlibs.xml.sax.dog.expr.Expression;
+import jlibs.xml.sax.dog.expr.InstantEvaluationListener;
+import jlibs.xml.sax.dog.sniff.BytesBuilder;
+import jlibs.xml.sax.dog.sniff.DOMBuilder;
+import jlibs.xml.sax.dog.sniff.Event;
+import jlibs.xml.sax.dog.sniff.SAXHandler;
+import org.openjdk.jmh.annotations.*;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.Reader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sniffs {@code //Record} with its xml, collecting results till end of
+ * document using {@link DOMBuilder} vs streaming each hit as soon as it
+ * is seen using {@link BytesBuilder}.
+ * <p>
+ * Run {@link #main(String[])} to check that memory used in streaming
+ * mode doesn't grow with number of records.
+ *
+ * @author Santhosh Kumar T
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class StreamingBenchmark{
+    @Param({ "1000", "10000" })
+    public int records;
+
+    private SAXBuffer doc;
+    private XMLDog dog;
+    private Expression expr;
+
+    @Setup
+    public void setup() throws Exception{
+        dog = new XMLDog(new DefaultNamespaceContext());
+        expr = dog.addXPath("//Record");
+
+        doc = new SAXBuffer();
+        XMLReader reader = SAXUtil.newSAXParser(true, false, false).getXMLReader();
+        reader.setContentHandler(doc);
+        reader.parse(new InputSource(new RecordsReader(records)));
+    }
+
+    private void sniff(Event event) throws Exception{
+        SAXHandler handler = event.getSAXHandler();
+        try{
+            doc.replay(handler, handler);
+        }catch(RuntimeException ex){
+            if(ex!=Event.STOP_PARSING)
+                throw ex;
+        }
+    }
+
+    @Benchmark
+    public Object collected() throws Exception{
+        Event event = dog.createEvent();
+        XPathResults results = new XPathResults(event);
+        event.setListener(results);
+        event.setXMLBuilder(new DOMBuilder());
+        sniff(event);
+        return results.getResult(expr);
+    }
+
+    @Benchmark
+    public long streaming() throws Exception{
+        Event event = dog.createEvent();
+        StreamingListener listener = new StreamingListener();
+        event.setListener(listener);
+        event.setXMLBuilder(new BytesBuilder());
+        sniff(event);
+        return listener.bytes;
+    }
+
+    private static class StreamingListener extends InstantEvaluationListener{
+        long hits;
+        long bytes;
+
+        @Override
+        public void onNodeHit(Expression expression, NodeItem nodeItem){
+            hits++;
+            bytes += ((byte[])nodeItem.xml).length;
+        }
+
+        @Override
+        public void finishedNodeSet(Expression expression){}
+
+        @Override
+        public void onResult(Expression expression, Object result){}
+    }
+
+    /**
+     * generates document with given number of records on the fly,
+     * so that document itself is not held in memory
+     */
+    private static class RecordsReader extends Reader{
+        private final int records;
+        private int record = -1;
+        private String chunk = "<Records>";
+        private int pos;
+
+        RecordsReader(int records){
+            this.records = records;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len){
+            if(pos==chunk.length()){
+                if(record==records)
+                    return -1;
+                if(++record==records)
+                    chunk = "</Records>";
+                else
+                    chunk = "<Record id='"+record+"'><name>name"+record+"</name><amount>"+(record%1000)+".50</amount><note>a &amp; b</note></Record>";
+                pos = 0;
+            }
+            int count = Math.min(len, chunk.length()-pos);
+            chunk.getChars(pos, pos+count, cbuf, off);
+            pos += count;
+            return count;
+        }
+
+        @Override
+        public void close(){}
+    }
+
+    private static final int RECORDS = 1000000;
+    private static final long MAX_GROWTH = 8*1024*1024;
+
+    private static long usedMemory(){
+        Runtime runtime = Runtime.getRuntime();
+        for(int i=0; i<3; i++)
+            System.gc();
+        return runtime.totalMemory()-runtime.freeMemory();
+    }
+
+    /**
+     * Streams {@link #RECORDS} records, and fails if memory used after
+     * all records are seen exceeds that after first 10% of records by
+     * more than {@link #MAX_GROWTH} bytes.
+     */
+    public static void main(String[] args) throws Exception{
+        XMLDog dog = new XMLDog(new DefaultNamespaceContext());
+        dog.addXPath("//Record");
+        Event event = dog.createEvent();
+        final long used[] = new long[2];
+        StreamingListener listener = new StreamingListener(){
+            @Override
+            public void onNodeHit(Expression expression, NodeItem nodeItem){
+                super.onNodeHit(expression, nodeItem);
+                if(hits==RECORDS/10)
+                    used[0] = usedMemory();
+                else if(hits==RECORDS)
+                    used[1] = usedMemory();
+            }
+        };
+        event.setListener(listener);
+        event.setXMLBuilder(new BytesBuilder());
+        dog.sniff(event, new InputSource(new RecordsReader(RECORDS)));
+
+        System.out.printf("records=%d bytes=%d memory used: after %d records=%d, after %d records=%d%n",
+                listener.hits, listener.bytes, RECORDS/10, used[0], RECORDS, used[1]);
+        if(listener.hits!=RECORDS)
+            throw new AssertionError("expected "+RECORDS+" hits, but found "+listener.hits);
+        if(used[1]-used[0]>MAX_GROWTH)
+            throw new AssertionError("memory used grows with number of records");
+    }
+}
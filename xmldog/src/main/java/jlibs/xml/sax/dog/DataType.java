@@ -20,6 +20,7 @@ import jlibs.core.lang.ImpossibleException;
 
 import javax.xml.namespace.QName;
 import javax.xml.xpath.XPathConstants;
+import java.math.BigDecimal;
 import java.util.Collections;
 import java.util.List;
 
@@ -99,9 +100,25 @@ public enum DataType{
     }
 
     public static String asString(Object obj){
+        if(obj instanceof Double)
+            return asString(((Double)obj).doubleValue());
         return String.valueOf(obj);
     }
 
+    /**
+     * converts number to string as per xpath spec, i.e, integers
+     * without decimal point and no exponent notation
+     */
+    public static String asString(double number){
+        if(Double.isNaN(number))
+            return "NaN";
+        if(Double.isInfinite(number))
+            return number>0 ? "Infinity" : "-Infinity";
+        if(number==(long)number)
+            return String.valueOf((long)number);
+        return BigDecimal.valueOf(number).stripTrailingZeros().toPlainString();
+    }
+
     /*-------------------------------------------------[ Guessing Datatype ]---------------------------------------------------*/
 
     public static DataType valueOf(Object literal){
@@ -63,7 +63,8 @@ public class NodeItem implements NodeType{
     /**
      * This field holds the in-memory xml representation of this node item.
      * This could be DOM Node or XOM Node etc based on which type of
-     * XMLBuilder is being used.
+     * XMLBuilder is being used; {@link jlibs.xml.sax.dog.sniff.BytesBuilder}
+     * sets it to {@code byte[]}.
      */
     public Object xml;
 
@@ -93,6 +94,23 @@ public class NodeItem implements NodeType{
         qualifiedName = event.qualifiedName();
     }
 
+    /**
+     * copy of given nodeItem with different location and order.
+     * used by {@link SegmentSniffer} to translate nodeItems of a
+     * segment to that of whole document
+     */
+    NodeItem(NodeItem nodeItem, String location, long order){
+        this.order = order;
+        type = nodeItem.type;
+        this.location = location;
+        value = nodeItem.value;
+        localName = nodeItem.localName;
+        namespaceURI = nodeItem.namespaceURI;
+        qualifiedName = nodeItem.qualifiedName;
+        xml = nodeItem.xml;
+        xmlBuilt = nodeItem.xmlBuilt;
+    }
+
     // used only for testing purposes
     public NodeItem(Node node, NamespaceContext nsContext){
         order = -100; // not used
@@ -140,13 +158,17 @@ public class NodeItem implements NodeType{
         if(xml instanceof Node){
             out.println(location);
             DOMUtil.serialize((Node)xml, out);
+        }else if(xml instanceof byte[]){
+            out.println(location);
+            byte[] bytes = (byte[])xml;
+            out.write(bytes, 0, bytes.length);
         }else
             out.print(localName);
     }
 
     @Override
     public String toString(){
-        if(xml instanceof Node){
+        if(xml instanceof Node || xml instanceof byte[]){
             ByteArrayOutputStream bout = new ByteArrayOutputStream();
             printTo(new PrintStream(bout, true));
             try{
@@ -0,0 +1,316 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package jlibs.xml.sax.dog;
+
+import jlibs.xml.sax.SAXUtil;
+import jlibs.xml.sax.dog.sniff.Event;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import javax.xml.xpath.XPathException;
+import java.util.concurrent.*;
+
+/**
+ * Sniffs many documents in parallel, using single {@link XMLDog}.
+ * <p>
+ * The XMLDog is {@link XMLDog#freeze() frozen}, so that its compiled xpaths
+ * are shared by all threads. Each thread of the {@link ForkJoinPool} uses its
+ * own {@link Event} and {@link XMLReader}, which are reused across documents.
+ * <p>
+ * Results are delivered in the order documents are completed, which need not
+ * be the order in which they are given.
+ *
+ * @author Santhosh Kumar T
+ */
+public class ParallelSniffer{
+    public final XMLDog dog;
+    private final ForkJoinPool pool;
+    private final Callable<XMLReader> readerFactory;
+
+    public ParallelSniffer(XMLDog dog){
+        this(dog, ForkJoinPool.commonPool(), null);
+    }
+
+    /**
+     * @param readerFactory used to create XMLReader for each thread.
+     *                      if null, namespace aware SAXParser is used
+     */
+    public ParallelSniffer(XMLDog dog, ForkJoinPool pool, Callable<XMLReader> readerFactory){
+        dog.freeze();
+        this.dog = dog;
+        this.pool = pool;
+        this.readerFactory = readerFactory;
+    }
+
+    /*-------------------------------------------------[ Worker ]---------------------------------------------------*/
+
+    private final class Worker{
+        private Event event;
+        private XMLReader reader;
+
+        public XPathResults sniff(InputSource source) throws XPathException{
+            if(reader==null){
+                try{
+                    if(readerFactory==null)
+                        reader = SAXUtil.newSAXFactory(true, false, false).newSAXParser().getXMLReader();
+                    else
+                        reader = readerFactory.call();
+                }catch(Exception ex){
+                    throw new XPathException(ex);
+                }
+            }
+
+            if(event==null)
+                event = dog.createEvent();
+            else
+                event.reset();
+            XPathResults results = new XPathResults(event);
+            event.setListener(results);
+            dog.sniff(event, source, reader);
+            return results;
+        }
+    }
+
+    private final ThreadLocal<Worker> workers = new ThreadLocal<Worker>(){
+        @Override
+        protected Worker initialValue(){
+            return new Worker();
+        }
+    };
+
+    /**
+     * Sniffs given document in current thread, reusing the
+     * Event and XMLReader of current thread.
+     */
+    public XPathResults sniff(InputSource source) throws XPathException{
+        return workers.get().sniff(source);
+    }
+
+    /*-------------------------------------------------[ Callback ]---------------------------------------------------*/
+
+    /**
+     * Notified from worker threads, possibly concurrently.
+     */
+    public interface Callback{
+        public void onResults(InputSource source, XPathResults results);
+        public void onError(InputSource source, XPathException ex);
+    }
+
+    /**
+     * Sniffs given documents in parallel, and returns when all of them are sniffed.
+     * <p>
+     * Documents are taken from {@code sources} lazily, so that it can be a stream
+     * of unknown length. If callback throws exception, no more documents are
+     * submitted, and that exception is rethrown.
+     */
+    public void sniff(Iterable<? extends InputSource> sources, Callback callback) throws InterruptedException{
+        Batch batch = new Batch(callback, 2*pool.getParallelism());
+        batch.run(sources);
+        if(batch.failure instanceof RuntimeException)
+            throw (RuntimeException)batch.failure;
+        if(batch.failure instanceof Error)
+            throw (Error)batch.failure;
+    }
+
+    private final class Batch{
+        private final Callback callback;
+        private final int maxPending;
+        private final Semaphore pending;
+        private volatile Throwable failure;
+
+        Batch(Callback callback, int maxPending){
+            this.callback = callback;
+            this.maxPending = maxPending;
+            pending = new Semaphore(maxPending);
+        }
+
+        void run(Iterable<? extends InputSource> sources) throws InterruptedException{
+            try{
+                for(final InputSource source: sources){
+                    if(failure!=null)
+                        break;
+                    acquire(pending, 1);
+                    pool.execute(new Runnable(){
+                        @Override
+                        public void run(){
+                            try{
+                                XPathResults results;
+                                try{
+                                    results = workers.get().sniff(source);
+                                }catch(XPathException ex){
+                                    callback.onError(source, ex);
+                                    return;
+                                }
+                                callback.onResults(source, results);
+                            }catch(Throwable thr){
+                                if(failure==null)
+                                    failure = thr;
+                            }finally{
+                                pending.release();
+                            }
+                        }
+                    });
+                }
+            }finally{
+                // wait for submitted documents
+                acquireUninterruptibly(pending, maxPending);
+            }
+        }
+    }
+
+    /*-------------------------------------------------[ Result Queue ]---------------------------------------------------*/
+
+    public static final class Result{
+        public final InputSource source;
+        public final XPathResults results;
+        public final XPathException error;
+
+        /**
+         * non-null only in the last result before {@link #END}, if the batch
+         * was aborted. for example: sources iterator failed, or a document
+         * failed with exception other than XPathException. Documents not yet
+         * sniffed at that time are not delivered.
+         */
+        public final Throwable failure;
+
+        private Result(InputSource source, XPathResults results, XPathException error, Throwable failure){
+            this.source = source;
+            this.results = results;
+            this.error = error;
+            this.failure = failure;
+        }
+    }
+
+    /** added to result queue, after all documents are sniffed */
+    public static final Result END = new Result(null, null, null, null);
+
+    /**
+     * Sniffs given documents in parallel, delivering results into the queue returned.
+     * This method returns immediately. {@link #END} is added to the queue, after the
+     * last document. If the batch is aborted, a {@link Result#failure failure} result
+     * is added just before {@link #END}.
+     * <p>
+     * The queue holds at most {@code capacity} results, and no more than
+     * {@code capacity} documents are sniffed ahead of the consumer, so that
+     * memory used is bounded irrespective of number of documents.
+     */
+    public BlockingQueue<Result> sniff(final Iterable<? extends InputSource> sources, int capacity){
+        final BlockingQueue<Result> queue = new ArrayBlockingQueue<Result>(capacity);
+        final Batch batch = new Batch(new Callback(){
+            @Override
+            public void onResults(InputSource source, XPathResults results){
+                put(queue, new Result(source, results, null, null));
+            }
+
+            @Override
+            public void onError(InputSource source, XPathException ex){
+                put(queue, new Result(source, null, ex, null));
+            }
+        }, capacity);
+        pool.execute(new Runnable(){
+            @Override
+            public void run(){
+                Throwable failure = null;
+                try{
+                    batch.run(sources);
+                }catch(InterruptedException ex){
+                    Thread.currentThread().interrupt();
+                    failure = ex;
+                }catch(Throwable thr){
+                    failure = thr;
+                }finally{
+                    if(failure==null)
+                        failure = batch.failure;
+                    if(failure!=null)
+                        put(queue, new Result(null, null, null, failure));
+                    put(queue, END);
+                }
+            }
+        });
+        return queue;
+    }
+
+    /*-------------------------------------------------[ Blocking ]---------------------------------------------------*/
+
+    // blocking inside pool threads is done using ManagedBlocker,
+    // so that pool can compensate with spare threads
+
+    private static void acquire(final Semaphore semaphore, final int permits) throws InterruptedException{
+        ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker(){
+            private boolean acquired;
+
+            @Override
+            public boolean block() throws InterruptedException{
+                if(!acquired){
+                    semaphore.acquire(permits);
+                    acquired = true;
+                }
+                return true;
+            }
+
+            @Override
+            public boolean isReleasable(){
+                return acquired || (acquired=semaphore.tryAcquire(permits));
+            }
+        });
+    }
+
+    private static void acquireUninterruptibly(Semaphore semaphore, int permits){
+        boolean interrupted = false;
+        while(true){
+            try{
+                acquire(semaphore, permits);
+                break;
+            }catch(InterruptedException ex){
+                interrupted = true;
+            }
+        }
+        if(interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    private static <T> void put(final BlockingQueue<T> queue, final T item){
+        boolean interrupted = false;
+        while(true){
+            try{
+                ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker(){
+                    private boolean added;
+
+                    @Override
+                    public boolean block() throws InterruptedException{
+                        if(!added){
+                            queue.put(item);
+                            added = true;
+                        }
+                        return true;
+                    }
+
+                    @Override
+                    public boolean isReleasable(){
+                        return added || (added=queue.offer(item));
+                    }
+                });
+                break;
+            }catch(InterruptedException ex){
+                interrupted = true;
+            }
+        }
+        if(interrupted)
+            Thread.currentThread().interrupt();
+    }
+}
@@ -0,0 +1,661 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package jlibs.xml.sax.dog;
+
+import jlibs.xml.sax.SAXUtil;
+import jlibs.xml.sax.dog.expr.Expression;
+import jlibs.xml.sax.dog.expr.Literal;
+import jlibs.xml.sax.dog.expr.Variable;
+import jlibs.xml.sax.dog.expr.func.FunctionCall;
+import jlibs.xml.sax.dog.expr.nodset.LocationExpression;
+import jlibs.xml.sax.dog.expr.nodset.NodeSet;
+import jlibs.xml.sax.dog.expr.nodset.PathExpression;
+import jlibs.xml.sax.dog.expr.nodset.Positional;
+import jlibs.xml.sax.dog.path.Axis;
+import jlibs.xml.sax.dog.path.LocationPath;
+import jlibs.xml.sax.dog.path.PositionalPredicate;
+import jlibs.xml.sax.dog.path.PredicateSet;
+import jlibs.xml.sax.dog.path.Step;
+import jlibs.xml.sax.dog.sniff.Event;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.ext.Locator2;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.xpath.XPathException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Sniffs single huge document in parallel, by splitting it into segments.
+ * <p>
+ * This is meant for flat documents, where a single element, called record,
+ * repeats millions of times under same parent:
+ * <pre>
+ * &lt;Export&gt;
+ *   &lt;Records&gt;
+ *     &lt;Record id="1"&gt;...&lt;/Record&gt;
+ *     &lt;Record id="2"&gt;...&lt;/Record&gt;
+ *     ...
+ * </pre>
+ * The file is split at record start tags, found by scanning bytes. Each segment is
+ * sniffed as a separate document, wrapped in start and end tags of the ancestors
+ * of record. The results of segments are merged in document order. The locations of
+ * records and of nodes inside them are renumbered, and {@link NodeItem#order} of each
+ * segment is offset by the number of events in preceding segments, so that it
+ * increases in document order.
+ * <p>
+ * Only xpaths whose result can be computed from single record are supported.
+ * i.e, every xpath must be a node-set location path, which:
+ * <ul>
+ * <li>reaches the record level using child axis, with no predicates above record</li>
+ * <li>has no positional predicates on the record step, because position of record is
+ *     known only in whole document</li>
+ * <li>uses only child, attribute, self and descendant axes below record, including
+ *     in predicates</li>
+ * </ul>
+ * Such xpaths may still hit elements which are siblings of records, before the first
+ * record or after the last record. Other siblings between records are not supported.
+ * <p>
+ * The document must use an ASCII compatible encoding such as UTF-8, and its record
+ * start tag must not occur in comments, CDATA sections or attribute values. DTD is not
+ * copied into segments, so records must not reference entities declared in it.
+ * Namespaces not known to the NamespaceContext of XMLDog are given generated prefixes
+ * by each segment, so declare the namespaces used inside records in that context.
+ *
+ * @author Santhosh Kumar T
+ */
+public class SegmentSniffer{
+    public static final long DEFAULT_SEGMENT_SIZE = 32*1024*1024;
+
+    public final XMLDog dog;
+    public final String record;
+    private final ForkJoinPool pool;
+    private final Callable<XMLReader> readerFactory;
+    private long segmentSize = DEFAULT_SEGMENT_SIZE;
+
+    /**
+     * @param record qualified name of record element, as used in document
+     */
+    public SegmentSniffer(XMLDog dog, String record){
+        this(dog, record, ForkJoinPool.commonPool(), null);
+    }
+
+    /**
+     * @param record        qualified name of record element, as used in document
+     * @param readerFactory used to create XMLReader for each thread.
+     *                      if null, namespace aware SAXParser is used
+     */
+    public SegmentSniffer(XMLDog dog, String record, ForkJoinPool pool, Callable<XMLReader> readerFactory){
+        dog.freeze();
+        this.dog = dog;
+        this.record = record;
+        this.pool = pool;
+        this.readerFactory = readerFactory;
+    }
+
+    public long getSegmentSize(){
+        return segmentSize;
+    }
+
+    /**
+     * Sets the approximate size of each segment in bytes. Each segment
+     * extends till the next record start tag after this size.
+     */
+    public void setSegmentSize(long segmentSize){
+        if(segmentSize<=0)
+            throw new IllegalArgumentException("segmentSize must be positive");
+        this.segmentSize = segmentSize;
+    }
+
+    /*-------------------------------------------------[ Sniff ]---------------------------------------------------*/
+
+    public XPathResults sniff(File file) throws XPathException{
+        RandomAccessFile raf = null;
+        try{
+            raf = new RandomAccessFile(file, "r");
+            return sniff(raf.getChannel(), file.toURI().toString());
+        }catch(IOException ex){
+            throw new XPathException(ex);
+        }finally{
+            if(raf!=null){
+                try{
+                    raf.close();
+                }catch(IOException ignore){
+                    // ignore
+                }
+            }
+        }
+    }
+
+    private XPathResults sniff(FileChannel channel, String systemID) throws XPathException, IOException{
+        long size = channel.size();
+        Header header = readHeader(channel, size, systemID);
+        Charset charset = Charset.forName(header.encoding);
+        byte tag[] = ('<'+record).getBytes(charset);
+        if(!Arrays.equals(tag, ('<'+record).getBytes(US_ASCII)))
+            throw new XPathException("encoding "+header.encoding+" is not supported");
+        validate(header.ancestors.size()+1);
+
+        // split at record start tags
+        List<Long> starts = new ArrayList<Long>();
+        starts.add(0L);
+        long first = find(channel, tag, 0, size);
+        if(first>=0){
+            long pos = first;
+            while(true){
+                pos = find(channel, tag, pos+segmentSize, size);
+                if(pos<0)
+                    break;
+                starts.add(pos);
+            }
+        }
+
+        byte prolog[] = header.prolog().getBytes(charset);
+        byte epilog[] = header.epilog().getBytes(charset);
+        List<Future<Segment>> futures = new ArrayList<Future<Segment>>(starts.size());
+        for(int i=0; i<starts.size(); i++){
+            boolean last = i==starts.size()-1;
+            long end = last ? size : starts.get(i+1);
+            SegmentInput in = new SegmentInput(i==0 ? null : prolog, channel, starts.get(i), end, last ? null : epilog, tag);
+            InputSource source = new InputSource(in);
+            source.setSystemId(systemID);
+            futures.add(pool.submit(new SegmentTask(source, in)));
+        }
+
+        List<Segment> segments = new ArrayList<Segment>(futures.size());
+        try{
+            for(Future<Segment> future: futures)
+                segments.add(future.get());
+        }catch(InterruptedException ex){
+            Thread.currentThread().interrupt();
+            throw new XPathException(ex);
+        }catch(ExecutionException ex){
+            for(Future<Segment> future: futures)
+                future.cancel(false);
+            if(ex.getCause() instanceof XPathException)
+                throw (XPathException)ex.getCause();
+            throw new XPathException(ex.getCause());
+        }
+        return merge(segments, header);
+    }
+
+    /*-------------------------------------------------[ Validation ]---------------------------------------------------*/
+
+    private void validate(int depth) throws XPathException{
+        for(Expression expr: dog.getXPaths()){
+            if(!isSupported(expr, depth))
+                throw new XPathException("xpath not supported by SegmentSniffer: "+expr.getXPath());
+        }
+    }
+
+    private static boolean isSupported(Expression expr, int depth){
+        if(!(expr instanceof NodeSet))
+            return false;
+        LocationPath path = ((NodeSet)expr).locationPath;
+        if(path.scope!=Scope.DOCUMENT || path.steps.length<depth || !isEmpty(path.predicateSet))
+            return false;
+        for(int i=0; i<path.steps.length; i++){
+            Step step = path.steps[i];
+            if(i<depth){
+                if(step.axis!=Axis.CHILD)
+                    return false;
+                if(i<depth-1 && !isEmpty(step.predicateSet))
+                    return false;
+                if(i==depth-1 && step.predicateSet.hasPosition)
+                    return false;
+            }else if(!isLocal(step.axis))
+                return false;
+            if(!isLocal(step.predicateSet))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean isEmpty(PredicateSet predicateSet){
+        return predicateSet.getPredicate()==null && predicateSet.headPositionalPredicate==null && !predicateSet.impossible;
+    }
+
+    private static boolean isLocal(int axis){
+        switch(axis){
+            case Axis.ATTRIBUTE:
+            case Axis.CHILD:
+            case Axis.DESCENDANT:
+            case Axis.DESCENDANT_OR_SELF:
+            case Axis.SELF:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isLocal(PredicateSet predicateSet){
+        for(PositionalPredicate positional=predicateSet.headPositionalPredicate; positional!=null; positional=positional.next){
+            if(!isLocal(positional.predicate))
+                return false;
+        }
+        return isLocal(predicateSet.getPredicate());
+    }
+
+    /** tells whether given predicate can be evaluated looking only at the record */
+    private static boolean isLocal(Expression expr){
+        if(expr==null)
+            return true;
+        if(expr.scope()==Scope.DOCUMENT)
+            return false;
+        if(expr instanceof FunctionCall){
+            for(Expression member: ((FunctionCall)expr).members){
+                if(!isLocal(member))
+                    return false;
+            }
+            return true;
+        }else if(expr instanceof LocationExpression){
+            LocationPath path = ((LocationExpression)expr).locationPath;
+            for(Step step: path.steps){
+                if(!isLocal(step.axis) || !isLocal(step.predicateSet))
+                    return false;
+            }
+            return isLocal(path.predicateSet);
+        }else
+            return expr instanceof Literal || expr instanceof Variable
+                    || expr instanceof Positional || expr instanceof PathExpression.HitExpression;
+    }
+
+    /*-------------------------------------------------[ Header ]---------------------------------------------------*/
+
+    private static final class Ancestor{
+        final String qname;
+        final String attributes;
+        Ancestor(String qname, String attributes){
+            this.qname = qname;
+            this.attributes = attributes;
+        }
+    }
+
+    /** ancestors of first record, and how they are declared */
+    private final class Header extends DefaultHandler{
+        String version = "1.0";
+        String encoding = "UTF-8";
+        final Deque<Ancestor> ancestors = new ArrayDeque<Ancestor>();
+        String recordURI, recordName;
+
+        private Locator locator;
+        private StringBuilder attributes = new StringBuilder();
+
+        @Override
+        public void setDocumentLocator(Locator locator){
+            this.locator = locator;
+        }
+
+        @Override
+        public void startPrefixMapping(String prefix, String uri) throws SAXException{
+            attributes.append(prefix.length()==0 ? " xmlns" : " xmlns:").append(prefix).append("=\"");
+            escape(uri, attributes).append('"');
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attrs) throws SAXException{
+            if(qName.equals(record)){
+                recordURI = uri;
+                recordName = localName;
+                if(locator instanceof Locator2){
+                    Locator2 locator2 = (Locator2)locator;
+                    if(locator2.getXMLVersion()!=null)
+                        version = locator2.getXMLVersion();
+                    if(locator2.getEncoding()!=null)
+                        encoding = locator2.getEncoding();
+                }
+                throw FOUND;
+            }
+            for(int i=0; i<attrs.getLength(); i++){
+                attributes.append(' ').append(attrs.getQName(i)).append("=\"");
+                escape(attrs.getValue(i), attributes).append('"');
+            }
+            ancestors.addLast(new Ancestor(qName, attributes.toString()));
+            attributes.setLength(0);
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException{
+            ancestors.removeLast();
+            attributes.setLength(0);
+        }
+
+        /** prepended to each segment, other than first */
+        String prolog(){
+            StringBuilder buff = new StringBuilder();
+            buff.append("<?xml version=\"").append(version).append("\" encoding=\"").append(encoding).append("\"?>");
+            for(Ancestor ancestor: ancestors)
+                buff.append('<').append(ancestor.qname).append(ancestor.attributes).append('>');
+            return buff.toString();
+        }
+
+        /** appended to each segment, other than last */
+        String epilog(){
+            StringBuilder buff = new StringBuilder();
+            Iterator<Ancestor> iter = ancestors.descendingIterator();
+            while(iter.hasNext())
+                buff.append("</").append(iter.next().qname).append('>');
+            return buff.toString();
+        }
+    }
+
+    private static final SAXException FOUND = new SAXException("record found");
+
+    private Header readHeader(FileChannel channel, long size, String systemID) throws XPathException{
+        Header header = new Header();
+        try{
+            XMLReader reader = SAXUtil.newSAXFactory(true, false, false).newSAXParser().getXMLReader();
+            reader.setContentHandler(header);
+            InputSource source = new InputSource(new SegmentInput(null, channel, 0, size, null, null));
+            source.setSystemId(systemID);
+            reader.parse(source);
+        }catch(Exception ex){
+            if(ex==FOUND)
+                return header;
+            throw new XPathException(ex);
+        }
+        throw new XPathException("record "+record+" not found");
+    }
+
+    private static StringBuilder escape(String value, StringBuilder buff){
+        for(int i=0; i<value.length(); i++){
+            char ch = value.charAt(i);
+            switch(ch){
+                case '&':
+                    buff.append("&amp;");
+                    break;
+                case '<':
+                    buff.append("&lt;");
+                    break;
+                case '"':
+                    buff.append("&quot;");
+                    break;
+                default:
+                    if(ch<0x20 || ch>0x7e)
+                        buff.append("&#").append((int)ch).append(';');
+                    else
+                        buff.append(ch);
+            }
+        }
+        return buff;
+    }
+
+    /*-------------------------------------------------[ Split ]---------------------------------------------------*/
+
+    private static final Charset US_ASCII = Charset.forName("US-ASCII");
+    private static final int BUFFER_SIZE = 64*1024;
+
+    /** finds start tag, whose bytes are given */
+    private static final class TagMatcher{
+        private final byte tag[];
+        private int matched;
+
+        TagMatcher(byte tag[]){
+            this.tag = tag;
+        }
+
+        /** returns true, if the tag ends just before given byte */
+        boolean next(byte b){
+            if(matched==tag.length){
+                matched = b=='<' ? 1 : 0;
+                return b=='>' || b=='/' || b==' ' || b=='\t' || b=='\n' || b=='\r';
+            }
+            if(b==tag[matched])
+                matched++;
+            else
+                matched = b=='<' ? 1 : 0;
+            return false;
+        }
+    }
+
+    /** returns the position of first start tag at or after from, or -1 if not found */
+    private static long find(FileChannel channel, byte tag[], long from, long size) throws IOException{
+        TagMatcher matcher = new TagMatcher(tag);
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long pos = from;
+        while(pos<size){
+            buffer.clear();
+            int read = channel.read(buffer, pos);
+            if(read<=0)
+                break;
+            byte array[] = buffer.array();
+            for(int i=0; i<read; i++){
+                if(matcher.next(array[i]))
+                    return pos+i-tag.length;
+            }
+            pos += read;
+        }
+        return -1;
+    }
+
+    /**
+     * reads bytes of file between start and end, with given prolog and epilog.
+     * the record start tags in file bytes are counted
+     */
+    private static final class SegmentInput extends InputStream{
+        private final byte prolog[];
+        private final FileChannel channel;
+        private long pos;
+        private final long end;
+        private final byte epilog[];
+        private final TagMatcher matcher;
+        int records;
+
+        private int stage;
+        private int offset;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        SegmentInput(byte prolog[], FileChannel channel, long start, long end, byte epilog[], byte tag[]){
+            this.prolog = prolog==null ? new byte[0] : prolog;
+            this.channel = channel;
+            pos = start;
+            this.end = end;
+            this.epilog = epilog==null ? new byte[0] : epilog;
+            matcher = tag==null ? null : new TagMatcher(tag);
+            buffer.flip();
+        }
+
+        @Override
+        public int read() throws IOException{
+            byte b[] = new byte[1];
+            int len = read(b, 0, 1);
+            return len==1 ? (b[0]&0xff) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException{
+            if(len==0)
+                return 0;
+            while(true){
+                switch(stage){
+                    case 0:
+                        if(offset<prolog.length){
+                            int min = Math.min(len, prolog.length-offset);
+                            System.arraycopy(prolog, offset, b, off, min);
+                            offset += min;
+                            return min;
+                        }
+                        stage++;
+                        break;
+                    case 1:
+                        if(!buffer.hasRemaining()){
+                            if(pos==end){
+                                stage++;
+                                offset = 0;
+                                break;
+                            }
+                            buffer.clear();
+                            buffer.limit((int)Math.min(BUFFER_SIZE, end-pos));
+                            int read = channel.read(buffer, pos);
+                            if(read<0)
+                                throw new IOException("unexpected end of file");
+                            buffer.flip();
+                            if(matcher!=null){
+                                byte array[] = buffer.array();
+                                for(int i=0; i<read; i++){
+                                    if(matcher.next(array[i]))
+                                        records++;
+                                }
+                            }
+                            pos += read;
+                        }
+                        int min = Math.min(len, buffer.remaining());
+                        buffer.get(b, off, min);
+                        return min;
+                    case 2:
+                        if(offset<epilog.length){
+                            min = Math.min(len, epilog.length-offset);
+                            System.arraycopy(epilog, offset, b, off, min);
+                            offset += min;
+                            return min;
+                        }
+                        return -1;
+                }
+            }
+        }
+
+        /** reads remaining bytes, so that all records are counted */
+        void drain() throws IOException{
+            byte b[] = new byte[BUFFER_SIZE];
+            while(read(b, 0, b.length)!=-1);
+        }
+    }
+
+    /*-------------------------------------------------[ Segment ]---------------------------------------------------*/
+
+    private static final class Segment{
+        final XPathResults results;
+        final int records;
+        final long events;
+
+        Segment(XPathResults results, int records, long events){
+            this.results = results;
+            this.records = records;
+            this.events = events;
+        }
+    }
+
+    private final ThreadLocal<XMLReader> readers = new ThreadLocal<XMLReader>();
+
+    private final class SegmentTask implements Callable<Segment>{
+        private final InputSource source;
+        private final SegmentInput in;
+
+        SegmentTask(InputSource source, SegmentInput in){
+            this.source = source;
+            this.in = in;
+        }
+
+        @Override
+        public Segment call() throws Exception{
+            XMLReader reader = readers.get();
+            if(reader==null){
+                if(readerFactory==null)
+                    reader = SAXUtil.newSAXFactory(true, false, false).newSAXParser().getXMLReader();
+                else
+                    reader = readerFactory.call();
+                readers.set(reader);
+            }
+
+            // new event for each segment, so that generated prefixes
+            // don't depend on segments sniffed earlier by this thread
+            Event event = dog.createEvent();
+            XPathResults results = new XPathResults(event);
+            event.setListener(results);
+            dog.sniff(event, source, reader);
+            in.drain();
+            return new Segment(results, in.records, event.order());
+        }
+    }
+
+    /*-------------------------------------------------[ Merge ]---------------------------------------------------*/
+
+    private XPathResults merge(List<Segment> segments, Header header){
+        int depth = header.ancestors.size()+1;
+        Map<Expression, Object> merged = new HashMap<Expression, Object>();
+        for(Expression expr: dog.getXPaths())
+            merged.put(expr, new ArrayList<NodeItem>());
+
+        int records = 0;
+        long events = 0;
+        for(Segment segment: segments){
+            String recordName = null;
+            if(records>0){
+                NamespaceContext nsContext = segment.results.getNamespaceContext();
+                String prefix = nsContext.getPrefix(header.recordURI);
+                recordName = prefix==null || prefix.length()==0 ? header.recordName : prefix+':'+header.recordName;
+            }
+
+            Map<NodeItem, NodeItem> translated = new IdentityHashMap<NodeItem, NodeItem>();
+            for(Expression expr: dog.getXPaths()){
+                @SuppressWarnings("unchecked")
+                List<NodeItem> result = (List<NodeItem>)merged.get(expr);
+                for(Object item: (Collection)segment.results.getResult(expr)){
+                    NodeItem nodeItem = (NodeItem)item;
+                    if(records>0 || events>0){
+                        NodeItem translatedItem = translated.get(nodeItem);
+                        if(translatedItem==null){
+                            String location = recordName==null ? nodeItem.location : renumber(nodeItem.location, depth, recordName, records);
+                            translatedItem = new NodeItem(nodeItem, location, events+nodeItem.order);
+                            translated.put(nodeItem, translatedItem);
+                        }
+                        nodeItem = translatedItem;
+                    }
+                    result.add(nodeItem);
+                }
+            }
+            records += segment.records;
+            events += segment.events;
+        }
+
+        return new XPathResults(segments.get(0).results.getNamespaceContext(), merged);
+    }
+
+    /** adds offset to the position of record in given location */
+    private static String renumber(String location, int depth, String recordName, int offset){
+        int begin = 0;
+        for(int i=0; i<depth; i++){
+            begin = location.indexOf('/', begin)+1;
+            if(begin==0)
+                return location;
+        }
+        int end = location.indexOf('/', begin);
+        if(end==-1)
+            end = location.length();
+        int bracket = location.lastIndexOf('[', end);
+        if(bracket<begin || !location.regionMatches(begin, recordName, 0, recordName.length()) || begin+recordName.length()!=bracket)
+            return location;
+        int position = Integer.parseInt(location.substring(bracket+1, end-1));
+        return location.substring(0, bracket+1)+(position+offset)+location.substring(end-1);
+    }
+}
@@ -18,12 +18,15 @@ package jlibs.xml.sax.dog;
 
 import jlibs.core.lang.ImpossibleException;
 import jlibs.xml.sax.SAXProperties;
+import jlibs.xml.sax.SubtreeSkipper;
 import jlibs.xml.sax.SAXUtil;
 import jlibs.xml.sax.dog.expr.Expression;
 import jlibs.xml.sax.dog.expr.Literal;
+import jlibs.xml.sax.dog.expr.func.CompiledFunction;
 import jlibs.xml.sax.dog.expr.func.FunctionCall;
 import jlibs.xml.sax.dog.expr.nodset.LocationExpression;
 import jlibs.xml.sax.dog.expr.nodset.PathExpression;
+import jlibs.xml.sax.dog.expr.nodset.PathTrie;
 import jlibs.xml.sax.dog.path.Constraint;
 import jlibs.xml.sax.dog.path.LocationPath;
 import jlibs.xml.sax.dog.path.PositionalPredicate;
@@ -63,11 +66,54 @@ public final class XMLDog{
         parser = new XPathParser(nsContext, variableResolver, functionResolver);
     }
 
+    private boolean prefixSharing;
+    private PathTrie pathTrie;
+    private int pathTrieConstraints;
+
+    public boolean isPrefixSharing(){
+        return prefixSharing;
+    }
+
+    /**
+     * When enabled, location paths of all xpaths without predicates are
+     * merged into a prefix tree, so that common prefixes are matched once
+     * per event. This is useful when large number of xpaths are registered,
+     * sharing common prefixes. Results are finished as soon as their paths
+     * can't be matched any more, same as without sharing.
+     *
+     * @see PathTrie
+     */
+    public void setPrefixSharing(boolean prefixSharing){
+        checkNotFrozen();
+        this.prefixSharing = prefixSharing;
+        pathTrie = null;
+    }
+
+    private boolean compilePredicates;
+
+    public boolean isCompilePredicates(){
+        return compilePredicates;
+    }
+
+    /**
+     * When enabled, function calls in predicates of xpaths added later,
+     * are compiled, so that they are evaluated with single evaluation
+     * per node, using primitive arithmetic and comparisons.
+     * This is useful when predicates are heavily used.
+     *
+     * @see CompiledFunction
+     */
+    public void setCompilePredicates(boolean compilePredicates){
+        checkNotFrozen();
+        this.compilePredicates = compilePredicates;
+    }
+
     public boolean isAllowDefaultPrefixMapping(){
         return parser.isAllowDefaultPrefixMapping();
     }
 
     public void setAllowDefaultPrefixMapping(boolean allow){
+        checkNotFrozen();
         parser.setAllowDefaultPrefixMapping(allow);
     }
 
@@ -76,6 +122,7 @@ public final class XMLDog{
     private final List<Expression> globalExpressions = new ArrayList<Expression>();
 
     public Expression addXPath(String xpath) throws SAXPathException{
+        checkNotFrozen();
         Expression compiledExpr = parser.parse(xpath, true);
         compiledExpr.setXPath(xpath);
         addXPath(compiledExpr);
@@ -83,6 +130,7 @@ public final class XMLDog{
     }
 
     public Expression addForEach(String forEach, String xpath) throws SAXPathException{
+        checkNotFrozen();
         Expression forEachExpr = parser.parse(forEach, true);
         LocationPath union = new LocationPath(Scope.LOCAL, 0);
         if(forEachExpr instanceof LocationExpression)
@@ -100,6 +148,9 @@ public final class XMLDog{
     @SuppressWarnings({"unchecked"})
     private void addXPath(Expression compiledExpr) throws SAXPathException{
         expressions.add(compiledExpr);
+        pathTrie = null;
+        if(compilePredicates)
+            compilePredicates(compiledExpr);
 
         switch(compiledExpr.scope()){
             case Scope.DOCUMENT:
@@ -150,6 +201,41 @@ public final class XMLDog{
         }
     }
 
+    private void compilePredicates(Expression expr){
+        if(expr instanceof LocationExpression)
+            compilePredicates(((LocationExpression)expr).locationPath);
+        else if(expr instanceof FunctionCall){
+            for(Expression member: ((FunctionCall)expr).members)
+                compilePredicates(member);
+        }else if(expr instanceof PathExpression){
+            PathExpression pathExpr = (PathExpression)expr;
+            compilePredicates(pathExpr.union);
+            for(Expression context: pathExpr.contexts)
+                compilePredicates(context);
+            compilePredicates(pathExpr.relativeExpression);
+        }
+    }
+
+    private void compilePredicates(LocationPath path){
+        compilePredicate(path.predicateSet.getPredicate());
+        for(LocationPath context: path.contexts)
+            compilePredicates(context);
+        for(Step step: path.steps){
+            compilePredicate(step.predicateSet.getPredicate());
+            for(PositionalPredicate positionPredicate=step.predicateSet.headPositionalPredicate; positionPredicate!=null; positionPredicate=positionPredicate.next)
+                compilePredicate(positionPredicate.predicate);
+        }
+    }
+
+    private void compilePredicate(Expression predicate){
+        if(predicate==null)
+            return;
+        if(predicate instanceof FunctionCall && predicate.scope()==Scope.LOCAL)
+            CompiledFunction.compile((FunctionCall)predicate);
+        // leaves may have predicates of their own
+        compilePredicates(predicate);
+    }
+
     public Iterable<Expression> getXPaths(){
         return expressions;
     }
@@ -158,8 +244,55 @@ public final class XMLDog{
         return docExpressions.size();
     }
 
+    /*-------------------------------------------------[ Freezing ]---------------------------------------------------*/
+
+    private volatile boolean frozen;
+
+    public boolean isFrozen(){
+        return frozen;
+    }
+
+    /**
+     * Freezes this XMLDog, so that no more xpaths can be added and
+     * its configuration can't be changed.
+     * <p>
+     * Once frozen, the compiled xpaths are never modified and this
+     * XMLDog can be safely shared across threads, each thread sniffing
+     * with its own {@link Event}.
+     *
+     * @see ParallelSniffer
+     */
+    public synchronized void freeze(){
+        if(!frozen){
+            if(prefixSharing)
+                buildPathTrie();
+            frozen = true;
+        }
+    }
+
+    private void checkNotFrozen(){
+        if(frozen)
+            throw new IllegalStateException("XMLDog is frozen");
+    }
+
+    private void buildPathTrie(){
+        pathTrie = new PathTrie();
+        for(Expression expr: expressions){
+            if(PathTrie.isShareable(expr))
+                pathTrie.add((LocationExpression)expr);
+        }
+        pathTrieConstraints = pathTrie.compile(Constraint.ID_START+parser.constraints.size());
+    }
+
     public Event createEvent(){
-        return new Event(nsContext, globalExpressions, docExpressions, Constraint.ID_START+parser.constraints.size(), parser.langInterested);
+        int noOfConstraints = Constraint.ID_START+parser.constraints.size();
+        if(prefixSharing){
+            if(!frozen && pathTrie==null)
+                buildPathTrie();
+            if(!pathTrie.isEmpty())
+                return new Event(nsContext, globalExpressions, docExpressions, pathTrieConstraints, parser.langInterested, pathTrie);
+        }
+        return new Event(nsContext, globalExpressions, docExpressions, noOfConstraints, parser.langInterested);
     }
 
     /*-------------------------------------------------[ Sniff ]---------------------------------------------------*/
@@ -177,22 +310,48 @@ public final class XMLDog{
         }
     }
 
-    public void sniff(Event event, InputSource source, XMLReader reader) throws XPathException{
+    /**
+     * registers given event as handler of given reader. This is useful
+     * for readers which are not driven by {@link XMLReader#parse(InputSource)},
+     * for example AsyncXMLReader fed from non-blocking channel. Such callers
+     * should ignore exceptions for which {@link #isStopParsing(Throwable)}
+     * returns true.
+     */
+    public void prepare(Event event, XMLReader reader) throws XPathException{
         try{
             SAXHandler handler = event.getSAXHandler();
+            handler.setSubtreeSkipper(reader instanceof SubtreeSkipper ? (SubtreeSkipper)reader : null);
             reader.setContentHandler(handler);
             reader.setProperty(SAXProperties.LEXICAL_HANDLER, handler);
         }catch(Exception ex){
             throw new XPathException(ex);
         }
+    }
+
+    public void sniff(Event event, InputSource source, XMLReader reader) throws XPathException{
+        prepare(event, reader);
         try{
             reader.parse(source);
         }catch(Exception ex){
-            if(ex!=Event.STOP_PARSING)
+            if(!isStopParsing(ex))
                 throw new XPathException(ex);
         }
     }
 
+    /**
+     * tells whether given exception is thrown to stop parsing, once
+     * all xpaths are evaluated. some readers like AsyncXMLReader,
+     * wrap exceptions thrown by handler
+     */
+    public static boolean isStopParsing(Throwable ex){
+        while(ex!=null){
+            if(ex==Event.STOP_PARSING)
+                return true;
+            ex = ex.getCause();
+        }
+        return false;
+    }
+
     public XPathResults sniff(InputSource source, boolean useSTAX) throws XPathException{
         Event event = createEvent();
         XPathResults results = new XPathResults(event);
@@ -201,6 +360,18 @@ public final class XMLDog{
         return results;
     }
 
+    /**
+     * If the reader implements {@link SubtreeSkipper}, content of elements
+     * that can't be hit by any xpath is skipped by the reader.
+     */
+    public XPathResults sniff(InputSource source, XMLReader reader) throws XPathException{
+        Event event = createEvent();
+        XPathResults results = new XPathResults(event);
+        event.setListener(results);
+        sniff(event, source, reader);
+        return results;
+    }
+
     public void sniff(Event event, InputSource source) throws XPathException{
         sniff(event, source, false);
     }
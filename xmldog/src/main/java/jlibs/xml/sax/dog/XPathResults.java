@@ -32,19 +32,28 @@ import java.util.Map;
  */
 public class XPathResults extends EvaluationListener{
     private Event event;
+    private NamespaceContext nsContext;
     private Map<Expression, Object> results = new HashMap<Expression, Object>();
 
     public XPathResults(Event event){
         this.event = event;
     }
 
+    // used by SegmentSniffer to merge results of segments
+    XPathResults(NamespaceContext nsContext, Map<Expression, Object> results){
+        this.nsContext = nsContext;
+        this.results = results;
+    }
+
     @Override
     public void finished(Evaluation evaluation){
         results.put(evaluation.expression, evaluation.getResult());
+        // event might be reset and reused for another document
+        nsContext = event.getNamespaceContext();
     }
 
     public NamespaceContext getNamespaceContext(){
-        return event.getNamespaceContext();
+        return nsContext!=null ? nsContext : event.getNamespaceContext();
     }
 
     @SuppressWarnings({"unchecked"})
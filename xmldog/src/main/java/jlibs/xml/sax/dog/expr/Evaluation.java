@@ -20,8 +20,9 @@ package jlibs.xml.sax.dog.expr;
  * @author Santhosh Kumar T
  */
 public abstract class Evaluation<X extends Expression> extends EvaluationListener{
-    public final X expression;
-    public final long order;
+    // not final, so that evaluations can be pooled. see recycle()
+    public X expression;
+    public long order;
 
     protected Evaluation(X expression, long order){
         this.expression = expression;
@@ -51,4 +52,15 @@ public abstract class Evaluation<X extends Expression> extends EvaluationListene
     }
 
     protected void dispose(){}
+
+    /**
+     * Called by the listener, once it has consumed the result of this evaluation.
+     * Evaluations created for each node hit return themselves to the pool of
+     * their Event, if nothing else can refer them any more.
+     * <p>
+     * Listener shouldn't call this, if the evaluation might be shared with others,
+     * for example evaluations of document scope expressions, which are recycled
+     * by Event after notifying all its listeners.
+     */
+    public void recycle(){}
 }
@@ -0,0 +1,600 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package jlibs.xml.sax.dog.expr.func;
+
+import jlibs.xml.sax.dog.DataType;
+import jlibs.xml.sax.dog.Scope;
+import jlibs.xml.sax.dog.expr.Evaluation;
+import jlibs.xml.sax.dog.expr.Expression;
+import jlibs.xml.sax.dog.sniff.Event;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Compiled form of a local scoped {@link FunctionCall} tree.
+ * <p>
+ * The nested function calls are flattened into a tree of typed nodes,
+ * whose leaves are the members which depend on the document stream
+ * (location paths, document scoped expressions etc). Only the leaves are
+ * evaluated per event, and single {@link Evaluation} waits for them,
+ * instead of one evaluation per function call. Once leaf values are known,
+ * common functions are computed on primitives without boxing intermediate
+ * results.
+ *
+ * @author Santhosh Kumar T
+ */
+public final class CompiledFunction{
+    public final FunctionCall functionCall;
+    public final Expression leaves[];
+    private final Node root;
+
+    private CompiledFunction(FunctionCall functionCall){
+        this.functionCall = functionCall;
+        List<Expression> leaves = new ArrayList<Expression>();
+        root = compile(functionCall, leaves);
+        this.leaves = leaves.toArray(new Expression[leaves.size()]);
+    }
+
+    /**
+     * Compiles the given function call, and caches the compiled form
+     * in it, so that {@link FunctionCall#getResult(Event)} uses it.
+     * Only local scoped function calls can be compiled.
+     */
+    public static CompiledFunction compile(FunctionCall functionCall){
+        if(functionCall.scope()!=Scope.LOCAL)
+            throw new IllegalArgumentException("only local scoped function calls can be compiled");
+        if(functionCall.compiled==null)
+            functionCall.compiled = new CompiledFunction(functionCall);
+        return functionCall.compiled;
+    }
+
+    private static Node compile(Expression expr, List<Expression> leaves){
+        if(expr.scope()==Scope.GLOBAL)
+            return new Global(expr);
+        if(expr.scope()!=Scope.LOCAL || !(expr instanceof FunctionCall)){
+            leaves.add(expr);
+            return new Leaf(expr.resultType, leaves.size()-1);
+        }
+
+        FunctionCall functionCall = (FunctionCall)expr;
+        Function function = functionCall.function;
+        Node members[] = new Node[functionCall.members.length];
+        for(int i=0; i<members.length; i++)
+            members[i] = compile(functionCall.members[i], leaves);
+
+        if(function==Functions.ADD || function==Functions.SUBSTRACT || function==Functions.MULTIPLY
+                || function==Functions.DIV || function==Functions.MOD)
+            return new Arithmetic(function, members);
+        if(function==Functions.AND)
+            return new And(members);
+        if(function==Functions.OR)
+            return new Or(members);
+        if(function==Functions.NOT)
+            return new Not(members);
+        if(function==Functions.NUMBER_EQUALS_NUMBER)
+            return new NumberEqualsNumber(members);
+        if(function==Functions.STRING_EQUALS_STRING)
+            return new StringEqualsString(members);
+        if(function==Functions.STRINGS_EQUALS_STRING)
+            return new StringsEqualsString(members);
+        if(function==Functions.STARTS_WITH || function==Functions.ENDS_WITH || function==Functions.CONTAINS)
+            return new StringTest(function, members);
+        if(function==Functions.LENGTH)
+            return new StringLength(members);
+        if(function==Functions.GREATER_THAN || function==Functions.GREATER_THAN_EQUAL
+                || function==Functions.LESS_THAN || function==Functions.LESS_THAN_EQUAL){
+            if(members[0].resultType==DataType.NUMBER && members[1].resultType==DataType.NUMBER)
+                return new Relational(function, members);
+        }
+        if(function instanceof Functions.TypeCast)
+            return new TypeCast(function.resultType, members);
+        return new Generic(function, members);
+    }
+
+    /*-------------------------------------------------[ Evaluation ]---------------------------------------------------*/
+
+    public Object getResult(Event event){
+        Expression leaves[] = this.leaves;
+        Object values[] = new Object[leaves.length];
+        boolean peek = root.resultType==DataType.BOOLEAN;
+
+        int pending = 0;
+        for(int i=0, len=leaves.length; i<len; i++){
+            Object value = event.evaluate(leaves[i]);
+            if(value!=null){
+                values[i] = value;
+                // evaluations already created are not started yet,
+                // so peek only if none are created
+                if(peek && pending==0 && i<len-1){
+                    Boolean result = root.peek(values);
+                    if(result!=null)
+                        return result;
+                }
+            }else{
+                values[i] = event.evaluation;
+                pending++;
+            }
+        }
+
+        if(pending==0)
+            return root.evaluate(values);
+        else
+            return new CompiledEvaluation(this, event, values, pending);
+    }
+
+    Object evaluate(Object values[]){
+        return root.evaluate(values);
+    }
+
+    /** returns result, if it can be found from values available */
+    Object peek(Object values[]){
+        return root.resultType==DataType.BOOLEAN ? root.peek(values) : null;
+    }
+
+    static boolean isAvailable(Object value){
+        return value!=null && !(value instanceof Evaluation);
+    }
+
+    /*-------------------------------------------------[ Nodes ]---------------------------------------------------*/
+
+    private static abstract class Node{
+        final DataType resultType;
+        final Node members[];
+
+        Node(DataType resultType, Node members[]){
+            this.resultType = resultType;
+            this.members = members;
+        }
+
+        abstract Object evaluate(Object values[]);
+
+        double number(Object values[]){
+            return DataType.asNumber(evaluate(values));
+        }
+
+        boolean bool(Object values[]){
+            return DataType.asBoolean(evaluate(values));
+        }
+
+        String string(Object values[]){
+            return DataType.asString(evaluate(values));
+        }
+
+        boolean isAvailable(Object values[]){
+            for(Node member: members){
+                if(!member.isAvailable(values))
+                    return false;
+            }
+            return true;
+        }
+
+        /** called only on boolean nodes */
+        Boolean peek(Object values[]){
+            return isAvailable(values) ? bool(values) : null;
+        }
+    }
+
+    private static final Node NO_MEMBERS[] = new Node[0];
+
+    private static final class Leaf extends Node{
+        final int index;
+
+        Leaf(DataType resultType, int index){
+            super(resultType, NO_MEMBERS);
+            this.index = index;
+        }
+
+        @Override
+        Object evaluate(Object values[]){
+            return values[index];
+        }
+
+        @Override
+        double number(Object values[]){
+            Object value = values[index];
+            return value instanceof Double ? (Double)value : DataType.asNumber(value);
+        }
+
+        @Override
+        boolean bool(Object values[]){
+            Object value = values[index];
+            return value instanceof Boolean ? (Boolean)value : DataType.asBoolean(value);
+        }
+
+        @Override
+        String string(Object values[]){
+            Object value = values[index];
+            return value instanceof String ? (String)value : DataType.asString(value);
+        }
+
+        @Override
+        boolean isAvailable(Object values[]){
+            return CompiledFunction.isAvailable(values[index]);
+        }
+    }
+
+    private static final class Global extends Node{
+        final Expression expr;
+
+        Global(Expression expr){
+            super(expr.resultType, NO_MEMBERS);
+            this.expr = expr;
+        }
+
+        @Override
+        Object evaluate(Object values[]){
+            return expr.getResult();
+        }
+
+        @Override
+        boolean isAvailable(Object values[]){
+            return true;
+        }
+    }
+
+    private static final class Generic extends Node{
+        final Function function;
+
+        Generic(Function function, Node members[]){
+            super(function.resultType, members);
+            this.function = function;
+        }
+
+        @Override
+        Object evaluate(Object values[]){
+            Object args[] = new Object[members.length];
+            for(int i=0; i<args.length; i++)
+                args[i] = members[i].evaluate(values);
+            return function.evaluate(args);
+        }
+    }
+
+    private static final class TypeCast extends Node{
+        TypeCast(DataType resultType, Node members[]){
+            super(resultType, members);
+        }
+
+        @Override
+        Object evaluate(Object values[]){
+            return resultType.convert(members[0].evaluate(values));
+        }
+
+        // the cast can be skipped only if it is identity,
+        // e.g. number(string(bool)) is not number(bool)
+
+        @Override
+        double number(Object values[]){
+            return members[0].resultType==resultType ? members[0].number(values) : super.number(values);
+        }
+
+        @Override
+        boolean bool(Object values[]){
+            return members[0].resultType==resultType ? members[0].bool(values) : super.bool(values);
+        }
+
+        @Override
+        String string(Object values[]){
+            return members[0].resultType==resultType ? members[0].string(values) : super.string(values);
+        }
+    }
+
+    /*-------------------------------------------------[ Numeric ]---------------------------------------------------*/
+
+    private static abstract class NumberNode extends Node{
+        NumberNode(Node members[]){
+            super(DataType.NUMBER, members);
+        }
+
+        @Override
+        final Object evaluate(Object values[]){
+            return number(values);
+        }
+
+        @Override
+        abstract double number(Object values[]);
+    }
+
+    private static final class Arithmetic extends NumberNode{
+        final Function function;
+
+        Arithmetic(Function function, Node members[]){
+            super(members);
+            this.function = function;
+        }
+
+        @Override
+        double number(Object values[]){
+            double lhs = members[0].number(values);
+            double rhs = members[1].number(values);
+            if(function==Functions.ADD)
+                return lhs+rhs;
+            else if(function==Functions.SUBSTRACT)
+                return lhs-rhs;
+            else if(function==Functions.MULTIPLY)
+                return lhs*rhs;
+            else if(function==Functions.DIV)
+                return lhs/rhs;
+            else
+                return lhs%rhs;
+        }
+    }
+
+    private static final class StringLength extends NumberNode{
+        StringLength(Node members[]){
+            super(members);
+        }
+
+        @Override
+        double number(Object values[]){
+            String str = members[0].string(values);
+            return str.codePointCount(0, str.length());
+        }
+    }
+
+    /*-------------------------------------------------[ Boolean ]---------------------------------------------------*/
+
+    private static abstract class BooleanNode extends Node{
+        BooleanNode(Node members[]){
+            super(DataType.BOOLEAN, members);
+        }
+
+        @Override
+        final Object evaluate(Object values[]){
+            return bool(values);
+        }
+
+        @Override
+        abstract boolean bool(Object values[]);
+    }
+
+    private static final class And extends BooleanNode{
+        And(Node members[]){
+            super(members);
+        }
+
+        @Override
+        boolean bool(Object values[]){
+            return members[0].bool(values) && members[1].bool(values);
+        }
+
+        @Override
+        Boolean peek(Object values[]){
+            Boolean lhs = members[0].peek(values);
+            if(lhs==Boolean.FALSE)
+                return lhs;
+            Boolean rhs = members[1].peek(values);
+            if(rhs==Boolean.FALSE)
+                return rhs;
+            return lhs!=null && rhs!=null ? Boolean.TRUE : null;
+        }
+    }
+
+    private static final class Or extends BooleanNode{
+        Or(Node members[]){
+            super(members);
+        }
+
+        @Override
+        boolean bool(Object values[]){
+            return members[0].bool(values) || members[1].bool(values);
+        }
+
+        @Override
+        Boolean peek(Object values[]){
+            Boolean lhs = members[0].peek(values);
+            if(lhs==Boolean.TRUE)
+                return lhs;
+            Boolean rhs = members[1].peek(values);
+            if(rhs==Boolean.TRUE)
+                return rhs;
+            return lhs!=null && rhs!=null ? Boolean.FALSE : null;
+        }
+    }
+
+    private static final class Not extends BooleanNode{
+        Not(Node members[]){
+            super(members);
+        }
+
+        @Override
+        boolean bool(Object values[]){
+            return !members[0].bool(values);
+        }
+
+        @Override
+        Boolean peek(Object values[]){
+            Boolean result = members[0].peek(values);
+            return result==null ? null : !result;
+        }
+    }
+
+    private static final class NumberEqualsNumber extends BooleanNode{
+        NumberEqualsNumber(Node members[]){
+            super(members);
+        }
+
+        @Override
+        boolean bool(Object values[]){
+            double lhs = members[0].number(values);
+            return !Double.isNaN(lhs) && Double.compare(lhs, members[1].number(values))==0;
+        }
+    }
+
+    private static final class Relational extends BooleanNode{
+        final Function function;
+
+        Relational(Function function, Node members[]){
+            super(members);
+            this.function = function;
+        }
+
+        @Override
+        boolean bool(Object values[]){
+            double lhs = members[0].number(values);
+            if(Double.isNaN(lhs))
+                return false;
+            double rhs = members[1].number(values);
+            if(Double.isNaN(rhs))
+                return false;
+
+            if(function==Functions.GREATER_THAN)
+                return lhs>rhs;
+            else if(function==Functions.GREATER_THAN_EQUAL)
+                return lhs>=rhs;
+            else if(function==Functions.LESS_THAN)
+                return lhs<rhs;
+            else
+                return lhs<=rhs;
+        }
+    }
+
+    private static final class StringEqualsString extends BooleanNode{
+        StringEqualsString(Node members[]){
+            super(members);
+        }
+
+        @Override
+        boolean bool(Object values[]){
+            return members[0].string(values).equals(members[1].string(values));
+        }
+    }
+
+    private static final class StringsEqualsString extends BooleanNode{
+        StringsEqualsString(Node members[]){
+            super(members);
+        }
+
+        @Override
+        boolean bool(Object values[]){
+            Object lhs = members[0].evaluate(values);
+            String rhs = members[1].string(values);
+            if(lhs instanceof Collection)
+                return ((Collection)lhs).contains(rhs);
+            else
+                return lhs.equals(rhs);
+        }
+    }
+
+    private static final class StringTest extends BooleanNode{
+        final Function function;
+
+        StringTest(Function function, Node members[]){
+            super(members);
+            this.function = function;
+        }
+
+        @Override
+        boolean bool(Object values[]){
+            String lhs = members[0].string(values);
+            String rhs = members[1].string(values);
+            if(function==Functions.STARTS_WITH)
+                return lhs.startsWith(rhs);
+            else if(function==Functions.ENDS_WITH)
+                return lhs.endsWith(rhs);
+            else
+                return lhs.contains(rhs);
+        }
+    }
+}
+
+final class CompiledEvaluation extends Evaluation<FunctionCall>{
+    private final CompiledFunction compiled;
+    private final Event event;
+    private final Object values[];
+    private int pending;
+
+    CompiledEvaluation(CompiledFunction compiled, Event event, Object values[], int pending){
+        super(compiled.functionCall, event.order());
+        this.compiled = compiled;
+        this.event = event;
+        this.values = values;
+        this.pending = pending;
+    }
+
+    @Override
+    public void start(){
+        Object values[] = this.values;
+        for(int i=0, len=values.length; i<len; i++){
+            Object value = values[i];
+            if(value instanceof Evaluation){
+                Evaluation eval = (Evaluation)value;
+                eval.addListener(this);
+                eval.start();
+            }else if(value==null){
+                assert compiled.leaves[i].scope()==Scope.DOCUMENT;
+                event.addListener(compiled.leaves[i], this);
+            }
+            if(result!=null)
+                return;
+        }
+        if(result==null && pending==0)
+            fireFinished();
+    }
+
+    private Object result;
+
+    @Override
+    public Object getResult(){
+        return result;
+    }
+
+    @Override
+    public void finished(Evaluation evaluation){
+        assert result==null : "can't consume any child evaluation";
+
+        Expression item = evaluation.expression;
+        Expression leaves[] = compiled.leaves;
+        for(int i=0, len=leaves.length; i<len; i++){
+            if(leaves[i]==item && (values[i]==evaluation || values[i]==null)){
+                values[i] = evaluation.getResult();
+                if(--pending==0)
+                    fireFinished();
+                else if((result=compiled.peek(values))!=null){
+                    fireFinished();
+                    dispose();
+                }
+                return;
+            }
+        }
+        assert false: "Impossible";
+    }
+
+    @Override
+    protected void fireFinished(){
+        if(result==null)
+            result = compiled.evaluate(values);
+        super.fireFinished();
+    }
+
+    @Override
+    protected void dispose(){
+        assert pending!=0;
+
+        for(int i=0, len=values.length; i<len; i++){
+            Object value = values[i];
+            if(value instanceof Evaluation)
+                ((Evaluation)value).removeListener(this);
+            else if(value==null){
+                assert compiled.leaves[i].scope()==Scope.DOCUMENT;
+                event.removeListener(compiled.leaves[i], this);
+            }
+        }
+    }
+}
@@ -27,6 +27,8 @@ import jlibs.xml.sax.dog.expr.nodset.Position;
 import jlibs.xml.sax.dog.expr.nodset.Strings;
 import jlibs.xml.sax.dog.sniff.Event;
 
+import java.util.Arrays;
+
 /**
  * @author Santhosh Kumar T
  */
@@ -85,36 +87,45 @@ public final class FunctionCall extends Expression{
         return function.evaluate(memberResults);
     }
 
+    /** @see CompiledFunction#compile(FunctionCall) */
+    CompiledFunction compiled;
+
     @Override
     public Object getResult(Event event){
+        if(compiled!=null)
+            return compiled.getResult(event);
+
         Function function = this.function;
         Expression members[] = this.members;
 
-        PeekingFunction peekingFunction = function instanceof PeekingFunction ? (PeekingFunction)function: null;
+        FunctionEvaluation evaluation = FunctionEvaluation.create(this, event);
+        PeekingFunction peekingFunction = evaluation.peekingFunction;
 
         int pending = members.length;
-        Object memberResults[] = new Object[pending];
+        Object memberResults[] = evaluation.memberResults;
 
         for(int i=0, len=pending; i<len; i++){
             Object memberResult = event.evaluate(members[i]);
             if(memberResult!=null){
                 if(--pending>0 && peekingFunction!=null){
                     Object result = peekingFunction.onMemberResult(i, memberResult);
-                    if(result!=null)
+                    if(result!=null){
+                        evaluation.release();
                         return result;
+                    }
                 }
                 memberResults[i] = memberResult;
             }else
                 memberResults[i] = event.evaluation;
         }
 
-        if(pending==0)
-            return function.evaluate(memberResults);
-        else{
-            if(peekingFunction!=null)
-                return new PeekingFunctionEvaluation(this, event, memberResults, pending);
-            else
-                return new FunctionEvaluation(this, event, memberResults, pending);
+        if(pending==0){
+            Object result = function.evaluate(memberResults);
+            evaluation.release();
+            return result;
+        }else{
+            evaluation.pending = pending;
+            return evaluation;
         }
     }
 
@@ -207,20 +218,63 @@ public final class FunctionCall extends Expression{
     }
 }
 
-class FunctionEvaluation extends Evaluation<FunctionCall>{
-    protected int pending;
-    protected final Object[] memberResults;
-    protected final Event event;
+final class FunctionEvaluation extends Evaluation<FunctionCall>{
+    private final Event event;
+    PeekingFunction peekingFunction;
+    int pending;
+    Object[] memberResults;
 
-    public FunctionEvaluation(FunctionCall expression, Event event, Object memberResults[], int pending){
+    private FunctionEvaluation(FunctionCall expression, Event event){
         super(expression, event.order());
         this.event = event;
-        this.memberResults = memberResults;
-        this.pending = pending;
+        init();
+    }
+
+    private void init(){
+        Function function = expression.function;
+        peekingFunction = function instanceof PeekingFunction ? (PeekingFunction)function: null;
+        int members = expression.members.length;
+        if(memberResults==null || memberResults.length!=members)
+            memberResults = new Object[members];
+        pending = members;
+    }
+
+    /**
+     * returns evaluation from pool of given event, if available
+     */
+    static FunctionEvaluation create(FunctionCall expression, Event event){
+        FunctionEvaluation eval = (FunctionEvaluation)event.functionEvaluations.pollFirst();
+        if(eval==null)
+            return new FunctionEvaluation(expression, event);
+
+        eval.expression = expression;
+        eval.order = event.order();
+        eval.listener = null;
+        eval.disposed = false;
+        eval.result = null;
+        eval.init();
+        return eval;
+    }
+
+    /**
+     * returns the evaluation to pool, which is not handed out
+     * because the result is computed without it
+     */
+    void release(){
+        if(event.functionEvaluations.size()<Event.MAX_POOLED_EVALUATIONS){
+            Arrays.fill(memberResults, null);
+            event.functionEvaluations.addFirst(this);
+        }
     }
 
     @Override
-    public final void start(){
+    public void recycle(){
+        if(result!=null && event.functionEvaluations.size()<Event.MAX_POOLED_EVALUATIONS)
+            event.functionEvaluations.addFirst(this);
+    }
+
+    @Override
+    public void start(){
         Object[] memberResults = this.memberResults;
         for(int i=0, len=memberResults.length; i<len; i++){
             Object memberResult = memberResults[i];
@@ -239,29 +293,38 @@ class FunctionEvaluation extends Evaluation<FunctionCall>{
             fireFinished();
     }
 
-    protected void setMemberResult(int i, Object memberResult){
-        memberResults[i] = memberResult;
-        pending--;
-    }
-
-    protected Object result;
+    private Object result;
 
     @Override
-    public final Object getResult(){
+    public Object getResult(){
         return result;
     }
 
     @Override
-    public final void finished(Evaluation evaluation){
+    public void finished(Evaluation evaluation){
         assert result==null : "can't consume any child evaluation";
 
         Expression item = evaluation.expression;
         Expression members[] = expression.members;
         for(int i=members.length-1; i>=0; --i){
             if(members[i]==item){
-                setMemberResult(i, evaluation.getResult());
-                if(pending==0)
+                Object memberResult = evaluation.getResult();
+                memberResults[i] = memberResult;
+                pending--;
+                if(pending>0){
+                    if(peekingFunction!=null && (result=peekingFunction.onMemberResult(i, memberResult))!=null){
+                        dispose();
+                        fireFinished();
+                    }
+                }else{
+                    result = expression.function.evaluate(memberResults);
+                    // function results of these types can be views over member results
+                    DataType resultType = expression.function.resultType;
+                    if(resultType!=DataType.NODESET && resultType!=DataType.STRINGS && resultType!=DataType.NUMBERS
+                            && item.scope()!=Scope.DOCUMENT)
+                        evaluation.recycle();
                     fireFinished();
+                }
                 return;
             }
         }
@@ -269,14 +332,14 @@ class FunctionEvaluation extends Evaluation<FunctionCall>{
     }
 
     @Override
-    protected final void fireFinished(){
+    protected void fireFinished(){
         if(result==null)
             result = expression.function.evaluate(memberResults);
         super.fireFinished();
     }
 
     @Override
-    protected final void dispose(){
+    protected void dispose(){
         assert pending!=0;
 
         for(int i=0, len=memberResults.length; i<len; i++){
@@ -290,23 +353,3 @@ class FunctionEvaluation extends Evaluation<FunctionCall>{
         }
     }
 }
-
-class PeekingFunctionEvaluation extends FunctionEvaluation{
-    private final PeekingFunction function;
-
-    public PeekingFunctionEvaluation(FunctionCall expression, Event event, Object memberResults[], int pending){
-        super(expression, event, memberResults, pending);
-        function = (PeekingFunction)expression.function;
-    }
-
-    @Override
-    protected void setMemberResult(int memberIndex, Object memberResult){
-        super.setMemberResult(memberIndex, memberResult);
-        if(pending>0){
-            if((result=function.onMemberResult(memberIndex, memberResult))!=null){
-                fireFinished();
-                dispose();
-            }
-        }
-    }
-}
@@ -36,36 +36,70 @@ import java.util.List;
  */
 public final class LocationEvaluation extends AxisListener<LocationExpression> implements NodeSetListener.Support{
     private final Event event;
-    private final EventID eventID;
-    private final int index;
-    private final boolean lastStep;
+    private EventID eventID;
+    private int index;
+    private boolean lastStep;
 
-    private final Step currentStep;
-    private final boolean exactPosition;
+    private Step currentStep;
+    private boolean exactPosition;
     private Evaluation predicateEvaluation;
-    private Boolean predicateResult = Boolean.TRUE;
+    private Boolean predicateResult;
 
     private PositionTracker positionTracker;
-    private int predicateChain = -1;
+    private int predicateChain;
 
-    protected LocationEvaluation(LocationExpression expression, int stepIndex, Event event, EventID eventID){
+    private LocationEvaluation(LocationExpression expression, int stepIndex, Event event, EventID eventID){
         super(expression, event.order());
         this.event = event;
+        result = new LongTreeMap<Object>(event.entryPool);
+        init(stepIndex, eventID);
+    }
+
+    private void init(int stepIndex, EventID eventID){
         this.eventID = eventID;
         this.index = stepIndex;
         lastStep = index==expression.locationPath.steps.length-1;
 
-        if(expression instanceof Strings)
-            stringEvaluations = new ArrayList<Evaluation>();
-
         currentStep = expression.locationPath.steps[stepIndex];
         exactPosition = currentStep.predicateSet.getPredicate() instanceof ExactPosition;
         if(currentStep.predicateSet.hasPosition)
             positionTracker = new PositionTracker(currentStep.predicateSet.headPositionalPredicate);
+        predicateResult = Boolean.TRUE;
+        predicateChain = -1;
     }
 
-    private LocationEvaluation(LocationExpression expression, int stepIndex, Event event, EventID eventID, Expression predicate, Evaluation predicateEvaluation){
-        this(expression, stepIndex, event, eventID);
+    /**
+     * returns evaluation from pool of given event, if available
+     */
+    static LocationEvaluation create(LocationExpression expression, int stepIndex, Event event, EventID eventID){
+        LocationEvaluation eval = event.locationEvaluations.pollFirst();
+        if(eval==null)
+            return new LocationEvaluation(expression, stepIndex, event, eventID);
+
+        eval.expression = expression;
+        eval.order = event.order();
+        eval.listener = null;
+        eval.disposed = false;
+        eval.previous = eval.next = null;
+        eval.manuallyExpired = false;
+        eval.nextAxisListener = null;
+
+        eval.predicateEvaluation = null;
+        eval.positionTracker = null;
+        eval.pendingEvaluationHead = eval.pendingEvaluationTail = null;
+        if(eval.stringEvaluations!=null)
+            eval.stringEvaluations.clear();
+        eval.expired = false;
+        eval.consumed = eval.released = false;
+        eval.resultPrepared = false;
+        eval.finished = false;
+        eval.finalResult = null;
+        eval.nodeSetListener = null;
+        eval.init(stepIndex, eventID);
+        return eval;
+    }
+
+    private void setPredicate(Expression predicate, Evaluation predicateEvaluation){
         predicateResult = null;
         if(predicateEvaluation==null)
             this.predicateEvaluation = event.addListener(predicate, this);
@@ -75,6 +109,40 @@ public final class LocationEvaluation extends AxisListener<LocationExpression> i
         }
     }
 
+    // true if listener consumed the result, or disposed this evaluation
+    private boolean consumed;
+
+    // true if EventID no longer refers this evaluation
+    private boolean released;
+
+    @Override
+    public void recycle(){
+        // result of document scope evaluation is shared by many listeners,
+        // so the result map can't be reused, if it is handed out as it is
+        if(expression.scope()==Scope.DOCUMENT && (finalResult==result || finalResult==result.values()))
+            return;
+        consumed = true;
+        pool();
+    }
+
+    @Override
+    public void released(){
+        released = true;
+        pool();
+    }
+
+    /**
+     * returns this evaluation to pool, once both listener and EventID are done with it.
+     * evaluations with position tracker are not pooled, because positional
+     * evaluations of predicate refer the tracker
+     */
+    private void pool(){
+        if(consumed && released && positionTracker==null && event.locationEvaluations.size()<Event.MAX_POOLED_EVALUATIONS){
+            result.clear();
+            event.locationEvaluations.addFirst(this);
+        }
+    }
+
     @Override
     public void start(){
         assert predicateResult!=Boolean.FALSE;
@@ -98,8 +166,15 @@ public final class LocationEvaluation extends AxisListener<LocationExpression> i
     }
 
     private LinkableEvaluation pendingEvaluationHead, pendingEvaluationTail;
+    // created lazily, because most hits of Strings expression yield values directly
     private List<Evaluation> stringEvaluations;
 
+    private void addStringEvaluation(Evaluation stringEval){
+        if(stringEvaluations==null)
+            stringEvaluations = new ArrayList<Evaluation>();
+        stringEvaluations.add(stringEval);
+    }
+
     @Override
     public void onHit(EventID eventID){
         assert !finished : "getting events even after finish";
@@ -124,15 +199,18 @@ public final class LocationEvaluation extends AxisListener<LocationExpression> i
             if(lastStep)
                 consume(event);
             else
-                childEval = new LocationEvaluation(expression, index+1, event, eventID);
+                childEval = create(expression, index+1, event, eventID);
         }else if(predicateResult==null){
             Evaluation predicateEvaluation = event.evaluation;
             if(lastStep){
-                childEval = new PredicateEvaluation(expression, event.order(), expression.getResultItem(event), event, predicate, predicateEvaluation);
+                childEval = PredicateEvaluation.create(expression, event.order(), expression.getResultItem(event), event, predicate, predicateEvaluation);
                 if(nodeSetListener !=null)
                     nodeSetListener.mayHit();
-            }else
-                childEval = new LocationEvaluation(expression, index+1, event, eventID, predicate, predicateEvaluation);
+            }else{
+                LocationEvaluation locEval = create(expression, index+1, event, eventID);
+                locEval.setPredicate(predicate, predicateEvaluation);
+                childEval = locEval;
+            }
         }
 
         if(childEval!=null){
@@ -232,11 +310,13 @@ public final class LocationEvaluation extends AxisListener<LocationExpression> i
         pendingEvaluationHead = pendingEvaluationTail = null;
         if(predicateResult==null)
             predicateEvaluation.removeListener(this);
+        consumed = true;
+        pool();
     }
 
     /*-------------------------------------------------[ Result Management ]---------------------------------------------------*/
 
-    private LongTreeMap<Object> result = new LongTreeMap<Object>();
+    private LongTreeMap<Object> result;
 
     private void consumedResult(){
         int resultSize = result.size();
@@ -261,12 +341,17 @@ public final class LocationEvaluation extends AxisListener<LocationExpression> i
         Object resultItem = expression.getResultItem(event);
         if(resultItem instanceof Evaluation){
             Evaluation eval = (Evaluation)resultItem;
-            stringEvaluations.add(eval);
+            addStringEvaluation(eval);
             eval.addListener(this);
             eval.start();
         }else if(predicateChain==0){
+            // instant results are not remembered, so that memory
+            // used doesn't grow with number of nodes hit
             event.onInstantResult(expression, (NodeItem)resultItem);
-            resultItem = Event.DUMMY_VALUE;
+            consumedResult();
+            if(nodeSetListener !=null)
+                nodeSetListener.mayHit();
+            return;
         }
         assert resultItem!=null : "ResultItem should be non-null";
         result.put(event.order(), resultItem);
@@ -284,11 +369,10 @@ public final class LocationEvaluation extends AxisListener<LocationExpression> i
             }
         }
 
-        if(predicateChain==0){
+        if(predicateChain==0)
             event.onInstantResult(expression, (NodeItem)resultItem);
-            resultItem = Event.DUMMY_VALUE;
-        }
-        result.put(order, resultItem);
+        else
+            result.put(order, resultItem);
         consumedResult();
 
         if(prepareResult)
@@ -370,6 +454,8 @@ public final class LocationEvaluation extends AxisListener<LocationExpression> i
         if(evaluation==predicateEvaluation){
             predicateResult = (Boolean)evaluation.getResult();
             assert predicateResult!=null : "evaluation result should be non-null";
+            if(evaluation.expression.scope()!=Scope.DOCUMENT) // created for this hit
+                evaluation.recycle();
             if(predicateResult==Boolean.FALSE){
                 if(nodeSetListener !=null){
                     for(LongTreeMap.Entry<Object> entry = result.firstEntry(); entry!=null ; entry = entry.next())
@@ -396,7 +482,7 @@ public final class LocationEvaluation extends AxisListener<LocationExpression> i
                 Object resultItem = predicateEvaluation.result;
                 if(resultItem instanceof Evaluation){
                     Evaluation stringEval = (Evaluation)resultItem;
-                    stringEvaluations.add(stringEval);
+                    addStringEvaluation(stringEval);
                     stringEval.addListener(this);
                 }
                 consumeChildEvaluation(predicateEvaluation.order, resultItem);
@@ -405,17 +491,22 @@ public final class LocationEvaluation extends AxisListener<LocationExpression> i
                     nodeSetListener.discard(predicateEvaluation.order);
                 consumedResult();
             }
+            predicateEvaluation.recycle();
         }else if(evaluation instanceof LocationEvaluation){
             LocationEvaluation locEval = (LocationEvaluation)evaluation;
             remove(locEval);
 
             if(locEval.stringEvaluations!=null){
-                for(Evaluation stringEval: locEval.stringEvaluations)
+                for(Evaluation stringEval: locEval.stringEvaluations){
                     stringEval.addListener(this);
-                stringEvaluations.addAll(locEval.stringEvaluations);
+                    addStringEvaluation(stringEval);
+                }
             }
             boolean wasExpired = expired;
+            LongTreeMap<Object> oldResult = result;
             consumeChildEvaluation(locEval.result);
+            if(result!=oldResult) // took over result of child, so that child can have the empty one
+                locEval.result = oldResult;
             if(!wasExpired && expired){
                 assert !finished;
                 LinkableEvaluation eval = locEval.next;
@@ -427,6 +518,7 @@ public final class LocationEvaluation extends AxisListener<LocationExpression> i
                 if(pendingEvaluationHead==null)
                     resultPrepared();
             }
+            locEval.recycle();
         }else{
             stringEvaluations.remove(evaluation);
             consumeChildEvaluation(evaluation.order, evaluation.getResult());
@@ -49,7 +49,7 @@ public abstract class LocationExpression extends Expression{
         if(locationPath.steps.length==0)
             return getResultItem(event);
         else
-            return new LocationEvaluation(this, 0, event, event.getID());
+            return LocationEvaluation.create(this, 0, event, event.getID());
     }
 
     protected abstract Object getResultItem(Event event);
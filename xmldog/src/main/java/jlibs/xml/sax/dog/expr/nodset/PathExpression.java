@@ -179,7 +179,7 @@ final class PathEvaluation extends Evaluation<PathExpression> implements NodeSet
                     else
                         ((PathEvaluation)resultItem).nodeSetListener = evalInfo;
                 }
-                Evaluation childEval = new PredicateEvaluation(expression.relativeExpression, event.order(), resultItem, event, predicate, predicateEvaluation);
+                Evaluation childEval = PredicateEvaluation.create(expression.relativeExpression, event.order(), resultItem, event, predicate, predicateEvaluation);
                 childEval.addListener(this);
                 childEval.start();
                 evalInfo.eval = childEval;
@@ -0,0 +1,514 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.xml.sax.dog.expr.nodset;
+
+import jlibs.core.util.LongTreeMap;
+import jlibs.xml.sax.dog.NodeItem;
+import jlibs.xml.sax.dog.Scope;
+import jlibs.xml.sax.dog.expr.Evaluation;
+import jlibs.xml.sax.dog.expr.Expression;
+import jlibs.xml.sax.dog.path.*;
+import jlibs.xml.sax.dog.path.tests.LocalName;
+import jlibs.xml.sax.dog.path.tests.NamespaceURI;
+import jlibs.xml.sax.dog.path.tests.PITarget;
+import jlibs.xml.sax.dog.path.tests.QName;
+import jlibs.xml.sax.dog.sniff.Event;
+
+import java.util.*;
+
+/**
+ * Merges location paths of many expressions into a single prefix tree,
+ * which is evaluated as a nondeterministic automaton (as in YFilter).
+ * <p>
+ * Each node in the tree is a step shared by all paths having same prefix.
+ * Child steps of a node are grouped by axis, and each group is registered
+ * as a single constraint. So for each event, a prefix is matched once
+ * rather than once per expression, and the child steps are looked up
+ * by name rather than tested one by one.
+ * <p>
+ * Only location paths evaluating to nodeset, boolean or count are shared,
+ * whose predicates if any are on the last step and are not positional.
+ * Such predicate doesn't take part in the prefix tree. It is evaluated
+ * for each node hit, by the expression owning it. Other expressions are
+ * evaluated as usual.
+ * <p>
+ * Result of an expression is finished, as soon as no step leading to its
+ * node can be matched any more, i.e. when listeners of all its ancestor
+ * nodes are expired.
+ *
+ * @author Santhosh Kumar T
+ */
+public final class PathTrie{
+    public static boolean isShareable(Expression expr){
+        if(expr.scope()!=Scope.DOCUMENT)
+            return false;
+        Class clazz = expr.getClass();
+        if(clazz!=NodeSet.class && clazz!=Bool.class && clazz!=Count.class)
+            return false;
+
+        LocationExpression locationExpr = (LocationExpression)expr;
+        if(locationExpr.rawResult)
+            return false;
+        LocationPath path = locationExpr.locationPath;
+        if(path.steps.length==0 || !path.contexts.isEmpty() || path.hitExpression!=null || !isEmpty(path.predicateSet))
+            return false;
+        int last = path.steps.length-1;
+        for(int i=0; i<last; i++){
+            if(!isEmpty(path.steps[i].predicateSet))
+                return false;
+        }
+        // position of a node is relative to the context node, which is not known in prefix tree
+        PredicateSet predicateSet = path.steps[last].predicateSet;
+        return !predicateSet.hasPosition && !predicateSet.impossible;
+    }
+
+    private static boolean isEmpty(PredicateSet predicateSet){
+        return predicateSet.getPredicate()==null && !predicateSet.hasPosition && !predicateSet.impossible;
+    }
+
+    private int nodeCount;
+    private final Node root = new Node(null, null);
+    private final BitSet members = new BitSet();
+    private int maxID = -1;
+
+    public void add(LocationExpression expr){
+        assert isShareable(expr);
+        Node node = root;
+        for(Step step: expr.locationPath.steps)
+            node = node.child(step);
+        node.expressions.add(expr);
+        members.set(expr.id);
+        maxID = Math.max(maxID, expr.id);
+    }
+
+    public boolean contains(Expression expr){
+        return members.get(expr.id);
+    }
+
+    public boolean isEmpty(){
+        return maxID==-1;
+    }
+
+    /**
+     * creates constraints for child groups of each node, assigning
+     * ids starting from given id. returns the next unused id
+     */
+    public int compile(int constraintID){
+        return root.compile(constraintID);
+    }
+
+    /*-------------------------------------------------[ Compilation ]---------------------------------------------------*/
+
+    private final class Node{
+        final Node parent;
+        final Step step;
+        final int index = nodeCount++;
+        final List<LocationExpression> expressions = new ArrayList<LocationExpression>();
+        final Map<Long, Node> children = new LinkedHashMap<Long, Node>();
+        Group groups[];
+
+        Node(Node parent, Step step){
+            this.parent = parent;
+            this.step = step;
+        }
+
+        Node child(Step step){
+            Long key = ((long)step.axis<<32) | step.constraint.id;
+            Node child = children.get(key);
+            if(child==null)
+                children.put(key, child=new Node(this, step));
+            return child;
+        }
+
+        int compile(int constraintID){
+            Map<Integer, List<Node>> axes = new TreeMap<Integer, List<Node>>();
+            for(Node child: children.values()){
+                List<Node> list = axes.get(child.step.axis);
+                if(list==null)
+                    axes.put(child.step.axis, list=new ArrayList<Node>());
+                list.add(child);
+                constraintID = child.compile(constraintID);
+            }
+            groups = new Group[axes.size()];
+            int i = 0;
+            for(Map.Entry<Integer, List<Node>> entry: axes.entrySet())
+                groups[i++] = new Group(constraintID++, entry.getKey(), entry.getValue());
+            return constraintID;
+        }
+    }
+
+    private static final Node NO_NODES[] = new Node[0];
+
+    /**
+     * matches if any of the child steps on an axis match
+     */
+    private static final class Group extends Constraint{
+        final Step step;
+        final Node others[];
+        final Map<String, Node[]> localNames = new HashMap<String, Node[]>();
+        final Map<String, Node[]> namespaces = new HashMap<String, Node[]>();
+
+        Group(int id, int axis, List<Node> nodes){
+            super(id);
+            step = new Step(axis, this);
+            List<Node> others = new ArrayList<Node>();
+            for(Node node: nodes){
+                Constraint constraint = node.step.constraint;
+                if(constraint instanceof QName)
+                    add(localNames, ((QName)constraint).localName, node);
+                else if(constraint instanceof LocalName)
+                    add(localNames, ((LocalName)constraint).localName, node);
+                else if(constraint instanceof PITarget)
+                    add(localNames, ((PITarget)constraint).target, node);
+                else if(constraint instanceof NamespaceURI)
+                    add(namespaces, ((NamespaceURI)constraint).namespaceURI, node);
+                else
+                    others.add(node);
+            }
+            this.others = others.toArray(new Node[others.size()]);
+        }
+
+        private static void add(Map<String, Node[]> map, String key, Node node){
+            Node nodes[] = map.get(key);
+            if(nodes==null)
+                nodes = new Node[]{ node };
+            else{
+                nodes = Arrays.copyOf(nodes, nodes.length+1);
+                nodes[nodes.length-1] = node;
+            }
+            map.put(key, nodes);
+        }
+
+        private Node[] get(Map<String, Node[]> map, String key){
+            if(key==null || map.isEmpty())
+                return NO_NODES;
+            Node nodes[] = map.get(key);
+            return nodes==null ? NO_NODES : nodes;
+        }
+
+        @Override
+        public boolean matches(Event event){
+            for(Node node: others){
+                if(node.step.constraint.matches(event))
+                    return true;
+            }
+            for(Node node: get(localNames, event.localName())){
+                if(node.step.constraint.matches(event))
+                    return true;
+            }
+            for(Node node: get(namespaces, event.namespaceURI())){
+                if(node.step.constraint.matches(event))
+                    return true;
+            }
+            return false;
+        }
+
+        void onHit(Session session, EventID eventID){
+            Event event = session.event;
+            for(Node node: others){
+                if(node.step.constraint.matches(event))
+                    session.onHit(node, eventID);
+            }
+            for(Node node: get(localNames, event.localName())){
+                if(node.step.constraint.matches(event))
+                    session.onHit(node, eventID);
+            }
+            for(Node node: get(namespaces, event.namespaceURI())){
+                if(node.step.constraint.matches(event))
+                    session.onHit(node, eventID);
+            }
+        }
+
+        @Override
+        public String toString(){
+            return "group"+id;
+        }
+    }
+
+    /*-------------------------------------------------[ Evaluation ]---------------------------------------------------*/
+
+    /**
+     * evaluates the prefix tree on a document
+     */
+    public final class Session{
+        private final Event event;
+        private final Result results[];
+        private int pending;
+
+        // number of live listeners on each node, for its child steps
+        private final int alive[];
+
+        // nodes which can't be reached any more
+        private final boolean released[];
+
+        public Session(Event event){
+            this.event = event;
+            results = new Result[maxID+1];
+            alive = new int[nodeCount];
+            released = new boolean[nodeCount];
+        }
+
+        public Evaluation getResult(LocationExpression expression){
+            assert contains(expression);
+            Result result = new Result(expression);
+            results[expression.id] = result;
+            pending++;
+            return result;
+        }
+
+        public void start(EventID eventID){
+            listen(root, eventID);
+        }
+
+        private void listen(Node node, EventID eventID){
+            for(Group group: node.groups){
+                if(!eventID.isEmpty(group.step.axis))
+                    eventID.addListener(event, group.step, new GroupListener(node, group));
+            }
+        }
+
+        private void onHit(Node node, EventID eventID){
+            for(LocationExpression expression: node.expressions){
+                Result result = results[expression.id];
+                if(!result.finished)
+                    result.onHit();
+            }
+            if(node.groups.length>0)
+                listen(node, eventID);
+        }
+
+        private void expired(Node node){
+            if(--alive[node.index]==0){
+                for(Node ancestor=node.parent; ancestor!=null; ancestor=ancestor.parent){
+                    if(alive[ancestor.index]>0)
+                        return;
+                }
+                release(node);
+            }
+        }
+
+        /**
+         * called when given node can't be hit any more, and has no live listeners.
+         * so its children can't be hit any more
+         */
+        private void release(Node node){
+            released[node.index] = true;
+            for(Node child: node.children.values()){
+                for(LocationExpression expression: child.expressions){
+                    Result result = results[expression.id];
+                    if(result!=null && !result.finished)
+                        result.released();
+                }
+                if(alive[child.index]==0 && !released[child.index])
+                    release(child);
+            }
+        }
+
+        private final class GroupListener extends AxisListener<Expression>{
+            private final Node node;
+            private final Group group;
+
+            GroupListener(Node node, Group group){
+                super(null, event.order());
+                this.node = node;
+                this.group = group;
+                alive[node.index]++;
+            }
+
+            @Override
+            public void onHit(EventID eventID){
+                if(pending>0)
+                    group.onHit(Session.this, eventID);
+            }
+
+            @Override
+            public void expired(){
+                Session.this.expired(node);
+            }
+
+            @Override
+            public void start(){}
+
+            @Override
+            public Object getResult(){
+                return null;
+            }
+
+            @Override
+            public void finished(Evaluation evaluation){}
+        }
+
+        /**
+         * result of an expression, whose location path is in prefix tree
+         */
+        private final class Result extends Evaluation<LocationExpression> implements NodeSetListener.Support{
+            // predicate of last step, if any
+            private final Expression predicate;
+            private LongTreeMap<Object> result = new LongTreeMap<Object>();
+            // evaluations of predicate, which are pending for the nodes hit
+            private final LongTreeMap<PredicateEvaluation> evaluations = new LongTreeMap<PredicateEvaluation>();
+            private boolean instant;
+            private boolean released;
+            private boolean finished;
+            private NodeSetListener nodeSetListener;
+
+            Result(LocationExpression expression){
+                super(expression, event.order());
+                Step steps[] = expression.locationPath.steps;
+                predicate = steps[steps.length-1].predicateSet.getPredicate();
+            }
+
+            @Override
+            public void start(){
+                instant = event.hasInstantListener(expression);
+            }
+
+            @Override
+            public void setNodeSetListener(NodeSetListener nodeSetListener){
+                this.nodeSetListener = nodeSetListener;
+            }
+
+            void onHit(){
+                long order = event.order();
+                if(predicate!=null){
+                    // same node can be hit many times, when the tree has descendant axis
+                    if(evaluations.get(order)!=null || result.get(order)!=null)
+                        return;
+                    Object predicateResult = event.evaluate(predicate);
+                    if(predicateResult==Boolean.FALSE)
+                        return;
+                    if(predicateResult==null){
+                        PredicateEvaluation evaluation = PredicateEvaluation.create(expression, order, expression.getResultItem(event), event, predicate, event.evaluation);
+                        evaluation.nodeSetListener = nodeSetListener;
+                        evaluation.addListener(this);
+                        evaluations.put(order, evaluation);
+                        if(nodeSetListener!=null)
+                            nodeSetListener.mayHit();
+                        evaluation.start();
+                        return;
+                    }
+                }
+
+                Object resultItem = expression.getResultItem(event);
+                if(nodeSetListener!=null)
+                    nodeSetListener.mayHit();
+                consume(order, resultItem);
+            }
+
+            private void consume(long order, Object resultItem){
+                if(instant && result.isEmpty() && evaluations.isEmpty()){
+                    // not remembered, so that memory used doesn't grow with number of nodes hit
+                    event.onInstantResult(expression, (NodeItem)resultItem);
+                    if(!expression.many)
+                        finish();
+                    return;
+                }
+
+                if(result.put(order, resultItem)!=null && nodeSetListener!=null)
+                    nodeSetListener.discard(order);
+                resultChanged();
+            }
+
+            private void resultChanged(){
+                long firstPending = evaluations.isEmpty() ? Long.MAX_VALUE : evaluations.firstEntry().getKey();
+                if(instant){
+                    // nodes before the first pending one, are in document order
+                    while(!result.isEmpty()){
+                        LongTreeMap.Entry<Object> entry = result.firstEntry();
+                        if(entry.getKey()>firstPending)
+                            break;
+                        event.onInstantResult(expression, (NodeItem)entry.value);
+                        result.deleteEntry(entry);
+                        if(!expression.many){
+                            finish();
+                            return;
+                        }
+                    }
+                }else if(!expression.many && !result.isEmpty() && result.firstEntry().getKey()<firstPending){
+                    finish();
+                    return;
+                }
+                if(released && evaluations.isEmpty())
+                    finish();
+            }
+
+            /**
+             * called when node of this expression can't be hit any more
+             */
+            void released(){
+                released = true;
+                resultChanged();
+            }
+
+            void finish(){
+                finished = true;
+                pending--;
+                disposeEvaluations();
+                if(nodeSetListener!=null)
+                    nodeSetListener.finished();
+                fireFinished();
+            }
+
+            private void disposeEvaluations(){
+                for(LongTreeMap.Entry<PredicateEvaluation> entry=evaluations.firstEntry(); entry!=null; entry=entry.next())
+                    entry.value.removeListener(this);
+                evaluations.clear();
+            }
+
+            private Object finalResult;
+
+            @Override
+            public Object getResult(){
+                if(instant)
+                    return null;
+                if(finalResult==null)
+                    finalResult = expression.getResult(result);
+                return finalResult;
+            }
+
+            @Override
+            protected void dispose(){
+                if(!finished){
+                    finished = true;
+                    pending--;
+                }
+                disposeEvaluations();
+                if(nodeSetListener!=null){
+                    for(LongTreeMap.Entry<Object> entry=result.firstEntry(); entry!=null; entry=entry.next())
+                        nodeSetListener.discard(entry.getKey());
+                }
+            }
+
+            @Override
+            public void finished(Evaluation evaluation){
+                PredicateEvaluation predicateEvaluation = (PredicateEvaluation)evaluation;
+                long order = predicateEvaluation.order;
+                evaluations.remove(order);
+                Object resultItem = predicateEvaluation.result;
+                predicateEvaluation.recycle();
+                if(resultItem!=null){
+                    assert !(resultItem instanceof Evaluation) : "result item of nodeset, boolean or count is never an evaluation";
+                    consume(order, resultItem);
+                }else{
+                    if(nodeSetListener!=null)
+                        nodeSetListener.discard(order);
+                    resultChanged();
+                }
+            }
+        }
+    }
+}
@@ -28,10 +28,10 @@ import jlibs.xml.sax.dog.sniff.Event;
 public final class PredicateEvaluation extends LinkableEvaluation<Expression>{
     private final Event event;
     private Object resultItem;
-    private final Expression predicate;
-    private final Evaluation booleanEvaluation;
+    private Expression predicate;
+    private Evaluation booleanEvaluation;
 
-    public PredicateEvaluation(Expression expression, long order, Object resultItem, Event event, Expression predicate, Evaluation booleanEvaluation){
+    private PredicateEvaluation(Expression expression, long order, Object resultItem, Event event, Expression predicate, Evaluation booleanEvaluation){
         super(expression, order);
         this.resultItem = resultItem;
         this.event = event;
@@ -39,6 +39,36 @@ public final class PredicateEvaluation extends LinkableEvaluation<Expression>{
         this.booleanEvaluation = booleanEvaluation;
     }
 
+    /**
+     * returns evaluation from pool of given event, if available
+     */
+    public static PredicateEvaluation create(Expression expression, long order, Object resultItem, Event event, Expression predicate, Evaluation booleanEvaluation){
+        PredicateEvaluation eval = event.predicateEvaluations.pollFirst();
+        if(eval==null)
+            return new PredicateEvaluation(expression, order, resultItem, event, predicate, booleanEvaluation);
+
+        eval.expression = expression;
+        eval.order = order;
+        eval.listener = null;
+        eval.disposed = false;
+        eval.previous = eval.next = null;
+        eval.resultItem = resultItem;
+        eval.predicate = predicate;
+        eval.booleanEvaluation = booleanEvaluation;
+        eval.result = null;
+        eval.nodeSetListener = null;
+        return eval;
+    }
+
+    /**
+     * called by listener, after consuming the result
+     */
+    @Override
+    public void recycle(){
+        if(event.predicateEvaluations.size()<Event.MAX_POOLED_EVALUATIONS)
+            event.predicateEvaluations.addFirst(this);
+    }
+
     @Override
     public void start(){
         if(resultItem instanceof Evaluation){
@@ -64,6 +94,8 @@ public final class PredicateEvaluation extends LinkableEvaluation<Expression>{
         else{
             if(evaluation.getResult()==Boolean.TRUE)
                 result = resultItem;
+            if(evaluation==booleanEvaluation) // created for this hit
+                booleanEvaluation.recycle();
             fireFinished();
         }
     }
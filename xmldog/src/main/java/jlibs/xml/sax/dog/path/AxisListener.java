@@ -30,6 +30,11 @@ public abstract class AxisListener<X extends Expression> extends LinkableEvaluat
     public abstract void onHit(EventID eventID);
     public abstract void expired();
 
+    /**
+     * called by EventID, once it no longer refers this listener.
+     * this is called even for manually expired listeners
+     */
+    public void released(){}
 
     public boolean manuallyExpired;
     public AxisListener nextAxisListener;
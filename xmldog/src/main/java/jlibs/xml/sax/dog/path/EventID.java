@@ -17,15 +17,19 @@
 package jlibs.xml.sax.dog.path;
 
 import jlibs.xml.sax.dog.NodeType;
+import jlibs.xml.sax.dog.path.tests.LocalName;
 import jlibs.xml.sax.dog.path.tests.NamespaceURI;
+import jlibs.xml.sax.dog.path.tests.PITarget;
 import jlibs.xml.sax.dog.path.tests.QName;
 import jlibs.xml.sax.dog.sniff.Event;
 
+import java.util.*;
+
 /**
  * @author Santhosh Kumar T
  */
 public final class EventID{
-    private final int type;
+    private int type;
     public String location;
     public EventID previous;
 
@@ -33,13 +37,125 @@ public final class EventID{
     public boolean interestedInNamespaces;
     public int interestedInText;
 
-    private ConstraintEntry listenersArray[][];
+    private final Pool pool;
+    private boolean pooled;
+    private final ConstraintEntry listenersArray[][];
+
+    private EventID(Pool pool){
+        this.pool = pool;
+        listenersArray = pool.listenersArray;
+    }
 
-    public EventID(int type, ConstraintEntry listenersArray[][]){
+    private void init(int type){
         this.type = type;
-        this.listenersArray = listenersArray;
-        if(type!=NodeType.DOCUMENT)
-            rootElementVisited = true;
+        rootElementVisited = type!=NodeType.DOCUMENT;
+    }
+
+    /*-------------------------------------------------[ Pool ]---------------------------------------------------*/
+
+    /**
+     * Recycles EventIDs and their entries, once they are no longer
+     * interested in events. An Event owns one pool, so that sniffing
+     * a document creates garbage only when it goes deeper than earlier.
+     */
+    public static final class Pool{
+        private final ConstraintEntry listenersArray[][];
+        private final List<EventID> allEventIDs = new ArrayList<EventID>();
+        private EventID eventIDs;
+        private AxisEntry axisEntries;
+        private ConstraintEntry constraintEntries;
+
+        public Pool(int noOfConstraints){
+            listenersArray = new ConstraintEntry[Axis.MAX_TRACKED+1][noOfConstraints];
+        }
+
+        public EventID eventID(int type){
+            EventID eventID = eventIDs;
+            if(eventID==null){
+                eventID = new EventID(this);
+                allEventIDs.add(eventID);
+            }else{
+                eventIDs = eventID.previous;
+                eventID.previous = null;
+                eventID.pooled = false;
+            }
+            eventID.init(type);
+            return eventID;
+        }
+
+        /** the eventID must have no listeners, i.e, it is no longer linked by Event */
+        public void recycle(EventID eventID){
+            assert eventID.axisEntryCount==0;
+            eventID.location = null;
+            eventID.interestedInAttributes = false;
+            eventID.interestedInNamespaces = false;
+            eventID.interestedInText = 0;
+            eventID.activeCount = 0;
+            eventID.d = 0;
+            eventID.subTreeFinished = false;
+            eventID.parentLevelFinished = false;
+
+            eventID.pooled = true;
+            eventID.previous = eventIDs;
+            eventIDs = eventID;
+        }
+
+        /**
+         * recycles eventIDs and clears references to listeners,
+         * which are left by previous document stopped in the middle
+         */
+        public void reset(){
+            for(ConstraintEntry listeners[]: listenersArray)
+                Arrays.fill(listeners, null);
+            for(EventID eventID: allEventIDs){
+                if(!eventID.pooled){
+                    // entries might be left in inconsistent state, so they are not recycled
+                    Arrays.fill(eventID.axisEntries, null);
+                    eventID.axisEntryCount = 0;
+                    recycle(eventID);
+                }
+            }
+        }
+
+        AxisEntry axisEntry(boolean active){
+            AxisEntry axisEntry = axisEntries;
+            if(axisEntry==null)
+                return new AxisEntry(active);
+            axisEntries = axisEntry.next;
+            axisEntry.next = null;
+            axisEntry.active = active;
+            return axisEntry;
+        }
+
+        void recycle(AxisEntry axisEntry){
+            axisEntry.textCount = 0;
+            axisEntry.constraintEntry = null;
+            axisEntry.indexable = 0;
+            axisEntry.localNames = null;
+            axisEntry.namespaces = null;
+
+            axisEntry.next = axisEntries;
+            axisEntries = axisEntry;
+        }
+
+        ConstraintEntry constraintEntry(Constraint constraint, AxisListener listener){
+            ConstraintEntry constraintEntry = constraintEntries;
+            if(constraintEntry==null)
+                return new ConstraintEntry(constraint, listener);
+            constraintEntries = constraintEntry.next;
+            constraintEntry.constraint = constraint;
+            constraintEntry.listener = listener;
+            constraintEntry.next = null;
+            return constraintEntry;
+        }
+
+        void recycle(ConstraintEntry constraintEntry){
+            constraintEntry.constraint = null;
+            constraintEntry.listener = null;
+
+            constraintEntry.next = constraintEntries;
+            constraintEntries = constraintEntry;
+        }
     }
 
     /*-------------------------------------------------[ Empty ]---------------------------------------------------*/
@@ -86,14 +202,113 @@ public final class EventID{
 
     /*-------------------------------------------------[ Listeners ]---------------------------------------------------*/
 
+    /**
+     * once an axis has these many name based constraints, they
+     * are moved into index, so that an event is matched only against
+     * constraints having same name
+     */
+    private static final int INDEX_THRESHOLD = 8;
+
+    private static String localNameKey(Constraint constraint){
+        if(constraint instanceof QName)
+            return ((QName)constraint).localName;
+        else if(constraint instanceof LocalName)
+            return ((LocalName)constraint).localName;
+        else if(constraint instanceof PITarget)
+            return ((PITarget)constraint).target;
+        else
+            return null;
+    }
+
     private static class AxisEntry{
         boolean active;
         int textCount;
+
+        // next free entry in pool
+        AxisEntry next;
+
+        // constraints which are not in index
         ConstraintEntry constraintEntry;
 
+        // number of name based constraints in constraintEntry, before index is created
+        int indexable;
+
+        // localName/namespaceURI -> constraints that can match only that name
+        Map<String, ConstraintEntry> localNames;
+        Map<String, ConstraintEntry> namespaces;
+
         public AxisEntry(boolean active){
             this.active = active;
         }
+
+        void add(ConstraintEntry constraintEntry){
+            if(localNames!=null && index(constraintEntry))
+                return;
+            constraintEntry.next = this.constraintEntry;
+            this.constraintEntry = constraintEntry;
+            if(localNames==null){
+                Constraint constraint = constraintEntry.constraint;
+                if(localNameKey(constraint)!=null || constraint instanceof NamespaceURI){
+                    if(++indexable==INDEX_THRESHOLD)
+                        createIndex();
+                }
+            }
+        }
+
+        private boolean index(ConstraintEntry constraintEntry){
+            Constraint constraint = constraintEntry.constraint;
+            Map<String, ConstraintEntry> map = localNames;
+            String key = localNameKey(constraint);
+            if(key==null && constraint instanceof NamespaceURI){
+                map = namespaces;
+                key = ((NamespaceURI)constraint).namespaceURI;
+            }
+            if(key==null)
+                return false;
+            constraintEntry.next = map.put(key, constraintEntry);
+            return true;
+        }
+
+        private void createIndex(){
+            localNames = new HashMap<String, ConstraintEntry>();
+            namespaces = new HashMap<String, ConstraintEntry>();
+
+            ConstraintEntry headConstraintEntry = null;
+            ConstraintEntry lastConstraintEntry = null;
+            ConstraintEntry constraintEntry = this.constraintEntry;
+            while(constraintEntry!=null){
+                ConstraintEntry next = constraintEntry.next;
+                if(!index(constraintEntry)){
+                    if(headConstraintEntry==null)
+                        headConstraintEntry = constraintEntry;
+                    else
+                        lastConstraintEntry.next = constraintEntry;
+                    lastConstraintEntry = constraintEntry;
+                }
+                constraintEntry = next;
+            }
+            if(lastConstraintEntry!=null)
+                lastConstraintEntry.next = null;
+            this.constraintEntry = headConstraintEntry;
+        }
+
+        boolean isEmpty(){
+            return constraintEntry==null && (localNames==null || (localNames.isEmpty() && namespaces.isEmpty()));
+        }
+
+        /** returns lists of all constraints, including those in index */
+        ConstraintEntry[] lists(){
+            if(localNames==null)
+                return new ConstraintEntry[]{ constraintEntry };
+            ConstraintEntry lists[] = new ConstraintEntry[1+localNames.size()+namespaces.size()];
+            int i = 0;
+            lists[i++] = constraintEntry;
+            for(ConstraintEntry list: localNames.values())
+                lists[i++] = list;
+            for(ConstraintEntry list: namespaces.values())
+                lists[i++] = list;
+            return lists;
+        }
     }
 
     public static class ConstraintEntry{
@@ -122,13 +337,15 @@ public final class EventID{
         int textCount = 0;
         for(AxisEntry entry: axisEntries){
             if(entry!=null){
-                assert entry.constraintEntry!=null;
+                assert !entry.isEmpty();
                 if(entry.active){
                     active--;
-                    for(ConstraintEntry constraintEntry=entry.constraintEntry; constraintEntry!=null; constraintEntry=constraintEntry.next){
-                        int constraintID = constraintEntry.constraint.id;
-                        if(constraintID==Constraint.ID_NODE || constraintID==Constraint.ID_TEXT)
-                            textCount++;
+                    for(ConstraintEntry list: entry.lists()){
+                        for(ConstraintEntry constraintEntry=list; constraintEntry!=null; constraintEntry=constraintEntry.next){
+                            int constraintID = constraintEntry.constraint.id;
+                            if(constraintID==Constraint.ID_NODE || constraintID==Constraint.ID_TEXT)
+                                textCount++;
+                        }
                     }
                 }
                 total--;
@@ -149,14 +366,17 @@ public final class EventID{
             if(constraint.matches(event))
                 listener.onHit(this);
             listener.expired();
+            listener.released();
             return;
         }
 
         if(axis==Axis.DESCENDANT_OR_SELF){
             if(constraint.matches(event)){
                 listener.onHit(this);
-                if(listener.manuallyExpired)
+                if(listener.manuallyExpired){
+                    listener.released();
                     return;
+                }
             }
             axis = Axis.DESCENDANT;
         }
@@ -168,6 +388,7 @@ public final class EventID{
             case Axis.CHILD:
                 if(type==NodeType.DOCUMENT && constraintID==Constraint.ID_TEXT){
                     listener.expired();
+                    listener.released();
                     return;
                 }
                 break;
@@ -180,7 +401,7 @@ public final class EventID{
 
         AxisEntry entry = axisEntries[axis];
         if(entry==null){
-            axisEntries[axis] = entry = new AxisEntry(active);
+            axisEntries[axis] = entry = pool.axisEntry(active);
             if(active)
                 ++activeCount;
             axisEntryCount++;
@@ -189,13 +410,12 @@ public final class EventID{
         ConstraintEntry listeners[] = listenersArray[axis];
         ConstraintEntry oldConstraintEntry = listeners[constraintID];
         if(oldConstraintEntry!=null){
-            assert entry.constraintEntry!=null;
+            assert !entry.isEmpty();
             listener.nextAxisListener = oldConstraintEntry.listener;
             oldConstraintEntry.listener = listener;
         }else{
-            ConstraintEntry constraintEntry = new ConstraintEntry(constraint, listener);
-            constraintEntry.next = entry.constraintEntry;
-            entry.constraintEntry = constraintEntry;
+            ConstraintEntry constraintEntry = pool.constraintEntry(constraint, listener);
+            entry.add(constraintEntry);
             listeners[constraintID] = constraintEntry;
             if(constraintID==Constraint.ID_NODE || constraintID==Constraint.ID_TEXT){
                 entry.textCount++;
@@ -225,25 +445,42 @@ public final class EventID{
         if(axisEntry!=null){
             assert axisEntry.active;
 
-            ConstraintEntry constraintEntry = axisEntry.constraintEntry;
-            do{
-                expireList(constraintEntry.listener);
-                constraintEntry = constraintEntry.next;
-            }while(constraintEntry!=null);
+            expireEntries(axisEntry.constraintEntry);
+            if(axisEntry.localNames!=null){
+                for(ConstraintEntry list: axisEntry.localNames.values())
+                    expireEntries(list);
+                for(ConstraintEntry list: axisEntry.namespaces.values())
+                    expireEntries(list);
+            }
             interestedInText -= axisEntry.textCount;
 
-            axisEntries[axis] = null;
-            activeCount--;
-            axisEntryCount--;
+            removeEntry(axis);
+        }
+    }
+
+    private void expireEntries(ConstraintEntry constraintEntry){
+        while(constraintEntry!=null){
+            expireList(constraintEntry.listener);
+            ConstraintEntry next = constraintEntry.next;
+            pool.recycle(constraintEntry);
+            constraintEntry = next;
         }
     }
 
+    private void removeEntry(int axis){
+        pool.recycle(axisEntries[axis]);
+        axisEntries[axis] = null;
+        activeCount--;
+        axisEntryCount--;
+    }
+
     private void expireList(AxisListener listener){
         do{
-            if(!listener.manuallyExpired)
-                listener.expired();
             AxisListener next = listener.nextAxisListener;
             listener.nextAxisListener = null;
+            if(!listener.manuallyExpired)
+                listener.expired();
+            listener.released();
             listener = next;
         }while(listener!=null);
     }
@@ -266,6 +503,19 @@ public final class EventID{
         }
     }
 
+    /**
+     * tells if any active listener can be hit by nodes, other than
+     * attributes and namespaces, that follow current event
+     */
+    public boolean isInterestedInContent(){
+        for(int i=2; i<6; i++){ // excluding namespace & attribute axisEntries
+            AxisEntry axisEntry = axisEntries[i];
+            if(axisEntry!=null && axisEntry.active)
+                return true;
+        }
+        return false;
+    }
+
     /*-------------------------------------------------[ Axis Matching ]---------------------------------------------------*/
 
     private int d;
@@ -354,9 +604,7 @@ public final class EventID{
         if(eventType==NodeType.NAMESPACE){
             if(interestedInNamespaces){
                 if(onEvent(event, axisEntries[Axis.NAMESPACE])){
-                    axisEntries[Axis.NAMESPACE] = null;
-                    activeCount--;
-                    axisEntryCount--;
+                    removeEntry(Axis.NAMESPACE);
                     interestedInNamespaces = false;
                 }
             }
@@ -368,9 +616,7 @@ public final class EventID{
             if(eventType==NodeType.ATTRIBUTE){
                 if(interestedInAttributes){
                     if(onEvent(event, axisEntries[Axis.ATTRIBUTE])){
-                        axisEntries[Axis.ATTRIBUTE] = null;
-                        activeCount--;
-                        axisEntryCount--;
+                        removeEntry(Axis.ATTRIBUTE);
                         interestedInAttributes = false;
                     }
                 }
@@ -378,11 +624,8 @@ public final class EventID{
                 for(int i=2; i<6; i++){ // excluding namespace & attribute axisEntries
                     AxisEntry axisEntry = axisEntries[i];
                     if(axisEntry!=null && axisEntry.active){
-                        if(onEvent(event, axisEntry)){
-                            axisEntries[i] = null;
-                            activeCount--;
-                            axisEntryCount--;
-                        }
+                        if(onEvent(event, axisEntry))
+                            removeEntry(i);
                     }
                 }
 
@@ -393,36 +636,24 @@ public final class EventID{
                     if(childEntry!=null){
                         assert childEntry.active;
 
-                        ConstraintEntry headConstraintEntry = null;
-                        ConstraintEntry lastConstraintEntry = null;
-                        ConstraintEntry constraintEntry = childEntry.constraintEntry;
-                        do{
-                            Constraint constraint = constraintEntry.constraint;
-                            int constraintID = constraint.id;
-                            if(constraintID==Constraint.ID_STAR
-                                    || constraintID==Constraint.ID_PARENTNODE
-                                    || constraintID==Constraint.ID_ELEMENT
-                                    || constraint instanceof NamespaceURI
-                                    || constraint instanceof QName){
-                                expireList(constraintEntry.listener);
-                            }else{
-                                if(headConstraintEntry==null)
-                                    headConstraintEntry = constraintEntry;
+                        childEntry.constraintEntry = expireElementConstraints(childEntry.constraintEntry);
+                        if(childEntry.localNames!=null){
+                            Iterator<Map.Entry<String, ConstraintEntry>> iter = childEntry.localNames.entrySet().iterator();
+                            while(iter.hasNext()){
+                                Map.Entry<String, ConstraintEntry> mapEntry = iter.next();
+                                ConstraintEntry list = expireElementConstraints(mapEntry.getValue());
+                                if(list==null)
+                                    iter.remove();
                                 else
-                                    lastConstraintEntry.next = constraintEntry;
-                                lastConstraintEntry = constraintEntry;
+                                    mapEntry.setValue(list);
                             }
-                            constraintEntry = constraintEntry.next;
-                        }while(constraintEntry!=null);
-                        childEntry.constraintEntry = headConstraintEntry;
-                        if(lastConstraintEntry!=null)
-                            lastConstraintEntry.next = null;
-
-                        if(headConstraintEntry==null){
-                            axisEntries[Axis.CHILD] = null;
-                            activeCount--;
-                            axisEntryCount--;
+                            for(ConstraintEntry list: childEntry.namespaces.values())
+                                expireEntries(list);
+                            childEntry.namespaces.clear();
                         }
+
+                        if(childEntry.isEmpty())
+                            removeEntry(Axis.CHILD);
                     }
                 }
             }
@@ -432,13 +663,71 @@ public final class EventID{
         return axisEntryCount==0;
     }
 
+    /**
+     * expires constraints which can match only elements,
+     * and returns the remaining constraints
+     */
+    private ConstraintEntry expireElementConstraints(ConstraintEntry constraintEntry){
+        ConstraintEntry headConstraintEntry = null;
+        ConstraintEntry lastConstraintEntry = null;
+        while(constraintEntry!=null){
+            Constraint constraint = constraintEntry.constraint;
+            int constraintID = constraint.id;
+            ConstraintEntry next = constraintEntry.next;
+            if(constraintID==Constraint.ID_STAR
+                    || constraintID==Constraint.ID_PARENTNODE
+                    || constraintID==Constraint.ID_ELEMENT
+                    || constraint instanceof NamespaceURI
+                    || constraint instanceof QName){
+                expireList(constraintEntry.listener);
+                pool.recycle(constraintEntry);
+            }else{
+                if(headConstraintEntry==null)
+                    headConstraintEntry = constraintEntry;
+                else
+                    lastConstraintEntry.next = constraintEntry;
+                lastConstraintEntry = constraintEntry;
+            }
+            constraintEntry = next;
+        }
+        if(lastConstraintEntry!=null)
+            lastConstraintEntry.next = null;
+        return headConstraintEntry;
+    }
+
     private boolean onEvent(Event event, AxisEntry axisEntry){
         assert axisEntry.active;
 
+        if(axisEntry.constraintEntry!=null)
+            axisEntry.constraintEntry = onEvent(event, axisEntry, axisEntry.constraintEntry);
+        if(axisEntry.localNames!=null){
+            onEvent(event, axisEntry, axisEntry.localNames, event.localName());
+            onEvent(event, axisEntry, axisEntry.namespaces, event.namespaceURI());
+        }
+        return axisEntry.isEmpty();
+    }
+
+    private void onEvent(Event event, AxisEntry axisEntry, Map<String, ConstraintEntry> index, String key){
+        if(key!=null && !index.isEmpty()){
+            ConstraintEntry list = index.get(key);
+            if(list!=null){
+                ConstraintEntry newList = onEvent(event, axisEntry, list);
+                if(newList==null)
+                    index.remove(key);
+                else if(newList!=list)
+                    index.put(key, newList);
+            }
+        }
+    }
+
+    /**
+     * notifies listeners of matching constraints in given list,
+     * and returns the constraints which are still alive
+     */
+    private ConstraintEntry onEvent(Event event, AxisEntry axisEntry, ConstraintEntry constraintEntry){
         EventID eventID = null;
         ConstraintEntry headConstraintEntry = null;
         ConstraintEntry lastConstraintEntry = null;
-        ConstraintEntry constraintEntry = axisEntry.constraintEntry;
         do{
             Constraint constraint = constraintEntry.constraint;
             boolean keep = true;
@@ -448,20 +737,21 @@ public final class EventID{
 
                 AxisListener listener = constraintEntry.listener;
                 do{
+                    AxisListener next = listener.nextAxisListener;
                     if(!listener.manuallyExpired){
                         if(eventID==null)
                             eventID = event.getID();
                         listener.onHit(eventID);
-
-                        if(!listener.manuallyExpired){
-                            if(headListener==null)
-                                headListener = listener;
-                            else
-                                lastListener.nextAxisListener = listener;
-                            lastListener = listener;
-                        }
                     }
-                    listener = listener.nextAxisListener;
+                    if(!listener.manuallyExpired){
+                        if(headListener==null)
+                            headListener = listener;
+                        else
+                            lastListener.nextAxisListener = listener;
+                        lastListener = listener;
+                    }else
+                        listener.released();
+                    listener = next;
                 }while(listener!=null);
 
                 if(headListener==null){
@@ -476,22 +766,20 @@ public final class EventID{
                     lastListener.nextAxisListener = null;
                 }
             }
+            ConstraintEntry next = constraintEntry.next;
             if(keep){
                 if(headConstraintEntry==null)
                     headConstraintEntry = constraintEntry;
                 else
                     lastConstraintEntry.next = constraintEntry;
                 lastConstraintEntry = constraintEntry;
-            }
-            constraintEntry = constraintEntry.next;
+            }else
+                pool.recycle(constraintEntry);
+            constraintEntry = next;
         }while(constraintEntry!=null);
 
-        if(headConstraintEntry==null)
-            return true;
-        else{
-            axisEntry.constraintEntry = headConstraintEntry;
+        if(lastConstraintEntry!=null)
             lastConstraintEntry.next = null;
-            return false;
-        }
+        return headConstraintEntry;
     }
 }
@@ -0,0 +1,235 @@
+/**
+ * Copyright 2015 Santhosh Kumar Tekuri
+ *
+ * The JLibs authors license this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jlibs.xml.sax.dog.sniff;
+
+import jlibs.core.io.IOUtil;
+import jlibs.core.lang.ImpossibleException;
+import jlibs.xml.sax.dog.NodeItem;
+import jlibs.xml.sax.dog.NodeType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * XMLBuilder which serializes the hit nodes into UTF-8 encoded bytes,
+ * rather than building DOM.
+ * <p>
+ * The {@link NodeItem#xml} of hit nodes will be {@code byte[]}.
+ * Element and document nodes are serialized along with their subtree,
+ * declaring all namespaces in scope, so that each of them is well-formed
+ * on its own.
+ * <p>
+ * When used along with {@link jlibs.xml.sax.dog.expr.InstantEvaluationListener},
+ * each hit is notified as soon as its end is seen and none of the serialized
+ * content is retained by this builder after that, i.e, memory used is bounded
+ * by the largest hit rather than by the size of document.
+ *
+ * @author Santhosh Kumar T
+ */
+public class BytesBuilder extends XMLBuilder{
+    private final StringBuilder buffer = new StringBuilder();
+
+    // qnames of elements open, and default namespace in effect for each of them
+    private final List<String> qnames = new ArrayList<String>();
+    private final List<String> defaults = new ArrayList<String>();
+
+    // true if start tag of last element started is not yet closed
+    private boolean tagOpen;
+
+    @Override
+    protected Object onStartDocument(){
+        buffer.setLength(0);
+        defaults.add("");
+        return 0;
+    }
+
+    @Override
+    protected Object onStartElement(Event event){
+        if(defaults.isEmpty())
+            buffer.setLength(0);
+        closeStartTag();
+
+        int offset = buffer.length();
+        String qname = event.qualifiedName();
+        buffer.append('<').append(qname);
+        tagOpen = true;
+
+        // default namespace in effect for parent and this element
+        String inherited = defaults.isEmpty() ? "" : defaults.get(defaults.size()-1);
+        String uri = qname.indexOf(':')==-1 ? event.namespaceURI() : inherited;
+
+        // hit element must declare default namespace, to be well-formed on its own
+        if(!uri.equals(inherited) || (uri.length()>0 && currentNodeItem()!=null)){
+            buffer.append(" xmlns=\"");
+            appendEscaped(uri, true);
+            buffer.append('"');
+        }
+        defaults.add(uri);
+        qnames.add(qname);
+
+        return offset;
+    }
+
+    @Override
+    protected Object onEvent(Event event){
+        boolean building = !defaults.isEmpty();
+        if(!building)
+            buffer.setLength(0);
+
+        int type = event.type();
+        if(type==NodeType.ATTRIBUTE || type==NodeType.NAMESPACE){
+            if(building){
+                if(!tagOpen)
+                    throw new ImpossibleException("attribute after start tag is closed");
+                if(type==NodeType.NAMESPACE){
+                    String prefix = event.localName();
+                    // default namespace is declared in onStartElement as required
+                    if(prefix.length()==0 || prefix.equals("xml")){
+                        if(!event.isNodeHit())
+                            return null;
+                        int offset = buffer.length();
+                        append(event);
+                        byte[] bytes = buffer.substring(offset).getBytes(IOUtil.UTF_8);
+                        buffer.setLength(offset);
+                        return bytes;
+                    }
+                }
+                buffer.append(' ');
+            }
+        }else
+            closeStartTag();
+
+        int offset = buffer.length();
+        append(event);
+        return event.isNodeHit() ? offset : null;
+    }
+
+    private void append(Event event){
+        int type = event.type();
+        switch(type){
+            case NodeType.ATTRIBUTE:
+                buffer.append(event.qualifiedName()).append("=\"");
+                appendEscaped(event.value(), true);
+                buffer.append('"');
+                break;
+            case NodeType.NAMESPACE:
+                String prefix = event.localName();
+                buffer.append(prefix.length()==0 ? "xmlns" : "xmlns:"+prefix).append("=\"");
+                appendEscaped(event.value(), true);
+                buffer.append('"');
+                break;
+            case NodeType.TEXT:
+                appendEscaped(event.value(), false);
+                break;
+            case NodeType.COMMENT:
+                buffer.append("<!--").append(event.value()).append("-->");
+                break;
+            case NodeType.PI:
+                buffer.append("<?").append(event.localName());
+                String data = event.value();
+                if(data!=null && data.length()>0)
+                    buffer.append(' ').append(data);
+                buffer.append("?>");
+                break;
+            default:
+                throw new ImpossibleException("event.type: "+type);
+        }
+    }
+
+    @Override
+    protected Object onEndElement(){
+        String qname = qnames.remove(qnames.size()-1);
+        defaults.remove(defaults.size()-1);
+        if(tagOpen){
+            buffer.append("/>");
+            tagOpen = false;
+        }else
+            buffer.append("</").append(qname).append('>');
+        return defaults.isEmpty() ? null : Boolean.TRUE;
+    }
+
+    @Override
+    protected void onEndDocument(){
+        clearCurNode();
+    }
+
+    @Override
+    protected Object onFinished(Object xml){
+        if(xml instanceof Integer)
+            return buffer.substring((Integer)xml).getBytes(IOUtil.UTF_8);
+        else
+            return xml;
+    }
+
+    @Override
+    protected void clearCurNode(){
+        buffer.setLength(0);
+        qnames.clear();
+        defaults.clear();
+        tagOpen = false;
+    }
+
+    @Override
+    protected void removeFromParent(Object node){
+        // each hit is serialized into its own byte[], so there is nothing to detach
+    }
+
+    @Override
+    protected boolean hasParent(){
+        // hit elements are to be serialized with all namespaces in scope
+        return currentNodeItem()==null;
+    }
+
+    private void closeStartTag(){
+        if(tagOpen){
+            buffer.append('>');
+            tagOpen = false;
+        }
+    }
+
+    private void appendEscaped(String str, boolean attribute){
+        int len = str.length();
+        for(int i=0; i<len; i++){
+            char ch = str.charAt(i);
+            switch(ch){
+                case '&':
+                    buffer.append("&amp;");
+                    break;
+                case '<':
+                    buffer.append("&lt;");
+                    break;
+                case '>':
+                    buffer.append("&gt;");
+                    break;
+                case '"':
+                    buffer.append(attribute ? "&quot;" : "\"");
+                    break;
+                case '\r':
+                    buffer.append("&#13;");
+                    break;
+                case '\n':
+                    buffer.append(attribute ? "&#10;" : "\n");
+                    break;
+                case '\t':
+                    buffer.append(attribute ? "&#9;" : "\t");
+                    break;
+                default:
+                    buffer.append(ch);
+            }
+        }
+    }
+}
@@ -17,15 +17,20 @@
 package jlibs.xml.sax.dog.sniff;
 
 import jlibs.core.lang.NotImplementedException;
+import jlibs.core.util.LongTreeMap;
 import jlibs.xml.DefaultNamespaceContext;
 import jlibs.xml.sax.dog.DataType;
 import jlibs.xml.sax.dog.NodeItem;
 import jlibs.xml.sax.dog.NodeType;
 import jlibs.xml.sax.dog.Scope;
 import jlibs.xml.sax.dog.expr.*;
+import jlibs.xml.sax.dog.expr.nodset.LocationEvaluation;
+import jlibs.xml.sax.dog.expr.nodset.LocationExpression;
 import jlibs.xml.sax.dog.expr.nodset.NodeSet;
 import jlibs.xml.sax.dog.expr.nodset.NodeSetListener;
+import jlibs.xml.sax.dog.expr.nodset.PathTrie;
 import jlibs.xml.sax.dog.expr.nodset.PositionTracker;
+import jlibs.xml.sax.dog.expr.nodset.PredicateEvaluation;
 import jlibs.xml.sax.dog.expr.nodset.StringEvaluation;
 import jlibs.xml.sax.dog.path.EventID;
 import jlibs.xml.sax.helpers.MyNamespaceSupport;
@@ -41,12 +46,18 @@ import java.util.*;
 public final class Event extends EvaluationListener implements NodeSetListener{
     private final List<Expression> exprList;
     private final List<Expression> globalExprList;
-    private final EventID.ConstraintEntry listenersArray[][];
+    private final EventID.Pool pool;
     private final SAXHandler handler;
+    private final PathTrie pathTrie;
 
-    @SuppressWarnings({"unchecked"})
     public Event(NamespaceContext givenNSContext, List<Expression> globalExprList, List<Expression> exprList, int noOfConstraints, boolean langInterested){
+        this(givenNSContext, globalExprList, exprList, noOfConstraints, langInterested, null);
+    }
+
+    @SuppressWarnings({"unchecked"})
+    public Event(NamespaceContext givenNSContext, List<Expression> globalExprList, List<Expression> exprList, int noOfConstraints, boolean langInterested, PathTrie pathTrie){
         this.givenNSContext = givenNSContext;
+        this.pathTrie = pathTrie;
         this.globalExprList = globalExprList;
         this.exprList = exprList;
 
@@ -56,10 +67,53 @@ public final class Event extends EvaluationListener implements NodeSetListener{
         listeners = new List[noOfXPaths];
         instantListenersCount = new int[noOfXPaths];
         finished = new BitSet(noOfXPaths);
-        listenersArray = new EventID.ConstraintEntry[6][noOfConstraints];
+        pool = new EventID.Pool(noOfConstraints);
         handler = new SAXHandler(this, langInterested);
     }
 
+    /**
+     * Resets this event, so that it can be reused to sniff another document.
+     * Pooled objects are retained, so that sniffing large number of small
+     * documents creates little garbage.
+     * <p>
+     * The listener and xmlBuilder are cleared, and must be set again.
+     * The {@link #getNamespaceContext() namespace context} is retained, but
+     * copied before declaring new prefixes, so that it remains valid for the
+     * results of previous documents.
+     */
+    public void reset(){
+        listener = null;
+        xmlBuilder = null;
+        nsContextShared = true;
+
+        Arrays.fill(results, null);
+        Arrays.fill(pendingInstantResults, 0);
+        Arrays.fill(listeners, null);
+        Arrays.fill(instantListenersCount, 0);
+        finished.clear();
+        pendingExpressions = 0;
+        stopped = false;
+
+        // these are left, only if previous document was stopped in the middle
+        current = null;
+        pool.reset();
+        tailInfo = locationInfo = null;
+        while(stoppedInfo!=null){
+            Info prev = stoppedInfo.prev;
+            recycle(stoppedInfo);
+            stoppedInfo = prev;
+        }
+
+        nodeItem = null;
+        attributes = null;
+        interestedInAttributes = interestedInNamespaces = interestedInText = false;
+        elementLocation.setLength(0);
+        buff.setLength(0);
+        positionTrackerStack.clear();
+        evaluation = null;
+        stringEvaluation = null;
+    }
+
     public NamespaceContext getNamespaceContext(){
         return nsContext;
     }
@@ -77,6 +131,10 @@ public final class Event extends EvaluationListener implements NodeSetListener{
     private String qualifiedName;
     private String value;
 
+    // attribute value is taken from attributes, only if it is asked
+    private Attributes attributes;
+    private int attributeIndex;
+
     public long order(){
         return order;
     }
@@ -98,8 +156,12 @@ public final class Event extends EvaluationListener implements NodeSetListener{
     }
 
     public String value(){
-        if(type==NodeType.TEXT && value==null)
-            value = buff.length()>0 ? buff.toString() : null;
+        if(value==null){
+            if(type==NodeType.TEXT)
+                value = buff.length()>0 ? buff.toString() : null;
+            else if(type==NodeType.ATTRIBUTE && attributes!=null)
+                value = attributes.getValue(attributeIndex);
+        }
         return value;
     }
 
@@ -170,7 +232,7 @@ public final class Event extends EvaluationListener implements NodeSetListener{
 
     public EventID getID(){
         if(current==null){
-            current = new EventID(type, listenersArray);
+            current = pool.eventID(type);
 //            current.location = location();
         }
         return current;
@@ -191,6 +253,7 @@ public final class Event extends EvaluationListener implements NodeSetListener{
         boolean interestedInNamespaces = false;
         boolean interestedInText = false;
         do{
+            EventID previous = id.previous;
             if(!id.onEvent(this)){
                 if(firstID==null)
                     firstID = id;
@@ -201,8 +264,9 @@ public final class Event extends EvaluationListener implements NodeSetListener{
                 interestedInAttributes |= id.interestedInAttributes;
                 interestedInNamespaces |= id.interestedInNamespaces;
                 interestedInText |= id.interestedInText>0;
-            }
-            id = id.previous;
+            }else
+                pool.recycle(id);
+            id = previous;
         }while(id!=null);
         if(activeID!=null)
             activeID.previous = null;
@@ -214,8 +278,11 @@ public final class Event extends EvaluationListener implements NodeSetListener{
             interestedInAttributes |= current.interestedInAttributes;
             interestedInNamespaces |= current.interestedInNamespaces;
             interestedInText |= current.interestedInText>0;
-        }else
+        }else{
+            if(current!=null)
+                pool.recycle(current);
             this.current = firstID;
+        }
 
         this.interestedInAttributes = interestedInAttributes;
         this.interestedInNamespaces = interestedInNamespaces;
@@ -230,6 +297,7 @@ public final class Event extends EvaluationListener implements NodeSetListener{
 
         boolean interestedInAttributes = false;
         do{
+            EventID previous = id.previous;
             if(!id.onEndAttributes()){
                 if(firstID==null)
                     firstID = id;
@@ -238,8 +306,9 @@ public final class Event extends EvaluationListener implements NodeSetListener{
 
                 activeID = id;
                 interestedInAttributes |= id.interestedInAttributes;
-            }
-            id = id.previous;
+            }else
+                pool.recycle(id);
+            id = previous;
         }while(id!=null);
         if(activeID!=null)
             activeID.previous = null;
@@ -257,6 +326,7 @@ public final class Event extends EvaluationListener implements NodeSetListener{
         boolean interestedInNamespaces = false;
         boolean interestedInText = false;
         do{
+            EventID previous = id.previous;
             if(!id.push()){
                 if(firstID==null)
                     firstID = id;
@@ -267,8 +337,9 @@ public final class Event extends EvaluationListener implements NodeSetListener{
                 interestedInAttributes |= id.interestedInAttributes;
                 interestedInNamespaces |= id.interestedInNamespaces;
                 interestedInText |= id.interestedInText>0;
-            }
-            id = id.previous;
+            }else
+                pool.recycle(id);
+            id = previous;
         }while(id!=null);
         if(activeID!=null)
             activeID.previous = null;
@@ -289,6 +360,7 @@ public final class Event extends EvaluationListener implements NodeSetListener{
         boolean interestedInText = false;
         boolean doc = tailInfo==null;
         do{
+            EventID previous = id.previous;
             if(!id.pop(doc)){
                 if(firstID==null)
                     firstID = id;
@@ -299,8 +371,9 @@ public final class Event extends EvaluationListener implements NodeSetListener{
                 interestedInAttributes |= id.interestedInAttributes;
                 interestedInNamespaces |= id.interestedInNamespaces;
                 interestedInText |= id.interestedInText>0;
-            }
-            id = id.previous;
+            }else
+                pool.recycle(id);
+            id = previous;
         }while(id!=null);
         if(activeID!=null)
             activeID.previous = null;
@@ -321,6 +394,11 @@ public final class Event extends EvaluationListener implements NodeSetListener{
         return nodeItem;
     }
 
+    /** tells whether current node is hit by any xpath */
+    boolean isNodeHit(){
+        return nodeItem!=null;
+    }
+
     /*-------------------------------------------------[ XMLBuilder ]---------------------------------------------------*/
 
     private XMLBuilder xmlBuilder = null;
@@ -347,8 +425,7 @@ public final class Event extends EvaluationListener implements NodeSetListener{
         Object xml = xmlBuilder.onEvent(this);
         if(nodeItem!=null){
             nodeItem.xml = xml;
-            nodeItem.xmlBuilt = true;
-            finishedXMLBuild(nodeItem);
+            xmlBuilder.finished(this, nodeItem);
         }
     }
 
@@ -407,9 +484,12 @@ public final class Event extends EvaluationListener implements NodeSetListener{
             else
                 needEvaluation = true;
         }
-        if(!needEvaluation)
+        if(!needEvaluation){
             results[id] = evaluation.expression.storeResult ? evaluation.getResult() : null;
+            evaluation.recycle(); // all listeners have consumed the result
+        }
         if(--pendingExpressions==0 && tailInfo!=null){
+            stoppedInfo = tailInfo;
             tailInfo = null;
             if(xmlBuilder==null)
                 throw STOP_PARSING;
@@ -544,6 +624,7 @@ public final class Event extends EvaluationListener implements NodeSetListener{
         this.localName = localName;
         this.qualifiedName = qualifiedName;
         this.value = value;
+        attributes = null;
     }
 
     private void onEvent(int type, String namespaceURI, String localName, String qualifiedName, String value){
@@ -555,6 +636,8 @@ public final class Event extends EvaluationListener implements NodeSetListener{
         this.localName = localName;
         this.qualifiedName = qualifiedName;
         this.value = value;
+        if(type!=NodeType.ATTRIBUTE)
+            attributes = null;
 
         if(!stopped && type!=NodeType.ELEMENT)
             fireEvent();
@@ -570,8 +653,9 @@ public final class Event extends EvaluationListener implements NodeSetListener{
         if(noOfXPaths==0)
             throw STOP_PARSING;
         pendingExpressions = noOfXPaths;
-        nsContext = new DefaultNamespaceContext();
-        locationInfo = tailInfo = new Info();
+        if(nsContext==null) // retained on reset, so that qnames cached are valid
+            nsContext = new DefaultNamespaceContext();
+        locationInfo = tailInfo = newInfo();
         tailInfo.lang = "";
         tailInfo.slash = 0;
 
@@ -579,10 +663,15 @@ public final class Event extends EvaluationListener implements NodeSetListener{
         type = NodeType.DOCUMENT;
         value = namespaceURI = localName = qualifiedName = "";
 
+        PathTrie.Session pathTrieSession = pathTrie==null ? null : pathTrie.new Session(this);
         Object results[] = this.results;
         for(int i=noOfXPaths-1; i>=0; i--){
             Expression expression = exprList.get(i);
-            Object result = expression.getResult(this);
+            Object result;
+            if(pathTrieSession!=null && pathTrie.contains(expression))
+                result = pathTrieSession.getResult((LocationExpression)expression);
+            else
+                result = expression.getResult(this);
             if(result instanceof Evaluation){
                 results[i] = result;
                 Evaluation eval = (Evaluation)result;
@@ -600,6 +689,8 @@ public final class Event extends EvaluationListener implements NodeSetListener{
                 finished(eval);
             }
         }
+        if(pathTrieSession!=null)
+            pathTrieSession.start(getID());
         current.listenersAdded();
         firePush();
         if(isXMLRequired())
@@ -621,8 +712,8 @@ public final class Event extends EvaluationListener implements NodeSetListener{
         onEvent(NodeType.ELEMENT, uri, localName, qualifiedName, null);
 
         if(!stopped){
-            Info info = new Info();
-            info.elem = qname(uri, localName);
+            Info info = newInfo();
+            info.elem = elementQName(uri, localName);
             info.elemntPos = tailInfo.updateElementPosition(info.elem);
             info.lang = lang!=null ? lang : language();
 
@@ -677,13 +768,16 @@ public final class Event extends EvaluationListener implements NodeSetListener{
         if(interestedInAttributes){
             int len = attrs.getLength();
             for(int i=0; i<len; i++){
-                onEvent(NodeType.ATTRIBUTE, attrs.getURI(i), attrs.getLocalName(i), attrs.getQName(i), attrs.getValue(i));
+                attributes = attrs;
+                attributeIndex = i;
+                onEvent(NodeType.ATTRIBUTE, attrs.getURI(i), attrs.getLocalName(i), attrs.getQName(i), null);
                 notifyXMLBuilder();
             }
             fireEndAttributes();
         }else if(xmlBuilder!=null && xmlBuilder.active) {
             xmlBuilder.onAttributes(this, attrs);
-            fireEndAttributes();
+            if(current!=null)
+                fireEndAttributes();
         }
     }
 
@@ -703,7 +797,8 @@ public final class Event extends EvaluationListener implements NodeSetListener{
             fireEndAttributes();
         }else if(xmlBuilder!=null && xmlBuilder.active) {
             xmlBuilder.onAttributes(this, reader);
-            fireEndAttributes();
+            if(current!=null)
+                fireEndAttributes();
         }
     }
 
@@ -720,6 +815,20 @@ public final class Event extends EvaluationListener implements NodeSetListener{
             xmlBuilder.onNamespaces(this, nsSupport);
     }
 
+    /**
+     * tells whether content of the element just started can be skipped,
+     * i.e, no xpath can be hit by its descendants and xml is not being built
+     */
+    public boolean canSkipContent(){
+        if(stopped || (xmlBuilder!=null && xmlBuilder.active))
+            return false;
+        for(EventID id=current; id!=null; id=id.previous){
+            if(id.isInterestedInContent())
+                return false;
+        }
+        return true;
+    }
+
     /*-------------------------------------------------[ Stack ]---------------------------------------------------*/
 
     private Info tailInfo;
@@ -742,6 +851,51 @@ public final class Event extends EvaluationListener implements NodeSetListener{
             tailInfo.next = null;
 
         firePop();
+        recycle(curTailInfo);
+    }
+
+    // popped infos, linked by prev
+    private Info freeInfo;
+
+    // tailInfo when document is stopped in the middle
+    private Info stoppedInfo;
+
+    private Info newInfo(){
+        Info info = freeInfo;
+        if(info==null)
+            return new Info();
+        freeInfo = info.prev;
+        info.prev = null;
+        return info;
+    }
+
+    private void recycle(Info info){
+        info.next = null;
+        info.slash = -1;
+        info.elem = null;
+        info.lang = null;
+        info.elemntPos = 1;
+        resetPositions(info.elemMap);
+        resetPositions(info.piMap);
+        info.textCount = 0;
+        info.commentCount = 0;
+
+        info.prev = freeInfo;
+        freeInfo = info;
+    }
+
+    // maximum entries retained in position map of recycled info
+    private static final int MAX_POOLED_POSITIONS = 64;
+
+    private static void resetPositions(Map<String, IntWrapper> map){
+        if(map!=null){
+            if(map.size()>MAX_POOLED_POSITIONS)
+                map.clear();
+            else{
+                for(IntWrapper position: map.values())
+                    position.value = 0;
+            }
+        }
     }
 
     static final class IntWrapper{
@@ -758,6 +912,7 @@ public final class Event extends EvaluationListener implements NodeSetListener{
 
         int elemntPos = 1;
 
+        // position with zero value is left by recycled info
         private static int updatePosition(Map<String, IntWrapper> map, String key){
             IntWrapper position = map.get(key);
             if(position==null){
@@ -788,11 +943,37 @@ public final class Event extends EvaluationListener implements NodeSetListener{
     /*-------------------------------------------------[ NamespaceContext ]---------------------------------------------------*/
 
     private DefaultNamespaceContext nsContext;
+    private boolean nsContextShared; // with results of previous documents
     public final NamespaceContext givenNSContext;
 
+    // uri -> localName -> qname, of elements
+    private final Map<String, Map<String, String>> elementQNames = new HashMap<String, Map<String, String>>();
+    private int elementQNamesCount;
+    private static final int MAX_ELEMENT_QNAMES = 1024;
+
+    private String elementQName(String uri, String name){
+        Map<String, String> qnames = elementQNames.get(uri);
+        if(qnames==null)
+            elementQNames.put(uri, qnames=new HashMap<String, String>());
+        String qname = qnames.get(name);
+        if(qname==null){
+            if(++elementQNamesCount>MAX_ELEMENT_QNAMES){
+                for(Map<String, String> map: elementQNames.values())
+                    map.clear();
+                elementQNamesCount = 1;
+            }
+            qnames.put(name, qname=qname(uri, name));
+        }
+        return qname;
+    }
+
     private String qname(String uri, String name){
         String prefix = nsContext.getPrefix(uri);
         if(prefix==null){
+            if(nsContextShared){
+                nsContext = new DefaultNamespaceContext(nsContext);
+                nsContextShared = false;
+            }
             prefix = givenNSContext.getPrefix(uri);
             if(prefix!=null)
                 nsContext.declarePrefix(prefix, uri);
@@ -854,4 +1035,19 @@ public final class Event extends EvaluationListener implements NodeSetListener{
 
     public ArrayDeque<PositionTracker> positionTrackerStack = new ArrayDeque<PositionTracker>();
     public StringEvaluation stringEvaluation;
+
+    /*-------------------------------------------------[ Evaluation Pool ]---------------------------------------------------*/
+
+    // evaluations created per node hit, are returned here by Evaluation.recycle()
+    // once their listener consumed the result. these survive reset(), so that
+    // documents after the first one reuse them
+    public static final int MAX_POOLED_EVALUATIONS = 256;
+    private static final int MAX_POOLED_RESULT_ENTRIES = 1024;
+
+    public final ArrayDeque<LocationEvaluation> locationEvaluations = new ArrayDeque<LocationEvaluation>();
+    public final ArrayDeque<PredicateEvaluation> predicateEvaluations = new ArrayDeque<PredicateEvaluation>();
+    public final ArrayDeque<Evaluation> functionEvaluations = new ArrayDeque<Evaluation>();
+
+    /** shared by result maps of pooled evaluations */
+    public final LongTreeMap.EntryPool<Object> entryPool = new LongTreeMap.EntryPool<Object>(MAX_POOLED_RESULT_ENTRIES);
 }
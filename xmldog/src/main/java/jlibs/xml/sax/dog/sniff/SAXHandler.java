@@ -17,6 +17,7 @@
 package jlibs.xml.sax.dog.sniff;
 
 import jlibs.xml.Namespaces;
+import jlibs.xml.sax.SubtreeSkipper;
 import jlibs.xml.sax.helpers.MyNamespaceSupport;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
@@ -34,6 +35,16 @@ public final class SAXHandler extends DefaultHandler2{
         this.langInterested = langInterested;
     }
 
+    private SubtreeSkipper subtreeSkipper;
+
+    /**
+     * if set, reader is asked to skip the content of elements
+     * which can't be hit by any xpath
+     */
+    public void setSubtreeSkipper(SubtreeSkipper subtreeSkipper){
+        this.subtreeSkipper = subtreeSkipper;
+    }
+
     public void startDocument() throws SAXException{
         nsSupport.startDocument();
         event.onStartDocument();
@@ -55,6 +66,8 @@ public final class SAXHandler extends DefaultHandler2{
         event.onStartElement(uri, localName, qName, langInterested ? attrs.getValue(Namespaces.URI_XML, "lang") : null);
         event.onNamespaces(nsSupport);
         event.onAttributes(attrs);
+        if(subtreeSkipper!=null && event.canSkipContent())
+            subtreeSkipper.skipSubtree();
     }
 
     @Override
@@ -54,9 +54,9 @@ public abstract class XMLBuilder{
     Object doEndElement(Event event){
         assert active;
         NodeItem finishedNode = stack.remove(stack.size()-1);
-        if(finishedNode!=null)
-            event.finishedXMLBuild(finishedNode);
         Object node = onEndElement();
+        if(finishedNode!=null)
+            finished(event, finishedNode);
         if(node==null)
             active = false;
         return node;
@@ -67,12 +67,37 @@ public abstract class XMLBuilder{
         if(!stack.isEmpty()){
             NodeItem finishedNode = stack.remove(stack.size()-1);
             if(finishedNode!=null)
-                event.finishedXMLBuild(finishedNode);
+                finished(event, finishedNode);
         }
         stack = null;
         onEndDocument();
     }
 
+    void finished(Event event, NodeItem nodeItem){
+        if(nodeItem.xml!=null)
+            nodeItem.xml = onFinished(nodeItem.xml);
+        event.finishedXMLBuild(nodeItem);
+    }
+
+    /**
+     * Called when xml of a node is completely built, i.e, for document
+     * and element nodes after their end. Returns the xml to be set into
+     * NodeItem.
+     * <p>
+     * The default implementation returns the given {@code xml} as is.
+     */
+    protected Object onFinished(Object xml){
+        return xml;
+    }
+
+    /**
+     * Returns the NodeItem of element/document being built currently.
+     * returns null, if it is not hit by any xpath
+     */
+    protected final NodeItem currentNodeItem(){
+        return stack.isEmpty() ? null : stack.get(stack.size()-1);
+    }
+
     public void onAttributes(Event event, Attributes attrs){
         assert active;
         int len = attrs.getLength();
@@ -133,6 +158,9 @@ public abstract class XMLBuilder{
                         /* comes here only when no descendant nodeitem was there */
                         clearCurNode();
                         active = false;
+
+                        /* elements being built are no longer notified */
+                        stack.clear();
                     }
                     return;
                 }